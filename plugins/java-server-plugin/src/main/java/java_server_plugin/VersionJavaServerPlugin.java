@@ -0,0 +1,65 @@
+package java_server_plugin;
+
+import java.io.File;
+import java.util.List;
+
+import java_server_plugin.config.VersionConfig;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * Goal which deploys, canaries, switches or retires a context version on a running Restify Java Server.
+ */
+@Mojo(defaultPhase=LifecyclePhase.PRE_INTEGRATION_TEST, name="version")
+public class VersionJavaServerPlugin extends AbstractMojo {
+
+	@Parameter( defaultValue = "${project}", readonly = true )
+	private MavenProject project;
+
+	/**
+     * Version actions, executed in order.
+     */
+	@Parameter(required=true )
+    private List<VersionConfig> versionConfigs;
+
+    public VersionJavaServerPlugin() {
+	}
+
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		getLog().info("Jetty 2 Server Plugin - Server context versions .... ");
+		for(VersionConfig config: versionConfigs) {
+			boolean done = false;
+			try {
+				switch (config.getAction()) {
+				case DEPLOY:
+					String jarFilePath = config.getFile()!=null ? new File(config.getFile()).getAbsolutePath() : null;
+					done = RestfyJavaServer.deployRemoteVersion(config.getHostname(), config.getLoopback(), config.getContext(), config.getVersion(), config.getClassNames(), jarFilePath);
+					break;
+				case CANARY:
+					done = RestfyJavaServer.canaryRemoteVersion(config.getHostname(), config.getLoopback(), config.getContext(), config.getVersion(), config.getWeight());
+					break;
+				case SWITCH:
+					done = RestfyJavaServer.switchRemoteVersion(config.getHostname(), config.getLoopback(), config.getContext(), config.getVersion());
+					break;
+				case RETIRE:
+					done = RestfyJavaServer.retireRemoteVersion(config.getHostname(), config.getLoopback(), config.getContext(), config.getVersion());
+					break;
+				}
+			} catch (Throwable e) {
+				throw new MojoExecutionException("Jetty 2 Server Plugin - Server "+config+" version error", e);
+			}
+			getLog().info("Jetty 2 Server Plugin - Server "+config+" version action done : " + done);
+			if (!done)
+				throw new MojoFailureException("Jetty 2 Server Plugin - Server "+config+" version action failed");
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package java_server_plugin.config;
+
+public class VersionConfig {
+	public enum ACTION {DEPLOY, CANARY, SWITCH, RETIRE};
+    private String hostname = "localhost";
+    private int loopback = 15001;
+    private ACTION action = ACTION.DEPLOY;
+    private String context;
+    private String version;
+    private String classNames;
+    private String file;
+    private int weight = 0;
+	public VersionConfig() {
+		super();
+	}
+	public String getHostname() {
+		return hostname;
+	}
+	public void setHostname(String hostname) {
+		this.hostname = hostname;
+	}
+	public int getLoopback() {
+		return loopback;
+	}
+	public void setLoopback(int loopback) {
+		this.loopback = loopback;
+	}
+	public ACTION getAction() {
+		return action;
+	}
+	public void setAction(ACTION action) {
+		this.action = action;
+	}
+	public String getContext() {
+		return context;
+	}
+	public void setContext(String context) {
+		this.context = context;
+	}
+	public String getVersion() {
+		return version;
+	}
+	public void setVersion(String version) {
+		this.version = version;
+	}
+	public String getClassNames() {
+		return classNames;
+	}
+	public void setClassNames(String classNames) {
+		this.classNames = classNames;
+	}
+	public String getFile() {
+		return file;
+	}
+	public void setFile(String file) {
+		this.file = file;
+	}
+	public int getWeight() {
+		return weight;
+	}
+	public void setWeight(int weight) {
+		this.weight = weight;
+	}
+	@Override
+	public String toString() {
+		return "VersionConfig [hostname=" + hostname + ", loopback="
+				+ loopback + ", action=" + action + ", context=" + context
+				+ ", version=" + version + ", classNames=" + classNames
+				+ ", file=" + file + ", weight=" + weight + "]";
+	}
+	
+}
@@ -0,0 +1,83 @@
+package com.service.restfy.java.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deployment installed in a {@link RestfyJavaServer} context, kept to rebuild the handler tree on reload.
+ */
+public class ContextDeployment {
+	public static final String DEFAULT_VERSION = "default";
+
+	private DeployType type;
+	private String contextPath;
+	private String reference;
+	private String classNames;
+	private Map<String, String> serviceProperties = new HashMap<String, String>(0);
+	private String version = DEFAULT_VERSION;
+	private ClassLoader classLoader = null;
+
+	public ContextDeployment(DeployType type, String contextPath, String reference, String classNames, Map<String, String> serviceProperties) {
+		this(type, contextPath, reference, classNames, serviceProperties, DEFAULT_VERSION);
+	}
+
+	public ContextDeployment(DeployType type, String contextPath, String reference, String classNames, Map<String, String> serviceProperties, String version) {
+		this(type, contextPath, reference, classNames, serviceProperties, version, null);
+	}
+
+	/**
+	 * @param classLoader class loader of the deployment classes, null if they are on the server class path
+	 */
+	public ContextDeployment(DeployType type, String contextPath, String reference, String classNames, Map<String, String> serviceProperties, String version, ClassLoader classLoader) {
+		super();
+		this.version = version;
+		this.classLoader = classLoader;
+		this.type = type;
+		this.contextPath = contextPath;
+		this.reference = reference;
+		this.classNames = classNames;
+		if (serviceProperties!=null)
+			this.serviceProperties.putAll(serviceProperties);
+	}
+
+	public DeployType getType() {
+		return type;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public String getClassNames() {
+		return classNames;
+	}
+
+	public Map<String, String> getServiceProperties() {
+		return serviceProperties;
+	}
+
+	/**
+	 * @return version of the deployment, many versions of a context can be deployed side by side
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return class loader of a deployment isolated from the server class path, null otherwise
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	@Override
+	public String toString() {
+		return "ContextDeployment [type=" + type + ", contextPath=" + contextPath
+				+ ", reference=" + reference + ", classNames=" + classNames
+				+ ", serviceProperties=" + serviceProperties + ", version=" + version + "]";
+	}
+}
@@ -1,9 +1,33 @@
 package com.service.restfy.java.server;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
+import com.service.restfy.java.server.accounting.ResourceAccountant;
+import com.service.restfy.java.server.batch.BatchDispatcher;
+import com.service.restfy.java.server.capture.TrafficCapture;
+import com.service.restfy.java.server.coalesce.RequestCoalescer;
+import com.service.restfy.java.server.deploy.DeployWatcher;
+import com.service.restfy.java.server.health.HealthHandler;
+import com.service.restfy.java.server.manifest.DeploymentManifest;
+import com.service.restfy.java.server.manifest.ManifestContext;
+import com.service.restfy.java.server.mirror.TrafficMirror;
+import com.service.restfy.java.server.priority.PriorityScheduler;
+import com.service.restfy.java.server.session.OffHeapSessionStore;
+import com.service.restfy.java.server.session.SessionStore;
+import com.service.restfy.java.server.snapshot.DeploymentSnapshot;
+import com.service.restfy.java.server.sse.MetricsStream;
+import com.service.restfy.java.server.supervisor.ServerSupervisor;
+import com.service.restfy.java.server.tls.TlsContextFactory;
+import com.service.restfy.java.server.trace.RequestTracer;
+import com.service.restfy.java.server.upload.UploadSpooler;
+import com.service.restfy.java.server.websocket.PushChannel;
 import com.service.restfy.java.server.test.EntryPoint;
+import com.service.restfy.metrics.MetricsRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +52,47 @@ public class Main {
 		String deployClassNames = EntryPoint.class.getCanonicalName();
 		String deployContext = "/simple";
 		String loopBackport = null;
+		int workers = 0;
+		boolean reusePort = false;
+		String versionTrustedAddresses = null;
+		boolean inheritChannel = false;
+		String handoverFrom = null;
+		boolean stateless = false;
+		int sessionStoreSize = 0;
+		String sessionStoreFile = null;
+		String consoleContext = null;
+		String batchContext = null;
+		int batchConcurrency = BatchDispatcher.DEFAULT_CONCURRENCY;
+		int batchDispatches = BatchDispatcher.DEFAULT_MAX_DISPATCHES;
+		long coalesceMaxWait = 0L;
+		int uploadThreshold = 0;
+		int uploadMaxSize = 0;
+		String uploadDir = null;
+		int httpsPort = -1;
+		String keyStore = null;
+		String keyStorePassword = null;
+		double traceSampleRate = 0d;
+		int traceSlowLogSize = 20;
+		long traceStackThreshold = 0L;
+		double accountingSampleRate = 0d;
+		String captureDir = null;
+		String deployDir = null;
+		double captureSampleRate = 1d;
+		String captureRedactedHeaders = null;
+		String mirrorContext = null;
+		String mirrorReference = null;
+		String mirrorClassNames = null;
+		double mirrorSampleRate = 1d;
+		String manifestFile = null;
+		String snapshotFile = null;
+		String healthPath = HealthHandler.DEFAULT_PATH;
+		int priorityConcurrency = 0;
+		String priorityLanes = null;
+		long priorityMaxWait = PriorityScheduler.DEFAULT_MAX_WAIT;
+		String pushContext = null;
+		int pushMaxQueued = PushChannel.DEFAULT_MAX_QUEUED;
+		long metricsInterval = MetricsStream.DEFAULT_INTERVAL;
+		boolean metrics = false;
 		for(int i=0; i < args.length; i++) {
 			String arg = args[i];
 			if (arg.equalsIgnoreCase("--hostname")) {
@@ -78,6 +143,252 @@ public class Main {
 				} catch (Throwable e) {
 				}
 			}
+			else if (arg.equalsIgnoreCase("--workers")) {
+				try {
+					workers = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--versionTrustedAddresses")) {
+				try {
+					versionTrustedAddresses = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--reusePort")) {
+				try {
+					reusePort = Boolean.parseBoolean(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--inheritChannel")) {
+				try {
+					inheritChannel = Boolean.parseBoolean(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--handoverFrom")) {
+				try {
+					handoverFrom = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--stateless")) {
+				try {
+					stateless = Boolean.parseBoolean(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--sessionStoreSize")) {
+				try {
+					sessionStoreSize = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--sessionStoreFile")) {
+				try {
+					sessionStoreFile = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--console")) {
+				try {
+					consoleContext = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--batch")) {
+				try {
+					batchContext = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--batchConcurrency")) {
+				try {
+					batchConcurrency = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--batchDispatches")) {
+				try {
+					batchDispatches = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--coalesceMaxWait")) {
+				try {
+					coalesceMaxWait = Long.parseLong(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--uploadThreshold")) {
+				try {
+					uploadThreshold = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--uploadMaxSize")) {
+				try {
+					uploadMaxSize = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--uploadDir")) {
+				try {
+					uploadDir = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--httpsPort")) {
+				try {
+					httpsPort = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--keyStore")) {
+				try {
+					keyStore = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--keyStorePassword")) {
+				try {
+					keyStorePassword = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--accountingSampleRate")) {
+				try {
+					accountingSampleRate = Double.parseDouble(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--deployDir")) {
+				try {
+					deployDir = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--captureDir")) {
+				try {
+					captureDir = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--captureRedactedHeaders")) {
+				try {
+					captureRedactedHeaders = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--captureSampleRate")) {
+				try {
+					captureSampleRate = Double.parseDouble(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--mirrorContext")) {
+				try {
+					mirrorContext = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--mirrorReference")) {
+				try {
+					mirrorReference = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--mirrorClassNames")) {
+				try {
+					mirrorClassNames = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--mirrorSampleRate")) {
+				try {
+					mirrorSampleRate = Double.parseDouble(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--manifest")) {
+				try {
+					manifestFile = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--snapshotFile")) {
+				try {
+					snapshotFile = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--healthPath")) {
+				try {
+					healthPath = args[i+1].equalsIgnoreCase("none") ? null : args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--priorityConcurrency")) {
+				try {
+					priorityConcurrency = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--priorityLanes")) {
+				try {
+					priorityLanes = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--priorityMaxWait")) {
+				try {
+					priorityMaxWait = Long.parseLong(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--pushContext")) {
+				try {
+					pushContext = args[i+1];
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--pushMaxQueued")) {
+				try {
+					pushMaxQueued = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--metrics")) {
+				try {
+					metrics = Boolean.parseBoolean(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--metricsInterval")) {
+				try {
+					metricsInterval = Long.parseLong(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--traceSampleRate")) {
+				try {
+					traceSampleRate = Double.parseDouble(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--traceSlowLogSize")) {
+				try {
+					traceSlowLogSize = Integer.parseInt(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
+			else if (arg.equalsIgnoreCase("--traceStackThreshold")) {
+				try {
+					traceStackThreshold = Long.parseLong(args[i+1]);
+				} catch (Throwable e) {
+				}
+			}
 		}
 		logger.info("Configuration : ");
 		logger.info("hostname : " + hostname);
@@ -85,21 +396,180 @@ public class Main {
 		logger.info("server context : " + context);
 		logger.info("server required loopback port : " + loopBackport);
 		logger.info("server stopOnShutdown : " + stopOnShutdown);
+		logger.info("server reuse port : " + reusePort);
+		logger.info("server version trusted addresses : " + versionTrustedAddresses);
+		logger.info("server workers : " + workers);
+		logger.info("server inherit channel : " + inheritChannel);
+		logger.info("server handover from loopback port : " + handoverFrom);
+		logger.info("server stateless : " + stateless);
+		logger.info("server session store size (MB) : " + sessionStoreSize);
+		logger.info("server session store file : " + sessionStoreFile);
+		logger.info("server console context : " + consoleContext);
+		logger.info("server batch context : " + batchContext);
+		logger.info("server batch concurrency : " + batchConcurrency);
+		logger.info("server batch dispatches : " + batchDispatches);
+		logger.info("server coalesce max wait (ms) : " + coalesceMaxWait);
+		logger.info("server upload threshold (KB) : " + uploadThreshold);
+		logger.info("server upload max size (MB) : " + uploadMaxSize);
+		logger.info("server upload directory : " + uploadDir);
+		logger.info("server https port : " + httpsPort);
+		logger.info("server key store : " + keyStore);
+		logger.info("server health path : " + healthPath);
+		logger.info("server priority concurrency : " + priorityConcurrency);
+		logger.info("server priority lanes : " + priorityLanes);
+		logger.info("server priority max wait (ms) : " + priorityMaxWait);
+		logger.info("server push context : " + pushContext);
+		logger.info("server push max queued messages : " + pushMaxQueued);
+		logger.info("server metrics export : " + metrics);
+		logger.info("server metrics stream interval (ms) : " + metricsInterval);
+		logger.info("server trace sample rate : " + traceSampleRate);
+		logger.info("server trace slow log size : " + traceSlowLogSize);
+		logger.info("server trace stack threshold (ms) : " + traceStackThreshold);
+		logger.info("server accounting sample rate : " + accountingSampleRate);
+		logger.info("server capture directory : " + captureDir);
+		logger.info("server capture sample rate : " + captureSampleRate);
+		logger.info("server capture redacted headers : " + captureRedactedHeaders);
+		logger.info("server mirror context : " + mirrorContext);
+		logger.info("server mirror file : " + mirrorReference);
+		logger.info("server mirror class names : " + mirrorClassNames);
+		logger.info("server mirror sample rate : " + mirrorSampleRate);
 		logger.info("deploy type : " + deployType);
+		logger.info("deploy directory : " + deployDir);
 		
 		logger.info("deploy context : " + deployContext);
 		logger.info("deploy file : " + deployReference);
 		logger.info("deploy class names : " + deployClassNames);
+		logger.info("deploy manifest : " + manifestFile);
+		logger.info("deploy snapshot file : " + snapshotFile);
 		logger.info("****************************************************************");
 		
-		RestfyJavaServer jettyServer = new RestfyJavaServer(stopOnShutdown,context, hostname , 8080);
+		if (workers>0) {
+			int supervisorPort = RestfyJavaServer.START_LOOPBACK;
+			if (null != loopBackport) {
+				try {
+					supervisorPort = Integer.parseInt(loopBackport);
+				} catch (Throwable e) {
+				}
+			}
+			ServerSupervisor supervisor = new ServerSupervisor(hostname, workers, supervisorPort, Arrays.asList(args));
+			try {
+				supervisor.start();
+				logger.info("Jetty 2 Server Bootstrap started supervisor on loopback port : " + supervisorPort);
+				logger.info("****************************************************************");
+				waitForQuit(null, supervisor);
+			} finally {
+				supervisor.stop();
+			}
+			logger.info("****************************************************************");
+			logger.info("Jetty 2 Server Bootstrap exit");
+			logger.info("****************************************************************");
+			return;
+		}
+		if (null != handoverFrom && !reusePort && !inheritChannel) {
+			logger.error("Jetty 2 Server Bootstrap --handoverFrom needs --reusePort or --inheritChannel, the port is still bound by the server handing over");
+			return;
+		}
+		DeploymentManifest manifest = null;
+		if (null != manifestFile) {
+			try {
+				manifest = DeploymentManifest.parse(new File(manifestFile));
+				manifest.validate(port);
+			} catch (Exception e) {
+				logger.error("Jetty 2 Server Bootstrap " + e.getMessage());
+				return;
+			}
+		}
+		if (manifest!=null && (coalesceMaxWait>0L || uploadThreshold>0 || null != mirrorContext)) {
+			logger.error("Jetty 2 Server Bootstrap --coalesceMaxWait, --upload* and --mirror* options cannot be used with a manifest, set coalescing and upload spooling per context in the manifest");
+			return;
+		}
+		RestfyJavaServer jettyServer = new RestfyJavaServer(stopOnShutdown,context, hostname , port);
+		List<RestfyJavaServer> manifestServers = new ArrayList<RestfyJavaServer>(0);
+		if (manifest!=null) {
+			for(Integer manifestPort: manifest.byPort(port).keySet()) {
+				if (manifestPort!=port)
+					manifestServers.add(new RestfyJavaServer(stopOnShutdown, context, hostname, manifestPort));
+			}
+		}
+		List<RestfyJavaServer> servers = new ArrayList<RestfyJavaServer>(manifestServers.size() + 1);
+		servers.add(jettyServer);
+		servers.addAll(manifestServers);
+		for(RestfyJavaServer server: servers) {
+			server.setReusePort(reusePort);
+			if (null != versionTrustedAddresses)
+				server.setVersionTrustedAddresses(Arrays.asList(versionTrustedAddresses.split(",")));
+			if (traceSampleRate>0d) {
+				RequestTracer tracer = new RequestTracer(traceSampleRate, traceSlowLogSize);
+				tracer.setStackSampleThreshold(traceStackThreshold);
+				server.setRequestTracer(tracer);
+			}
+			if (accountingSampleRate>0d) {
+				server.setResourceAccountant(new ResourceAccountant(accountingSampleRate));
+			}
+			server.setHealthPath(healthPath);
+			server.getMetricsStream().setInterval(metricsInterval);
+			if (metrics) {
+				server.setMetricsRegistry(MetricsRegistry.getDefault());
+			}
+			if (priorityConcurrency>0) {
+				PriorityScheduler scheduler = new PriorityScheduler(priorityConcurrency);
+				scheduler.setMaxWait(priorityMaxWait);
+				if (null != priorityLanes)
+					scheduler.configure(priorityLanes);
+				server.setPriorityScheduler(scheduler);
+			}
+			if (null != consoleContext) {
+				server.addConsole(consoleContext);
+			}
+			if (null != batchContext) {
+				server.addBatch(batchContext, new BatchDispatcher(batchConcurrency, BatchDispatcher.DEFAULT_MAX_REQUESTS, batchDispatches));
+			}
+			if (null != pushContext) {
+				server.addPushChannel(pushContext, new PushChannel(pushMaxQueued, false));
+			}
+		}
+		if (!manifestServers.isEmpty())
+			logger.info("Jetty 2 Server Bootstrap inherited channel, https, session store, snapshot, deploy directory, capture and loopback port apply to port " + port + " only");
+		jettyServer.setInheritChannel(inheritChannel);
+		if (httpsPort>=0 && null != keyStore) {
+			jettyServer.setHttpsConnector(httpsPort, new TlsContextFactory(keyStore, keyStorePassword));
+		}
+		SessionStore sessionStore = null;
+		if (stateless) {
+			jettyServer.setStateless(true);
+		}
+		else if (sessionStoreSize>0) {
+			int capacity = sessionStoreSize * 1024 * 1024;
+			sessionStore = sessionStoreFile!=null ? new OffHeapSessionStore(new File(sessionStoreFile), capacity, OffHeapSessionStore.DEFAULT_BLOCK_SIZE) : new OffHeapSessionStore(capacity);
+			jettyServer.setSessionStore(sessionStore);
+		}
+		if (null != snapshotFile) {
+			jettyServer.setDeploymentSnapshot(new DeploymentSnapshot(new File(snapshotFile)));
+		}
+		if (null != deployDir) {
+			jettyServer.setDeployWatcher(new DeployWatcher(new File(deployDir)));
+		}
+		if (null != captureDir) {
+			TrafficCapture capture = new TrafficCapture(new File(captureDir), captureSampleRate);
+			if (null != captureRedactedHeaders)
+				capture.setRedactedHeaders(Arrays.asList(captureRedactedHeaders.split(",")));
+			jettyServer.setTrafficCapture(capture);
+		}
 		if (null != loopBackport) {
 			try {
 				jettyServer.setLoopbackPort(Integer.parseInt(loopBackport));
 			} catch (Throwable e) {
 			}
 		}
-		if (deployType==DeployType.CLASS_DEPLOY) {
+		if (manifest!=null) {
+			for(Map.Entry<Integer, List<ManifestContext>> entry: manifest.byPort(port).entrySet()) {
+				for(RestfyJavaServer server: servers) {
+					if (server.getPort()==entry.getKey())
+						DeploymentManifest.apply(server, entry.getValue());
+				}
+			}
+		}
+		else if (deployType==DeployType.CLASS_DEPLOY) {
 			jettyServer.addClassHolder(deployContext, deployClassNames, null);
 		}
 		else if (deployType==DeployType.JAR_DEPLOY) {
@@ -108,26 +578,75 @@ public class Main {
 		else if (deployType==DeployType.WAR_DEPLOY) {
 			jettyServer.setWar(deployContext, deployReference);
 		}
+		if (coalesceMaxWait>0L) {
+			jettyServer.setCoalescing(deployContext, new RequestCoalescer(coalesceMaxWait, RequestCoalescer.DEFAULT_KEY_HEADERS));
+		}
+		if (uploadThreshold>0) {
+			jettyServer.setUploadSpooling(deployContext, new UploadSpooler(uploadThreshold * 1024, uploadMaxSize * 1024L * 1024L, uploadDir!=null ? new File(uploadDir) : null));
+		}
+		if (null != mirrorContext && null != mirrorClassNames && deployType!=DeployType.WAR_DEPLOY) {
+			if (null != mirrorReference)
+				jettyServer.addJar(mirrorContext, mirrorReference, mirrorClassNames, null);
+			else
+				jettyServer.addClassHolder(mirrorContext, mirrorClassNames, null);
+			jettyServer.setMirroring(deployContext, new TrafficMirror(mirrorContext, mirrorSampleRate));
+		}
 		try {
 			jettyServer.start();
 			logger.info("Jetty 2 Server Bootstrap started server");
+			for(RestfyJavaServer portServer: manifestServers) {
+				portServer.start();
+				logger.info("Jetty 2 Server Bootstrap started manifest server on port " + portServer.getPort() + " with loopback port " + portServer.getLoopbackPort());
+			}
+			if (null != handoverFrom) {
+				try {
+					logger.info("Jetty 2 Server Bootstrap handover from loopback port " + handoverFrom + " : " + RestfyJavaServer.handoverRemoteServer(hostname, Integer.parseInt(handoverFrom)));
+				} catch (NumberFormatException e) {
+					logger.error("Jetty 2 Server Bootstrap wrong handover loopback port : " + handoverFrom);
+				}
+			}
 			logger.info("****************************************************************");
-			logger.info("Press Q and ENTER to quit");
-			Scanner sc = new Scanner(System.in);
-		    while (sc.hasNext()) {
-		    	String next = sc.next();
-		        if (next!=null && next.length()>0 && (next.charAt(0) == 'Q'||next.charAt(0) == 'q'))
-		        	break;
-		    }
-		    sc.close();
+			waitForQuit(jettyServer, null);
 			logger.info("Server closed : "  + RestfyJavaServer.stopRemoteServer(hostname, jettyServer.getLoopbackPort()));
 //			jettyServer.join();
 		} finally {
+			for(RestfyJavaServer portServer: manifestServers) {
+				if (portServer.isRunning())
+					portServer.stop();
+			}
 			jettyServer.stop();
+			if (sessionStore!=null)
+				sessionStore.close();
 		}
 		logger.info("****************************************************************");
 		logger.info("Jetty 2 Server Bootstrap exit");
 		logger.info("****************************************************************");
 	}
+	
+	private static volatile boolean quit = false;
+	
+	/**
+	 * Waits for Q on the standard input, or for the server or supervisor to be stopped through the loopback channel.
+	 */
+	private static void waitForQuit(RestfyJavaServer server, ServerSupervisor supervisor) throws InterruptedException {
+		logger.info("Press Q and ENTER to quit");
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				Scanner sc = new Scanner(System.in);
+			    while (sc.hasNext()) {
+			    	String next = sc.next();
+			        if (next!=null && next.length()>0 && (next.charAt(0) == 'Q'||next.charAt(0) == 'q'))
+			        	break;
+			    }
+			    sc.close();
+			    quit = true;
+			}
+		}, "restfy-console");
+		reader.setDaemon(true);
+		reader.start();
+		while (!quit && (server==null || server.isRunning()) && (supervisor==null || supervisor.isRunning())) {
+			Thread.sleep(500L);
+		}
+	}
 
 }
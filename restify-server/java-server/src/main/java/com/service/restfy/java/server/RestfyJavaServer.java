@@ -5,7 +5,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
-import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
@@ -13,31 +12,126 @@ import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.SecureRequestCustomizer;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.ArrayUtil;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.webapp.WebAppContext;
+import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
 
+import com.service.restfy.java.server.accounting.AccountingEventListener;
+import com.service.restfy.java.server.accounting.AccountingFilter;
+import com.service.restfy.java.server.accounting.ResourceAccountant;
+import com.service.restfy.java.server.accounting.ResourceUsage;
+import com.service.restfy.java.server.amin.RestAdminService;
+import com.service.restfy.java.server.batch.BatchDispatcher;
+import com.service.restfy.java.server.batch.BatchService;
+import com.service.restfy.java.server.capture.CaptureFilter;
+import com.service.restfy.java.server.capture.TrafficCapture;
+import com.service.restfy.java.server.coalesce.CoalescingFilter;
+import com.service.restfy.java.server.coalesce.RequestCoalescer;
+import com.service.restfy.java.server.connector.ChannelServerConnector;
+import com.service.restfy.java.server.deploy.DeployWatcher;
+import com.service.restfy.java.server.footprint.ContextFootprint;
+import com.service.restfy.java.server.footprint.HeapEstimator;
+import com.service.restfy.java.server.handler.ReloadableHandler;
+import com.service.restfy.java.server.health.CachedHealthCheck;
+import com.service.restfy.java.server.health.HealthCheck;
+import com.service.restfy.java.server.health.HealthHandler;
+import com.service.restfy.java.server.jfr.EventsFilter;
+import com.service.restfy.java.server.jfr.ServerEvents;
+import com.service.restfy.java.server.mirror.MirrorFilter;
+import com.service.restfy.java.server.mirror.TrafficMirror;
+import com.service.restfy.java.server.priority.AdmittedDispatchFilter;
+import com.service.restfy.java.server.priority.PriorityFilter;
+import com.service.restfy.java.server.priority.PriorityLane;
+import com.service.restfy.java.server.priority.PriorityScheduler;
+import com.service.restfy.java.server.prometheus.RequestMetricsFilter;
+import com.service.restfy.java.server.prometheus.ServerMetrics;
+import com.service.restfy.java.server.session.OffHeapSessionStore;
+import com.service.restfy.java.server.session.SessionStore;
+import com.service.restfy.java.server.session.StoreSessionManager;
+import com.service.restfy.java.server.snapshot.DeploymentSnapshot;
+import com.service.restfy.java.server.sse.MetricsStream;
+import com.service.restfy.java.server.sse.MetricsStreamServlet;
+import com.service.restfy.java.server.tls.HandshakeMetrics;
+import com.service.restfy.java.server.tls.MeteredSslConnectionFactory;
+import com.service.restfy.java.server.trace.RequestTracer;
+import com.service.restfy.java.server.trace.RequestTracingFilter;
+import com.service.restfy.java.server.trace.TracingEventListener;
+import com.service.restfy.java.server.upload.SpooledBodyReader;
+import com.service.restfy.java.server.upload.UploadFilter;
+import com.service.restfy.java.server.upload.UploadSpooler;
+import com.service.restfy.java.server.versions.ContextVersions;
+import com.service.restfy.java.server.versions.VersionMetrics;
+import com.service.restfy.java.server.versions.VersionRoutingFilter;
+import com.service.restfy.java.server.websocket.PushChannel;
+import com.service.restfy.java.server.websocket.PushServlet;
+import com.service.restfy.metrics.MetricsRegistry;
+
 public class RestfyJavaServer implements Runnable {
 	static {
 		if (System.getProperty("log4j.configurationFile")==null)
 			System.setProperty("log4j.configurationFile", "log4j2.xml");
 	}
 	protected static final String PROVIDER_CLASSNAMES = "jersey.config.server.provider.classnames";
+	/**
+	 * Servlet context attribute holding the server, used by the admin console.
+	 */
+	public static final String SERVER_ATTRIBUTE = "com.service.restfy.java.server";
+	/**
+	 * Context of the requests that match no deployment, in the request metrics and the resource accounting.
+	 */
+	public static final String UNKNOWN_CONTEXT = "unknown";
 
 	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
 	
 	private ServletContextHandler context = null;
 	private WebAppContext webAppContext = null;
 	private Server jettyServer = null;
-	private Map<String, String> holderMap = new HashMap<String,String>(0);
+	private StatisticsHandler statisticsHandler = null;
+	private ReloadableHandler reloadableHandler = null;
+	private HealthHandler healthHandler = null;
+	private String healthPath = HealthHandler.DEFAULT_PATH;
+	private Map<String, CachedHealthCheck> healthChecks = new ConcurrentHashMap<String, CachedHealthCheck>();
+	private volatile boolean ready = false;
+	// changed by the hot deployments while the statistics, metrics and footprint read them
+	private Map<String, String> holderMap = new ConcurrentHashMap<String,String>();
+	private Map<String, ContextDeployment> deployments = Collections.synchronizedMap(new LinkedHashMap<String, ContextDeployment>(0));
 	private boolean doStopAsShutdown = false;
 	private String defaultcontext = null;
 	private String host = null;
@@ -46,6 +140,35 @@ public class RestfyJavaServer implements Runnable {
 	private ServerSocket loopback = null;
 	private Thread loopbackThread = null;
 	private boolean running = false;
+	private boolean networkConnectorEnabled = true;
+	private boolean localConnectorEnabled = false;
+	private LocalConnector localConnector = null;
+	private int httpsPort = -1;
+	private SslContextFactory sslContextFactory = null;
+	private HandshakeMetrics handshakeMetrics = new HandshakeMetrics();
+	private ChannelServerConnector httpsConnector = null;
+	private boolean reusePort = false;
+	private boolean inheritChannel = false;
+	private long drainTimeout = 20000L;
+	private boolean stateless = false;
+	private SessionStore sessionStore = null;
+	private RequestTracer requestTracer = null;
+	private ResourceAccountant resourceAccountant = null;
+	private TrafficCapture trafficCapture = null;
+	private DeployWatcher deployWatcher = null;
+	private DeploymentSnapshot deploymentSnapshot = null;
+	private PriorityScheduler priorityScheduler = null;
+	private ServerEvents events = ServerEvents.getInstance();
+	private BatchDispatcher batchDispatcher = null;
+	private Map<String, RequestCoalescer> coalescers = new LinkedHashMap<String, RequestCoalescer>(0);
+	private Map<String, UploadSpooler> uploadSpoolers = new LinkedHashMap<String, UploadSpooler>(0);
+	private Map<String, TrafficMirror> mirrors = new LinkedHashMap<String, TrafficMirror>(0);
+	private Map<String, ContextVersions> contextVersions = new ConcurrentHashMap<String, ContextVersions>();
+	private Set<String> versionTrustedAddresses = new LinkedHashSet<String>(VersionRoutingFilter.DEFAULT_TRUSTED_ADDRESSES);
+	private Map<String, PushChannel> pushChannels = new LinkedHashMap<String, PushChannel>(0);
+	private List<String> metricsStreamPaths = new ArrayList<String>(0);
+	private MetricsStream metricsStream = new MetricsStream(this);
+	private ServerMetrics serverMetrics = null;
 
 	public RestfyJavaServer(int port) throws URISyntaxException {
 		this(true, "/", "localhost", port);
@@ -66,27 +189,189 @@ public class RestfyJavaServer implements Runnable {
 		this.defaultcontext = defaultcontext;
 		this.host = host;
 		this.port = port;
-		context = new ServletContextHandler(ServletContextHandler.SESSIONS);
-		context.setContextPath(defaultcontext);
-		jettyServer = new Server(new InetSocketAddress(host, port));
-		jettyServer.setHandler(context);
+		context = newServletContext();
+		jettyServer = createServer();
+		setContentHandler(context);
 		jettyServer.setStopAtShutdown(doStopAsShutdown);
 	}
 	
+	private Server createServer() {
+		Server server = new Server();
+		configureConnectors(server);
+		statisticsHandler = new StatisticsHandler();
+		reloadableHandler = new ReloadableHandler();
+		statisticsHandler.setHandler(reloadableHandler);
+		healthHandler = new HealthHandler(this, healthPath);
+		healthHandler.setHandler(statisticsHandler);
+		server.setHandler(healthHandler);
+		return server;
+	}
+	
+	protected ServletContextHandler newServletContext() {
+		ServletContextHandler servletContext = new ServletContextHandler(stateless ? ServletContextHandler.NO_SESSIONS : ServletContextHandler.SESSIONS);
+		servletContext.setContextPath(defaultcontext);
+		configureContext(servletContext);
+		return servletContext;
+	}
+	
+	protected WebAppContext newWebAppContext(String contextPath, String warFileAbsolutePath) {
+		WebAppContext webApp = new WebAppContext();
+		webApp.setContextPath(contextPath);
+		webApp.setWar(warFileAbsolutePath);
+		configureContext(webApp);
+		return webApp;
+	}
+	
+	private void configureContext(ServletContextHandler servletContext) {
+		servletContext.setAttribute(SERVER_ATTRIBUTE, this);
+		if (sessionStore!=null && servletContext.getSessionHandler()!=null)
+			servletContext.setSessionHandler(new SessionHandler(new StoreSessionManager(sessionStore)));
+		EnumSet<DispatcherType> dispatcherTypes = EnumSet.of(DispatcherType.REQUEST);
+		if (priorityScheduler!=null) {
+			// a request queued by the priority filter runs the other filters when it is dispatched again, other async dispatches skip them
+			dispatcherTypes = EnumSet.of(DispatcherType.REQUEST, DispatcherType.ASYNC);
+			FilterHolder priorityFilter = new FilterHolder(new PriorityFilter(priorityScheduler));
+			priorityFilter.setAsyncSupported(true);
+			servletContext.addFilter(priorityFilter, "/*", dispatcherTypes);
+		}
+		if (requestTracer!=null)
+			servletContext.addFilter(filterHolder(new RequestTracingFilter(requestTracer)), "/*", dispatcherTypes);
+		if (resourceAccountant!=null)
+			servletContext.addFilter(filterHolder(new AccountingFilter(resourceAccountant, this)), "/*", dispatcherTypes);
+		if (trafficCapture!=null)
+			servletContext.addFilter(filterHolder(new CaptureFilter(trafficCapture)), "/*", dispatcherTypes);
+		if (events.isEnabled())
+			servletContext.addFilter(filterHolder(new EventsFilter()), "/*", dispatcherTypes);
+		if (serverMetrics!=null)
+			servletContext.addFilter(filterHolder(new RequestMetricsFilter(serverMetrics)), "/*", dispatcherTypes);
+		for(String contextPath: coalescers.keySet()) {
+			String pathSpec = filterPathSpec(servletContext, contextPath);
+			if (pathSpec!=null)
+				servletContext.addFilter(filterHolder(new CoalescingFilter(coalescers.get(contextPath))), pathSpec, dispatcherTypes);
+		}
+		for(String contextPath: uploadSpoolers.keySet()) {
+			String pathSpec = filterPathSpec(servletContext, contextPath);
+			if (pathSpec!=null)
+				servletContext.addFilter(filterHolder(new UploadFilter(uploadSpoolers.get(contextPath))), pathSpec, dispatcherTypes);
+		}
+		for(String contextPath: mirrors.keySet()) {
+			String pathSpec = filterPathSpec(servletContext, contextPath);
+			if (pathSpec!=null)
+				servletContext.addFilter(filterHolder(new MirrorFilter(mirrors.get(contextPath))), pathSpec, dispatcherTypes);
+		}
+		if (!(servletContext instanceof WebAppContext))
+			servletContext.addFilter(filterHolder(new VersionRoutingFilter(contextVersions, versionTrustedAddresses)), "/*", dispatcherTypes);
+	}
+
+	/**
+	 * @return holder of a filter, run for the admitted dispatches only when requests are scheduled by priority,
+	 * it lets the servlets suspend their requests as the metrics stream
+	 */
+	private FilterHolder filterHolder(Filter filter) {
+		FilterHolder holder = new FilterHolder(priorityScheduler!=null ? new AdmittedDispatchFilter(filter) : filter);
+		holder.setAsyncSupported(true);
+		return holder;
+	}
+
+	/**
+	 * @return the filter mapping of a deployment context, null if the context is not served by the given servlet context
+	 */
+	private static String filterPathSpec(ServletContextHandler servletContext, String contextPath) {
+		if (servletContext instanceof WebAppContext)
+			return convertContext(servletContext.getContextPath()).equals(contextPath) ? "/*" : null;
+		return contextPath;
+	}
+	
+	private void installDeployments(ServletContextHandler servletContext) {
+		int initOrder = 0;
+		for(ContextDeployment deployment: getDeployments()) {
+			if (deployment.getType()!=DeployType.WAR_DEPLOY)
+				installHolder(servletContext, deployment, initOrder++);
+		}
+		for(ContextVersions versions: contextVersions.values()) {
+			for(ContextDeployment deployment: versions.getSecondaryDeployments()) {
+				installVersionHolder(servletContext, deployment, initOrder++);
+			}
+		}
+		for(String contextPath: pushChannels.keySet()) {
+			installPushServlet(servletContext, contextPath, pushChannels.get(contextPath));
+		}
+		for(String path: metricsStreamPaths) {
+			installMetricsStreamServlet(servletContext, path);
+		}
+	}
+	
+	/**
+	 * Replaces the not started handler tree, to apply a change of the session configuration.
+	 */
+	private void rebuildContext() {
+		if (webAppContext!=null) {
+			webAppContext = newWebAppContext(webAppContext.getContextPath(), webAppContext.getWar());
+			setContentHandler(webAppContext);
+		}
+		else {
+			context = newServletContext();
+			installDeployments(context);
+			setContentHandler(context);
+		}
+	}
+	
+	/**
+	 * Every generation of the handler tree has its own statistics, used to drain it when it is replaced.
+	 */
+	private StatisticsHandler setContentHandler(Handler handler) {
+		StatisticsHandler generation = new StatisticsHandler();
+		generation.setHandler(handler);
+		reloadableHandler.setHandler(generation);
+		return generation;
+	}
+	
+	private void configureConnectors(Server server) {
+		List<Connector> connectors = new ArrayList<Connector>(0);
+		if (networkConnectorEnabled) {
+			ChannelServerConnector connector = new ChannelServerConnector(server);
+			connector.setHost(host);
+			connector.setPort(port);
+			connector.setReusePort(reusePort);
+			connector.setInheritChannel(inheritChannel);
+			connectors.add(connector);
+		}
+		httpsConnector = null;
+		if (sslContextFactory!=null) {
+			HttpConfiguration httpsConfiguration = new HttpConfiguration();
+			httpsConfiguration.setSecureScheme("https");
+			httpsConfiguration.setSecurePort(httpsPort);
+			httpsConfiguration.addCustomizer(new SecureRequestCustomizer());
+			httpsConnector = new ChannelServerConnector(server,
+					new MeteredSslConnectionFactory(sslContextFactory, "http/1.1", handshakeMetrics),
+					new HttpConnectionFactory(httpsConfiguration));
+			httpsConnector.setHost(host);
+			httpsConnector.setPort(httpsPort);
+			httpsConnector.setReusePort(reusePort);
+			connectors.add(httpsConnector);
+		}
+		localConnector = null;
+		if (localConnectorEnabled) {
+			localConnector = new LocalConnector(server);
+			connectors.add(localConnector);
+		}
+		server.setConnectors(connectors.toArray(new Connector[connectors.size()]));
+	}
+	
 	private void init() throws Exception {
 		logger.info("Jetty 2 Server intialization ... ");
 		if (jettyServer==null) {
 			if (webAppContext==null) {
-				context = new ServletContextHandler(ServletContextHandler.SESSIONS);
-				context.setContextPath(defaultcontext);
+				context = newServletContext();
 			}
-			jettyServer = new Server(new InetSocketAddress(host, port));
-			jettyServer.setHandler(webAppContext==null ? context : webAppContext);
+			jettyServer = createServer();
+			setContentHandler(webAppContext==null ? context : webAppContext);
 			jettyServer.setStopAtShutdown(doStopAsShutdown);
 		}
 	}
 	
 	protected static final int START_LOOPBACK=15000;
+	private static final long RELOAD_GRACE_PERIOD = 500L;
 	
 	protected ServerSocket checkLoopbackPort() {
 		ServerSocket socket = null;
@@ -127,17 +412,14 @@ public class RestfyJavaServer implements Runnable {
 			try {
 				loopback.setSoTimeout(5000);
 				client = loopback.accept();
+				client.setSoTimeout(5000);
 				BufferedReader br = new BufferedReader(new InputStreamReader(client.getInputStream()));
-				while (br.ready()) {
-					String message = br.readLine();
-					if (message.equalsIgnoreCase("close")) {
-						this.stopInternal();
-						PrintStream ps = new PrintStream(client.getOutputStream());
-						ps.println("closed");
-						logger.debug("Jetty 2 Closing server ....");
-						this.stopLoobback();
-					}
+				PrintStream ps = new PrintStream(client.getOutputStream());
+				String message = br.readLine();
+				if (message!=null && message.trim().length()>0) {
+					handleLoopbackCommand(message.trim(), ps, client.getInetAddress().isLoopbackAddress());
 				}
+				ps.flush();
 			}
 			catch (SocketTimeoutException e) {
 				
@@ -162,6 +444,89 @@ public class RestfyJavaServer implements Runnable {
 		
 	}
 
+	/**
+	 * @param localClient true if the command comes from the local host, commands loading code are refused otherwise
+	 */
+	protected void handleLoopbackCommand(String message, PrintStream ps, boolean localClient) throws Exception {
+		String[] command = message.split("\\s+");
+		Object scope = events.beginCommand();
+		String reply = null;
+		try {
+			if (command[0].equalsIgnoreCase("close")) {
+				this.stopInternal();
+				reply = "closed";
+				ps.println(reply);
+				logger.debug("Jetty 2 Closing server ....");
+				this.stopLoobback();
+			}
+			else if (command[0].equalsIgnoreCase("handover")) {
+				long timeout = command.length>1 ? Long.parseLong(command[1]) : drainTimeout;
+				boolean drained = this.handover(timeout);
+				reply = "handedover drained=" + drained;
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("reload")) {
+				this.reload();
+				reply = "reloaded";
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("stats")) {
+				reply = formatStatistics(getStatistics());
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("deploy-version") && command.length>3) {
+				try {
+					if (!localClient)
+						throw new SecurityException("deploy-version is accepted from the local host only");
+					this.deployVersion(command[1], command[2], command[3], command.length>4 ? new File(command[4]) : null, null);
+					reply = "deployed " + command[2];
+				} catch (Exception e) {
+					reply = "error " + e.getMessage();
+				}
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("switch-version") && command.length>2) {
+				try {
+					this.switchVersion(command[1], command[2]);
+					reply = "switched " + command[2];
+				} catch (Exception e) {
+					reply = "error " + e.getMessage();
+				}
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("canary") && command.length>3) {
+				try {
+					this.setCanary(command[1], command[2], Integer.parseInt(command[3]));
+					reply = "canary " + command[2] + " " + command[3];
+				} catch (Exception e) {
+					reply = "error " + e.getMessage();
+				}
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("retire-version") && command.length>2) {
+				try {
+					this.retireVersion(command[1], command[2]);
+					reply = "retired " + command[2];
+				} catch (Exception e) {
+					reply = "error " + e.getMessage();
+				}
+				ps.println(reply);
+			}
+			else if (command[0].equalsIgnoreCase("versions")) {
+				for(ContextVersions versions: contextVersions.values()) {
+					ps.println(versions);
+				}
+				reply = "versions " + contextVersions.size();
+				ps.println(reply);
+			}
+			else {
+				ps.println("unknown command : " + command[0]);
+			}
+		} finally {
+			events.endCommand(scope, message, reply, reply!=null);
+		}
+	}
+
 	protected void addAdminService() throws SocketException {
 		if (loopbackPort == 0)
 			loopback = checkLoopbackPort();
@@ -173,11 +538,28 @@ public class RestfyJavaServer implements Runnable {
 	
 	public void start() throws Exception {
 		logger.info("Jetty 2 Server starting ... ");
-		addAdminService();
-		jettyServer.start();
-		loopbackThread = new Thread(this);
-		running = true;
-		loopbackThread.start();
+		Object scope = events.beginLifecycle();
+		boolean success = false;
+		try {
+			addAdminService();
+			if (requestTracer!=null)
+				requestTracer.start();
+			jettyServer.start();
+			loopbackThread = new Thread(this);
+			running = true;
+			loopbackThread.start();
+			if (deployWatcher!=null)
+				deployWatcher.start(this);
+			if (serverMetrics!=null)
+				serverMetrics.getRegistry().addCollector(serverMetrics);
+			if (deploymentSnapshot!=null)
+				deploymentSnapshot.retainRecorded();
+			saveSnapshot();
+			ready = true;
+			success = true;
+		} finally {
+			events.endLifecycle(scope, "start", success);
+		}
 	}
 
 	public void join() throws InterruptedException {
@@ -190,10 +572,696 @@ public class RestfyJavaServer implements Runnable {
 		this.loopbackPort = loopbackPort;
 	}
 
+	public int getPort() {
+		return port;
+	}
+
 	public int getLoopbackPort() {
 		return loopbackPort;
 	}
 
+	public boolean isNetworkConnectorEnabled() {
+		return networkConnectorEnabled;
+	}
+
+	/**
+	 * Enables or disables the TCP connector bound to host and port. A server with only the
+	 * local connector enabled never touches the network, so many of them can run in parallel.
+	 */
+	public void setNetworkConnectorEnabled(boolean networkConnectorEnabled) {
+		checkNotStarted();
+		this.networkConnectorEnabled = networkConnectorEnabled;
+		configureConnectors(jettyServer);
+	}
+
+	public boolean isLocalConnectorEnabled() {
+		return localConnectorEnabled;
+	}
+
+	/**
+	 * Enables or disables the in-memory connector used by {@link com.service.restfy.java.server.local.LocalServerClient}.
+	 */
+	public void setLocalConnectorEnabled(boolean localConnectorEnabled) {
+		checkNotStarted();
+		this.localConnectorEnabled = localConnectorEnabled;
+		configureConnectors(jettyServer);
+	}
+
+	public LocalConnector getLocalConnector() {
+		return localConnector;
+	}
+
+	/**
+	 * Adds an HTTPS connector on the given port, bound to the same host of the network connector.
+	 * {@link com.service.restfy.java.server.tls.TlsContextFactory} gives a keystore based factory tuned for session resumption.
+	 * @param sslContextFactory factory of the TLS engines, null to remove the HTTPS connector
+	 */
+	public void setHttpsConnector(int httpsPort, SslContextFactory sslContextFactory) {
+		checkNotStarted();
+		this.httpsPort = httpsPort;
+		this.sslContextFactory = sslContextFactory;
+		configureConnectors(jettyServer);
+	}
+
+	/**
+	 * @return port of the running HTTPS connector, -1 if it is not enabled
+	 */
+	public int getHttpsPort() {
+		if (httpsConnector!=null && httpsConnector.getLocalPort()>0)
+			return httpsConnector.getLocalPort();
+		return sslContextFactory!=null ? httpsPort : -1;
+	}
+
+	public HandshakeMetrics getHandshakeMetrics() {
+		return handshakeMetrics;
+	}
+
+	public boolean isReusePort() {
+		return reusePort;
+	}
+
+	/**
+	 * Binds the network connector with SO_REUSEPORT, so many server processes can share the same port.
+	 */
+	public void setReusePort(boolean reusePort) {
+		checkNotStarted();
+		this.reusePort = reusePort;
+		configureConnectors(jettyServer);
+	}
+
+	public boolean isInheritChannel() {
+		return inheritChannel;
+	}
+
+	/**
+	 * Accepts connections from the listening channel inherited from the parent process
+	 * (socket activation) instead of binding host and port.
+	 */
+	public void setInheritChannel(boolean inheritChannel) {
+		checkNotStarted();
+		this.inheritChannel = inheritChannel;
+		configureConnectors(jettyServer);
+	}
+
+	public boolean isStateless() {
+		return stateless;
+	}
+
+	/**
+	 * Removes the session management from the context of the holders, for pure stateless services.
+	 */
+	public void setStateless(boolean stateless) {
+		checkNotStarted();
+		this.stateless = stateless;
+		rebuildContext();
+	}
+
+	public SessionStore getSessionStore() {
+		return sessionStore;
+	}
+
+	/**
+	 * Keeps the sessions of the contexts in the given store instead of the heap, see {@link OffHeapSessionStore}.
+	 * The store is shared by the reloaded handler trees and must be closed by its owner.
+	 */
+	public void setSessionStore(SessionStore sessionStore) {
+		checkNotStarted();
+		this.sessionStore = sessionStore;
+		rebuildContext();
+	}
+
+	public RequestTracer getRequestTracer() {
+		return requestTracer;
+	}
+
+	/**
+	 * Traces the requests sampled by the given tracer, its slow request log is served by the admin console.
+	 */
+	public void setRequestTracer(RequestTracer requestTracer) {
+		checkNotStarted();
+		this.requestTracer = requestTracer;
+		rebuildContext();
+	}
+
+	public ResourceAccountant getResourceAccountant() {
+		return resourceAccountant;
+	}
+
+	/**
+	 * Accounts the CPU time and the allocated bytes of a sample of the requests, per context and per resource method.
+	 * @param resourceAccountant accountant of the requests, null to disable the accounting
+	 */
+	public void setResourceAccountant(ResourceAccountant resourceAccountant) {
+		checkNotStarted();
+		this.resourceAccountant = resourceAccountant;
+		rebuildContext();
+	}
+
+	public TrafficCapture getTrafficCapture() {
+		return trafficCapture;
+	}
+
+	/**
+	 * Writes a sample of the requests to the capture log, replayed by {@link com.service.restfy.java.server.capture.TrafficReplay}.
+	 * @param trafficCapture capture of the requests, null to disable the capture
+	 */
+	public void setTrafficCapture(TrafficCapture trafficCapture) {
+		checkNotStarted();
+		this.trafficCapture = trafficCapture;
+		rebuildContext();
+	}
+
+	public DeployWatcher getDeployWatcher() {
+		return deployWatcher;
+	}
+
+	/**
+	 * Deploys the artifacts of the watcher directory at the server start and follows their changes.
+	 * @param deployWatcher watcher of the deploy directory, null to disable the hot deployment
+	 */
+	public void setDeployWatcher(DeployWatcher deployWatcher) {
+		checkNotStarted();
+		this.deployWatcher = deployWatcher;
+	}
+
+	public String getHealthPath() {
+		return healthPath;
+	}
+
+	/**
+	 * Path prefix of the liveness ({@link HealthHandler#LIVE}) and readiness ({@link HealthHandler#READY}) probes.
+	 * @param healthPath prefix of the probes, null to disable them
+	 */
+	public void setHealthPath(String healthPath) {
+		checkNotStarted();
+		this.healthPath = healthPath;
+		if (healthHandler!=null)
+			healthHandler.setPath(healthPath);
+	}
+
+	/**
+	 * Adds a health hook of a context to the readiness probe, its result is kept for the given period.
+	 */
+	public void addHealthCheck(String contextPath, HealthCheck check, long period) {
+		healthChecks.put(convertContext(contextPath), new CachedHealthCheck(check, period));
+	}
+
+	public void removeHealthCheck(String contextPath) {
+		healthChecks.remove(convertContext(contextPath));
+	}
+
+	public Map<String, CachedHealthCheck> getHealthChecks() {
+		return new LinkedHashMap<String, CachedHealthCheck>(healthChecks);
+	}
+
+	/**
+	 * @return true once the server is started with all its deployments, until it stops or hands over
+	 */
+	public boolean isReady() {
+		return getReadinessProblems().isEmpty();
+	}
+
+	/**
+	 * @return reasons why the server cannot take traffic, empty when it is ready
+	 */
+	public List<String> getReadinessProblems() {
+		List<String> problems = new ArrayList<String>(0);
+		if (!ready) {
+			problems.add(running ? "server starting or draining" : "server not running");
+			return problems;
+		}
+		Handler generation = reloadableHandler!=null ? reloadableHandler.getHandler() : null;
+		if (generation==null || !generation.isStarted())
+			problems.add("handler tree not started");
+		WebAppContext webApp = webAppContext;
+		ServletContextHandler servletContext = context;
+		if (webApp!=null) {
+			if (!webApp.isAvailable())
+				problems.add("web application " + webApp.getContextPath() + " unavailable");
+		}
+		else if (servletContext==null || !servletContext.isAvailable()) {
+			problems.add("servlet context unavailable");
+		}
+		else {
+			for(ServletHolder holder: servletContext.getServletHandler().getServlets()) {
+				if (!holder.isStarted() || holder.getUnavailableException()!=null)
+					problems.add("servlet " + holder.getName() + " unavailable");
+			}
+		}
+		for(Map.Entry<String, CachedHealthCheck> check: healthChecks.entrySet()) {
+			if (!check.getValue().isHealthy())
+				problems.add("context " + check.getKey() + " unhealthy : " + check.getValue().getReason());
+		}
+		return problems;
+	}
+
+	public PriorityScheduler getPriorityScheduler() {
+		return priorityScheduler;
+	}
+
+	/**
+	 * Limits the requests executed at the same time and admits the waiting ones by the priority of their lane.
+	 * @param priorityScheduler scheduler of the requests, null to execute the requests as they arrive
+	 */
+	public void setPriorityScheduler(PriorityScheduler priorityScheduler) {
+		checkNotStarted();
+		this.priorityScheduler = priorityScheduler;
+		rebuildContext();
+	}
+
+	public DeploymentSnapshot getDeploymentSnapshot() {
+		return deploymentSnapshot;
+	}
+
+	/**
+	 * Trusts the jars validated by a previous start while their checksum is unchanged, the snapshot is
+	 * saved when the server starts and when the hot deployments change.
+	 * @param deploymentSnapshot snapshot of the validated deployments, null to validate every jar
+	 */
+	public void setDeploymentSnapshot(DeploymentSnapshot deploymentSnapshot) {
+		checkNotStarted();
+		this.deploymentSnapshot = deploymentSnapshot;
+	}
+
+	/**
+	 * Writes the current jar deployments to the deployment snapshot, if any.
+	 */
+	public void saveSnapshot() {
+		DeploymentSnapshot snapshot = deploymentSnapshot;
+		if (snapshot==null)
+			return;
+		snapshot.setConfig("host", host);
+		snapshot.setConfig("port", String.valueOf(port));
+		snapshot.setConfig("defaultContext", defaultcontext);
+		try {
+			snapshot.save();
+		} catch (IOException e) {
+			logger.warn("Jetty 2 Server deployment snapshot " + snapshot.getFile() + " could not be saved", e);
+		}
+	}
+
+	private void recordSnapshot(ContextDeployment deployment) {
+		DeploymentSnapshot snapshot = deploymentSnapshot;
+		if (snapshot==null)
+			return;
+		try {
+			snapshot.record(deployment);
+		} catch (IOException e) {
+			logger.warn("Jetty 2 Server deployment " + deployment.getReference() + " could not be recorded in the snapshot", e);
+		}
+	}
+
+	/**
+	 * Deploys the admin console ({@link RestAdminService}) in the given context, with its metrics
+	 * stream served asynchronously by a {@link MetricsStreamServlet}.
+	 */
+	public void addConsole(String contextPath) {
+		addClassHolder(contextPath, RestAdminService.class.getCanonicalName(), null);
+		String path = convertContext(contextPath);
+		path = path.substring(0, path.length() - 2) + "/console/metrics-stream";
+		installMetricsStreamServlet(context, path);
+		metricsStreamPaths.add(path);
+	}
+
+	private ServletHolder installMetricsStreamServlet(ServletContextHandler servletContext, String path) {
+		ServletHolder streamServlet = new ServletHolder("metrics-stream" + path, new MetricsStreamServlet(metricsStream));
+		streamServlet.setAsyncSupported(true);
+		servletContext.addServlet(streamServlet, path);
+		return streamServlet;
+	}
+
+	/**
+	 * Deploys the batch context ({@link BatchService}) in the given context, with the default dispatcher.
+	 */
+	public void addBatch(String contextPath) {
+		addBatch(contextPath, new BatchDispatcher());
+	}
+
+	/**
+	 * Deploys the batch context ({@link BatchService}) in the given context. Sub-requests are dispatched
+	 * through the local connector, which is enabled if needed, so it must be called before the server start.
+	 */
+	public void addBatch(String contextPath, BatchDispatcher batchDispatcher) {
+		checkNotStarted();
+		if (!localConnectorEnabled)
+			setLocalConnectorEnabled(true);
+		if (this.batchDispatcher!=null && this.batchDispatcher!=batchDispatcher)
+			this.batchDispatcher.shutdown();
+		this.batchDispatcher = batchDispatcher;
+		Map<String, String> serviceProperties = new HashMap<String, String>(0);
+		serviceProperties.put(ServerProperties.OUTBOUND_CONTENT_LENGTH_BUFFER, "0");
+		addClassHolder(contextPath, BatchService.class.getCanonicalName(), serviceProperties);
+	}
+
+	public BatchDispatcher getBatchDispatcher() {
+		return batchDispatcher;
+	}
+
+	/**
+	 * Collapses the identical concurrent GET requests of the given context, see {@link RequestCoalescer}.
+	 * @param coalescer coalescer of the context, null to disable the coalescing
+	 */
+	public void setCoalescing(String contextPath, RequestCoalescer coalescer) {
+		checkNotStarted();
+		if (coalescer!=null)
+			coalescers.put(convertContext(contextPath), coalescer);
+		else
+			coalescers.remove(convertContext(contextPath));
+		rebuildContext();
+	}
+
+	public Map<String, RequestCoalescer> getCoalescers() {
+		return new LinkedHashMap<String, RequestCoalescer>(coalescers);
+	}
+
+	/**
+	 * Streams the request bodies of the given context through the spooler, see {@link UploadSpooler}.
+	 * Resources receive the body as {@link com.service.restfy.java.server.upload.SpooledBody} entity parameter.
+	 * @param spooler spooler of the context, null to disable the streaming upload
+	 */
+	public void setUploadSpooling(String contextPath, UploadSpooler spooler) {
+		checkNotStarted();
+		if (spooler!=null)
+			uploadSpoolers.put(convertContext(contextPath), spooler);
+		else
+			uploadSpoolers.remove(convertContext(contextPath));
+		rebuildContext();
+	}
+
+	/**
+	 * Mirrors a sampled share of the requests of the given context to a shadow context of this server,
+	 * see {@link TrafficMirror}. Mirrored requests go through the local connector, which is enabled if needed.
+	 * @param mirror mirror of the context, null to disable the mirroring
+	 */
+	public void setMirroring(String contextPath, TrafficMirror mirror) {
+		checkNotStarted();
+		if (mirror!=null) {
+			if (!localConnectorEnabled)
+				setLocalConnectorEnabled(true);
+			mirrors.put(convertContext(contextPath), mirror);
+		}
+		else {
+			TrafficMirror previous = mirrors.remove(convertContext(contextPath));
+			if (previous!=null)
+				previous.shutdown();
+		}
+		rebuildContext();
+	}
+
+	public Map<String, TrafficMirror> getMirrors() {
+		return new LinkedHashMap<String, TrafficMirror>(mirrors);
+	}
+
+	public Map<String, UploadSpooler> getUploadSpoolers() {
+		return new LinkedHashMap<String, UploadSpooler>(uploadSpoolers);
+	}
+
+	/**
+	 * Deploys a WebSocket context pushing the messages broadcast by the given channel, see {@link PushChannel}.
+	 * It must be called before the server start, and it is served next to the class and jar contexts only.
+	 */
+	public void addPushChannel(String contextPath, PushChannel channel) {
+		checkNotStarted();
+		if (context==null || webAppContext!=null)
+			throw new IllegalStateException("Push channel " + contextPath + " cannot be deployed in a web application server");
+		installPushServlet(context, convertContext(contextPath), channel);
+		pushChannels.put(convertContext(contextPath), channel);
+	}
+
+	public Map<String, PushChannel> getPushChannels() {
+		return new LinkedHashMap<String, PushChannel>(pushChannels);
+	}
+
+	private static ServletHolder installPushServlet(ServletContextHandler servletContext, String contextPath, PushChannel channel) {
+		ServletHolder pushServlet = new ServletHolder("push" + contextPath, new PushServlet(channel));
+		servletContext.addServlet(pushServlet, contextPath);
+		return pushServlet;
+	}
+
+	public long getDrainTimeout() {
+		return drainTimeout;
+	}
+
+	public void setDrainTimeout(long drainTimeout) {
+		this.drainTimeout = drainTimeout;
+	}
+
+	/**
+	 * Hands the port over to another instance: stops accepting new connections, waits for the
+	 * in-flight requests to complete up to the given timeout, then stops the server.
+	 * @return true if all in-flight requests completed before the timeout
+	 */
+	public boolean handover(long timeout) throws Exception {
+		logger.info("Jetty 2 Server handover : closing network connectors ... ");
+		Object scope = events.beginLifecycle();
+		boolean drained = false;
+		ready = false;
+		try {
+			for(Connector connector: jettyServer.getConnectors()) {
+				if (connector instanceof NetworkConnector)
+					((NetworkConnector)connector).close();
+			}
+			metricsStream.disconnectAll();
+			drained = drain(timeout);
+			logger.info("Jetty 2 Server handover : in-flight requests drained : " + drained);
+			this.stopInternal();
+			this.stopLoobback();
+			return drained;
+		} finally {
+			events.endLifecycle(scope, "handover", drained);
+		}
+	}
+
+	protected boolean drain(long timeout) throws Exception {
+		Future<Void> shutdown = statisticsHandler.shutdown();
+		try {
+			shutdown.get(timeout, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+
+	public MetricsRegistry getMetricsRegistry() {
+		return serverMetrics!=null ? serverMetrics.getRegistry() : null;
+	}
+
+	/**
+	 * Exports the request latencies and the statistics of the server to the given registry, in the
+	 * Prometheus format from the console. The metrics are labelled with the port of the server.
+	 * @param metricsRegistry registry of the metrics, usually {@link MetricsRegistry#getDefault()}, null to disable the export
+	 */
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		checkNotStarted();
+		this.serverMetrics = metricsRegistry!=null ? new ServerMetrics(this, metricsRegistry) : null;
+		rebuildContext();
+	}
+
+	/**
+	 * Server-Sent Events stream of the statistics, served by the console.
+	 */
+	public MetricsStream getMetricsStream() {
+		return metricsStream;
+	}
+
+	/**
+	 * Request statistics of the server since its last start.
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>(0);
+		StatisticsHandler handler = statisticsHandler;
+		if (handler!=null) {
+			statistics.put("uptime", handler.getStatsOnMs());
+			statistics.put("requests", (long)handler.getRequests());
+			statistics.put("requestsActive", (long)handler.getRequestsActive());
+			statistics.put("requestTimeTotal", handler.getRequestTimeTotal());
+			statistics.put("requestTimeMax", handler.getRequestTimeMax());
+			statistics.put("responses1xx", (long)handler.getResponses1xx());
+			statistics.put("responses2xx", (long)handler.getResponses2xx());
+			statistics.put("responses3xx", (long)handler.getResponses3xx());
+			statistics.put("responses4xx", (long)handler.getResponses4xx());
+			statistics.put("responses5xx", (long)handler.getResponses5xx());
+			statistics.put("responsesBytesTotal", handler.getResponsesBytesTotal());
+		}
+		SessionStore store = sessionStore;
+		if (store!=null) {
+			statistics.put("sessionsStored", (long)store.size());
+			statistics.put("sessionStoreBytes", store.getUsedBytes());
+			statistics.put("sessionStoreEvictions", store.getEvictions());
+		}
+		ResourceAccountant accountant = resourceAccountant;
+		if (accountant!=null) {
+			long requests = 0L, cpuNanos = 0L, allocatedBytes = 0L;
+			for(ResourceUsage usage: accountant.getContextUsage()) {
+				requests += usage.getRequests();
+				cpuNanos += usage.getCpuNanos();
+				allocatedBytes += usage.getAllocatedBytes();
+			}
+			statistics.put("accountedRequests", requests);
+			statistics.put("accountedCpuTime", TimeUnit.NANOSECONDS.toMillis(cpuNanos));
+			statistics.put("accountedAllocatedBytes", allocatedBytes);
+		}
+		DeployWatcher watcher = deployWatcher;
+		if (watcher!=null) {
+			statistics.put("hotDeploys", watcher.getDeploys());
+			statistics.put("hotUndeploys", watcher.getUndeploys());
+			statistics.put("hotRejected", watcher.getRejected());
+		}
+		PriorityScheduler scheduler = priorityScheduler;
+		if (scheduler!=null) {
+			long rejected = 0L, delayed = 0L, waitTimeMax = 0L;
+			for(PriorityLane lane: scheduler.getLanes()) {
+				rejected += lane.getRejected();
+				delayed += lane.getDelayed();
+				waitTimeMax = Math.max(waitTimeMax, lane.getWaitTimeMax());
+			}
+			statistics.put("priorityRunning", (long)scheduler.getRunning());
+			statistics.put("priorityQueued", (long)scheduler.getQueued());
+			statistics.put("priorityDelayed", delayed);
+			statistics.put("priorityRejected", rejected);
+			statistics.put("priorityWaitTimeMax", waitTimeMax);
+		}
+		DeploymentSnapshot snapshot = deploymentSnapshot;
+		if (snapshot!=null) {
+			statistics.put("snapshotHits", snapshot.getHits());
+			statistics.put("snapshotMisses", snapshot.getMisses());
+		}
+		TrafficCapture capture = trafficCapture;
+		if (capture!=null) {
+			statistics.put("capturedRequests", capture.getCaptured());
+			statistics.put("captureSkipped", capture.getSkipped());
+			statistics.put("captureBytes", capture.getBytes());
+		}
+		if (sslContextFactory!=null) {
+			statistics.put("tlsHandshakes", handshakeMetrics.getHandshakes());
+			statistics.put("tlsHandshakesResumed", handshakeMetrics.getResumedHandshakes());
+			statistics.put("tlsHandshakesFailed", handshakeMetrics.getFailedHandshakes());
+			statistics.put("tlsHandshakeTimeTotal", handshakeMetrics.getHandshakeTimeTotal());
+			statistics.put("tlsHandshakeTimeMax", handshakeMetrics.getHandshakeTimeMax());
+		}
+		if (!coalescers.isEmpty()) {
+			long requests = 0L, executions = 0L, collapsed = 0L, timeouts = 0L;
+			for(RequestCoalescer coalescer: coalescers.values()) {
+				requests += coalescer.getRequests();
+				executions += coalescer.getExecutions();
+				collapsed += coalescer.getCollapsed();
+				timeouts += coalescer.getTimeouts();
+			}
+			statistics.put("coalescedRequests", requests);
+			statistics.put("coalescedExecutions", executions);
+			statistics.put("coalescedCollapsed", collapsed);
+			statistics.put("coalescedTimeouts", timeouts);
+		}
+		if (!uploadSpoolers.isEmpty()) {
+			long requests = 0L, spooled = 0L, spooledBytes = 0L, rejected = 0L;
+			for(UploadSpooler spooler: uploadSpoolers.values()) {
+				requests += spooler.getRequests();
+				spooled += spooler.getSpooled();
+				spooledBytes += spooler.getSpooledBytes();
+				rejected += spooler.getRejected();
+			}
+			statistics.put("uploadRequests", requests);
+			statistics.put("uploadSpooled", spooled);
+			statistics.put("uploadSpooledBytes", spooledBytes);
+			statistics.put("uploadRejected", rejected);
+		}
+		if (!mirrors.isEmpty()) {
+			long mirrored = 0L, dropped = 0L, failures = 0L;
+			for(TrafficMirror mirror: mirrors.values()) {
+				mirrored += mirror.getMirrored();
+				dropped += mirror.getDropped();
+				failures += mirror.getFailures();
+			}
+			statistics.put("mirrorRequests", mirrored);
+			statistics.put("mirrorDropped", dropped);
+			statistics.put("mirrorFailures", failures);
+		}
+		if (!pushChannels.isEmpty()) {
+			long connections = 0L, sent = 0L, dropped = 0L, slowConsumers = 0L;
+			for(PushChannel channel: pushChannels.values()) {
+				connections += channel.getActiveConnections();
+				sent += channel.getSent();
+				dropped += channel.getDropped();
+				slowConsumers += channel.getSlowConsumers();
+			}
+			statistics.put("pushConnections", connections);
+			statistics.put("pushSent", sent);
+			statistics.put("pushDropped", dropped);
+			statistics.put("pushSlowConsumers", slowConsumers);
+		}
+		return statistics;
+	}
+	
+	/**
+	 * Statistics of the components bound to a context, by context path.
+	 */
+	public Map<String, Map<String, Long>> getContextStatistics() {
+		Map<String, Map<String, Long>> statistics = new LinkedHashMap<String, Map<String, Long>>(0);
+		for(ContextDeployment deployment: getDeployments()) {
+			contextStatistics(statistics, deployment.getContextPath());
+		}
+		ResourceAccountant accountant = resourceAccountant;
+		if (accountant!=null) {
+			for(ResourceUsage usage: accountant.getContextUsage()) {
+				Map<String, Long> context = contextStatistics(statistics, UNKNOWN_CONTEXT.equals(usage.getName()) ? UNKNOWN_CONTEXT : convertContext(usage.getName()));
+				context.put("accountedRequests", usage.getRequests());
+				context.put("accountedCpuTime", TimeUnit.NANOSECONDS.toMillis(usage.getCpuNanos()));
+				context.put("accountedAllocatedBytes", usage.getAllocatedBytes());
+			}
+		}
+		for(ContextVersions versions: contextVersions.values()) {
+			long requests = 0L, errors = 0L;
+			for(String version: versions.getVersions()) {
+				VersionMetrics metrics = versions.getMetrics(version);
+				if (metrics!=null) {
+					requests += metrics.getRequests();
+					errors += metrics.getErrors();
+				}
+			}
+			Map<String, Long> context = contextStatistics(statistics, versions.getContextPath());
+			context.put("versionRequests", requests);
+			context.put("versionErrors", errors);
+		}
+		for(String contextPath: coalescers.keySet()) {
+			Map<String, Long> context = contextStatistics(statistics, contextPath);
+			context.put("coalescedRequests", coalescers.get(contextPath).getRequests());
+			context.put("coalescedCollapsed", coalescers.get(contextPath).getCollapsed());
+		}
+		for(String contextPath: uploadSpoolers.keySet()) {
+			Map<String, Long> context = contextStatistics(statistics, contextPath);
+			context.put("uploadSpooled", uploadSpoolers.get(contextPath).getSpooled());
+			context.put("uploadRejected", uploadSpoolers.get(contextPath).getRejected());
+		}
+		for(String contextPath: mirrors.keySet()) {
+			Map<String, Long> context = contextStatistics(statistics, contextPath);
+			context.put("mirrorRequests", mirrors.get(contextPath).getMirrored());
+			context.put("mirrorDropped", mirrors.get(contextPath).getDropped());
+		}
+		for(String contextPath: pushChannels.keySet()) {
+			Map<String, Long> context = contextStatistics(statistics, contextPath);
+			context.put("pushConnections", (long)pushChannels.get(contextPath).getActiveConnections());
+			context.put("pushSent", pushChannels.get(contextPath).getSent());
+			context.put("pushDropped", pushChannels.get(contextPath).getDropped());
+		}
+		return statistics;
+	}
+
+	private static Map<String, Long> contextStatistics(Map<String, Map<String, Long>> statistics, String contextPath) {
+		Map<String, Long> context = statistics.get(contextPath);
+		if (context==null)
+			statistics.put(contextPath, context = new LinkedHashMap<String, Long>(0));
+		return context;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+	
+	private void checkNotStarted() {
+		if (jettyServer==null || jettyServer.isStarted() || jettyServer.isStarting())
+			throw new IllegalStateException("Connectors, sessions and filters can be changed only before the server start");
+	}
+
 	protected void stopLoobback() {
 		logger.info("Jetty 2 Server stop loopback port ... ");
 		if (loopbackThread!=null) {
@@ -215,24 +1283,39 @@ public class RestfyJavaServer implements Runnable {
 	
 	protected void stopInternal() throws Exception {
 		logger.info("Jetty 2 Server stop server internal ... ");
-		running = false;
-		jettyServer.stop();
-		context.stop();
-		context.destroy();
-		jettyServer.destroy();
-		jettyServer = null;
-		context = null;
-		if (webAppContext!=null) {
-			webAppContext.stop();
-			webAppContext.destroy();
-		}
-		webAppContext = null;
-		holderMap.clear();
+		teardown();
 		init();
 	}
 	
 	public void stop() throws Exception {
 		logger.info("Jetty 2 Server stop server ... ");
+		Object scope = events.beginLifecycle();
+		boolean success = false;
+		try {
+			stopServer();
+			success = true;
+		} finally {
+			events.endLifecycle(scope, "stop", success);
+		}
+	}
+
+	private void stopServer() throws Exception {
+		teardown();
+		stopLoobback();
+		init();
+	}
+
+	/**
+	 * Stops the server and releases the deployments and the components bound to them, shared by
+	 * the stop paths with and without the loopback channel.
+	 */
+	private void teardown() throws Exception {
+		ready = false;
+		if (deployWatcher!=null)
+			deployWatcher.stop();
+		metricsStream.stop();
+		if (serverMetrics!=null)
+			serverMetrics.getRegistry().removeCollector(serverMetrics);
 		running = false;
 		jettyServer.stop();
 		context.stop();
@@ -246,10 +1329,108 @@ public class RestfyJavaServer implements Runnable {
 		}
 		webAppContext = null;
 		holderMap.clear();
-		stopLoobback();
-		init();
+		for(ContextDeployment deployment: getDeployments()) {
+			release(deployment);
+		}
+		deployments.clear();
+		for(ContextVersions versions: contextVersions.values()) {
+			releaseVersions(versions);
+		}
+		contextVersions.clear();
+		pushChannels.clear();
+		metricsStreamPaths.clear();
+		if (requestTracer!=null)
+			requestTracer.stop();
+		if (trafficCapture!=null)
+			trafficCapture.close();
+		if (batchDispatcher!=null)
+			batchDispatcher.shutdown();
+		batchDispatcher = null;
+		for(TrafficMirror mirror: mirrors.values()) {
+			mirror.shutdown();
+		}
+	}
+
+	/**
+	 * Rebuilds the handler tree from the recorded deployments while the connectors and their
+	 * connections stay open. The new tree is started before it replaces the current one, which
+	 * is stopped once its in-flight requests are completed or the drain timeout expires.
+	 */
+	public synchronized void reload() throws Exception {
+		if (!running)
+			throw new IllegalStateException("Server not running");
+		logger.info("Jetty 2 Server reload of the handler tree ... ");
+		Object scope = events.beginLifecycle();
+		boolean success = false;
+		try {
+			reloadHandlerTree();
+			success = true;
+		} finally {
+			events.endLifecycle(scope, "reload", success);
+		}
+	}
+
+	private void reloadHandlerTree() throws Exception {
+		ServletContextHandler newContext = null;
+		WebAppContext newWebAppContext = null;
+		Handler handler = null;
+		if (webAppContext!=null) {
+			newWebAppContext = newWebAppContext(webAppContext.getContextPath(), webAppContext.getWar());
+			handler = newWebAppContext;
+		}
+		else {
+			newContext = newServletContext();
+			installDeployments(newContext);
+			handler = newContext;
+		}
+		StatisticsHandler generation = new StatisticsHandler();
+		generation.setHandler(handler);
+		generation.setServer(jettyServer);
+		try {
+			generation.start();
+		} catch (Exception e) {
+			logger.error("Jetty 2 Server reload failed, the current handler tree is kept", e);
+			generation.stop();
+			throw e;
+		}
+		Handler previous = reloadableHandler.getHandler();
+		reloadableHandler.setHandler(generation);
+		if (newContext!=null)
+			context = newContext;
+		else
+			webAppContext = newWebAppContext;
+		logger.info("Jetty 2 Server reload : new handler tree active ... ");
+		metricsStream.disconnectAll();
+		if (previous!=null) {
+			if (previous instanceof StatisticsHandler && !drainGeneration((StatisticsHandler)previous, drainTimeout)) {
+				logger.warn("Jetty 2 Server reload : previous handler tree not drained in " + drainTimeout + " ms");
+			}
+			previous.stop();
+			previous.destroy();
+		}
 	}
 
+	/**
+	 * Waits for the in-flight requests of a replaced generation, requests dispatched just before
+	 * the swap can still reach it, so it must also stay idle for a short grace period.
+	 */
+	private boolean drainGeneration(StatisticsHandler generation, long timeout) throws Exception {
+		long deadline = System.currentTimeMillis() + timeout;
+		try {
+			generation.shutdown().get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return false;
+		}
+		long idleSince = System.currentTimeMillis();
+		while (System.currentTimeMillis() - idleSince < RELOAD_GRACE_PERIOD) {
+			if (System.currentTimeMillis() > deadline)
+				return false;
+			Thread.sleep(50L);
+			if (generation.getRequestsActive()>0)
+				idleSince = System.currentTimeMillis();
+		}
+		return true;
+	}
 	
 	public boolean containsHolder(String classNamesOrWarPath) {
 		return holderMap.containsValue(classNamesOrWarPath);
@@ -259,27 +1440,104 @@ public class RestfyJavaServer implements Runnable {
 		return holderMap.containsKey(convertContext(contextPath));
 	}
 	
+	/**
+	 * @return the deployed context serving a request path, without its <code>/*</code> mapping, null if none matches
+	 */
+	public String getDeployedContext(String path) {
+		String deployed = null;
+		for(String mapping: holderMap.keySet()) {
+			String context = mapping.endsWith("/*") ? mapping.substring(0, mapping.length() - 2) : mapping;
+			if (context.endsWith("/"))
+				context = context.substring(0, context.length() - 1);
+			if ((path.equals(context) || path.startsWith(context + "/")) && (deployed==null || context.length()>deployed.length()))
+				deployed = context;
+		}
+		return deployed==null ? null : deployed.length()==0 ? "/" : deployed;
+	}
+
 	public boolean containsHolderInContext(String contextPath, String classNamesOrWarPath) {
-		return holderMap.containsKey(convertContext(contextPath)) && holderMap.get(convertContext(contextPath)).equals(classNamesOrWarPath);
+		String holder = holderMap.get(convertContext(contextPath));
+		return holder!=null && holder.equals(classNamesOrWarPath);
 	}
 	
 	public boolean containsWarInContext(String contextPath, String classNamesOrWarPath) {
-		return holderMap.containsKey(contextPath) && holderMap.get(contextPath).equals(classNamesOrWarPath);
+		String holder = holderMap.get(contextPath);
+		return holder!=null && holder.equals(classNamesOrWarPath);
 	}
 	
 	public void addClassHolder(String contextPath, String classNames, Map<String, String> serviceProperties) {
-		ServletHolder jerseyServlet = context.addServlet(
-				org.glassfish.jersey.servlet.ServletContainer.class, convertContext(contextPath));
-		jerseyServlet.setInitOrder(holderMap.size());
-		jerseyServlet.setInitParameter(
-				ServerProperties.PROVIDER_CLASSNAMES,
-				classNames);
-		if (serviceProperties!=null) {
-			for(String key: serviceProperties.keySet()) {
-				jerseyServlet.setInitParameter(key, serviceProperties.get(key));
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			ContextDeployment deployment = new ContextDeployment(DeployType.CLASS_DEPLOY, convertContext(contextPath), null, classNames, serviceProperties);
+			installHolder(context, deployment, holderMap.size());
+			deployments.put(deployment.getContextPath(), deployment);
+			holderMap.put(convertContext(contextPath), classNames);
+			success = true;
+		} finally {
+			events.endDeploy(scope, convertContext(contextPath), DeployType.CLASS_DEPLOY.name(), classNames, success);
+		}
+	}
+	
+	protected ServletHolder installHolder(ServletContextHandler servletContext, ContextDeployment deployment, int initOrder) {
+		ServletHolder jerseyServlet = newHolder(deployment);
+		jerseyServlet.setInitOrder(initOrder);
+		servletContext.addServlet(jerseyServlet, deployment.getContextPath());
+		return jerseyServlet;
+	}
+
+	/**
+	 * Installs a not mapped holder, reached by name from the {@link VersionRoutingFilter}.
+	 */
+	protected ServletHolder installVersionHolder(ServletContextHandler servletContext, ContextDeployment deployment, int initOrder) {
+		ServletHolder jerseyServlet = newHolder(deployment);
+		jerseyServlet.setInitOrder(initOrder);
+		servletContext.getServletHandler().addServlet(jerseyServlet);
+		return jerseyServlet;
+	}
+
+	private ServletHolder newHolder(ContextDeployment deployment) {
+		String classNames = deployment.getClassNames();
+		if (requestTracer!=null)
+			classNames += "," + TracingEventListener.class.getCanonicalName();
+		if (resourceAccountant!=null)
+			classNames += "," + AccountingEventListener.class.getCanonicalName();
+		if (uploadSpoolers.containsKey(deployment.getContextPath()))
+			classNames += "," + SpooledBodyReader.class.getCanonicalName();
+		String name = ContextVersions.servletName(deployment.getContextPath(), deployment.getVersion());
+		if (deployment.getClassLoader()!=null)
+			return new ServletHolder(name, new org.glassfish.jersey.servlet.ServletContainer(newResourceConfig(deployment, classNames)));
+		ServletHolder jerseyServlet = new ServletHolder(name, org.glassfish.jersey.servlet.ServletContainer.class);
+		jerseyServlet.setInitParameter(ServerProperties.PROVIDER_CLASSNAMES, classNames);
+		for(String key: deployment.getServiceProperties().keySet()) {
+			jerseyServlet.setInitParameter(key, deployment.getServiceProperties().get(key));
+		}
+		return jerseyServlet;
+	}
+
+	/**
+	 * Application of a deployment with its own class loader, its classes cannot be resolved by name from the server class path.
+	 */
+	private static ResourceConfig newResourceConfig(ContextDeployment deployment, String classNames) {
+		ResourceConfig resourceConfig = new ResourceConfig();
+		resourceConfig.setClassLoader(deployment.getClassLoader());
+		for(String className: classNames.split(",")) {
+			if (className.trim().length()>0) {
+				try {
+					resourceConfig.register(Class.forName(className.trim(), true, deployment.getClassLoader()));
+				} catch (ClassNotFoundException e) {
+					throw new IllegalStateException("Class " + className.trim() + " not found in deployment " + deployment.getReference(), e);
+				}
 			}
 		}
-		holderMap.put(convertContext(contextPath), classNames);
+		resourceConfig.addProperties(new HashMap<String, Object>(deployment.getServiceProperties()));
+		return resourceConfig;
+	}
+	
+	public List<ContextDeployment> getDeployments() {
+		synchronized (deployments) {
+			return new ArrayList<ContextDeployment>(deployments.values());
+		}
 	}
 
 	public void addJar(String contextPath, String jarFilePath, String classNames, Map<String, String> serviceProperties) throws ClassNotFoundException, IOException {
@@ -287,31 +1545,435 @@ public class RestfyJavaServer implements Runnable {
 	}
 
 	public void addJar(String contextPath, File jarFile, String classNames, Map<String, String> serviceProperties) throws ClassNotFoundException, IOException {
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			String verified = getVerifiedClassNames(jarFile, classNames);
+			if (verified!=null)
+				addURL(jarFile.toURI().toURL());
+			else
+				loadJar(jarFile, classNames);
+			ContextDeployment deployment = new ContextDeployment(DeployType.JAR_DEPLOY, convertContext(contextPath), jarFile.getAbsolutePath(), verified!=null ? verified : classNames, serviceProperties);
+			installHolder(context, deployment, holderMap.size());
+			deployments.put(deployment.getContextPath(), deployment);
+			holderMap.put(convertContext(contextPath), deployment.getClassNames());
+			recordSnapshot(deployment);
+			success = true;
+		} finally {
+			events.endDeploy(scope, convertContext(contextPath), DeployType.JAR_DEPLOY.name(), jarFile.getAbsolutePath(), success);
+		}
+	}
+	
+	/**
+	 * Deploys a jar context loaded by its own class loader instead of the server class path, so jars
+	 * deployed in other contexts cannot shadow its classes. The class loader is closed when the context
+	 * is replaced or undeployed.
+	 */
+	public void addIsolatedJar(String contextPath, File jarFile, String classNames, Map<String, String> serviceProperties) throws ClassNotFoundException, IOException {
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			String verified = getVerifiedClassNames(jarFile, classNames);
+			ContextDeployment deployment = new ContextDeployment(DeployType.JAR_DEPLOY, convertContext(contextPath), jarFile.getAbsolutePath(), verified!=null ? verified : classNames,
+					serviceProperties, ContextDeployment.DEFAULT_VERSION, newJarClassLoader(jarFile, verified!=null ? null : classNames));
+			installHolder(context, deployment, holderMap.size());
+			deployments.put(deployment.getContextPath(), deployment);
+			holderMap.put(convertContext(contextPath), deployment.getClassNames());
+			recordSnapshot(deployment);
+			success = true;
+		} finally {
+			events.endDeploy(scope, convertContext(contextPath), DeployType.JAR_DEPLOY.name(), jarFile.getAbsolutePath(), success);
+		}
+	}
+
+	private static void loadJar(File jarFile, String classNames) throws ClassNotFoundException, IOException {
 		for(String name: classNames.split(",")) {
 			if (name.trim().length()>0)
 				new URLClassLoader(new URL[]{jarFile.toURI().toURL()}, ClassLoader.getSystemClassLoader()).loadClass(name.trim());
 		}
 		addURL(jarFile.toURI().toURL());
-		ServletHolder jerseyServlet = context.addServlet(
-				org.glassfish.jersey.servlet.ServletContainer.class, convertContext(contextPath));
-		jerseyServlet.setInitOrder(holderMap.size());
-		jerseyServlet.setInitParameter(
-				ServerProperties.PROVIDER_CLASSNAMES,
-				classNames);
-		if (serviceProperties!=null) {
-			for(String key: serviceProperties.keySet()) {
-				jerseyServlet.setInitParameter(key, serviceProperties.get(key));
+	}
+
+	/**
+	 * @return the class names of a jar trusted by the deployment snapshot, null if they must be validated
+	 */
+	private String getVerifiedClassNames(File jarFile, String classNames) {
+		DeploymentSnapshot snapshot = deploymentSnapshot;
+		return snapshot!=null ? snapshot.getVerifiedClassNames(jarFile, classNames) : null;
+	}
+
+	/**
+	 * @param classNames classes loaded to validate the jar, null if it is trusted
+	 */
+	private static URLClassLoader newJarClassLoader(File jarFile, String classNames) throws ClassNotFoundException, IOException {
+		URLClassLoader classLoader = new URLClassLoader(new URL[] {jarFile.toURI().toURL()}, RestfyJavaServer.class.getClassLoader());
+		if (classNames==null)
+			return classLoader;
+		try {
+			for(String name: classNames.split(",")) {
+				if (name.trim().length()>0)
+					classLoader.loadClass(name.trim());
 			}
+		} catch (ClassNotFoundException e) {
+			classLoader.close();
+			throw e;
 		}
-		holderMap.put(convertContext(contextPath), classNames);
+		return classLoader;
 	}
-	
+
+	/**
+	 * Deploys a new version of a class or jar context next to the current one, it is started before
+	 * this method returns and it receives only the requests asking for it with the
+	 * {@link VersionRoutingFilter#VERSION_HEADER} header, until it is activated by {@link #switchVersion(String, String)}.
+	 * @param jarFile jar containing the classes of the version, loaded by its own class loader closed when
+	 * the version is retired, null if they are already on the classpath
+	 */
+	public synchronized void deployVersion(String contextPath, String version, String classNames, File jarFile, Map<String, String> serviceProperties) throws Exception {
+		String path = convertContext(contextPath);
+		ContextDeployment primary = deployments.get(path);
+		if (primary==null || primary.getType()==DeployType.WAR_DEPLOY || context==null)
+			throw new IllegalStateException("No class or jar deployment in context " + path);
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			ContextVersions versions = contextVersions.get(path);
+			if (versions==null)
+				versions = new ContextVersions(primary);
+			if (versions.getDeployment(version)!=null)
+				throw new IllegalStateException("Version " + version + " already deployed in context " + path);
+			URLClassLoader classLoader = jarFile!=null ? newJarClassLoader(jarFile, classNames) : null;
+			ContextDeployment deployment = new ContextDeployment(jarFile!=null ? DeployType.JAR_DEPLOY : DeployType.CLASS_DEPLOY, path,
+					jarFile!=null ? jarFile.getAbsolutePath() : null, classNames, serviceProperties, version, classLoader);
+			ServletHolder holder = installVersionHolder(context, deployment, -1);
+			if (context.isStarted()) {
+				try {
+					if (!holder.isStarted())
+						holder.start();
+					holder.initialize();
+					holder.getServlet();
+				} catch (Exception e) {
+					removeHolder(context, holder);
+					release(deployment);
+					throw e;
+				}
+			}
+			versions.add(deployment);
+			contextVersions.put(path, versions);
+			logger.info("Jetty 2 Server version " + version + " deployed in context " + path);
+			success = true;
+		} finally {
+			events.endDeploy(scope, path, "VERSION_DEPLOY", version, success);
+		}
+	}
+
+	public Set<String> getVersionTrustedAddresses() {
+		return Collections.unmodifiableSet(versionTrustedAddresses);
+	}
+
+	/**
+	 * Client addresses allowed to ask for a given version with the {@link VersionRoutingFilter#VERSION_HEADER}
+	 * header, the requests of the local connector are always allowed.
+	 */
+	public void setVersionTrustedAddresses(Collection<String> addresses) {
+		checkNotStarted();
+		this.versionTrustedAddresses = new LinkedHashSet<String>(addresses);
+		rebuildContext();
+	}
+
+	/**
+	 * Routes atomically all the traffic of a context to one of its deployed versions.
+	 */
+	public void switchVersion(String contextPath, String version) {
+		String path = convertContext(contextPath);
+		ContextVersions versions = contextVersions.get(path);
+		if (versions==null) {
+			ContextDeployment primary = deployments.get(path);
+			if (primary!=null && primary.getVersion().equals(version))
+				return;
+			throw new IllegalStateException("Version " + version + " not deployed in context " + path);
+		}
+		versions.activate(version);
+		logger.info("Jetty 2 Server context " + path + " switched to version " + version);
+	}
+
+	/**
+	 * Routes a percentage of the traffic of a context to a deployed version other than the active one,
+	 * with sticky assignment of the clients. A weight of 0 removes the canary.
+	 */
+	public void setCanary(String contextPath, String version, int weight) {
+		String path = convertContext(contextPath);
+		ContextVersions versions = contextVersions.get(path);
+		if (versions==null)
+			throw new IllegalStateException("No other version deployed in context " + path);
+		versions.setCanary(version, weight);
+		logger.info("Jetty 2 Server context " + path + " canary version " + version + " weight " + weight + "%");
+	}
+
+	/**
+	 * Removes a version not active anymore, once its in-flight requests are completed, and closes its
+	 * class loader. A retired primary version is replaced in the deployments by the active one and the
+	 * handler tree is reloaded to map it on the context path.
+	 */
+	public synchronized void retireVersion(String contextPath, String version) throws Exception {
+		String path = convertContext(contextPath);
+		ContextVersions versions = contextVersions.get(path);
+		if (versions==null)
+			throw new IllegalStateException("No other version deployed in context " + path);
+		boolean primary = version.equals(versions.getPrimary());
+		ContextDeployment retired = versions.retire(version);
+		if (primary) {
+			ContextDeployment promoted = versions.getDeployment(versions.getPrimary());
+			deployments.put(path, promoted);
+			holderMap.put(path, promoted.getClassNames());
+			if (running)
+				reload();
+		}
+		if (!versions.awaitRetired(version, drainTimeout))
+			logger.warn("Jetty 2 Server version " + version + " of context " + path + " not drained in " + drainTimeout + " ms");
+		if (!primary && context!=null) {
+			ServletHolder holder = context.getServletHandler().getServlet(ContextVersions.servletName(path, version));
+			if (holder!=null) {
+				removeHolder(context, holder);
+				holder.stop();
+			}
+		}
+		release(retired);
+		logger.info("Jetty 2 Server version " + version + " retired from context " + path);
+	}
+
+	private static void removeHolder(ServletContextHandler servletContext, ServletHolder holder) {
+		ServletHandler handler = servletContext.getServletHandler();
+		handler.setServlets(ArrayUtil.removeFromArray(handler.getServlets(), holder));
+	}
+
+	/**
+	 * @return contexts having more than one deployed version
+	 */
+	public Map<String, ContextVersions> getContextVersions() {
+		return new LinkedHashMap<String, ContextVersions>(contextVersions);
+	}
+
+	/**
+	 * Estimates the heap retained by each context (its Jersey applications and its coalescing, upload,
+	 * mirroring and version state) with its loaded classes and metaspace share. The sessions, shared by
+	 * all the contexts of the server, are reported on their own line. The estimation walks the heap,
+	 * it is a diagnostic operation not meant to be polled.
+	 */
+	public List<ContextFootprint> getMemoryFootprint() {
+		List<ContextFootprint> footprints = new ArrayList<ContextFootprint>(0);
+		HeapEstimator estimator = new HeapEstimator();
+		estimator.exclude(this);
+		WebAppContext webApp = webAppContext;
+		if (webApp!=null) {
+			long[] application = new long[2];
+			for(ServletHolder holder: webApp.getServletHandler().getServlets()) {
+				add(application, estimator.estimate(holder.getServletInstance()));
+			}
+			int classes = HeapEstimator.countClasses(webApp.getClassLoader());
+			footprints.add(new ContextFootprint(webApp.getContextPath(), ContextFootprint.ISOLATED_LOADER, application[0], 0L, application[1],
+					classes, HeapEstimator.metaspaceShare(classes), estimator.isTruncated(), estimator.isComplete()));
+			addSessionFootprint(footprints, estimator, webApp.getSessionHandler());
+			return footprints;
+		}
+		ServletContextHandler servletContext = context;
+		if (servletContext==null)
+			return footprints;
+		ServletHolder[] holders = servletContext.getServletHandler().getServlets();
+		for(ContextDeployment deployment: getDeployments()) {
+			String path = deployment.getContextPath();
+			List<ContextDeployment> versions = new ArrayList<ContextDeployment>(0);
+			versions.add(deployment);
+			ContextVersions contextVersion = contextVersions.get(path);
+			if (contextVersion!=null)
+				versions.addAll(contextVersion.getSecondaryDeployments());
+			long[] application = new long[2];
+			for(ServletHolder holder: holders) {
+				if (holder.getName()!=null && holder.getName().startsWith(ContextVersions.servletName(path, "")))
+					add(application, estimator.estimate(holder.getServletInstance()));
+			}
+			long[] caches = new long[2];
+			add(caches, estimator.estimate(coalescers.get(path)));
+			add(caches, estimator.estimate(uploadSpoolers.get(path)));
+			add(caches, estimator.estimate(mirrors.get(path)));
+			add(caches, estimator.estimate(contextVersion));
+			boolean isolated = false;
+			int classes = 0;
+			for(ContextDeployment version: versions) {
+				if (version.getClassLoader()!=null) {
+					isolated = true;
+					int count = HeapEstimator.countClasses(version.getClassLoader());
+					classes = count>=0 && classes>=0 ? classes + count : -1;
+				}
+				else if (version.getClassNames()!=null && classes>=0) {
+					classes += version.getClassNames().split(",").length;
+				}
+			}
+			footprints.add(new ContextFootprint(path, isolated ? ContextFootprint.ISOLATED_LOADER : ContextFootprint.SERVER_LOADER,
+					application[0], caches[0], application[1] + caches[1], classes, HeapEstimator.metaspaceShare(classes), estimator.isTruncated(), estimator.isComplete()));
+		}
+		addSessionFootprint(footprints, estimator, servletContext.getSessionHandler());
+		return footprints;
+	}
+
+	private static void addSessionFootprint(List<ContextFootprint> footprints, HeapEstimator estimator, SessionHandler sessionHandler) {
+		if (sessionHandler==null || sessionHandler.getSessionManager()==null)
+			return;
+		long[] sessions = estimator.estimate(sessionHandler.getSessionManager());
+		footprints.add(new ContextFootprint("sessions", ContextFootprint.SERVER_LOADER, 0L, sessions[0], sessions[1], 0, 0L, estimator.isTruncated(), estimator.isComplete()));
+	}
+
+	private static void add(long[] total, long[] estimate) {
+		total[0] += estimate[0];
+		total[1] += estimate[1];
+	}
+
+	/**
+	 * Deploys or replaces a jar context loaded by its own class loader, so a changed jar is loaded
+	 * again. When the server is running the handler tree is reloaded, the previous class loader is
+	 * closed once the replaced tree is drained.
+	 */
+	public synchronized void hotDeployJar(String contextPath, File jarFile, String classNames, ClassLoader classLoader) throws Exception {
+		String path = convertContext(contextPath);
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			ContextDeployment deployment = new ContextDeployment(DeployType.JAR_DEPLOY, path, jarFile.getAbsolutePath(), classNames, null, ContextDeployment.DEFAULT_VERSION, classLoader);
+			ContextDeployment previous = deployments.put(path, deployment);
+			ContextVersions previousVersions = contextVersions.remove(path);
+			holderMap.put(path, classNames);
+			try {
+				applyDeployments();
+			} catch (Exception e) {
+				restoreDeployment(path, previous);
+				if (previousVersions!=null)
+					contextVersions.put(path, previousVersions);
+				throw e;
+			}
+			release(previous);
+			releaseVersions(previousVersions);
+			recordSnapshot(deployment);
+			if (running)
+				saveSnapshot();
+			success = true;
+		} finally {
+			events.endDeploy(scope, path, DeployType.JAR_DEPLOY.name(), jarFile.getAbsolutePath(), success);
+		}
+	}
+
+	/**
+	 * Deploys or replaces the web application of the server, it replaces the class and jar contexts
+	 * until it is undeployed.
+	 */
+	public synchronized void hotDeployWar(String contextPath, File warFile) throws Exception {
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			WebAppContext previousWebApp = webAppContext;
+			ContextDeployment previous = deployments.put(contextPath, new ContextDeployment(DeployType.WAR_DEPLOY, contextPath, warFile.getAbsolutePath(), null, null));
+			holderMap.put(contextPath, warFile.getAbsolutePath());
+			if (previousWebApp!=null && !previousWebApp.getContextPath().equals(contextPath)) {
+				deployments.remove(previousWebApp.getContextPath());
+				holderMap.remove(previousWebApp.getContextPath());
+			}
+			webAppContext = newWebAppContext(contextPath, warFile.getAbsolutePath());
+			try {
+				if (running)
+					reload();
+				else
+					setContentHandler(webAppContext);
+			} catch (Exception e) {
+				webAppContext = previousWebApp;
+				restoreDeployment(contextPath, previous);
+				throw e;
+			}
+			success = true;
+		} finally {
+			events.endDeploy(scope, contextPath, DeployType.WAR_DEPLOY.name(), warFile.getAbsolutePath(), success);
+		}
+	}
+
+	/**
+	 * Removes a class, jar or war context, the handler tree is reloaded when the server is running.
+	 * @return the removed deployment, null if the context was not deployed
+	 */
+	public synchronized ContextDeployment hotUndeploy(String contextPath) throws Exception {
+		if (webAppContext!=null && webAppContext.getContextPath().equals(contextPath)) {
+			ContextDeployment removed = deployments.remove(contextPath);
+			holderMap.remove(contextPath);
+			webAppContext = null;
+			if (running)
+				reload();
+			else
+				rebuildContext();
+			return removed;
+		}
+		String path = convertContext(contextPath);
+		ContextDeployment removed = deployments.remove(path);
+		if (removed==null)
+			return null;
+		holderMap.remove(path);
+		ContextVersions removedVersions = contextVersions.remove(path);
+		applyDeployments();
+		release(removed);
+		releaseVersions(removedVersions);
+		if (deploymentSnapshot!=null && removed.getClassLoader()!=null) {
+			deploymentSnapshot.remove(removed.getReference());
+			if (running)
+				saveSnapshot();
+		}
+		return removed;
+	}
+
+	private void applyDeployments() throws Exception {
+		if (running)
+			reload();
+		else
+			rebuildContext();
+	}
+
+	private void restoreDeployment(String contextPath, ContextDeployment previous) {
+		if (previous!=null) {
+			deployments.put(contextPath, previous);
+			holderMap.put(contextPath, previous.getType()==DeployType.WAR_DEPLOY ? previous.getReference() : previous.getClassNames());
+		}
+		else {
+			deployments.remove(contextPath);
+			holderMap.remove(contextPath);
+		}
+	}
+
+	private static void release(ContextDeployment deployment) {
+		if (deployment!=null && deployment.getClassLoader() instanceof URLClassLoader) {
+			try {
+				((URLClassLoader)deployment.getClassLoader()).close();
+			} catch (IOException e) {
+				logger.warn("Jetty 2 Server class loader of " + deployment.getReference() + " could not be closed", e);
+			}
+		}
+	}
+
+	private static void releaseVersions(ContextVersions versions) {
+		if (versions!=null) {
+			for(ContextDeployment deployment: versions.getSecondaryDeployments()) {
+				release(deployment);
+			}
+		}
+	}
+
 	public void setWar(String contextPath, String warFileAbsolutePath) {
-		 webAppContext = new WebAppContext();
-		 webAppContext.setContextPath(contextPath);
-		 webAppContext.setWar(warFileAbsolutePath);
-		 jettyServer.setHandler(webAppContext);
-		 holderMap.put(contextPath, warFileAbsolutePath);
+		Object scope = events.beginDeploy();
+		boolean success = false;
+		try {
+			if (!pushChannels.isEmpty())
+				logger.warn("Jetty 2 Server push channels " + pushChannels.keySet() + " are not served by the web application " + contextPath);
+			webAppContext = newWebAppContext(contextPath, warFileAbsolutePath);
+			setContentHandler(webAppContext);
+			deployments.put(contextPath, new ContextDeployment(DeployType.WAR_DEPLOY, contextPath, warFileAbsolutePath, null, null));
+			holderMap.put(contextPath, warFileAbsolutePath);
+			success = true;
+		} finally {
+			events.endDeploy(scope, contextPath, DeployType.WAR_DEPLOY.name(), warFileAbsolutePath, success);
+		}
 	}
 
 	public void setWar(String contextPath, File warFile) {
@@ -351,6 +2013,98 @@ public class RestfyJavaServer implements Runnable {
 
     }
 	
+	public static String formatStatistics(Map<String, Long> statistics) {
+		StringBuilder line = new StringBuilder("stats");
+		for(String key: statistics.keySet()) {
+			line.append(' ').append(key).append('=').append(statistics.get(key));
+		}
+		return line.toString();
+	}
+
+	public static Map<String, Long> parseStatistics(String line) {
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>(0);
+		if (line!=null && line.startsWith("stats")) {
+			for(String token: line.substring(5).trim().split("\\s+")) {
+				int equal = token.indexOf('=');
+				if (equal>0) {
+					try {
+						statistics.put(token.substring(0, equal), Long.parseLong(token.substring(equal+1)));
+					} catch (NumberFormatException e) {
+					}
+				}
+			}
+		}
+		return statistics;
+	}
+
+	public static Map<String, Long> getRemoteStatistics(String hostname, int loopbackPort) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "stats");
+		return parseStatistics(lines.isEmpty() ? null : lines.get(0));
+	}
+
+	/**
+	 * Sends a command to the loopback admin channel of a server and returns the answer lines.
+	 */
+	public static List<String> sendRemoteCommand(String hostname, int loopbackPort, String command) {
+		List<String> lines = new ArrayList<String>(0);
+		Socket connector = null;
+		try {
+			connector = new Socket(hostname, loopbackPort);
+			connector.setSoTimeout(30000);
+			PrintStream ps = new PrintStream(connector.getOutputStream());
+			ps.println(command);
+			ps.flush();
+			BufferedReader br = new BufferedReader(new InputStreamReader(connector.getInputStream()));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+			}
+		} catch (Throwable e) {
+			logger.debug("Jetty 2 Server loopback command " + command + " failed on port " + loopbackPort + " : " + e.getMessage());
+		}
+		finally {
+			if (connector!=null) {
+				try {
+					connector.close();
+				} catch (IOException e) {
+					//e.printStackTrace();
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Asks the server listening on the given loopback port to hand its port over and drain.
+	 */
+	public static boolean handoverRemoteServer(String hostname, int loopbackPort) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "handover");
+		return !lines.isEmpty() && lines.get(0).startsWith("handedover");
+	}
+
+	/**
+	 * Deploys a version of a context on a remote server, the jar path is resolved by the remote server.
+	 */
+	public static boolean deployRemoteVersion(String hostname, int loopbackPort, String contextPath, String version, String classNames, String jarFilePath) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "deploy-version " + contextPath + " " + version + " " + classNames + (jarFilePath!=null ? " " + jarFilePath : ""));
+		return !lines.isEmpty() && lines.get(0).startsWith("deployed");
+	}
+
+	public static boolean switchRemoteVersion(String hostname, int loopbackPort, String contextPath, String version) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "switch-version " + contextPath + " " + version);
+		return !lines.isEmpty() && lines.get(0).startsWith("switched");
+	}
+
+	public static boolean canaryRemoteVersion(String hostname, int loopbackPort, String contextPath, String version, int weight) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "canary " + contextPath + " " + version + " " + weight);
+		return !lines.isEmpty() && lines.get(0).startsWith("canary");
+	}
+
+	public static boolean retireRemoteVersion(String hostname, int loopbackPort, String contextPath, String version) {
+		List<String> lines = sendRemoteCommand(hostname, loopbackPort, "retire-version " + contextPath + " " + version);
+		return !lines.isEmpty() && lines.get(0).startsWith("retired");
+	}
+
 	public static boolean stopRemoteServer(String hostname, int loopbackPort) {
 		Socket connector = null;
 		try {
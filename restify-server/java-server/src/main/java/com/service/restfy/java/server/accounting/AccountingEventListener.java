@@ -0,0 +1,35 @@
+package com.service.restfy.java.server.accounting;
+
+import java.lang.reflect.Method;
+
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+/**
+ * Jersey listener naming the resource method of the requests sampled by {@link AccountingFilter}.
+ */
+public class AccountingEventListener implements ApplicationEventListener {
+	private static final RequestEventListener RESOURCE_LISTENER = new RequestEventListener() {
+		@Override
+		public void onEvent(RequestEvent event) {
+			if (event.getType()==RequestEvent.Type.RESOURCE_METHOD_START) {
+				ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+				Method method = resourceMethod!=null ? resourceMethod.getInvocable().getHandlingMethod() : null;
+				if (method!=null)
+					event.getContainerRequest().setProperty(AccountingFilter.ATTRIBUTE, method.getDeclaringClass().getSimpleName() + "." + method.getName());
+			}
+		}
+	};
+
+	@Override
+	public void onEvent(ApplicationEvent event) {
+	}
+
+	@Override
+	public RequestEventListener onRequest(RequestEvent requestEvent) {
+		return requestEvent.getContainerRequest().getProperty(AccountingFilter.ATTRIBUTE)!=null ? RESOURCE_LISTENER : null;
+	}
+}
@@ -0,0 +1,66 @@
+package com.service.restfy.java.server.accounting;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * Accounts the CPU time and the allocated bytes of the sampled requests. The resource method is
+ * named by {@link AccountingEventListener}. Only the work done on the dispatching thread is accounted.
+ */
+public class AccountingFilter implements Filter {
+	/**
+	 * Request attribute holding the resource method of an accounted request.
+	 */
+	public static final String ATTRIBUTE = "com.service.restfy.java.server.accounting.resource";
+
+	private ResourceAccountant accountant = null;
+	private RestfyJavaServer server = null;
+
+	/**
+	 * @param server resolves the deployed context of the requests, the requests to unknown paths are accounted together
+	 */
+	public AccountingFilter(ResourceAccountant accountant, RestfyJavaServer server) {
+		super();
+		this.accountant = accountant;
+		this.server = server;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!accountant.isSampled() || !(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		request.setAttribute(ATTRIBUTE, "");
+		long cpu = accountant.currentCpuTime();
+		long allocated = accountant.currentAllocatedBytes();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			long cpuNanos = cpu>=0 ? accountant.currentCpuTime() - cpu : -1L;
+			long allocatedBytes = allocated>=0 ? accountant.currentAllocatedBytes() - allocated : -1L;
+			Object resource = request.getAttribute(ATTRIBUTE);
+			String context = server.getDeployedContext(httpRequest.getContextPath() + httpRequest.getServletPath());
+			accountant.record(context!=null ? context : RestfyJavaServer.UNKNOWN_CONTEXT,
+					resource instanceof String && ((String)resource).length()>0 ? (String)resource : null, cpuNanos, allocatedBytes);
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
@@ -0,0 +1,165 @@
+package com.service.restfy.java.server.accounting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples requests of the servlet contexts of a {@link com.service.restfy.java.server.RestfyJavaServer}
+ * and accounts the CPU time and the bytes allocated by the thread serving them, per context and
+ * per resource method. A resource method is named by its context, as <i>/context:Class.method</i>, so the
+ * same class deployed in several contexts is accounted separately. Allocated bytes are available on
+ * HotSpot based JVMs only.
+ */
+public class ResourceAccountant {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+	private static final Comparator<ResourceUsage> BY_CPU = new Comparator<ResourceUsage>() {
+		public int compare(ResourceUsage o1, ResourceUsage o2) {
+			return Long.compare(o2.getCpuNanos(), o1.getCpuNanos());
+		}
+	};
+
+	private double sampleRate = 0.1d;
+	private ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private boolean cpuTimeSupported = false;
+	private Method allocatedBytesMethod = null;
+	private ConcurrentMap<String, ResourceUsage> contexts = new ConcurrentHashMap<String, ResourceUsage>();
+	private ConcurrentMap<String, ResourceUsage> resources = new ConcurrentHashMap<String, ResourceUsage>();
+
+	public ResourceAccountant() {
+		this(0.1d);
+	}
+
+	/**
+	 * @param sampleRate fraction of the requests accounted, between 0 and 1
+	 */
+	public ResourceAccountant(double sampleRate) {
+		super();
+		this.sampleRate = sampleRate;
+		try {
+			cpuTimeSupported = threadBean.isCurrentThreadCpuTimeSupported();
+			if (cpuTimeSupported && !threadBean.isThreadCpuTimeEnabled())
+				threadBean.setThreadCpuTimeEnabled(true);
+		} catch (UnsupportedOperationException e) {
+			cpuTimeSupported = false;
+		}
+		try {
+			Class<?> hotspotBean = Class.forName("com.sun.management.ThreadMXBean");
+			if (hotspotBean.isInstance(threadBean)) {
+				if (!(Boolean)hotspotBean.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean))
+					hotspotBean.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(threadBean, true);
+				allocatedBytesMethod = hotspotBean.getMethod("getThreadAllocatedBytes", long.class);
+			}
+		} catch (Throwable e) {
+			logger.debug("Jetty 2 Server thread allocated bytes not available : " + e);
+			allocatedBytesMethod = null;
+		}
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	public boolean isCpuTimeSupported() {
+		return cpuTimeSupported;
+	}
+
+	public boolean isAllocatedBytesSupported() {
+		return allocatedBytesMethod!=null;
+	}
+
+	protected boolean isSampled() {
+		return sampleRate>=1d || (sampleRate>0d && ThreadLocalRandom.current().nextDouble()<sampleRate);
+	}
+
+	/**
+	 * @return CPU time in nanoseconds of the current thread, -1 if not supported
+	 */
+	protected long currentCpuTime() {
+		return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1L;
+	}
+
+	/**
+	 * @return bytes allocated by the current thread, -1 if not supported
+	 */
+	protected long currentAllocatedBytes() {
+		if (allocatedBytesMethod==null)
+			return -1L;
+		try {
+			return (Long)allocatedBytesMethod.invoke(threadBean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1L;
+		}
+	}
+
+	protected void record(String contextPath, String resource, long cpuNanos, long allocatedBytes) {
+		usage(contexts, contextPath).record(cpuNanos, allocatedBytes);
+		if (resource!=null)
+			usage(resources, contextPath + ":" + resource).record(cpuNanos, allocatedBytes);
+	}
+
+	private static ResourceUsage usage(ConcurrentMap<String, ResourceUsage> usages, String name) {
+		ResourceUsage usage = usages.get(name);
+		if (usage==null) {
+			ResourceUsage current = usages.putIfAbsent(name, usage = new ResourceUsage(name));
+			if (current!=null)
+				usage = current;
+		}
+		return usage;
+	}
+
+	/**
+	 * @return usage of the contexts, by decreasing CPU time
+	 */
+	public List<ResourceUsage> getContextUsage() {
+		return sorted(contexts);
+	}
+
+	/**
+	 * @return usage of the resource methods, by decreasing CPU time
+	 */
+	public List<ResourceUsage> getResourceUsage() {
+		return sorted(resources);
+	}
+
+	private static List<ResourceUsage> sorted(ConcurrentMap<String, ResourceUsage> usages) {
+		List<ResourceUsage> sorted = new ArrayList<ResourceUsage>(usages.values());
+		Collections.sort(sorted, BY_CPU);
+		return sorted;
+	}
+
+	public void clear() {
+		contexts.clear();
+		resources.clear();
+	}
+
+	/**
+	 * Text report of the usage, one line per context then one line per resource method.
+	 */
+	public String format() {
+		StringBuilder report = new StringBuilder(512);
+		report.append("sampleRate=").append(sampleRate).append(" cpuTime=").append(cpuTimeSupported)
+			.append(" allocatedBytes=").append(isAllocatedBytesSupported()).append('\n');
+		for(ResourceUsage usage: getContextUsage()) {
+			report.append("context ").append(usage).append('\n');
+		}
+		for(ResourceUsage usage: getResourceUsage()) {
+			report.append("resource ").append(usage).append('\n');
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,73 @@
+package com.service.restfy.java.server.accounting;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPU time and allocated bytes of the sampled requests of a context or of a resource method.
+ */
+public class ResourceUsage {
+	private String name = null;
+	private AtomicLong requests = new AtomicLong(0L);
+	private AtomicLong cpuNanos = new AtomicLong(0L);
+	private AtomicLong cpuNanosMax = new AtomicLong(0L);
+	private AtomicLong allocatedBytes = new AtomicLong(0L);
+
+	public ResourceUsage(String name) {
+		super();
+		this.name = name;
+	}
+
+	protected void record(long cpu, long allocated) {
+		requests.incrementAndGet();
+		if (cpu>0) {
+			cpuNanos.addAndGet(cpu);
+			long max = cpuNanosMax.get();
+			while (cpu>max && !cpuNanosMax.compareAndSet(max, cpu)) {
+				max = cpuNanosMax.get();
+			}
+		}
+		if (allocated>0)
+			allocatedBytes.addAndGet(allocated);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return sampled requests
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getCpuNanos() {
+		return cpuNanos.get();
+	}
+
+	public long getCpuNanosMax() {
+		return cpuNanosMax.get();
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes.get();
+	}
+
+	public double getCpuMillisMean() {
+		long count = requests.get();
+		return count>0 ? cpuNanos.get() / (double)TimeUnit.MILLISECONDS.toNanos(1L) / count : 0d;
+	}
+
+	public long getAllocatedBytesMean() {
+		long count = requests.get();
+		return count>0 ? allocatedBytes.get() / count : 0L;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s requests=%d cpuMs=%.3f cpuMsMean=%.3f cpuMsMax=%.3f allocatedBytes=%d allocatedBytesMean=%d",
+				name, getRequests(), cpuNanos.get() / 1e6d, getCpuMillisMean(), cpuNanosMax.get() / 1e6d, getAllocatedBytes(), getAllocatedBytesMean());
+	}
+}
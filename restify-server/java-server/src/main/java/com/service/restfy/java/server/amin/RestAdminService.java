@@ -1,31 +1,41 @@
 package com.service.restfy.java.server.amin;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
 import javax.annotation.PostConstruct;
-import javax.inject.Inject;
+import javax.servlet.ServletContext;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
-import javax.ws.rs.core.Application;
-import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.accounting.ResourceAccountant;
+import com.service.restfy.java.server.coalesce.RequestCoalescer;
+import com.service.restfy.java.server.footprint.ContextFootprint;
+import com.service.restfy.java.server.mirror.TrafficMirror;
+import com.service.restfy.java.server.priority.PriorityScheduler;
+import com.service.restfy.java.server.trace.RequestTracer;
+import com.service.restfy.java.server.versions.ContextVersions;
+import com.service.restfy.java.server.websocket.PushChannel;
+import com.service.restfy.metrics.MetricsRegistry;
 
 @Path("/console")
 public class RestAdminService {
 	RestfyJavaServer server;
-	@Context Configuration configuration;
-	@Inject Application application;
-	
+	@Context ServletContext servletContext;
+
 	@PostConstruct
 	public void init() {
-		System.out.println("configuration = "+(configuration!=null));
-		System.out.println("application = "+(application!=null));
-		for(String k:application.getProperties().keySet())
-			System.out.println(k+"="+application.getProperties().get(k)+" ["+application.getProperties().get(k).getClass().getName()+"]");
+		if (servletContext!=null)
+			server = (RestfyJavaServer)servletContext.getAttribute(RestfyJavaServer.SERVER_ATTRIBUTE);
 	}
-	
+
     @GET
     @Path("services")
     @Produces(MediaType.TEXT_PLAIN)
@@ -33,4 +43,122 @@ public class RestAdminService {
         return ""+(server!=null);
     }
 
+    @GET
+    @Path("statistics")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String statistics() {
+        return RestfyJavaServer.formatStatistics(getServer().getStatistics());
+    }
+
+    /**
+     * Metrics of the registry of the server in the Prometheus text format.
+     */
+    @GET
+    @Path("metrics")
+    @Produces(MetricsRegistry.CONTENT_TYPE)
+    public StreamingOutput metrics() {
+        final MetricsRegistry registry = getServer().getMetricsRegistry();
+        if (registry==null)
+            throw new NotFoundException("Metrics export is not enabled");
+        return new StreamingOutput() {
+            public void write(OutputStream output) throws IOException {
+                registry.writeTo(output);
+            }
+        };
+    }
+
+    @GET
+    @Path("slow-requests")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String slowRequests() {
+        RequestTracer tracer = getServer().getRequestTracer();
+        if (tracer==null)
+            throw new NotFoundException("Request tracing is not enabled");
+        return tracer.format();
+    }
+
+    @GET
+    @Path("resource-usage")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String resourceUsage() {
+        ResourceAccountant accountant = getServer().getResourceAccountant();
+        if (accountant==null)
+            throw new NotFoundException("Resource accounting is not enabled");
+        return accountant.format();
+    }
+
+    @GET
+    @Path("coalescing")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String coalescing() {
+        StringBuilder lines = new StringBuilder();
+        Map<String, RequestCoalescer> coalescers = getServer().getCoalescers();
+        for(String contextPath: coalescers.keySet()) {
+            lines.append(contextPath).append(' ').append(coalescers.get(contextPath)).append('\n');
+        }
+        return lines.toString();
+    }
+
+    @GET
+    @Path("mirroring")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String mirroring() {
+        StringBuilder lines = new StringBuilder();
+        Map<String, TrafficMirror> mirrors = getServer().getMirrors();
+        for(String contextPath: mirrors.keySet()) {
+            lines.append(contextPath).append(' ').append(mirrors.get(contextPath)).append('\n');
+        }
+        return lines.toString();
+    }
+
+    @GET
+    @Path("push")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String push() {
+        StringBuilder lines = new StringBuilder();
+        Map<String, PushChannel> channels = getServer().getPushChannels();
+        for(String contextPath: channels.keySet()) {
+            lines.append(contextPath).append(' ').append(channels.get(contextPath)).append('\n');
+        }
+        return lines.toString();
+    }
+
+    @GET
+    @Path("versions")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String versions() {
+        StringBuilder lines = new StringBuilder();
+        for(ContextVersions versions: getServer().getContextVersions().values()) {
+            lines.append(versions.format());
+        }
+        return lines.toString();
+    }
+
+    @GET
+    @Path("priority")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String priority() {
+        PriorityScheduler scheduler = getServer().getPriorityScheduler();
+        if (scheduler==null)
+            throw new NotFoundException("Priority scheduling is not enabled");
+        return scheduler.format();
+    }
+
+    @GET
+    @Path("footprint")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String footprint() {
+        StringBuilder lines = new StringBuilder();
+        for(ContextFootprint footprint: getServer().getMemoryFootprint()) {
+            lines.append(footprint).append('\n');
+        }
+        return lines.toString();
+    }
+
+    private RestfyJavaServer getServer() {
+        if (server==null)
+            throw new NotFoundException("Console not bound to a server");
+        return server;
+    }
+
 }
@@ -0,0 +1,174 @@
+package com.service.restfy.java.server.batch;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+import com.service.restfy.java.server.local.LocalRequest;
+import com.service.restfy.java.server.local.LocalResponse;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.versions.VersionRoutingFilter;
+
+/**
+ * Executes the sub-requests of a batch in parallel through the server local connector, so they
+ * reach the target contexts without any network round trip. At most <i>concurrency</i> sub-requests
+ * of a batch run at the same time, and at most <i>maxDispatches</i> sub-requests of all the batches,
+ * the others wait in the queue. Each result is handed to the listener as soon as it completes.
+ */
+public class BatchDispatcher {
+	/**
+	 * Header marking the sub-requests, a batch context refuses them to avoid nested batches.
+	 */
+	public static final String BATCH_HEADER = "X-Restfy-Batch";
+	public static final int DEFAULT_CONCURRENCY = 8;
+	public static final int DEFAULT_MAX_REQUESTS = 100;
+	public static final int DEFAULT_MAX_DISPATCHES = 64;
+
+	private ExecutorService executor = null;
+	private int concurrency = DEFAULT_CONCURRENCY;
+	private int maxRequests = DEFAULT_MAX_REQUESTS;
+	private int maxDispatches = DEFAULT_MAX_DISPATCHES;
+	private long timeout = 10000L;
+
+	public interface Listener {
+		void completed(BatchRequest request, LocalResponse response, long elapsedNanos) throws Exception;
+
+		void failed(BatchRequest request, Exception exception, long elapsedNanos) throws Exception;
+	}
+
+	private static class Result {
+		private BatchRequest request;
+		private LocalResponse response;
+		private Exception exception;
+		private long elapsedNanos;
+	}
+
+	public BatchDispatcher() {
+		this(DEFAULT_CONCURRENCY, DEFAULT_MAX_REQUESTS);
+	}
+
+	public BatchDispatcher(int concurrency, int maxRequests) {
+		this(concurrency, maxRequests, DEFAULT_MAX_DISPATCHES);
+	}
+
+	/**
+	 * @param maxDispatches limit of the sub-requests running at the same time over all the batches
+	 */
+	public BatchDispatcher(int concurrency, int maxRequests, int maxDispatches) {
+		super();
+		if (concurrency<=0)
+			throw new IllegalArgumentException("Batch concurrency must be positive");
+		if (maxDispatches<=0)
+			throw new IllegalArgumentException("Batch dispatches limit must be positive");
+		this.concurrency = concurrency;
+		this.maxRequests = maxRequests;
+		this.maxDispatches = maxDispatches;
+		final AtomicInteger threads = new AtomicInteger(0);
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(maxDispatches, maxDispatches, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "restfy-batch-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	public int getMaxDispatches() {
+		return maxDispatches;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Timeout in milliseconds of a single sub-request.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Executes the sub-requests and notifies the listener, on the calling thread, in completion order.
+	 * @param forwardedHeaders headers of the batch request copied to the sub-requests not defining them
+	 */
+	public void dispatch(LocalConnector connector, List<BatchRequest> requests, Map<String, String> forwardedHeaders, Listener listener) throws Exception {
+		if (requests.size()>maxRequests)
+			throw new IllegalArgumentException("Batch of " + requests.size() + " sub-requests exceeds the limit of " + maxRequests);
+		LocalServerClient client = new LocalServerClient(connector);
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+		Iterator<BatchRequest> pending = requests.iterator();
+		int running = 0;
+		while (running<concurrency && pending.hasNext()) {
+			completion.submit(newTask(client, pending.next(), forwardedHeaders));
+			running++;
+		}
+		while (running>0) {
+			Result result = completion.take().get();
+			running--;
+			if (pending.hasNext()) {
+				completion.submit(newTask(client, pending.next(), forwardedHeaders));
+				running++;
+			}
+			if (result.exception==null)
+				listener.completed(result.request, result.response, result.elapsedNanos);
+			else
+				listener.failed(result.request, result.exception, result.elapsedNanos);
+		}
+	}
+
+	private Callable<Result> newTask(final LocalServerClient client, final BatchRequest request, final Map<String, String> forwardedHeaders) {
+		return new Callable<Result>() {
+			public Result call() {
+				Result result = new Result();
+				result.request = request;
+				long start = System.nanoTime();
+				try {
+					LocalRequest localRequest = client.request(request.getMethod(), request.getPath()).timeout(timeout, TimeUnit.MILLISECONDS);
+					for(String name: forwardedHeaders.keySet()) {
+						if (!request.getHeaders().containsKey(name))
+							localRequest.header(name, forwardedHeaders.get(name));
+					}
+					for(String name: request.getHeaders().keySet()) {
+						// the local connector is trusted, a client cannot choose a version through a batch
+						if (!name.equalsIgnoreCase(VersionRoutingFilter.VERSION_HEADER))
+							localRequest.header(name, request.getHeaders().get(name));
+					}
+					localRequest.header(BATCH_HEADER, request.getId());
+					if (request.getBody()!=null)
+						localRequest.body(request.getBody(), request.getHeaders().containsKey("Content-Type") ? null : "application/json");
+					result.response = localRequest.execute();
+				} catch (Exception e) {
+					result.exception = e;
+				}
+				result.elapsedNanos = System.nanoTime() - start;
+				return result;
+			}
+		};
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,76 @@
+package com.service.restfy.java.server.batch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Sub-request of a batch, addressed to any context of the server.
+ */
+public class BatchRequest {
+	private String id = null;
+	private String method = "GET";
+	private String path = null;
+	private Map<String, String> headers = new LinkedHashMap<String, String>(0);
+	private String body = null;
+
+	public BatchRequest(String id, String method, String path) {
+		super();
+		this.id = id;
+		this.method = method;
+		this.path = path;
+	}
+
+	/**
+	 * Reads a sub-request in the form
+	 * <code>{"id":"1", "method":"GET", "path":"/context/resource", "headers":{...}, "body":"..."}</code>,
+	 * only the path is required, the id defaults to the position in the batch.
+	 */
+	public static BatchRequest parse(JsonObject json, int index) {
+		String path = json.getString("path", null);
+		if (path==null || !path.startsWith("/"))
+			throw new IllegalArgumentException("Sub-request " + index + " has no absolute path");
+		BatchRequest request = new BatchRequest(json.containsKey("id") ? text(json.get("id")) : String.valueOf(index),
+				json.getString("method", "GET").toUpperCase(), path);
+		JsonObject headers = json.getJsonObject("headers");
+		if (headers!=null) {
+			for(String name: headers.keySet()) {
+				request.headers.put(name, text(headers.get(name)));
+			}
+		}
+		request.body = json.getString("body", null);
+		return request;
+	}
+
+	private static String text(JsonValue value) {
+		return value instanceof JsonString ? ((JsonString)value).getString() : value.toString();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchRequest [id=" + id + ", method=" + method + ", path=" + path + "]";
+	}
+}
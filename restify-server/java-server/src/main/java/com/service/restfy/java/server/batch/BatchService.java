@@ -0,0 +1,139 @@
+package com.service.restfy.java.server.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+import javax.servlet.ServletContext;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.local.LocalResponse;
+
+/**
+ * Batch context: accepts a JSON array of sub-requests (see {@link BatchRequest#parse}) and streams
+ * back a JSON array with one element per sub-request, written as soon as the sub-request completes:
+ * <code>{"id":"1", "status":200, "elapsed":1.25, "contentType":"...", "body":"..."}</code>.
+ * A sub-request failing without a response is reported with status 0 and an error.
+ */
+@Path("/")
+public class BatchService {
+	private static final String[] FORWARDED_HEADERS = new String[] {"Authorization", "Cookie", "Accept-Language"};
+
+	RestfyJavaServer server;
+	@Context ServletContext servletContext;
+	@Context HttpHeaders httpHeaders;
+
+	@PostConstruct
+	public void init() {
+		if (servletContext!=null)
+			server = (RestfyJavaServer)servletContext.getAttribute(RestfyJavaServer.SERVER_ATTRIBUTE);
+	}
+
+	@POST
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	public StreamingOutput batch(InputStream content) {
+		if (httpHeaders.getHeaderString(BatchDispatcher.BATCH_HEADER)!=null)
+			throw new BadRequestException("Nested batch requests are not allowed");
+		if (server==null || server.getBatchDispatcher()==null || server.getLocalConnector()==null)
+			throw new NotFoundException("Batch context not bound to a server");
+		final BatchDispatcher dispatcher = server.getBatchDispatcher();
+		final LocalConnector connector = server.getLocalConnector();
+		final List<BatchRequest> requests = readRequests(content);
+		if (requests.size()>dispatcher.getMaxRequests())
+			throw new BadRequestException("Batch of " + requests.size() + " sub-requests exceeds the limit of " + dispatcher.getMaxRequests());
+		final Map<String, String> forwardedHeaders = new LinkedHashMap<String, String>(0);
+		for(String name: FORWARDED_HEADERS) {
+			String value = httpHeaders.getHeaderString(name);
+			if (value!=null)
+				forwardedHeaders.put(name, value);
+		}
+		return new StreamingOutput() {
+			public void write(OutputStream output) throws IOException, WebApplicationException {
+				final JsonGenerator generator = Json.createGenerator(output);
+				generator.writeStartArray();
+				try {
+					dispatcher.dispatch(connector, requests, forwardedHeaders, new BatchDispatcher.Listener() {
+						public void completed(BatchRequest request, LocalResponse response, long elapsedNanos) {
+							generator.writeStartObject()
+								.write("id", request.getId())
+								.write("status", response.getCode())
+								.write("elapsed", elapsedNanos / (double)TimeUnit.MILLISECONDS.toNanos(1L));
+							if (response.getHeader("Content-Type")!=null)
+								generator.write("contentType", response.getHeader("Content-Type"));
+							generator.write("body", response.getResponse())
+								.writeEnd()
+								.flush();
+						}
+
+						public void failed(BatchRequest request, Exception exception, long elapsedNanos) {
+							generator.writeStartObject()
+								.write("id", request.getId())
+								.write("status", 0)
+								.write("elapsed", elapsedNanos / (double)TimeUnit.MILLISECONDS.toNanos(1L))
+								.write("error", String.valueOf(exception.getMessage()))
+								.writeEnd()
+								.flush();
+						}
+					});
+				} catch (IOException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new IOException("Batch dispatch failed", e);
+				}
+				generator.writeEnd();
+				generator.close();
+			}
+		};
+	}
+
+	private List<BatchRequest> readRequests(InputStream content) {
+		JsonArray array = null;
+		JsonReader reader = Json.createReader(content);
+		try {
+			array = reader.readArray();
+		} catch (JsonException e) {
+			throw new BadRequestException("Batch body must be a JSON array of sub-requests");
+		} finally {
+			reader.close();
+		}
+		List<BatchRequest> requests = new ArrayList<BatchRequest>(array.size());
+		for(int i=0; i<array.size(); i++) {
+			JsonValue value = array.get(i);
+			if (!(value instanceof JsonObject))
+				throw new BadRequestException("Sub-request " + i + " is not a JSON object");
+			try {
+				requests.add(BatchRequest.parse((JsonObject)value, i));
+			} catch (IllegalArgumentException e) {
+				throw new BadRequestException(e.getMessage());
+			}
+		}
+		return requests;
+	}
+}
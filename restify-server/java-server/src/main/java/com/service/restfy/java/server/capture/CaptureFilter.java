@@ -0,0 +1,152 @@
+package com.service.restfy.java.server.capture;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Captures the sampled requests, except the replayed ones, into a {@link TrafficCapture}. The body
+ * is copied while the application reads it, the request is written once the response is complete.
+ * All the values of the headers are kept, except the redacted headers of the capture which are left out.
+ */
+public class CaptureFilter implements Filter {
+	private TrafficCapture capture = null;
+
+	public CaptureFilter(TrafficCapture capture) {
+		super();
+		this.capture = capture;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest) || ((HttpServletRequest)request).getHeader(TrafficReplay.REPLAY_HEADER)!=null || !capture.isSampled()) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		long arrivalNanos = capture.elapsedNanos();
+		if (httpRequest.getContentLengthLong()>capture.getMaxBodySize()) {
+			capture.skip();
+			chain.doFilter(request, response);
+			return;
+		}
+		Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>(0);
+		Enumeration<String> names = httpRequest.getHeaderNames();
+		while (names.hasMoreElements()) {
+			String name = names.nextElement();
+			if (!capture.isRedacted(name) && !headers.containsKey(name))
+				headers.put(name, Collections.list(httpRequest.getHeaders(name)));
+		}
+		String path = httpRequest.getRequestURI() + (httpRequest.getQueryString()!=null ? "?" + httpRequest.getQueryString() : "");
+		CapturingRequest capturing = new CapturingRequest(httpRequest, capture.getMaxBodySize());
+		try {
+			chain.doFilter(capturing, response);
+		} finally {
+			if (capturing.isOverflow())
+				capture.skip();
+			else
+				capture.record(new CapturedRequest(arrivalNanos, httpRequest.getMethod(), path, headers, capturing.getBody()));
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	/**
+	 * Request copying the bytes read from its body, up to a limit.
+	 */
+	private static class CapturingRequest extends HttpServletRequestWrapper {
+		private ByteArrayOutputStream body = null;
+		private int maxBodySize;
+		private boolean overflow = false;
+		private ServletInputStream inputStream = null;
+
+		private CapturingRequest(HttpServletRequest request, int maxBodySize) {
+			super(request);
+			this.maxBodySize = maxBodySize;
+		}
+
+		private byte[] getBody() {
+			return body!=null ? body.toByteArray() : null;
+		}
+
+		private boolean isOverflow() {
+			return overflow;
+		}
+
+		private void copy(byte[] b, int off, int len) {
+			if (overflow || len<=0)
+				return;
+			if (body.size() + len>maxBodySize) {
+				overflow = true;
+				return;
+			}
+			body.write(b, off, len);
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			if (inputStream==null) {
+				final ServletInputStream content = super.getInputStream();
+				body = new ByteArrayOutputStream(getContentLength()>0 ? getContentLength() : 256);
+				inputStream = new ServletInputStream() {
+					@Override
+					public int read() throws IOException {
+						int read = content.read();
+						if (read>=0)
+							copy(new byte[] {(byte)read}, 0, 1);
+						return read;
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						int read = content.read(b, off, len);
+						copy(b, off, read);
+						return read;
+					}
+
+					@Override
+					public void close() throws IOException {
+						content.close();
+					}
+
+					@Override
+					public boolean isFinished() {
+						return content.isFinished();
+					}
+
+					@Override
+					public boolean isReady() {
+						return content.isReady();
+					}
+
+					@Override
+					public void setReadListener(ReadListener readListener) {
+						content.setReadListener(readListener);
+					}
+				};
+			}
+			return inputStream;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.service.restfy.java.server.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads the requests of a capture file written by {@link TrafficCapture}.
+ */
+public class CaptureReader implements Closeable {
+	private DataInputStream in = null;
+
+	public CaptureReader(File file) throws IOException {
+		super();
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		try {
+			if (in.readInt()!=TrafficCapture.MAGIC)
+				throw new IOException("Not a capture file : " + file);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the next request, null at the end of the file
+	 */
+	public CapturedRequest next() throws IOException {
+		return CapturedRequest.readFrom(in);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,124 @@
+package com.service.restfy.java.server.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request of a capture log, with its arrival time relative to the start of the capture. A header
+ * with several values is written as one record field per value.
+ */
+public class CapturedRequest {
+	private static final byte RECORD_MARKER = 'R';
+
+	private long arrivalNanos = 0L;
+	private String method = null;
+	private String path = null;
+	private Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>(0);
+	private byte[] body = null;
+
+	public CapturedRequest(long arrivalNanos, String method, String path, Map<String, List<String>> headers, byte[] body) {
+		super();
+		this.arrivalNanos = arrivalNanos;
+		this.method = method;
+		this.path = path;
+		if (headers!=null)
+			this.headers.putAll(headers);
+		this.body = body;
+	}
+
+	public long getArrivalNanos() {
+		return arrivalNanos;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return path of the request, with its query
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return values of the headers, by name
+	 */
+	public Map<String, List<String>> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * @return body of the request, null if it had none
+	 */
+	public byte[] getBody() {
+		return body;
+	}
+
+	protected void writeTo(DataOutputStream out) throws IOException {
+		out.writeByte(RECORD_MARKER);
+		out.writeLong(arrivalNanos);
+		out.writeUTF(method);
+		out.writeUTF(path);
+		int count = 0;
+		for(List<String> values: headers.values()) {
+			count += values.size();
+		}
+		out.writeShort(count);
+		for(String name: headers.keySet()) {
+			for(String value: headers.get(name)) {
+				out.writeUTF(name);
+				out.writeUTF(value);
+			}
+		}
+		out.writeInt(body!=null ? body.length : -1);
+		if (body!=null)
+			out.write(body);
+	}
+
+	/**
+	 * @return the next request of the stream, null at its end or at a truncated record
+	 */
+	protected static CapturedRequest readFrom(DataInputStream in) throws IOException {
+		try {
+			int marker = in.read();
+			if (marker<0)
+				return null;
+			if (marker!=RECORD_MARKER)
+				throw new IOException("Corrupted capture record");
+			long arrivalNanos = in.readLong();
+			String method = in.readUTF();
+			String path = in.readUTF();
+			int count = in.readUnsignedShort();
+			Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>(count);
+			for(int i=0; i<count; i++) {
+				String name = in.readUTF();
+				List<String> values = headers.get(name);
+				if (values==null)
+					headers.put(name, values = new ArrayList<String>(1));
+				values.add(in.readUTF());
+			}
+			int length = in.readInt();
+			byte[] body = null;
+			if (length>=0) {
+				body = new byte[length];
+				in.readFully(body);
+			}
+			return new CapturedRequest(arrivalNanos, method, path, headers, body);
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CapturedRequest [arrival=" + (arrivalNanos / 1000000L) + " ms, method=" + method + ", path=" + path
+				+ ", headers=" + headers.size() + ", body=" + (body!=null ? body.length : 0) + " bytes]";
+	}
+}
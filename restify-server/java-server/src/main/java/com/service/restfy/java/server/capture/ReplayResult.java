@@ -0,0 +1,67 @@
+package com.service.restfy.java.server.capture;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.service.restfy.java.server.versions.VersionMetrics;
+
+/**
+ * Outcome of a {@link TrafficReplay} run: latency distribution, statuses and failures.
+ */
+public class ReplayResult {
+	private VersionMetrics latency = new VersionMetrics();
+	private Map<Integer, Long> statuses = new TreeMap<Integer, Long>();
+	private AtomicLong failures = new AtomicLong(0L);
+	private long elapsedNanos = 0L;
+
+	public ReplayResult() {
+		super();
+	}
+
+	protected void record(long latencyNanos, int status) {
+		latency.record(latencyNanos, status);
+		synchronized (statuses) {
+			Long count = statuses.get(status);
+			statuses.put(status, count!=null ? count + 1 : 1L);
+		}
+	}
+
+	protected void fail() {
+		failures.incrementAndGet();
+	}
+
+	protected void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return latency of the answered requests, measured from their scheduled send time
+	 */
+	public VersionMetrics getLatency() {
+		return latency;
+	}
+
+	public Map<Integer, Long> getStatuses() {
+		synchronized (statuses) {
+			return new TreeMap<Integer, Long>(statuses);
+		}
+	}
+
+	/**
+	 * @return requests that got no response
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "ReplayResult [elapsed=" + (elapsedNanos / 1000000L) + " ms, failures=" + getFailures()
+				+ ", statuses=" + getStatuses() + ", " + latency + "]";
+	}
+}
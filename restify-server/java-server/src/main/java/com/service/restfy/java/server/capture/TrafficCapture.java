@@ -0,0 +1,269 @@
+package com.service.restfy.java.server.capture;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a sampled stream of the server requests to append-only binary log files of a directory,
+ * replayed by {@link TrafficReplay}. A file is rotated when it exceeds the maximum size and the
+ * oldest files are deleted beyond the maximum count. Requests are written when they complete, so
+ * records of overlapping requests can be slightly out of arrival order. Records are buffered and
+ * flushed every <i>flushInterval</i> milliseconds and on close. The credential headers are redacted
+ * by default, see {@link #DEFAULT_REDACTED_HEADERS}.
+ */
+public class TrafficCapture {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	public static final String FILE_PREFIX = "capture-";
+	public static final String FILE_SUFFIX = ".rcap";
+	protected static final int MAGIC = 0x52434150;
+	public static final long DEFAULT_MAX_FILE_SIZE = 64L * 1024L * 1024L;
+	public static final int DEFAULT_MAX_FILES = 10;
+	public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+	public static final List<String> DEFAULT_REDACTED_HEADERS = Collections.unmodifiableList(Arrays.asList("Authorization", "Cookie", "Proxy-Authorization"));
+
+	private File directory = null;
+	private double sampleRate = 1d;
+	private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+	private int maxFiles = DEFAULT_MAX_FILES;
+	private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+	private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+	private volatile Set<String> redactedHeaders = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+	private Timer flusher = null;
+	private long origin = System.nanoTime();
+	private String session = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+	private int sequence = 0;
+	private DataOutputStream out = null;
+	private long fileSize = 0L;
+	private AtomicLong captured = new AtomicLong(0L);
+	private AtomicLong skipped = new AtomicLong(0L);
+	private AtomicLong bytes = new AtomicLong(0L);
+
+	/**
+	 * @param sampleRate fraction of the requests captured, between 0 and 1
+	 */
+	public TrafficCapture(File directory, double sampleRate) {
+		super();
+		this.directory = directory;
+		this.sampleRate = sampleRate;
+		this.redactedHeaders.addAll(DEFAULT_REDACTED_HEADERS);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getMaxFileSize() {
+		return maxFileSize;
+	}
+
+	public void setMaxFileSize(long maxFileSize) {
+		this.maxFileSize = maxFileSize;
+	}
+
+	public int getMaxFiles() {
+		return maxFiles;
+	}
+
+	public void setMaxFiles(int maxFiles) {
+		this.maxFiles = maxFiles;
+	}
+
+	public int getMaxBodySize() {
+		return maxBodySize;
+	}
+
+	/**
+	 * Requests with a larger body are not captured.
+	 */
+	public void setMaxBodySize(int maxBodySize) {
+		this.maxBodySize = maxBodySize;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	/**
+	 * Maximum time in milliseconds a written record stays in the buffer.
+	 */
+	public synchronized void setFlushInterval(long flushInterval) {
+		if (flushInterval<=0)
+			throw new IllegalArgumentException("Capture flush interval must be positive");
+		this.flushInterval = flushInterval;
+	}
+
+	public List<String> getRedactedHeaders() {
+		return new ArrayList<String>(redactedHeaders);
+	}
+
+	/**
+	 * Headers left out of the captured requests, as the credentials, replacing the default ones.
+	 */
+	public void setRedactedHeaders(Collection<String> redactedHeaders) {
+		Set<String> headers = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+		headers.addAll(redactedHeaders);
+		this.redactedHeaders = headers;
+	}
+
+	public boolean isRedacted(String name) {
+		return redactedHeaders.contains(name);
+	}
+
+	public boolean isSampled() {
+		return sampleRate>=1d || (sampleRate>0d && ThreadLocalRandom.current().nextDouble()<sampleRate);
+	}
+
+	/**
+	 * @return nanoseconds elapsed since the start of the capture
+	 */
+	public long elapsedNanos() {
+		return System.nanoTime() - origin;
+	}
+
+	public void record(CapturedRequest request) {
+		ByteArrayOutputStream record = new ByteArrayOutputStream(256 + (request.getBody()!=null ? request.getBody().length : 0));
+		try {
+			request.writeTo(new DataOutputStream(record));
+		} catch (IOException e) {
+			skipped.incrementAndGet();
+			return;
+		}
+		synchronized (this) {
+			try {
+				if (out==null || fileSize + record.size()>maxFileSize)
+					rotate();
+				record.writeTo(out);
+				fileSize += record.size();
+			} catch (IOException e) {
+				logger.warn("Jetty 2 Server traffic capture write failed", e);
+				skipped.incrementAndGet();
+				closeFile();
+				return;
+			}
+		}
+		captured.incrementAndGet();
+		bytes.addAndGet(record.size());
+	}
+
+	/**
+	 * Counts a sampled request not captured because of its body size.
+	 */
+	public void skip() {
+		skipped.incrementAndGet();
+	}
+
+	private void rotate() throws IOException {
+		closeFile();
+		if (!directory.exists() && !directory.mkdirs())
+			throw new IOException("Unable to create the capture directory " + directory);
+		File file = new File(directory, FILE_PREFIX + session + "-" + String.format("%04d", sequence++) + FILE_SUFFIX);
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), 64 * 1024));
+		out.writeInt(MAGIC);
+		if (flusher==null) {
+			flusher = new Timer("restfy-capture-flusher", true);
+			flusher.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					flush();
+				}
+			}, flushInterval, flushInterval);
+		}
+		fileSize = 4L;
+		List<File> files = listFiles(directory);
+		for(int i=0; i<files.size()-maxFiles; i++) {
+			if (!files.get(i).delete())
+				logger.warn("Jetty 2 Server traffic capture file " + files.get(i) + " could not be deleted");
+		}
+	}
+
+	private void closeFile() {
+		if (out!=null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+			}
+		}
+		out = null;
+	}
+
+	/**
+	 * Writes the buffered records to the current file.
+	 */
+	public synchronized void flush() {
+		if (out!=null) {
+			try {
+				out.flush();
+			} catch (IOException e) {
+				logger.warn("Jetty 2 Server traffic capture flush failed", e);
+				closeFile();
+			}
+		}
+	}
+
+	/**
+	 * Flushes and closes the current file, the next captured request opens a new one.
+	 */
+	public synchronized void close() {
+		closeFile();
+		if (flusher!=null)
+			flusher.cancel();
+		flusher = null;
+	}
+
+	/**
+	 * @return capture files of a directory, oldest first
+	 */
+	public static List<File> listFiles(File directory) {
+		File[] files = directory.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(FILE_SUFFIX);
+			}
+		});
+		if (files==null)
+			return new ArrayList<File>(0);
+		Arrays.sort(files);
+		return new ArrayList<File>(Arrays.asList(files));
+	}
+
+	public long getCaptured() {
+		return captured.get();
+	}
+
+	/**
+	 * @return sampled requests not written, because of their body size or a write error
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+}
@@ -0,0 +1,258 @@
+package com.service.restfy.java.server.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.local.LocalRequest;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.versions.VersionRoutingFilter;
+
+/**
+ * Plays the requests of capture files against a server, through HTTP or a local connector. With a
+ * positive speed the requests are sent at their captured pace multiplied by the speed, whatever the
+ * server response times, and their latency is measured from the scheduled send time. With a speed of
+ * 0 they are sent as fast as possible by the replay threads.
+ */
+public class TrafficReplay {
+	/**
+	 * Header marking the replayed requests, they are not captured again.
+	 */
+	public static final String REPLAY_HEADER = "X-Restfy-Replay";
+
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	private String baseUrl = null;
+	private LocalConnector connector = null;
+	private double speed = 1d;
+	private int threads = 8;
+	private int timeout = 10000;
+
+	/**
+	 * @param baseUrl scheme, host and port of the target server
+	 */
+	public TrafficReplay(String baseUrl) {
+		super();
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length()-1) : baseUrl;
+	}
+
+	public TrafficReplay(LocalConnector connector) {
+		super();
+		this.connector = connector;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Multiple of the captured pace, 0 to send the requests as fast as possible.
+	 */
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Timeout in milliseconds of a single request.
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Plays the files in order and waits for all the responses.
+	 */
+	public ReplayResult replay(List<File> files) throws IOException, InterruptedException {
+		final AtomicInteger count = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "restfy-replay-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		Semaphore inFlight = new Semaphore(threads);
+		ReplayResult result = new ReplayResult();
+		long start = System.nanoTime();
+		long due = start;
+		try {
+			for(File file: files) {
+				CaptureReader reader = new CaptureReader(file);
+				try {
+					long fileStart = due;
+					long firstArrival = -1L;
+					CapturedRequest request = null;
+					while ((request = reader.next())!=null) {
+						if (speed>0d) {
+							if (firstArrival<0L)
+								firstArrival = request.getArrivalNanos();
+							due = Math.max(due, fileStart + (long)((request.getArrivalNanos() - firstArrival) / speed));
+							long wait = due - System.nanoTime();
+							if (wait>0L)
+								TimeUnit.NANOSECONDS.sleep(wait);
+						}
+						else {
+							inFlight.acquire();
+							due = System.nanoTime();
+						}
+						executor.execute(newTask(request, due, result, speed>0d ? null : inFlight));
+					}
+				} finally {
+					reader.close();
+				}
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	private Runnable newTask(final CapturedRequest request, final long due, final ReplayResult result, final Semaphore inFlight) {
+		return new Runnable() {
+			public void run() {
+				try {
+					int status = send(request);
+					result.record(System.nanoTime() - due, status);
+				} catch (Exception e) {
+					result.fail();
+				} finally {
+					if (inFlight!=null)
+						inFlight.release();
+				}
+			}
+		};
+	}
+
+	private static boolean isReplayedHeader(String name) {
+		return !name.equalsIgnoreCase("Host") && !name.equalsIgnoreCase("Content-Length")
+				&& !name.equalsIgnoreCase("Connection") && !name.equalsIgnoreCase("Transfer-Encoding");
+	}
+
+	/**
+	 * Folds the values of a header in one, the local requests have a single value per header.
+	 */
+	private static String join(String name, List<String> values) {
+		String separator = name.equalsIgnoreCase("Cookie") ? "; " : ", ";
+		StringBuilder joined = new StringBuilder();
+		for(String value: values) {
+			if (joined.length()>0)
+				joined.append(separator);
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * @return status of the response
+	 */
+	protected int send(CapturedRequest request) throws Exception {
+		if (connector!=null) {
+			LocalRequest localRequest = new LocalServerClient(connector).request(request.getMethod(), request.getPath()).timeout(timeout, TimeUnit.MILLISECONDS);
+			for(String name: request.getHeaders().keySet()) {
+				// the local connector is trusted, a captured client cannot choose a version
+				if (isReplayedHeader(name) && !name.equalsIgnoreCase(VersionRoutingFilter.VERSION_HEADER))
+					localRequest.header(name, join(name, request.getHeaders().get(name)));
+			}
+			localRequest.header(REPLAY_HEADER, "true");
+			if (request.getBody()!=null)
+				localRequest.body(request.getBody(), null);
+			return localRequest.execute().getCode();
+		}
+		HttpURLConnection connection = (HttpURLConnection)new URL(baseUrl + request.getPath()).openConnection();
+		try {
+			connection.setRequestMethod(request.getMethod());
+			connection.setConnectTimeout(timeout);
+			connection.setReadTimeout(timeout);
+			for(String name: request.getHeaders().keySet()) {
+				if (isReplayedHeader(name)) {
+					for(String value: request.getHeaders().get(name)) {
+						connection.addRequestProperty(name, value);
+					}
+				}
+			}
+			connection.setRequestProperty(REPLAY_HEADER, "true");
+			if (request.getBody()!=null) {
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(request.getBody().length);
+				OutputStream out = connection.getOutputStream();
+				out.write(request.getBody());
+				out.close();
+			}
+			int status = connection.getResponseCode();
+			InputStream in = status>=400 ? connection.getErrorStream() : connection.getInputStream();
+			if (in!=null) {
+				byte[] buffer = new byte[8192];
+				while (in.read(buffer)>=0);
+				in.close();
+			}
+			return status;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Replays capture files or directories: --url &lt;base url&gt; [--speed &lt;multiple, 0 for max&gt;] [--threads &lt;n&gt;] files...
+	 */
+	public static void main(String[] args) throws Exception {
+		String url = "http://localhost:8080";
+		double speed = 1d;
+		int threads = 8;
+		List<File> files = new ArrayList<File>(0);
+		for(int i=0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equalsIgnoreCase("--url") && i+1<args.length) {
+				url = args[++i];
+			}
+			else if (arg.equalsIgnoreCase("--speed") && i+1<args.length) {
+				speed = Double.parseDouble(args[++i]);
+			}
+			else if (arg.equalsIgnoreCase("--threads") && i+1<args.length) {
+				threads = Integer.parseInt(args[++i]);
+			}
+			else {
+				File file = new File(arg);
+				if (file.isDirectory())
+					files.addAll(TrafficCapture.listFiles(file));
+				else
+					files.add(file);
+			}
+		}
+		TrafficReplay replay = new TrafficReplay(url);
+		replay.setSpeed(speed);
+		replay.setThreads(threads);
+		logger.info("Jetty 2 Server replay of " + files.size() + " capture files against " + url + " at speed " + speed + " ... ");
+		ReplayResult result = replay.replay(files);
+		logger.info("Jetty 2 Server replay : " + result);
+	}
+}
@@ -0,0 +1,182 @@
+package com.service.restfy.java.server.coalesce;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response of the leading request of a {@link RequestCoalescer} flight. The content is written to the
+ * client as usual and copied in memory, so it can be replayed to the waiting requests.
+ */
+public class CapturedResponse extends HttpServletResponseWrapper {
+	private static final TreeSet<String> NOT_REPLAYED = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+	static {
+		NOT_REPLAYED.addAll(Arrays.asList("Content-Type", "Content-Length", "Transfer-Encoding", "Connection", "Date", "Server"));
+	}
+
+	private ByteArrayOutputStream content = new ByteArrayOutputStream(1024);
+	private ServletOutputStream outputStream = null;
+	private PrintWriter writer = null;
+	private int status = 0;
+	private String contentType = null;
+	private Map<String, List<String>> headers = null;
+
+	public CapturedResponse(HttpServletResponse response) {
+		super(response);
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (writer!=null)
+			throw new IllegalStateException("getWriter() already called");
+		return stream();
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (writer==null) {
+			if (outputStream!=null)
+				throw new IllegalStateException("getOutputStream() already called");
+			writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+		}
+		return writer;
+	}
+
+	private ServletOutputStream stream() throws IOException {
+		if (outputStream==null) {
+			final ServletOutputStream target = super.getOutputStream();
+			outputStream = new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					target.write(b);
+					content.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					target.write(b, off, len);
+					content.write(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					target.flush();
+				}
+
+				@Override
+				public boolean isReady() {
+					return target.isReady();
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					target.setWriteListener(writeListener);
+				}
+			};
+		}
+		return outputStream;
+	}
+
+	@Override
+	public void flushBuffer() throws IOException {
+		if (writer!=null)
+			writer.flush();
+		super.flushBuffer();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		content.reset();
+	}
+
+	@Override
+	public void resetBuffer() {
+		super.resetBuffer();
+		content.reset();
+	}
+
+	/**
+	 * Takes the status and the headers of the completed response.
+	 */
+	protected void complete() {
+		if (writer!=null)
+			writer.flush();
+		status = getStatus();
+		contentType = getContentType();
+		headers = new LinkedHashMap<String, List<String>>(0);
+		for(String name: getHeaderNames()) {
+			if (!NOT_REPLAYED.contains(name) && !headers.containsKey(name))
+				headers.put(name, new ArrayList<String>(getHeaders(name)));
+		}
+	}
+
+	/**
+	 * @return false if the response is bound to the client of the leading request, as a response setting a cookie,
+	 * marked private or no-store by its Cache-Control, or varying on request headers
+	 */
+	protected boolean isShareable() {
+		if (headers==null || header("Set-Cookie")!=null || header("Vary")!=null)
+			return false;
+		List<String> cacheControl = header("Cache-Control");
+		if (cacheControl!=null) {
+			for(String value: cacheControl) {
+				for(String directive: value.split(",")) {
+					String name = directive.trim();
+					if (name.equalsIgnoreCase("private") || name.regionMatches(true, 0, "private=", 0, 8) || name.equalsIgnoreCase("no-store"))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private List<String> header(String name) {
+		for(Map.Entry<String, List<String>> header: headers.entrySet()) {
+			if (header.getKey().equalsIgnoreCase(name))
+				return header.getValue();
+		}
+		return null;
+	}
+
+	protected int getCapturedStatus() {
+		return status;
+	}
+
+	protected byte[] getContent() {
+		return content.toByteArray();
+	}
+
+	/**
+	 * Writes a copy of the response to a waiting request.
+	 */
+	protected void replay(HttpServletResponse response, boolean head) throws IOException {
+		if (status>=400 && content.size()==0) {
+			response.sendError(status);
+			return;
+		}
+		response.setStatus(status);
+		for(String name: headers.keySet()) {
+			for(String value: headers.get(name)) {
+				response.addHeader(name, value);
+			}
+		}
+		if (contentType!=null)
+			response.setContentType(contentType);
+		response.setContentLength(content.size());
+		if (!head)
+			content.writeTo(response.getOutputStream());
+	}
+}
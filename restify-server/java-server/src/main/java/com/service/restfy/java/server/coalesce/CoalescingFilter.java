@@ -0,0 +1,71 @@
+package com.service.restfy.java.server.coalesce;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Collapses the identical concurrent requests of a context through a {@link RequestCoalescer}.
+ */
+public class CoalescingFilter implements Filter {
+	private RequestCoalescer coalescer = null;
+
+	public CoalescingFilter(RequestCoalescer coalescer) {
+		super();
+		this.coalescer = coalescer;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		HttpServletResponse httpResponse = (HttpServletResponse)response;
+		if (!coalescer.isCoalescable(httpRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		String key = coalescer.key(httpRequest);
+		RequestCoalescer.Flight flight = new RequestCoalescer.Flight();
+		RequestCoalescer.Flight current = coalescer.join(key, flight);
+		if (current==null) {
+			CapturedResponse captured = new CapturedResponse(httpResponse);
+			boolean completed = false;
+			try {
+				chain.doFilter(request, captured);
+				completed = !request.isAsyncStarted();
+				if (completed)
+					captured.complete();
+			} finally {
+				coalescer.land(key, flight, completed && captured.isShareable() ? captured : null);
+			}
+			return;
+		}
+		CapturedResponse shared = null;
+		try {
+			shared = current.await(coalescer.getMaxWait());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (shared!=null) {
+			coalescer.collapsed();
+			shared.replay(httpResponse, "HEAD".equals(httpRequest.getMethod()));
+			return;
+		}
+		coalescer.executedAlone(!current.isDone());
+		chain.doFilter(request, response);
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
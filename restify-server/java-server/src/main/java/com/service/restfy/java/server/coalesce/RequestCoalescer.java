@@ -0,0 +1,172 @@
+package com.service.restfy.java.server.coalesce;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Single-flight execution of identical concurrent GET and HEAD requests of a context. The first
+ * request of a key runs the resource, the identical requests arriving while it runs wait for its
+ * response, up to the maximum wait, and get a copy of it instead of running the resource again.
+ * The key is made by method, URI, query string, cookies and the configured request headers, a response
+ * is shared only if it is not private to the leading request, see {@link CapturedResponse#isShareable()}.
+ * A coalescer is owned by the server, so its statistics survive the reloads of the handler tree.
+ */
+public class RequestCoalescer {
+	public static final long DEFAULT_MAX_WAIT = 5000L;
+	public static final List<String> DEFAULT_KEY_HEADERS = Collections.unmodifiableList(Arrays.asList("Accept", "Accept-Language", "Authorization"));
+
+	private long maxWait = DEFAULT_MAX_WAIT;
+	private List<String> keyHeaders = DEFAULT_KEY_HEADERS;
+	private ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+	private AtomicLong requests = new AtomicLong(0L);
+	private AtomicLong executions = new AtomicLong(0L);
+	private AtomicLong collapsed = new AtomicLong(0L);
+	private AtomicLong timeouts = new AtomicLong(0L);
+
+	/**
+	 * Execution of a key shared by the leading request with the waiting ones.
+	 */
+	protected static class Flight {
+		private CountDownLatch done = new CountDownLatch(1);
+		private volatile CapturedResponse response = null;
+
+		protected void complete(CapturedResponse response) {
+			this.response = response;
+			done.countDown();
+		}
+
+		/**
+		 * @return the response to copy, null if it is not shareable or not completed in time
+		 */
+		protected CapturedResponse await(long timeout) throws InterruptedException {
+			if (!done.await(timeout, TimeUnit.MILLISECONDS))
+				return null;
+			return response;
+		}
+
+		protected boolean isDone() {
+			return done.getCount()==0;
+		}
+	}
+
+	public RequestCoalescer() {
+		super();
+	}
+
+	/**
+	 * @param maxWait maximum time in milliseconds a request waits for the identical running one, then it runs by itself
+	 * @param keyHeaders request headers distinguishing the responses of the same URI
+	 */
+	public RequestCoalescer(long maxWait, List<String> keyHeaders) {
+		super();
+		this.maxWait = maxWait;
+		this.keyHeaders = new ArrayList<String>(keyHeaders);
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	public List<String> getKeyHeaders() {
+		return Collections.unmodifiableList(keyHeaders);
+	}
+
+	public boolean isCoalescable(HttpServletRequest request) {
+		return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+	}
+
+	public String key(HttpServletRequest request) {
+		StringBuilder key = new StringBuilder(128);
+		key.append(request.getMethod()).append(' ').append(request.getRequestURI());
+		if (request.getQueryString()!=null)
+			key.append('?').append(request.getQueryString());
+		boolean cookie = false;
+		for(String name: keyHeaders) {
+			String value = request.getHeader(name);
+			if (value!=null)
+				key.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(value);
+			cookie |= "Cookie".equalsIgnoreCase(name);
+		}
+		if (!cookie) {
+			Enumeration<String> cookies = request.getHeaders("Cookie");
+			while (cookies!=null && cookies.hasMoreElements()) {
+				key.append("\ncookie:").append(cookies.nextElement());
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @return the running flight of the key, or null if the caller is the leader of the new given flight
+	 */
+	protected Flight join(String key, Flight flight) {
+		requests.incrementAndGet();
+		Flight current = flights.putIfAbsent(key, flight);
+		if (current==null)
+			executions.incrementAndGet();
+		return current;
+	}
+
+	protected void land(String key, Flight flight, CapturedResponse response) {
+		flights.remove(key, flight);
+		flight.complete(response);
+	}
+
+	protected void collapsed() {
+		collapsed.incrementAndGet();
+	}
+
+	/**
+	 * Counts a waiting request that ran by itself, after the maximum wait or because the response was not shareable.
+	 */
+	protected void executedAlone(boolean timedOut) {
+		executions.incrementAndGet();
+		if (timedOut)
+			timeouts.incrementAndGet();
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getExecutions() {
+		return executions.get();
+	}
+
+	public long getCollapsed() {
+		return collapsed.get();
+	}
+
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	public int getInFlight() {
+		return flights.size();
+	}
+
+	/**
+	 * @return ratio of the requests served by the response of another identical request
+	 */
+	public double getCollapseRatio() {
+		long total = requests.get();
+		return total>0 ? (double)collapsed.get() / total : 0d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "requests=%d executions=%d collapsed=%d timeouts=%d collapseRatio=%.3f",
+				getRequests(), getExecutions(), getCollapsed(), getTimeouts(), getCollapseRatio());
+	}
+}
@@ -0,0 +1,138 @@
+package com.service.restfy.java.server.connector;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server connector able to open its listening channel with SO_REUSEPORT, so that many
+ * processes can be bound to the same port and balanced by the kernel. An inherited channel
+ * (socket activation) takes precedence over SO_REUSEPORT.
+ */
+public class ChannelServerConnector extends ServerConnector {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	private boolean reusePort = false;
+	private volatile ServerSocketChannel reusePortChannel = null;
+
+	public ChannelServerConnector(Server server) {
+		super(server);
+	}
+
+	public ChannelServerConnector(Server server, ConnectionFactory... factories) {
+		super(server, factories);
+	}
+
+	public boolean isReusePort() {
+		return reusePort;
+	}
+
+	public void setReusePort(boolean reusePort) {
+		this.reusePort = reusePort;
+	}
+
+	@Override
+	public void open() throws IOException {
+		if (!isOpen() && reusePort && !isInheritChannel()) {
+			if (getAcceptors()==0)
+				throw new IOException("SO_REUSEPORT channel requires at least one acceptor thread");
+			ServerSocketChannel channel = ServerSocketChannel.open();
+			try {
+				channel.socket().setReuseAddress(getReuseAddress());
+				enableReusePort(channel);
+				channel.bind(getHost()==null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort()), getAcceptQueueSize());
+				channel.configureBlocking(true);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			logger.info("Jetty 2 Server opened SO_REUSEPORT channel on port : " + channel.socket().getLocalPort());
+			reusePortChannel = channel;
+			return;
+		}
+		super.open();
+	}
+
+	/**
+	 * Accepts from the SO_REUSEPORT channel through the public selector manager, the channel
+	 * opened by the parent connector is used otherwise.
+	 */
+	@Override
+	public void accept(int acceptorID) throws IOException {
+		ServerSocketChannel channel = reusePortChannel;
+		if (channel==null) {
+			super.accept(acceptorID);
+			return;
+		}
+		if (channel.isOpen()) {
+			SocketChannel accepted = channel.accept();
+			accepted.configureBlocking(false);
+			configure(accepted.socket());
+			getSelectorManager().accept(accepted);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		ServerSocketChannel channel = reusePortChannel;
+		return channel!=null ? channel.isOpen() : super.isOpen();
+	}
+
+	@Override
+	public void close() {
+		ServerSocketChannel channel = reusePortChannel;
+		reusePortChannel = null;
+		if (channel!=null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.warn("Jetty 2 Server SO_REUSEPORT channel could not be closed", e);
+			}
+		}
+		super.close();
+	}
+
+	@Override
+	public int getLocalPort() {
+		ServerSocketChannel channel = reusePortChannel;
+		return channel!=null ? channel.socket().getLocalPort() : super.getLocalPort();
+	}
+
+	@Override
+	public Object getTransport() {
+		ServerSocketChannel channel = reusePortChannel;
+		return channel!=null ? channel : super.getTransport();
+	}
+
+	public static boolean isReusePortSupported() {
+		try {
+			StandardSocketOptions.class.getField("SO_REUSEPORT");
+			return true;
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public static void enableReusePort(ServerSocketChannel channel) throws IOException {
+		try {
+			SocketOption<Boolean> option = (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+			channel.setOption(option, Boolean.TRUE);
+		} catch (NoSuchFieldException e) {
+			throw new IOException("SO_REUSEPORT is not available in this Java runtime");
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("SO_REUSEPORT is not supported on this platform");
+		} catch (IllegalAccessException e) {
+			throw new IOException("SO_REUSEPORT option not accessible", e);
+		}
+	}
+}
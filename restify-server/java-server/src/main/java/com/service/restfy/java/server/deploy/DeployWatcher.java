@@ -0,0 +1,325 @@
+package com.service.restfy.java.server.deploy;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.snapshot.DeploymentSnapshot;
+
+/**
+ * Deploys the jar and war files of a directory into a running server and follows their changes
+ * with a {@link WatchService}. A file is handled once it has not changed for the debounce period,
+ * so a file still being copied is not deployed. An artifact is validated before it replaces the
+ * deployed one, an invalid artifact leaves the current deployment in place.
+ * <p>
+ * The context of an artifact is the <i>Restfy-Context</i> attribute of its manifest, or its file name
+ * without extension. The classes of a jar are listed by the <i>Restfy-Classes</i> attribute, or
+ * discovered as the classes annotated with {@link javax.ws.rs.Path}. Each jar is loaded by its own class
+ * loader.
+ */
+public class DeployWatcher implements Runnable {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	public static final String CONTEXT_ATTRIBUTE = "Restfy-Context";
+	public static final String CLASSES_ATTRIBUTE = "Restfy-Classes";
+	public static final long DEFAULT_DEBOUNCE = 1000L;
+
+	private File directory = null;
+	private long debounce = DEFAULT_DEBOUNCE;
+	private RestfyJavaServer server = null;
+	private WatchService watchService = null;
+	private Thread thread = null;
+	private volatile boolean running = false;
+	private Map<File, Long> pending = new ConcurrentHashMap<File, Long>();
+	private Map<File, Deployed> deployed = new HashMap<File, Deployed>(0);
+	private AtomicLong deploys = new AtomicLong(0L);
+	private AtomicLong undeploys = new AtomicLong(0L);
+	private AtomicLong rejected = new AtomicLong(0L);
+
+	private static class Deployed {
+		private String contextPath;
+		private long lastModified;
+		private long length;
+	}
+
+	public DeployWatcher(File directory) {
+		this(directory, DEFAULT_DEBOUNCE);
+	}
+
+	/**
+	 * @param debounce milliseconds without changes after which a file is deployed
+	 */
+	public DeployWatcher(File directory, long debounce) {
+		super();
+		this.directory = directory;
+		this.debounce = debounce;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getDebounce() {
+		return debounce;
+	}
+
+	/**
+	 * Deploys the artifacts already in the directory and starts watching it.
+	 */
+	public synchronized void start(RestfyJavaServer server) throws IOException {
+		if (running)
+			return;
+		this.server = server;
+		if (!directory.exists() && !directory.mkdirs())
+			throw new IOException("Unable to create the deploy directory " + directory);
+		watchService = FileSystems.getDefault().newWatchService();
+		directory.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		File[] files = directory.listFiles();
+		if (files!=null) {
+			for(File file: files) {
+				if (isArtifact(file))
+					pending.put(file, 0L);
+			}
+		}
+		running = true;
+		processPending();
+		thread = new Thread(this, "restfy-deploy-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("Jetty 2 Server watching deploy directory " + directory.getAbsolutePath());
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (watchService!=null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+			}
+		}
+		watchService = null;
+		if (thread!=null)
+			thread.interrupt();
+		thread = null;
+		pending.clear();
+		deployed.clear();
+	}
+
+	@Override
+	public void run() {
+		WatchService service = watchService;
+		while (running) {
+			try {
+				WatchKey key = service.poll(Math.max(debounce / 4, 50L), TimeUnit.MILLISECONDS);
+				if (key!=null) {
+					for(WatchEvent<?> event: key.pollEvents()) {
+						if (event.kind()==StandardWatchEventKinds.OVERFLOW) {
+							File[] files = directory.listFiles();
+							if (files!=null) {
+								for(File file: files) {
+									if (isArtifact(file))
+										pending.put(file, System.currentTimeMillis());
+								}
+							}
+							continue;
+						}
+						File file = new File(directory, ((Path)event.context()).toString());
+						if (isArtifact(file))
+							pending.put(file, System.currentTimeMillis());
+					}
+					key.reset();
+				}
+				processPending();
+			} catch (ClosedWatchServiceException e) {
+				break;
+			} catch (InterruptedException e) {
+				break;
+			} catch (Throwable e) {
+				logger.error("Jetty 2 Server deploy watcher failure", e);
+			}
+		}
+	}
+
+	private synchronized void processPending() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<File, Long>> entries = pending.entrySet().iterator();
+		while (entries.hasNext() && running) {
+			Map.Entry<File, Long> entry = entries.next();
+			if (now - entry.getValue()<debounce)
+				continue;
+			entries.remove();
+			File file = entry.getKey();
+			if (file.exists())
+				deploy(file);
+			else
+				undeploy(file);
+		}
+	}
+
+	private void deploy(File file) {
+		Deployed current = deployed.get(file);
+		if (current!=null && current.lastModified==file.lastModified() && current.length==file.length())
+			return;
+		URLClassLoader classLoader = null;
+		try {
+			String contextPath = null;
+			JarFile jar = new JarFile(file);
+			try {
+				contextPath = getContextPath(file, jar);
+				if (current!=null && !current.contextPath.equals(contextPath))
+					undeploy(file);
+				if (isWar(file)) {
+					if (jar.getEntry("WEB-INF/")==null && jar.getEntry("WEB-INF/web.xml")==null)
+						throw new IOException("No WEB-INF in web application archive");
+					server.hotDeployWar(contextPath, file);
+				}
+				else {
+					classLoader = new URLClassLoader(new URL[] {file.toURI().toURL()}, RestfyJavaServer.class.getClassLoader());
+					String classNames = getClassNames(file, jar, classLoader);
+					if (classNames.length()==0)
+						throw new IOException("No resource class in jar");
+					server.hotDeployJar(contextPath, file, classNames, classLoader);
+				}
+			} finally {
+				jar.close();
+			}
+			Deployed deployment = new Deployed();
+			deployment.contextPath = contextPath;
+			deployment.lastModified = file.lastModified();
+			deployment.length = file.length();
+			deployed.put(file, deployment);
+			deploys.incrementAndGet();
+			logger.info("Jetty 2 Server deployed " + file.getName() + " in context " + contextPath);
+		} catch (Throwable e) {
+			rejected.incrementAndGet();
+			if (classLoader!=null) {
+				try {
+					classLoader.close();
+				} catch (IOException ce) {
+				}
+			}
+			logger.warn("Jetty 2 Server rejected artifact " + file.getName() + " : " + e.getMessage());
+		}
+	}
+
+	private void undeploy(File file) {
+		Deployed current = deployed.remove(file);
+		if (current==null)
+			return;
+		try {
+			server.hotUndeploy(current.contextPath);
+			undeploys.incrementAndGet();
+			logger.info("Jetty 2 Server undeployed " + file.getName() + " from context " + current.contextPath);
+		} catch (Throwable e) {
+			logger.error("Jetty 2 Server undeploy of " + file.getName() + " failed", e);
+		}
+	}
+
+	private static boolean isArtifact(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".jar") || name.endsWith(".war");
+	}
+
+	private static boolean isWar(File file) {
+		return file.getName().toLowerCase().endsWith(".war");
+	}
+
+	private static String getContextPath(File file, JarFile jar) throws IOException {
+		String contextPath = getAttribute(jar, CONTEXT_ATTRIBUTE);
+		if (contextPath==null) {
+			String name = file.getName();
+			contextPath = name.substring(0, name.lastIndexOf('.'));
+		}
+		return contextPath.startsWith("/") ? contextPath : "/" + contextPath;
+	}
+
+	private static String getAttribute(JarFile jar, String name) throws IOException {
+		Manifest manifest = jar.getManifest();
+		if (manifest==null)
+			return null;
+		String value = manifest.getMainAttributes().getValue(new Attributes.Name(name));
+		return value!=null && value.trim().length()>0 ? value.trim() : null;
+	}
+
+	/**
+	 * Lists the resource classes of a jar and checks that they can be loaded, unless the jar is
+	 * unchanged since the server deployment snapshot.
+	 */
+	private String getClassNames(File file, JarFile jar, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		DeploymentSnapshot snapshot = server.getDeploymentSnapshot();
+		if (snapshot!=null) {
+			String verified = snapshot.getVerifiedClassNames(file, null);
+			if (verified!=null)
+				return verified;
+		}
+		List<String> classNames = new ArrayList<String>(0);
+		String declared = getAttribute(jar, CLASSES_ATTRIBUTE);
+		if (declared!=null) {
+			for(String className: declared.split(",")) {
+				if (className.trim().length()>0) {
+					Class.forName(className.trim(), false, classLoader);
+					classNames.add(className.trim());
+				}
+			}
+		}
+		else {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (!name.endsWith(".class") || name.indexOf('$')>=0)
+					continue;
+				String className = name.substring(0, name.length()-6).replace('/', '.');
+				try {
+					if (Class.forName(className, false, classLoader).isAnnotationPresent(javax.ws.rs.Path.class))
+						classNames.add(className);
+				} catch (LinkageError e) {
+				}
+			}
+		}
+		StringBuilder list = new StringBuilder();
+		for(String className: classNames) {
+			list.append(list.length()>0 ? "," : "").append(className);
+		}
+		return list.toString();
+	}
+
+	public long getDeploys() {
+		return deploys.get();
+	}
+
+	public long getUndeploys() {
+		return undeploys.get();
+	}
+
+	/**
+	 * @return artifacts not deployed because they are invalid or failed to start
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+}
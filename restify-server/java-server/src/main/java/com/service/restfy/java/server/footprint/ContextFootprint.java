@@ -0,0 +1,101 @@
+package com.service.restfy.java.server.footprint;
+
+/**
+ * Estimated memory of a context of a {@link com.service.restfy.java.server.RestfyJavaServer}.
+ */
+public class ContextFootprint {
+	public static final String SERVER_LOADER = "server";
+	public static final String ISOLATED_LOADER = "isolated";
+
+	private String contextPath;
+	private String classLoader;
+	private long applicationBytes;
+	private long cacheBytes;
+	private long objects;
+	private int loadedClasses;
+	private long metaspaceBytes;
+	private boolean truncated;
+	private boolean complete;
+
+	public ContextFootprint(String contextPath, String classLoader, long applicationBytes, long cacheBytes, long objects,
+			int loadedClasses, long metaspaceBytes, boolean truncated, boolean complete) {
+		super();
+		this.contextPath = contextPath;
+		this.classLoader = classLoader;
+		this.applicationBytes = applicationBytes;
+		this.cacheBytes = cacheBytes;
+		this.objects = objects;
+		this.loadedClasses = loadedClasses;
+		this.metaspaceBytes = metaspaceBytes;
+		this.truncated = truncated;
+		this.complete = complete;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	/**
+	 * @return {@link #ISOLATED_LOADER} for a context with its own class loader, {@link #SERVER_LOADER} otherwise
+	 */
+	public String getClassLoader() {
+		return classLoader;
+	}
+
+	/**
+	 * @return heap of the Jersey applications of the context, all its versions
+	 */
+	public long getApplicationBytes() {
+		return applicationBytes;
+	}
+
+	/**
+	 * @return heap of the coalescing, upload, mirroring and version state of the context
+	 */
+	public long getCacheBytes() {
+		return cacheBytes;
+	}
+
+	public long getRetainedBytes() {
+		return applicationBytes + cacheBytes;
+	}
+
+	public long getObjects() {
+		return objects;
+	}
+
+	/**
+	 * @return classes of the context class loader, or the declared classes of a context loaded by the server,
+	 * -1 if the classes of the class loader cannot be listed
+	 */
+	public int getLoadedClasses() {
+		return loadedClasses;
+	}
+
+	/**
+	 * @return metaspace used by the JVM shared out by loaded classes, -1 if unavailable
+	 */
+	public long getMetaspaceBytes() {
+		return metaspaceBytes;
+	}
+
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * @return false when some objects could not be walked, the heap sizes are then unavailable
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public String toString() {
+		return contextPath + " loader=" + classLoader
+				+ (complete ? " retained=" + getRetainedBytes() + " application=" + applicationBytes + " caches=" + cacheBytes + " objects=" + objects : " retained=unavailable")
+				+ " classes=" + (loadedClasses>=0 ? String.valueOf(loadedClasses) : "unavailable")
+				+ " metaspace=" + (metaspaceBytes>=0L ? String.valueOf(metaspaceBytes) : "unavailable")
+				+ (truncated ? " truncated" : "");
+	}
+}
@@ -0,0 +1,258 @@
+package com.service.restfy.java.server.footprint;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletContext;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.servlet.BaseHolder;
+import org.eclipse.jetty.servlet.ServletHandler;
+
+/**
+ * Estimates the heap retained by object graphs walking their fields by reflection. Objects are
+ * measured by {@link Instrumentation#getObjectSize(Object)} when the server jar is loaded as an agent
+ * (<code>-javaagent</code>), otherwise with a 64 bits compressed oops layout (12 bytes headers,
+ * 4 bytes references, 8 bytes alignment).
+ * The walk stops at classes, class loaders, threads, weak and soft referents and at the server
+ * infrastructure, objects already measured by the same estimator are not counted again so a graph
+ * shared by many roots is counted for the first one. Fields that cannot be made accessible, as
+ * the JDK internals from Java 16, are not walked: their objects are counted with their shallow size.
+ */
+public class HeapEstimator {
+	public static final int DEFAULT_MAX_OBJECTS = 1000000;
+
+	private static final int HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+	private static final Map<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<Class<?>, ClassLayout>();
+	private static final Field referent;
+	private static volatile Instrumentation instrumentation = null;
+
+	static {
+		Field field = null;
+		try {
+			field = Reference.class.getDeclaredField("referent");
+		} catch (NoSuchFieldException e) {
+		}
+		referent = field;
+	}
+
+	private Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	private int maxObjects = DEFAULT_MAX_OBJECTS;
+	private boolean truncated = false;
+	private boolean incomplete = false;
+
+	private static class ClassLayout {
+		private long size;
+		private List<Field> references = new ArrayList<Field>(0);
+	}
+
+	public static void premain(String arguments, Instrumentation instrumentation) {
+		setInstrumentation(instrumentation);
+	}
+
+	public static void agentmain(String arguments, Instrumentation instrumentation) {
+		setInstrumentation(instrumentation);
+	}
+
+	/**
+	 * @param instrumentation measures the objects, null to use the compressed oops layout
+	 */
+	public static void setInstrumentation(Instrumentation instrumentation) {
+		HeapEstimator.instrumentation = instrumentation;
+	}
+
+	public static boolean isInstrumented() {
+		return instrumentation!=null;
+	}
+
+	public HeapEstimator() {
+		super();
+	}
+
+	/**
+	 * @param maxObjects objects walked before the estimation stops, all roots together
+	 */
+	public HeapEstimator(int maxObjects) {
+		super();
+		this.maxObjects = maxObjects;
+	}
+
+	/**
+	 * @return true when the estimation stopped at the objects limit, the sizes are then lower bounds
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * @return false when accessible fields could not be read, the sizes are then unavailable
+	 */
+	public boolean isComplete() {
+		return !incomplete;
+	}
+
+	/**
+	 * Excludes objects from all the following estimations.
+	 */
+	public void exclude(Object object) {
+		if (object!=null)
+			visited.add(object);
+	}
+
+	/**
+	 * @return estimated bytes and objects of the graph of the root not measured yet
+	 */
+	public long[] estimate(Object root) {
+		long bytes = 0L, objects = 0L;
+		Instrumentation sizes = instrumentation;
+		Deque<Object> stack = new ArrayDeque<Object>();
+		push(stack, root);
+		while (!stack.isEmpty()) {
+			if (visited.size()>=maxObjects) {
+				truncated = true;
+				break;
+			}
+			Object object = stack.pop();
+			Class<?> type = object.getClass();
+			objects++;
+			if (type.isArray()) {
+				int length = Array.getLength(object);
+				Class<?> component = type.getComponentType();
+				bytes += sizes!=null ? sizes.getObjectSize(object) : align(ARRAY_HEADER + (long)length * sizeOf(component));
+				if (!component.isPrimitive()) {
+					for(int i=0; i<length; i++) {
+						push(stack, Array.get(object, i));
+					}
+				}
+				continue;
+			}
+			ClassLayout layout = layout(type);
+			bytes += sizes!=null ? sizes.getObjectSize(object) : layout.size;
+			for(Field field: layout.references) {
+				try {
+					push(stack, field.get(object));
+				} catch (IllegalAccessException e) {
+					incomplete = true;
+				}
+			}
+		}
+		return new long[] {bytes, objects};
+	}
+
+	private void push(Deque<Object> stack, Object object) {
+		if (object==null || isBoundary(object) || !visited.add(object))
+			return;
+		stack.push(object);
+	}
+
+	private static boolean isBoundary(Object object) {
+		return object instanceof Class || object instanceof ClassLoader || object instanceof Thread
+				|| object instanceof ServletContext || object instanceof ContextHandler || object instanceof Server
+				|| object instanceof ServletHandler || object instanceof BaseHolder;
+	}
+
+	private static ClassLayout layout(Class<?> type) {
+		ClassLayout layout = layouts.get(type);
+		if (layout!=null)
+			return layout;
+		layout = new ClassLayout();
+		long size = HEADER;
+		for(Class<?> current = type; current!=null; current = current.getSuperclass()) {
+			for(Field field: current.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					continue;
+				size += sizeOf(field.getType());
+				if (field.getType().isPrimitive() || field.equals(referent))
+					continue;
+				try {
+					field.setAccessible(true);
+					layout.references.add(field);
+				} catch (RuntimeException e) {
+					// a module not opened to the server, the referenced object is left out
+				}
+			}
+		}
+		layout.size = align(size);
+		layouts.put(type, layout);
+		return layout;
+	}
+
+	/**
+	 * @return classes defined by a class loader, -1 if they cannot be listed
+	 */
+	public static int countClasses(ClassLoader classLoader) {
+		Instrumentation loaded = instrumentation;
+		if (loaded!=null) {
+			int count = 0;
+			for(Class<?> type: loaded.getAllLoadedClasses()) {
+				if (type.getClassLoader()==classLoader)
+					count++;
+			}
+			return count;
+		}
+		try {
+			Field classes = ClassLoader.class.getDeclaredField("classes");
+			classes.setAccessible(true);
+			Object value = classes.get(classLoader);
+			if (value instanceof Collection) {
+				synchronized (value) {
+					return ((Collection<?>)value).size();
+				}
+			}
+		} catch (Exception e) {
+		}
+		return -1;
+	}
+
+	/**
+	 * @return metaspace used by the JVM multiplied by the share of the loaded classes, -1 if the
+	 * classes or the metaspace are unknown
+	 */
+	public static long metaspaceShare(int classes) {
+		int loaded = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+		if (classes<0 || loaded<=0)
+			return -1L;
+		if (classes==0)
+			return 0L;
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if ("Metaspace".equals(pool.getName()))
+				return pool.getUsage().getUsed() * Math.min(classes, loaded) / loaded;
+		}
+		return -1L;
+	}
+
+	private static int sizeOf(Class<?> type) {
+		if (type==long.class || type==double.class)
+			return 8;
+		if (type==int.class || type==float.class)
+			return 4;
+		if (type==short.class || type==char.class)
+			return 2;
+		if (type==byte.class || type==boolean.class)
+			return 1;
+		return REFERENCE;
+	}
+
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+}
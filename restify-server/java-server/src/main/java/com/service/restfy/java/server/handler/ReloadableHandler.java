@@ -0,0 +1,35 @@
+package com.service.restfy.java.server.handler;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.handler.HotSwapHandler;
+
+/**
+ * Hot swap handler owning its current child: a child swapped in while the server is running
+ * is stopped with the server, while a replaced child is left running for its owner to drain
+ * and stop. Destroy does not reset the child to null, which {@link HotSwapHandler} refuses.
+ */
+public class ReloadableHandler extends HotSwapHandler {
+
+	public ReloadableHandler() {
+		super();
+	}
+
+	@Override
+	public void setHandler(Handler handler) {
+		Handler previous = getHandler();
+		if (previous!=null && previous!=handler)
+			unmanage(previous);
+		super.setHandler(handler);
+		if (!isManaged(handler))
+			manage(handler);
+	}
+
+	@Override
+	public void destroy() {
+		if (!isStopped())
+			throw new IllegalStateException("!STOPPED");
+		Handler child = getHandler();
+		if (child!=null)
+			child.destroy();
+	}
+}
@@ -0,0 +1,69 @@
+package com.service.restfy.java.server.health;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the result of a {@link HealthCheck} for a period, so frequent probes do not run the check.
+ * When the result is stale a single caller runs the check while the others get the last result.
+ */
+public class CachedHealthCheck {
+	private HealthCheck check;
+	private long period;
+	private volatile boolean healthy = false;
+	private volatile String reason = "not checked";
+	private volatile long checked = 0L;
+	private AtomicBoolean checking = new AtomicBoolean(false);
+
+	/**
+	 * @param period milliseconds the result of the check is kept
+	 */
+	public CachedHealthCheck(HealthCheck check, long period) {
+		super();
+		this.check = check;
+		this.period = period;
+	}
+
+	public HealthCheck getCheck() {
+		return check;
+	}
+
+	public long getPeriod() {
+		return period;
+	}
+
+	public boolean isHealthy() {
+		long now = System.currentTimeMillis();
+		if ((checked==0L || now - checked>=period) && checking.compareAndSet(false, true)) {
+			try {
+				boolean result = false;
+				String failure = null;
+				try {
+					result = check.isHealthy();
+					failure = result ? null : "unhealthy";
+				} catch (Exception e) {
+					failure = e.getMessage()!=null ? e.getMessage() : e.getClass().getSimpleName();
+				}
+				reason = failure;
+				healthy = result;
+				checked = System.currentTimeMillis();
+			} finally {
+				checking.set(false);
+			}
+		}
+		return healthy;
+	}
+
+	/**
+	 * @return reason of the last failed check, null if it succeeded
+	 */
+	public String getReason() {
+		return reason;
+	}
+
+	/**
+	 * @return time of the last check, 0 if it never ran
+	 */
+	public long getChecked() {
+		return checked;
+	}
+}
@@ -0,0 +1,11 @@
+package com.service.restfy.java.server.health;
+
+/**
+ * Health hook of a context, checked by the readiness endpoint of the {@link HealthHandler}.
+ */
+public interface HealthCheck {
+	/**
+	 * @return true if the context can serve requests, an exception is reported as unhealthy with its message
+	 */
+	boolean isHealthy() throws Exception;
+}
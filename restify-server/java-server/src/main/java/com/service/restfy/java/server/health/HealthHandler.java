@@ -0,0 +1,83 @@
+package com.service.restfy.java.server.health;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * Answers the liveness and readiness probes in front of the handler tree, without Jersey, session
+ * or statistics handling. Liveness answers as long as the server handles requests, readiness
+ * reports the lifecycle of the server, the state of the current handler tree and the health hooks
+ * of the contexts.
+ */
+public class HealthHandler extends HandlerWrapper {
+	public static final String DEFAULT_PATH = "/restfy-health";
+	public static final String LIVE = "/live";
+	public static final String READY = "/ready";
+
+	private RestfyJavaServer server = null;
+	private String path = DEFAULT_PATH;
+
+	public HealthHandler(RestfyJavaServer server, String path) {
+		super();
+		this.server = server;
+		this.path = path;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @param path prefix of the probes, null to pass all the requests to the handler tree
+	 */
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	@Override
+	public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+		if (path==null || !target.startsWith(path) || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+			super.handle(target, baseRequest, request, response);
+			return;
+		}
+		String probe = target.substring(path.length());
+		if (LIVE.equals(probe)) {
+			baseRequest.setHandled(true);
+			write(response, HttpServletResponse.SC_OK, "live\n");
+		}
+		else if (READY.equals(probe)) {
+			baseRequest.setHandled(true);
+			List<String> problems = server.getReadinessProblems();
+			if (problems.isEmpty()) {
+				write(response, HttpServletResponse.SC_OK, "ready\n");
+				return;
+			}
+			StringBuilder body = new StringBuilder("not ready\n");
+			for(String problem: problems) {
+				body.append(problem).append('\n');
+			}
+			write(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, body.toString());
+		}
+		else {
+			super.handle(target, baseRequest, request, response);
+		}
+	}
+
+	private static void write(HttpServletResponse response, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		response.setStatus(status);
+		response.setContentType("text/plain;charset=utf-8");
+		response.setHeader("Cache-Control", "no-store");
+		response.setContentLength(bytes.length);
+		response.getOutputStream().write(bytes);
+	}
+}
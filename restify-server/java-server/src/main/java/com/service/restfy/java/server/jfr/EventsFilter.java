@@ -0,0 +1,43 @@
+package com.service.restfy.java.server.jfr;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records a {@link ServerEvents} request event for every request of the context.
+ */
+public class EventsFilter implements Filter {
+	private ServerEvents events = ServerEvents.getInstance();
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		Object scope = events.beginRequest();
+		if (scope==null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			HttpServletRequest httpRequest = (HttpServletRequest)request;
+			events.endRequest(scope, httpRequest.getContextPath() + httpRequest.getServletPath(), httpRequest.getMethod(),
+					httpRequest.getRequestURI(), ((HttpServletResponse)response).getStatus());
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
@@ -0,0 +1,74 @@
+package com.service.restfy.java.server.jfr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits the server activity as Java Flight Recorder events: deploys, lifecycle actions, loopback
+ * commands and requests of the contexts. When JFR is not available in the running JVM, or the
+ * <i>restfy.jfr</i> system property is false, the events are discarded at no cost.
+ * A scope returned by a begin method is given back to the matching end method, which measures
+ * the duration and commits the event if the recording asks for it.
+ * <p>
+ * The event classes import jdk.jfr, they are in src/main/jfr and built by the <i>jfr</i> profile,
+ * active on JDK 11 and later; a build on an older JDK has only the discarding implementation.
+ */
+public class ServerEvents {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+	private static final ServerEvents instance = load();
+
+	protected ServerEvents() {
+		super();
+	}
+
+	private static ServerEvents load() {
+		if (!Boolean.parseBoolean(System.getProperty("restfy.jfr", "true")))
+			return new ServerEvents();
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (ServerEvents)Class.forName("com.service.restfy.java.server.jfr.JfrServerEvents").getDeclaredConstructor().newInstance();
+		} catch (Throwable e) {
+			logger.debug("Jetty 2 Server flight recorder events not available : " + e);
+			return new ServerEvents();
+		}
+	}
+
+	public static ServerEvents getInstance() {
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return false;
+	}
+
+	public Object beginDeploy() {
+		return null;
+	}
+
+	public void endDeploy(Object scope, String contextPath, String deployType, String reference, boolean success) {
+	}
+
+	public Object beginLifecycle() {
+		return null;
+	}
+
+	/**
+	 * @param action start, stop, reload or handover
+	 */
+	public void endLifecycle(Object scope, String action, boolean success) {
+	}
+
+	public Object beginCommand() {
+		return null;
+	}
+
+	public void endCommand(Object scope, String command, String reply, boolean success) {
+	}
+
+	public Object beginRequest() {
+		return null;
+	}
+
+	public void endRequest(Object scope, String contextPath, String method, String uri, int status) {
+	}
+}
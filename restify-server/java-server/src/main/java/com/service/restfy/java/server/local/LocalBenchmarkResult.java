@@ -0,0 +1,69 @@
+package com.service.restfy.java.server.local;
+
+/**
+ * Outcome of a {@link LocalServerClient#benchmark(LocalRequest, int, int)} run.
+ */
+public class LocalBenchmarkResult {
+	private int requests = 0;
+	private int failures = 0;
+	private long totalLatencyNanos = 0L;
+	private long maxLatencyNanos = 0L;
+	private long elapsedNanos = 0L;
+
+	public LocalBenchmarkResult() {
+		super();
+	}
+
+	protected void record(long latencyNanos, boolean success) {
+		requests++;
+		if (!success)
+			failures++;
+		totalLatencyNanos += latencyNanos;
+		if (latencyNanos>maxLatencyNanos)
+			maxLatencyNanos = latencyNanos;
+	}
+
+	protected void merge(LocalBenchmarkResult other) {
+		requests += other.requests;
+		failures += other.failures;
+		totalLatencyNanos += other.totalLatencyNanos;
+		if (other.maxLatencyNanos>maxLatencyNanos)
+			maxLatencyNanos = other.maxLatencyNanos;
+	}
+
+	protected void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getRequests() {
+		return requests;
+	}
+
+	public int getFailures() {
+		return failures;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getMeanLatencyMicros() {
+		return requests>0 ? (totalLatencyNanos / 1000d) / requests : 0d;
+	}
+
+	public double getMaxLatencyMicros() {
+		return maxLatencyNanos / 1000d;
+	}
+
+	public double getThroughput() {
+		return elapsedNanos>0 ? requests * 1000000000d / elapsedNanos : 0d;
+	}
+
+	@Override
+	public String toString() {
+		return "LocalBenchmarkResult [requests=" + requests + ", failures=" + failures
+				+ ", elapsed=" + (elapsedNanos / 1000000L) + " ms, throughput=" + String.format("%.1f", getThroughput())
+				+ " req/s, meanLatency=" + String.format("%.1f", getMeanLatencyMicros())
+				+ " us, maxLatency=" + String.format("%.1f", getMaxLatencyMicros()) + " us]";
+	}
+}
@@ -0,0 +1,108 @@
+package com.service.restfy.java.server.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+/**
+ * Fluent request executed against a {@link LocalConnector}. Once built a request can be
+ * executed many times, also from concurrent threads.
+ */
+public class LocalRequest {
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private LocalConnector connector = null;
+	private String method = null;
+	private String path = null;
+	private Map<String, String> headers = new LinkedHashMap<String, String>(0);
+	private byte[] body = null;
+	private long timeout = 10L;
+	private TimeUnit timeoutUnit = TimeUnit.SECONDS;
+
+	protected LocalRequest(LocalConnector connector, String method, String path) {
+		super();
+		this.connector = connector;
+		this.method = method;
+		this.path = path;
+	}
+
+	public LocalRequest header(String name, String value) {
+		headers.put(name, value);
+		return this;
+	}
+
+	public LocalRequest accept(String mediaType) {
+		return header("Accept", mediaType);
+	}
+
+	public LocalRequest body(String content, String contentType) {
+		return body(content!=null ? content.getBytes(UTF_8) : null, contentType);
+	}
+
+	public LocalRequest body(byte[] content, String contentType) {
+		this.body = content;
+		if (contentType!=null)
+			headers.put("Content-Type", contentType);
+		return this;
+	}
+
+	public LocalRequest timeout(long timeout, TimeUnit timeoutUnit) {
+		this.timeout = timeout;
+		this.timeoutUnit = timeoutUnit;
+		return this;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public LocalResponse execute() throws Exception {
+		ByteBuffer response = connector.getResponses(ByteBuffer.wrap(toBytes()), timeout, timeoutUnit);
+		if (response==null || !response.hasRemaining())
+			throw new IOException("No response for " + method + " " + path + " in " + timeout + " " + timeoutUnit);
+		return LocalResponse.parse(response);
+	}
+
+	protected byte[] toBytes() throws IOException {
+		StringBuilder head = new StringBuilder(128);
+		head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+		if (!headers.containsKey("Host"))
+			head.append("Host: localhost\r\n");
+		for(String name: headers.keySet()) {
+			head.append(name).append(": ").append(headers.get(name)).append("\r\n");
+		}
+		head.append("Connection: close\r\n");
+		if (body!=null)
+			head.append("Content-Length: ").append(body.length).append("\r\n");
+		head.append("\r\n");
+		ByteArrayOutputStream out = new ByteArrayOutputStream(head.length() + (body!=null ? body.length : 0));
+		out.write(head.toString().getBytes(ISO_8859_1));
+		if (body!=null)
+			out.write(body);
+		return out.toByteArray();
+	}
+
+	@Override
+	public String toString() {
+		return "LocalRequest [method=" + method + ", path=" + path + ", headers=" + headers + "]";
+	}
+}
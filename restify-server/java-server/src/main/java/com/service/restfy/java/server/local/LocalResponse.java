@@ -0,0 +1,120 @@
+package com.service.restfy.java.server.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP response read back from a {@link org.eclipse.jetty.server.LocalConnector}.
+ */
+public class LocalResponse {
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private int code = -1;
+	private String reason = "";
+	private Map<String, String> headers = new LinkedHashMap<String, String>(0);
+	private byte[] content = new byte[0];
+
+	public LocalResponse(int code, String reason, Map<String, String> headers, byte[] content) {
+		super();
+		this.code = code;
+		this.reason = reason;
+		this.headers = headers;
+		this.content = content;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public String getHeader(String name) {
+		return headers.get(name.toLowerCase());
+	}
+
+	public byte[] getContent() {
+		return content;
+	}
+
+	public String getResponse() {
+		return new String(content, UTF_8);
+	}
+
+	public static LocalResponse parse(ByteBuffer buffer) throws IOException {
+		byte[] raw = new byte[buffer.remaining()];
+		buffer.get(raw);
+		int headEnd = indexOf(raw, 0, "\r\n\r\n");
+		if (headEnd<0)
+			throw new IOException("Malformed HTTP response : header not terminated");
+		String[] lines = new String(raw, 0, headEnd, ISO_8859_1).split("\r\n");
+		String[] status = lines[0].split(" ", 3);
+		if (status.length<2)
+			throw new IOException("Malformed HTTP status line : " + lines[0]);
+		int code = Integer.parseInt(status[1]);
+		Map<String, String> headers = new LinkedHashMap<String, String>(lines.length);
+		for(int i=1; i<lines.length; i++) {
+			int colon = lines[i].indexOf(':');
+			if (colon>0)
+				headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon+1).trim());
+		}
+		int bodyStart = headEnd + 4;
+		byte[] content = null;
+		if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+			content = dechunk(raw, bodyStart);
+		}
+		else {
+			int length = raw.length - bodyStart;
+			if (headers.containsKey("content-length"))
+				length = Math.min(length, Integer.parseInt(headers.get("content-length")));
+			content = new byte[length];
+			System.arraycopy(raw, bodyStart, content, 0, length);
+		}
+		return new LocalResponse(code, status.length>2 ? status[2] : "", headers, content);
+	}
+
+	private static byte[] dechunk(byte[] raw, int offset) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length - offset);
+		int position = offset;
+		while (position<raw.length) {
+			int lineEnd = indexOf(raw, position, "\r\n");
+			if (lineEnd<0)
+				throw new IOException("Malformed chunked content");
+			String sizeLine = new String(raw, position, lineEnd-position, ISO_8859_1);
+			int extension = sizeLine.indexOf(';');
+			int size = Integer.parseInt((extension>=0 ? sizeLine.substring(0, extension) : sizeLine).trim(), 16);
+			if (size==0)
+				break;
+			out.write(raw, lineEnd+2, size);
+			position = lineEnd + 2 + size + 2;
+		}
+		return out.toByteArray();
+	}
+
+	private static int indexOf(byte[] raw, int from, String token) {
+		byte[] pattern = token.getBytes(ISO_8859_1);
+		for(int i=from; i<=raw.length-pattern.length; i++) {
+			int j=0;
+			while (j<pattern.length && raw[i+j]==pattern[j])
+				j++;
+			if (j==pattern.length)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "LocalResponse [code=" + code + ", reason=" + reason + ", headers=" + headers + ", length=" + content.length + "]";
+	}
+}
@@ -0,0 +1,93 @@
+package com.service.restfy.java.server.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * In-memory client of a {@link RestfyJavaServer}. Requests go through the server
+ * {@link LocalConnector}, so the full Jetty and Jersey pipeline is executed without any TCP stack.
+ */
+public class LocalServerClient {
+	private LocalConnector connector = null;
+
+	public LocalServerClient(RestfyJavaServer server) {
+		this(server.getLocalConnector());
+	}
+
+	public LocalServerClient(LocalConnector connector) {
+		super();
+		if (connector==null)
+			throw new IllegalStateException("Local connector not enabled on the server");
+		this.connector = connector;
+	}
+
+	public LocalConnector getConnector() {
+		return connector;
+	}
+
+	public LocalRequest request(String method, String path) {
+		return new LocalRequest(connector, method, path);
+	}
+
+	public LocalRequest get(String path) {
+		return request("GET", path);
+	}
+
+	public LocalRequest post(String path) {
+		return request("POST", path);
+	}
+
+	public LocalRequest put(String path) {
+		return request("PUT", path);
+	}
+
+	public LocalRequest delete(String path) {
+		return request("DELETE", path);
+	}
+
+	/**
+	 * Executes the given request the required number of times spread on the given number of threads.
+	 */
+	public LocalBenchmarkResult benchmark(final LocalRequest request, int threads, int requests) throws Exception {
+		final AtomicInteger remaining = new AtomicInteger(requests);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<LocalBenchmarkResult>> futures = new ArrayList<Future<LocalBenchmarkResult>>(threads);
+		long start = System.nanoTime();
+		try {
+			for(int i=0; i<threads; i++) {
+				futures.add(executor.submit(new Callable<LocalBenchmarkResult>() {
+					public LocalBenchmarkResult call() throws Exception {
+						LocalBenchmarkResult partial = new LocalBenchmarkResult();
+						while (remaining.getAndDecrement()>0) {
+							long requestStart = System.nanoTime();
+							LocalResponse response = null;
+							try {
+								response = request.execute();
+							} catch (Exception e) {
+							}
+							partial.record(System.nanoTime()-requestStart, response!=null && response.getCode()<400);
+						}
+						return partial;
+					}
+				}));
+			}
+			LocalBenchmarkResult result = new LocalBenchmarkResult();
+			for(Future<LocalBenchmarkResult> future: futures) {
+				result.merge(future.get());
+			}
+			result.setElapsedNanos(System.nanoTime()-start);
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
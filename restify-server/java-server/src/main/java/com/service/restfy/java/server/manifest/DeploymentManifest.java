@@ -0,0 +1,190 @@
+package com.service.restfy.java.server.manifest;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+import com.service.restfy.java.server.DeployType;
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.coalesce.RequestCoalescer;
+import com.service.restfy.java.server.upload.UploadSpooler;
+
+/**
+ * Contexts to deploy at the start of {@link com.service.restfy.java.server.Main}, read from a JSON file:
+ * <pre>
+ * {"contexts": [
+ *   {"context": "/orders", "type": "JAR_DEPLOY", "reference": "orders.jar", "classNames": "a.Orders,a.Items",
+ *    "port": 8081, "properties": {"jersey.config.server.tracing.type": "ALL"}, "coalesceMaxWait": 2000},
+ *   {"context": "/users", "type": "CLASS_DEPLOY", "classNames": "b.Users", "uploadThreshold": 64, "uploadMaxSize": 100}
+ * ]}
+ * </pre>
+ * The contexts of a port are served by the same server, a war must be the only context of its port.
+ * Relative references are resolved from the manifest directory.
+ */
+public class DeploymentManifest {
+	private List<ManifestContext> contexts = new ArrayList<ManifestContext>(0);
+
+	public DeploymentManifest() {
+		super();
+	}
+
+	public List<ManifestContext> getContexts() {
+		return contexts;
+	}
+
+	public static DeploymentManifest parse(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			JsonReader reader = Json.createReader(input);
+			JsonObject root = reader.readObject();
+			reader.close();
+			DeploymentManifest manifest = new DeploymentManifest();
+			JsonArray contexts = root.getJsonArray("contexts");
+			if (contexts==null)
+				throw new IOException("Manifest " + file + " has no contexts array");
+			for(JsonValue value: contexts) {
+				if (!(value instanceof JsonObject))
+					throw new IOException("Manifest " + file + " context is not an object : " + value);
+				manifest.contexts.add(parseContext((JsonObject)value, file.getAbsoluteFile().getParentFile()));
+			}
+			return manifest;
+		} catch (JsonException e) {
+			throw new IOException("Manifest " + file + " is not valid JSON : " + e.getMessage(), e);
+		} catch (ClassCastException e) {
+			throw new IOException("Manifest " + file + " has a value of wrong type : " + e.getMessage(), e);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static ManifestContext parseContext(JsonObject object, File baseDir) throws IOException {
+		ManifestContext context = new ManifestContext();
+		context.setContextPath(object.getString("context", null));
+		try {
+			context.setType(DeployType.valueOf(object.getString("type", DeployType.CLASS_DEPLOY.name())));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Unknown deploy type " + object.getString("type") + " of context " + context.getContextPath());
+		}
+		String reference = object.getString("reference", null);
+		if (reference!=null && !new File(reference).isAbsolute())
+			reference = new File(baseDir, reference).getPath();
+		context.setReference(reference);
+		context.setClassNames(object.getString("classNames", null));
+		context.setPort(object.getInt("port", 0));
+		context.setCoalesceMaxWait(object.getInt("coalesceMaxWait", 0));
+		context.setUploadThreshold(object.getInt("uploadThreshold", 0));
+		context.setUploadMaxSize(object.getInt("uploadMaxSize", 0));
+		context.setUploadDir(object.getString("uploadDir", null));
+		JsonObject properties = object.getJsonObject("properties");
+		if (properties!=null) {
+			for(String name: properties.keySet()) {
+				JsonValue value = properties.get(name);
+				context.getServiceProperties().put(name, value instanceof JsonString ? ((JsonString)value).getString() : value.toString());
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Checks the whole manifest before anything is deployed.
+	 * @throws IllegalArgumentException listing all the errors of the manifest
+	 */
+	public void validate(int defaultPort) {
+		List<String> errors = new ArrayList<String>(0);
+		Set<String> paths = new HashSet<String>(0);
+		Map<Integer, List<ManifestContext>> ports = byPort(defaultPort);
+		for(ManifestContext context: contexts) {
+			String name = context.getContextPath();
+			if (name==null || !name.startsWith("/")) {
+				errors.add("context path missing or not starting with / : " + context);
+				continue;
+			}
+			int port = context.getPort()>0 ? context.getPort() : defaultPort;
+			if (port>65535)
+				errors.add(name + " : port " + port + " out of range");
+			if (!paths.add(port + name))
+				errors.add(name + " : declared twice on port " + port);
+			if (context.getType()!=DeployType.WAR_DEPLOY && (context.getClassNames()==null || context.getClassNames().trim().length()==0))
+				errors.add(name + " : classNames missing");
+			if (context.getType()!=DeployType.CLASS_DEPLOY && (context.getReference()==null || !new File(context.getReference()).isFile()))
+				errors.add(name + " : file " + context.getReference() + " not found");
+			if (context.getType()==DeployType.CLASS_DEPLOY && context.getClassNames()!=null) {
+				for(String className: context.getClassNames().split(",")) {
+					if (className.trim().length()==0)
+						continue;
+					try {
+						Class.forName(className.trim(), false, DeploymentManifest.class.getClassLoader());
+					} catch (ClassNotFoundException e) {
+						errors.add(name + " : class " + className.trim() + " not found");
+					}
+				}
+			}
+			if (context.getType()==DeployType.WAR_DEPLOY && ports.get(port).size()>1)
+				errors.add(name + " : a war must be the only context of port " + port);
+			if (context.getType()==DeployType.WAR_DEPLOY && (context.getCoalesceMaxWait()>0 || context.getUploadThreshold()>0))
+				errors.add(name + " : coalescing and upload spooling are not available for a war");
+			if (context.getUploadThreshold()>0 && context.getUploadMaxSize()<=0)
+				errors.add(name + " : uploadMaxSize missing");
+		}
+		if (!errors.isEmpty()) {
+			StringBuilder message = new StringBuilder("Invalid deployment manifest :");
+			for(String error: errors) {
+				message.append("\n  ").append(error);
+			}
+			throw new IllegalArgumentException(message.toString());
+		}
+	}
+
+	/**
+	 * @return contexts grouped by the port of their server, in declaration order
+	 */
+	public Map<Integer, List<ManifestContext>> byPort(int defaultPort) {
+		Map<Integer, List<ManifestContext>> ports = new LinkedHashMap<Integer, List<ManifestContext>>(0);
+		for(ManifestContext context: contexts) {
+			int port = context.getPort()>0 ? context.getPort() : defaultPort;
+			List<ManifestContext> list = ports.get(port);
+			if (list==null) {
+				list = new ArrayList<ManifestContext>(0);
+				ports.put(port, list);
+			}
+			list.add(context);
+		}
+		return ports;
+	}
+
+	/**
+	 * Deploys contexts, with their settings, in a not started server. Each jar context gets its own
+	 * class loader, so the jars of the manifest cannot shadow each other's classes.
+	 */
+	public static void apply(RestfyJavaServer server, List<ManifestContext> contexts) throws ClassNotFoundException, IOException {
+		for(ManifestContext context: contexts) {
+			String path = context.getContextPath();
+			if (context.getType()==DeployType.CLASS_DEPLOY)
+				server.addClassHolder(path, context.getClassNames(), context.getServiceProperties());
+			else if (context.getType()==DeployType.JAR_DEPLOY)
+				server.addIsolatedJar(path, new File(context.getReference()), context.getClassNames(), context.getServiceProperties());
+			else
+				server.setWar(path, new File(context.getReference()).getAbsolutePath());
+			if (context.getCoalesceMaxWait()>0L)
+				server.setCoalescing(path, new RequestCoalescer(context.getCoalesceMaxWait(), RequestCoalescer.DEFAULT_KEY_HEADERS));
+			if (context.getUploadThreshold()>0)
+				server.setUploadSpooling(path, new UploadSpooler(context.getUploadThreshold() * 1024, context.getUploadMaxSize() * 1024L * 1024L,
+						context.getUploadDir()!=null ? new File(context.getUploadDir()) : null));
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.service.restfy.java.server.manifest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.service.restfy.java.server.DeployType;
+
+/**
+ * Context declared in a {@link DeploymentManifest}, with its port and its own settings.
+ */
+public class ManifestContext {
+	private DeployType type = DeployType.CLASS_DEPLOY;
+	private String contextPath = null;
+	private String reference = null;
+	private String classNames = null;
+	private int port = 0;
+	private Map<String, String> serviceProperties = new LinkedHashMap<String, String>(0);
+	private long coalesceMaxWait = 0L;
+	private int uploadThreshold = 0;
+	private int uploadMaxSize = 0;
+	private String uploadDir = null;
+
+	public ManifestContext() {
+		super();
+	}
+
+	public DeployType getType() {
+		return type;
+	}
+
+	public void setType(DeployType type) {
+		this.type = type;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	public void setContextPath(String contextPath) {
+		this.contextPath = contextPath;
+	}
+
+	/**
+	 * @return jar or war file of the context
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public String getClassNames() {
+		return classNames;
+	}
+
+	public void setClassNames(String classNames) {
+		this.classNames = classNames;
+	}
+
+	/**
+	 * @return port of the server of the context, 0 for the default port
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	public Map<String, String> getServiceProperties() {
+		return serviceProperties;
+	}
+
+	public long getCoalesceMaxWait() {
+		return coalesceMaxWait;
+	}
+
+	public void setCoalesceMaxWait(long coalesceMaxWait) {
+		this.coalesceMaxWait = coalesceMaxWait;
+	}
+
+	/**
+	 * @return upload spooling threshold in KB, 0 to disable the spooling
+	 */
+	public int getUploadThreshold() {
+		return uploadThreshold;
+	}
+
+	public void setUploadThreshold(int uploadThreshold) {
+		this.uploadThreshold = uploadThreshold;
+	}
+
+	/**
+	 * @return maximum upload size in MB
+	 */
+	public int getUploadMaxSize() {
+		return uploadMaxSize;
+	}
+
+	public void setUploadMaxSize(int uploadMaxSize) {
+		this.uploadMaxSize = uploadMaxSize;
+	}
+
+	public String getUploadDir() {
+		return uploadDir;
+	}
+
+	public void setUploadDir(String uploadDir) {
+		this.uploadDir = uploadDir;
+	}
+
+	@Override
+	public String toString() {
+		return "ManifestContext [type=" + type + ", contextPath=" + contextPath
+				+ ", reference=" + reference + ", classNames=" + classNames
+				+ ", port=" + port + "]";
+	}
+}
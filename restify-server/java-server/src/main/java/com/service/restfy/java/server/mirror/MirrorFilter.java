@@ -0,0 +1,80 @@
+package com.service.restfy.java.server.mirror;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.versions.VersionRoutingFilter;
+
+/**
+ * Mirrors the sampled GET and HEAD requests of a context to the shadow context of its {@link TrafficMirror}.
+ * Requests with a body are not mirrored: their body is consumed by the primary context and their side
+ * effects would be applied twice.
+ */
+public class MirrorFilter implements Filter {
+	private TrafficMirror mirror = null;
+	private RestfyJavaServer server = null;
+
+	public MirrorFilter(TrafficMirror mirror) {
+		super();
+		this.mirror = mirror;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		server = (RestfyJavaServer)filterConfig.getServletContext().getAttribute(RestfyJavaServer.SERVER_ATTRIBUTE);
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		LocalConnector connector = server!=null ? server.getLocalConnector() : null;
+		if (connector==null || !(request instanceof HttpServletRequest) || !isMirrored((HttpServletRequest)request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		String path = httpRequest.getContextPath() + mirror.getShadowContextPath() + (httpRequest.getPathInfo()!=null ? httpRequest.getPathInfo() : "")
+				+ (httpRequest.getQueryString()!=null ? "?" + httpRequest.getQueryString() : "");
+		Map<String, String> headers = new LinkedHashMap<String, String>(0);
+		Enumeration<String> names = httpRequest.getHeaderNames();
+		while (names.hasMoreElements()) {
+			String name = names.nextElement();
+			if (!name.equalsIgnoreCase("Host") && !name.equalsIgnoreCase("Connection") && !name.equalsIgnoreCase(VersionRoutingFilter.VERSION_HEADER))
+				headers.put(name, httpRequest.getHeader(name));
+		}
+		boolean mirrored = mirror.mirror(connector, httpRequest.getMethod(), path, headers);
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			chain.doFilter(request, response);
+		} catch (Throwable e) {
+			failed = true;
+			throw e;
+		} finally {
+			if (mirrored)
+				mirror.getPrimaryMetrics().record(System.nanoTime() - start, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : ((HttpServletResponse)response).getStatus());
+		}
+	}
+
+	private boolean isMirrored(HttpServletRequest request) {
+		return ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))
+				&& request.getHeader(TrafficMirror.SHADOW_HEADER)==null && mirror.isSampled();
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
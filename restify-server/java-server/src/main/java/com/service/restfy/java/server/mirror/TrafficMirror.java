@@ -0,0 +1,196 @@
+package com.service.restfy.java.server.mirror;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.server.LocalConnector;
+
+import com.service.restfy.java.server.local.LocalRequest;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.versions.VersionMetrics;
+
+/**
+ * Duplicates a sampled share of the requests of a context to a shadow context of the same server,
+ * through the local connector. The shadow responses are discarded, only their status and latency are
+ * recorded next to the ones of the primary requests. Mirrored requests wait in a bounded queue, when
+ * it is full they are dropped so the shadow never slows the primary requests down. The time spent in
+ * the queue is recorded on its own, so the shadow latency compares with the primary one.
+ */
+public class TrafficMirror {
+	/**
+	 * Header marking the mirrored requests, they are never mirrored again.
+	 */
+	public static final String SHADOW_HEADER = "X-Restfy-Shadow";
+	public static final int DEFAULT_THREADS = 2;
+	public static final int DEFAULT_MAX_PENDING = 100;
+
+	private String shadowContextPath = null;
+	private double sampleRate = 1d;
+	private int threads = DEFAULT_THREADS;
+	private int maxPending = DEFAULT_MAX_PENDING;
+	private long timeout = 10000L;
+	private ThreadPoolExecutor executor = null;
+	private AtomicLong mirrored = new AtomicLong(0L);
+	private AtomicLong dropped = new AtomicLong(0L);
+	private AtomicLong failures = new AtomicLong(0L);
+	private VersionMetrics primaryMetrics = new VersionMetrics();
+	private VersionMetrics shadowMetrics = new VersionMetrics();
+	private VersionMetrics queueMetrics = new VersionMetrics();
+
+	/**
+	 * @param shadowContextPath context receiving the mirrored requests
+	 * @param sampleRate fraction of the requests mirrored, between 0 and 1
+	 */
+	public TrafficMirror(String shadowContextPath, double sampleRate) {
+		this(shadowContextPath, sampleRate, DEFAULT_THREADS, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * @param threads threads sending the mirrored requests
+	 * @param maxPending mirrored requests waiting for a thread, beyond them the requests are dropped
+	 */
+	public TrafficMirror(String shadowContextPath, double sampleRate, int threads, int maxPending) {
+		super();
+		if (threads<=0 || maxPending<=0)
+			throw new IllegalArgumentException("Mirror threads and pending requests must be positive");
+		this.shadowContextPath = shadowContextPath.endsWith("/*") ? shadowContextPath.substring(0, shadowContextPath.length()-2) : shadowContextPath;
+		this.sampleRate = sampleRate;
+		this.threads = threads;
+		this.maxPending = maxPending;
+	}
+
+	public String getShadowContextPath() {
+		return shadowContextPath;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Timeout in milliseconds of a mirrored request.
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public boolean isSampled() {
+		return sampleRate>=1d || (sampleRate>0d && ThreadLocalRandom.current().nextDouble()<sampleRate);
+	}
+
+	/**
+	 * Queues a copy of a request for the shadow context, without waiting for it.
+	 * @param path path of the request in the shadow context, with its query
+	 * @return false if the request was dropped because the queue is full
+	 */
+	public boolean mirror(final LocalConnector connector, final String method, final String path, final Map<String, String> headers) {
+		final long queued = System.nanoTime();
+		try {
+			getExecutor().execute(new Runnable() {
+				public void run() {
+					long start = System.nanoTime();
+					queueMetrics.record(start - queued, 0);
+					try {
+						LocalRequest request = new LocalServerClient(connector).request(method, path).timeout(timeout, TimeUnit.MILLISECONDS);
+						for(String name: headers.keySet()) {
+							request.header(name, headers.get(name));
+						}
+						request.header(SHADOW_HEADER, "true");
+						int status = request.execute().getCode();
+						shadowMetrics.record(System.nanoTime() - start, status);
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		mirrored.incrementAndGet();
+		return true;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if (executor==null) {
+			final AtomicInteger count = new AtomicInteger(0);
+			executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maxPending), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "restfy-mirror-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, new ThreadPoolExecutor.AbortPolicy());
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	/**
+	 * @return requests queued for the shadow context
+	 */
+	public long getMirrored() {
+		return mirrored.get();
+	}
+
+	/**
+	 * @return sampled requests not mirrored because the queue was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return mirrored requests that got no response
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return latency of the primary requests that were mirrored
+	 */
+	public VersionMetrics getPrimaryMetrics() {
+		return primaryMetrics;
+	}
+
+	/**
+	 * @return latency of the mirrored requests, from the time they leave the queue
+	 */
+	public VersionMetrics getShadowMetrics() {
+		return shadowMetrics;
+	}
+
+	/**
+	 * @return time spent by the mirrored requests waiting for a thread
+	 */
+	public VersionMetrics getQueueMetrics() {
+		return queueMetrics;
+	}
+
+	/**
+	 * Stops the threads, a new request starts them again.
+	 */
+	public synchronized void shutdown() {
+		if (executor!=null)
+			executor.shutdownNow();
+		executor = null;
+	}
+
+	@Override
+	public String toString() {
+		return "shadow=" + shadowContextPath + " mirrored=" + getMirrored() + " dropped=" + getDropped() + " failures=" + getFailures()
+				+ "\nprimary " + primaryMetrics + "\nshadow " + shadowMetrics + "\nqueue " + queueMetrics;
+	}
+}
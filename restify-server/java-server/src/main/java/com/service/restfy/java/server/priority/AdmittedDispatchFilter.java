@@ -0,0 +1,48 @@
+package com.service.restfy.java.server.priority;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * Runs a filter mapped for the asynchronous dispatches only when the dispatch resumes a request
+ * admitted by the {@link PriorityFilter}, the other asynchronous dispatches already went through
+ * the filter with their request.
+ */
+public class AdmittedDispatchFilter implements Filter {
+	private Filter filter = null;
+
+	public AdmittedDispatchFilter(Filter filter) {
+		super();
+		this.filter = filter;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		filter.init(filterConfig);
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (request.getDispatcherType()==DispatcherType.ASYNC && request.getAttribute(PriorityFilter.ADMITTED_ATTRIBUTE)==null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		filter.doFilter(request, response, chain);
+	}
+
+	@Override
+	public void destroy() {
+		filter.destroy();
+	}
+}
@@ -0,0 +1,129 @@
+package com.service.restfy.java.server.priority;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Admits the requests through a {@link PriorityScheduler}. A request that cannot execute now is
+ * suspended and dispatched again once admitted, a request waiting longer than the scheduler
+ * maximum wait, or arriving on a full queue, is refused with a 503 status. The admitted dispatch
+ * carries the {@link #ADMITTED_ATTRIBUTE} until it returns, so the other filters run for it
+ * and not for the other asynchronous dispatches ({@link AdmittedDispatchFilter}).
+ */
+public class PriorityFilter implements Filter {
+	public static final String ADMITTED_ATTRIBUTE = "com.service.restfy.java.server.priority.admitted";
+	/**
+	 * Set by a resource suspending its request for a long time, as a stream, so its slot is released
+	 * when the resource returns instead of when the request completes.
+	 */
+	public static final String DETACHED_ATTRIBUTE = "com.service.restfy.java.server.priority.detached";
+
+	private PriorityScheduler scheduler = null;
+
+	public PriorityFilter(PriorityScheduler scheduler) {
+		super();
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		if (request.getDispatcherType()==DispatcherType.ASYNC) {
+			if (request.getAttribute(ADMITTED_ATTRIBUTE)==null) {
+				chain.doFilter(request, response);
+				return;
+			}
+			try {
+				execute(request, response, chain);
+			} finally {
+				request.removeAttribute(ADMITTED_ATTRIBUTE);
+			}
+			return;
+		}
+		PriorityLane lane = scheduler.lane((HttpServletRequest)request);
+		if (scheduler.tryAdmit(lane)) {
+			execute(request, response, chain);
+			return;
+		}
+		final AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(scheduler.getMaxWait());
+		final PriorityScheduler.Waiting[] entry = new PriorityScheduler.Waiting[1];
+		asyncContext.addListener(new AsyncListener() {
+			public void onTimeout(AsyncEvent event) throws IOException {
+				if (entry[0]!=null && scheduler.expire(entry[0]))
+					refuse(asyncContext);
+			}
+
+			public void onStartAsync(AsyncEvent event) throws IOException {
+			}
+
+			public void onError(AsyncEvent event) throws IOException {
+				if (entry[0]!=null)
+					scheduler.expire(entry[0]);
+			}
+
+			public void onComplete(AsyncEvent event) throws IOException {
+			}
+		});
+		entry[0] = scheduler.enqueue(asyncContext, lane);
+		if (entry[0]==null)
+			refuse(asyncContext);
+	}
+
+	private void execute(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		boolean released = false;
+		try {
+			chain.doFilter(request, response);
+			if (request.isAsyncStarted() && request.getAttribute(DETACHED_ATTRIBUTE)==null) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					public void onTimeout(AsyncEvent event) throws IOException {
+					}
+
+					public void onStartAsync(AsyncEvent event) throws IOException {
+					}
+
+					public void onError(AsyncEvent event) throws IOException {
+					}
+
+					public void onComplete(AsyncEvent event) throws IOException {
+						scheduler.release();
+					}
+				});
+				released = true;
+			}
+		} finally {
+			if (!released)
+				scheduler.release();
+		}
+	}
+
+	private static void refuse(AsyncContext asyncContext) throws IOException {
+		HttpServletResponse response = (HttpServletResponse)asyncContext.getResponse();
+		if (!response.isCommitted())
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy");
+		asyncContext.complete();
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
@@ -0,0 +1,112 @@
+package com.service.restfy.java.server.priority;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class of requests of a {@link PriorityScheduler}, the queued requests of the lanes of higher
+ * priority are admitted first.
+ */
+public class PriorityLane {
+	private String name;
+	private int priority;
+	private AtomicInteger queued = new AtomicInteger(0);
+	private AtomicInteger maxQueued = new AtomicInteger(0);
+	private AtomicLong admitted = new AtomicLong(0L);
+	private AtomicLong delayed = new AtomicLong(0L);
+	private AtomicLong rejected = new AtomicLong(0L);
+	private AtomicLong waitNanosTotal = new AtomicLong(0L);
+	private AtomicLong waitNanosMax = new AtomicLong(0L);
+
+	public PriorityLane(String name, int priority) {
+		super();
+		this.name = name;
+		this.priority = priority;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	void enqueued() {
+		int depth = queued.incrementAndGet();
+		int max = maxQueued.get();
+		while (depth>max && !maxQueued.compareAndSet(max, depth)) {
+			max = maxQueued.get();
+		}
+	}
+
+	void dequeued(long waitNanos, boolean admitted) {
+		queued.decrementAndGet();
+		if (admitted) {
+			this.admitted.incrementAndGet();
+			delayed.incrementAndGet();
+		}
+		else {
+			rejected.incrementAndGet();
+		}
+		waitNanosTotal.addAndGet(waitNanos);
+		long max = waitNanosMax.get();
+		while (waitNanos>max && !waitNanosMax.compareAndSet(max, waitNanos)) {
+			max = waitNanosMax.get();
+		}
+	}
+
+	void admittedImmediately() {
+		admitted.incrementAndGet();
+	}
+
+	void rejectedImmediately() {
+		rejected.incrementAndGet();
+	}
+
+	/**
+	 * @return requests currently waiting for admission
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	public int getMaxQueued() {
+		return maxQueued.get();
+	}
+
+	public long getAdmitted() {
+		return admitted.get();
+	}
+
+	/**
+	 * @return admitted requests that waited in the queue
+	 */
+	public long getDelayed() {
+		return delayed.get();
+	}
+
+	/**
+	 * @return requests refused because the queue was full or their wait timed out
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	public long getWaitTimeTotal() {
+		return TimeUnit.NANOSECONDS.toMillis(waitNanosTotal.get());
+	}
+
+	public long getWaitTimeMax() {
+		return TimeUnit.NANOSECONDS.toMillis(waitNanosMax.get());
+	}
+
+	@Override
+	public String toString() {
+		long waits = delayed.get() + rejected.get();
+		return name + " priority=" + priority + " queued=" + queued.get() + " maxQueued=" + maxQueued.get()
+				+ " admitted=" + admitted.get() + " delayed=" + delayed.get() + " rejected=" + rejected.get()
+				+ " waitAvg=" + (waits>0 ? TimeUnit.NANOSECONDS.toMillis(waitNanosTotal.get() / waits) : 0L) + " waitMax=" + getWaitTimeMax();
+	}
+}
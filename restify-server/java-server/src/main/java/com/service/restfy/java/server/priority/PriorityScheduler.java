@@ -0,0 +1,256 @@
+package com.service.restfy.java.server.priority;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Limits the requests executed at the same time by the server and admits the waiting ones by the
+ * priority of their lane, then in arrival order. The lane of a request is given by the first
+ * matching header rule, then by its context, then it is the {@link #DEFAULT_LANE}. Waiting requests
+ * are suspended, so they do not hold a thread of the server pool.
+ */
+public class PriorityScheduler {
+	public static final String DEFAULT_LANE = "default";
+	public static final int DEFAULT_MAX_QUEUED = 1000;
+	public static final long DEFAULT_MAX_WAIT = 10000L;
+
+	private int maxConcurrent;
+	private int maxQueued = DEFAULT_MAX_QUEUED;
+	private long maxWait = DEFAULT_MAX_WAIT;
+	private Map<String, PriorityLane> lanes = new LinkedHashMap<String, PriorityLane>(0);
+	private Map<String, PriorityLane> contextLanes = new LinkedHashMap<String, PriorityLane>(0);
+	private List<HeaderRule> headerRules = new ArrayList<HeaderRule>(0);
+	private PriorityQueue<Waiting> waiting = new PriorityQueue<Waiting>();
+	private int running = 0;
+	private long sequence = 0L;
+
+	private static class HeaderRule {
+		private String header;
+		private String value;
+		private PriorityLane lane;
+	}
+
+	static class Waiting implements Comparable<Waiting> {
+		final AsyncContext asyncContext;
+		final PriorityLane lane;
+		final long sequence;
+		final long enqueued = System.nanoTime();
+
+		Waiting(AsyncContext asyncContext, PriorityLane lane, long sequence) {
+			this.asyncContext = asyncContext;
+			this.lane = lane;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Waiting other) {
+			if (lane.getPriority()!=other.lane.getPriority())
+				return lane.getPriority()>other.lane.getPriority() ? -1 : 1;
+			return sequence<other.sequence ? -1 : (sequence==other.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * @param maxConcurrent requests executed at the same time, the other ones wait for admission
+	 */
+	public PriorityScheduler(int maxConcurrent) {
+		super();
+		if (maxConcurrent<=0)
+			throw new IllegalArgumentException("Priority concurrency must be positive");
+		this.maxConcurrent = maxConcurrent;
+		addLane(DEFAULT_LANE, 0);
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	/**
+	 * Requests arriving when this many requests wait are refused.
+	 */
+	public void setMaxQueued(int maxQueued) {
+		this.maxQueued = maxQueued;
+	}
+
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Milliseconds a request can wait for admission before it is refused.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Adds or replaces a lane, the lanes of higher priority are admitted first.
+	 */
+	public synchronized PriorityLane addLane(String name, int priority) {
+		PriorityLane lane = new PriorityLane(name, priority);
+		lanes.put(name, lane);
+		return lane;
+	}
+
+	public synchronized PriorityLane getLane(String name) {
+		return lanes.get(name);
+	}
+
+	public synchronized List<PriorityLane> getLanes() {
+		return new ArrayList<PriorityLane>(lanes.values());
+	}
+
+	/**
+	 * Assigns the requests of a context to a lane.
+	 * @param contextPath context path in the server form, for instance /orders/*
+	 */
+	public synchronized void assignContext(String contextPath, String laneName) {
+		contextLanes.put(contextPath, requireLane(laneName));
+	}
+
+	/**
+	 * Assigns the requests having a header to a lane, the rules are checked in the order they are added.
+	 * @param value value of the header, null to match any value
+	 */
+	public synchronized void assignHeader(String header, String value, String laneName) {
+		HeaderRule rule = new HeaderRule();
+		rule.header = header;
+		rule.value = value;
+		rule.lane = requireLane(laneName);
+		headerRules.add(rule);
+	}
+
+	/**
+	 * Adds lanes described as <i>name:priority:assignments</i> separated by semicolons, the
+	 * assignments are separated by commas and are context paths starting with a slash, or header
+	 * rules <i>Header=value</i>, or <i>Header</i> for any value. For instance
+	 * <i>critical:10:/admin,X-Priority=high;bulk:-10:/batch</i>.
+	 */
+	public void configure(String lanesSpec) {
+		for(String laneSpec: lanesSpec.split(";")) {
+			if (laneSpec.trim().length()==0)
+				continue;
+			String[] parts = laneSpec.trim().split(":", 3);
+			if (parts.length<2)
+				throw new IllegalArgumentException("Priority lane " + laneSpec + " must be name:priority[:assignments]");
+			String name = parts[0].trim();
+			addLane(name, Integer.parseInt(parts[1].trim()));
+			if (parts.length<3)
+				continue;
+			for(String assignment: parts[2].split(",")) {
+				assignment = assignment.trim();
+				if (assignment.length()==0)
+					continue;
+				if (assignment.startsWith("/")) {
+					assignContext(assignment.endsWith("/*") ? assignment : assignment + "/*", name);
+				}
+				else {
+					int equals = assignment.indexOf('=');
+					assignHeader(equals>=0 ? assignment.substring(0, equals).trim() : assignment,
+							equals>=0 ? assignment.substring(equals + 1).trim() : null, name);
+				}
+			}
+		}
+	}
+
+	private PriorityLane requireLane(String laneName) {
+		PriorityLane lane = lanes.get(laneName);
+		if (lane==null)
+			throw new IllegalArgumentException("Unknown priority lane " + laneName);
+		return lane;
+	}
+
+	public synchronized PriorityLane lane(HttpServletRequest request) {
+		for(HeaderRule rule: headerRules) {
+			String value = request.getHeader(rule.header);
+			if (value!=null && (rule.value==null || rule.value.equalsIgnoreCase(value.trim())))
+				return rule.lane;
+		}
+		PriorityLane lane = contextLanes.get(request.getServletPath() + "/*");
+		return lane!=null ? lane : lanes.get(DEFAULT_LANE);
+	}
+
+	/**
+	 * @return true if the request can execute now, it must then {@link #release()} when it completes
+	 */
+	synchronized boolean tryAdmit(PriorityLane lane) {
+		if (running<maxConcurrent && waiting.isEmpty()) {
+			running++;
+			lane.admittedImmediately();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the queued request, null if the queue is full
+	 */
+	synchronized Waiting enqueue(AsyncContext asyncContext, PriorityLane lane) {
+		if (waiting.size()>=maxQueued) {
+			lane.rejectedImmediately();
+			return null;
+		}
+		Waiting entry = new Waiting(asyncContext, lane, sequence++);
+		waiting.add(entry);
+		lane.enqueued();
+		if (running<maxConcurrent)
+			admitNext();
+		return entry;
+	}
+
+	/**
+	 * @return true if the request was still waiting, it is then refused
+	 */
+	synchronized boolean expire(Waiting entry) {
+		if (!waiting.remove(entry))
+			return false;
+		entry.lane.dequeued(System.nanoTime() - entry.enqueued, false);
+		return true;
+	}
+
+	/**
+	 * Ends an admitted request and resumes the first waiting one.
+	 */
+	synchronized void release() {
+		running--;
+		admitNext();
+	}
+
+	private void admitNext() {
+		Waiting next = waiting.poll();
+		if (next==null)
+			return;
+		running++;
+		next.lane.dequeued(System.nanoTime() - next.enqueued, true);
+		next.asyncContext.getRequest().setAttribute(PriorityFilter.ADMITTED_ATTRIBUTE, Boolean.TRUE);
+		next.asyncContext.dispatch();
+	}
+
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	public synchronized int getQueued() {
+		return waiting.size();
+	}
+
+	public synchronized String format() {
+		StringBuilder lines = new StringBuilder();
+		lines.append("running=").append(running).append(" maxConcurrent=").append(maxConcurrent)
+			.append(" queued=").append(waiting.size()).append(" maxQueued=").append(maxQueued).append('\n');
+		for(PriorityLane lane: lanes.values()) {
+			lines.append(lane).append('\n');
+		}
+		return lines.toString();
+	}
+}
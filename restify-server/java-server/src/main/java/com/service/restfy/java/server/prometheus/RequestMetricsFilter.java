@@ -0,0 +1,75 @@
+package com.service.restfy.java.server.prometheus;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the latency and the status of the requests in the {@link ServerMetrics}, by deployed context.
+ */
+public class RequestMetricsFilter implements Filter {
+	private ServerMetrics metrics = null;
+
+	public RequestMetricsFilter(ServerMetrics metrics) {
+		super();
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (request.getDispatcherType()!=DispatcherType.REQUEST) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		final HttpServletResponse httpResponse = (HttpServletResponse)response;
+		final String context = metrics.getContext(httpRequest.getContextPath() + httpRequest.getServletPath());
+		final long start = System.nanoTime();
+		boolean async = false;
+		boolean failed = false;
+		try {
+			chain.doFilter(request, response);
+			async = request.isAsyncStarted();
+			if (async) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					public void onComplete(AsyncEvent event) {
+						metrics.record(context, System.nanoTime() - start, httpResponse.getStatus());
+					}
+
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					public void onError(AsyncEvent event) {
+					}
+
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			}
+		} catch (Throwable e) {
+			failed = true;
+			throw e;
+		} finally {
+			if (!async)
+				metrics.record(context, System.nanoTime() - start, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus());
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
@@ -0,0 +1,119 @@
+package com.service.restfy.java.server.prometheus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.metrics.Counter;
+import com.service.restfy.metrics.Gauge;
+import com.service.restfy.metrics.Histogram;
+import com.service.restfy.metrics.MetricsRegistry;
+
+/**
+ * Metrics of a server in a {@link MetricsRegistry}, labelled by the server port. The request
+ * latencies and responses are recorded by the {@link RequestMetricsFilter}, the server and
+ * per-context statistics are copied into gauges when the registry is scraped.
+ */
+public class ServerMetrics implements MetricsRegistry.Collector {
+	public static final String REQUEST_DURATION = "restfy_request_duration_seconds";
+	public static final String RESPONSES = "restfy_responses_total";
+	public static final String SERVER_PREFIX = "restfy_server_";
+	public static final String CONTEXT_PREFIX = "restfy_context_";
+	private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+	private RestfyJavaServer server;
+	private MetricsRegistry registry;
+	private String port;
+	private Histogram duration;
+	private Counter responses;
+	private ConcurrentMap<String, Histogram.Child> durations = new ConcurrentHashMap<String, Histogram.Child>();
+	private ConcurrentMap<String, Counter.Child[]> statuses = new ConcurrentHashMap<String, Counter.Child[]>();
+	private ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+	public ServerMetrics(RestfyJavaServer server, MetricsRegistry registry) {
+		super();
+		this.server = server;
+		this.registry = registry;
+		this.port = String.valueOf(server.getPort());
+		this.duration = registry.histogram(REQUEST_DURATION, "Time to serve the requests of a context.", Histogram.DEFAULT_BUCKETS, "port", "context");
+		this.responses = registry.counter(RESPONSES, "Responses of a context by status class.", "port", "context", "status");
+	}
+
+	public MetricsRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * @return the deployed context serving a request path, {@link RestfyJavaServer#UNKNOWN_CONTEXT} if
+	 * none does, so the requests to unknown paths share one series
+	 */
+	public String getContext(String path) {
+		String context = server.getDeployedContext(path);
+		return context!=null ? context : RestfyJavaServer.UNKNOWN_CONTEXT;
+	}
+
+	public void record(String context, long nanos, int status) {
+		Histogram.Child child = durations.get(context);
+		if (child==null) {
+			child = duration.labels(port, context);
+			durations.put(context, child);
+		}
+		child.observeNanos(nanos);
+		Counter.Child[] counters = statuses.get(context);
+		if (counters==null) {
+			counters = new Counter.Child[STATUS_CLASSES.length];
+			for(int i=0; i<counters.length; i++) {
+				counters[i] = responses.labels(port, context, STATUS_CLASSES[i]);
+			}
+			statuses.put(context, counters);
+		}
+		int statusClass = status / 100 - 1;
+		if (statusClass>=0 && statusClass<counters.length)
+			counters[statusClass].inc();
+	}
+
+	@Override
+	public void collect(MetricsRegistry registry) {
+		for(Map.Entry<String, Long> entry: server.getStatistics().entrySet()) {
+			gauge(SERVER_PREFIX, entry.getKey(), "port").labels(port).set(entry.getValue());
+		}
+		for(Map.Entry<String, Map<String, Long>> context: server.getContextStatistics().entrySet()) {
+			for(Map.Entry<String, Long> entry: context.getValue().entrySet()) {
+				gauge(CONTEXT_PREFIX, entry.getKey(), "port", "context").labels(port, context.getKey()).set(entry.getValue());
+			}
+		}
+	}
+
+	private Gauge gauge(String prefix, String statistic, String... labelNames) {
+		String key = prefix + statistic;
+		Gauge gauge = gauges.get(key);
+		if (gauge==null) {
+			gauge = registry.gauge(prefix + snakeCase(statistic), "Server statistic " + statistic + ".", labelNames);
+			gauges.put(key, gauge);
+		}
+		return gauge;
+	}
+
+	/**
+	 * @return the statistic name in the Prometheus naming style, requestTimeMax becomes request_time_max
+	 */
+	static String snakeCase(String name) {
+		StringBuilder snake = new StringBuilder(name.length() + 8);
+		for(int i=0; i<name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.isUpperCase(c)) {
+				if (i>0)
+					snake.append('_');
+				snake.append(Character.toLowerCase(c));
+			}
+			else if (Character.isLetterOrDigit(c)) {
+				snake.append(c);
+			}
+			else {
+				snake.append('_');
+			}
+		}
+		return snake.toString();
+	}
+}
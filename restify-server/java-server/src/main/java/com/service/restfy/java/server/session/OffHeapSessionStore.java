@@ -0,0 +1,192 @@
+package com.service.restfy.java.server.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size-bounded {@link SessionStore} keeping the serialized sessions outside the Java heap, in a
+ * direct buffer or in a memory-mapped file. The buffer is split in fixed-size blocks, a session
+ * takes as many blocks as it needs and the least recently used sessions are evicted when the
+ * buffer is full. Only the block index is kept on the heap.
+ */
+public class OffHeapSessionStore implements SessionStore {
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private ByteBuffer buffer = null;
+	private int blockSize = DEFAULT_BLOCK_SIZE;
+	private int blocks = 0;
+	private int[] freeBlocks = null;
+	private int free = 0;
+	private long used = 0L;
+	private long evictions = 0L;
+	private Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private static class Entry {
+		private int[] blocks;
+		private int length;
+		private long expiryTime;
+	}
+
+	/**
+	 * Store in a direct buffer of the given capacity in bytes.
+	 */
+	public OffHeapSessionStore(int capacity) {
+		this(capacity, DEFAULT_BLOCK_SIZE);
+	}
+
+	public OffHeapSessionStore(int capacity, int blockSize) {
+		this(ByteBuffer.allocateDirect(capacity), blockSize);
+	}
+
+	/**
+	 * Store in a file mapped in memory, sized to the given capacity in bytes. The file only backs
+	 * the buffer, its content is not reloaded by a new store.
+	 */
+	public OffHeapSessionStore(File file, int capacity, int blockSize) throws IOException {
+		this(mapFile(file, capacity), blockSize);
+	}
+
+	protected OffHeapSessionStore(ByteBuffer buffer, int blockSize) {
+		super();
+		if (blockSize<=0 || buffer.capacity()<blockSize)
+			throw new IllegalArgumentException("Store capacity must be at least one block of " + blockSize + " bytes");
+		this.buffer = buffer;
+		this.blockSize = blockSize;
+		this.blocks = buffer.capacity() / blockSize;
+		this.freeBlocks = new int[blocks];
+		for(int i=0; i<blocks; i++) {
+			freeBlocks[i] = blocks - i - 1;
+		}
+		this.free = blocks;
+	}
+
+	private static ByteBuffer mapFile(File file, int capacity) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	@Override
+	public synchronized boolean store(String id, byte[] data, long expiryTime) {
+		int needed = (data.length + blockSize - 1) / blockSize;
+		if (needed>blocks)
+			return false;
+		Entry previous = entries.remove(id);
+		if (previous!=null)
+			release(previous);
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (free<needed && eldest.hasNext()) {
+			Entry evicted = eldest.next();
+			eldest.remove();
+			release(evicted);
+			evictions++;
+		}
+		Entry entry = new Entry();
+		entry.blocks = new int[needed];
+		entry.length = data.length;
+		entry.expiryTime = expiryTime;
+		for(int i=0; i<needed; i++) {
+			int block = freeBlocks[--free];
+			entry.blocks[i] = block;
+			buffer.position(block * blockSize);
+			buffer.put(data, i * blockSize, Math.min(blockSize, data.length - i * blockSize));
+		}
+		used += data.length;
+		entries.put(id, entry);
+		return true;
+	}
+
+	@Override
+	public synchronized byte[] load(String id) {
+		Entry entry = entries.get(id);
+		if (entry==null)
+			return null;
+		byte[] data = new byte[entry.length];
+		for(int i=0; i<entry.blocks.length; i++) {
+			buffer.position(entry.blocks[i] * blockSize);
+			buffer.get(data, i * blockSize, Math.min(blockSize, data.length - i * blockSize));
+		}
+		return data;
+	}
+
+	@Override
+	public synchronized boolean remove(String id) {
+		Entry entry = entries.remove(id);
+		if (entry==null)
+			return false;
+		release(entry);
+		return true;
+	}
+
+	private void release(Entry entry) {
+		for(int block: entry.blocks) {
+			freeBlocks[free++] = block;
+		}
+		used -= entry.length;
+	}
+
+	@Override
+	public synchronized List<String> getExpiredIds(long time) {
+		List<String> expired = new ArrayList<String>(0);
+		for(Map.Entry<String, Entry> entry: entries.entrySet()) {
+			long expiryTime = entry.getValue().expiryTime;
+			if (expiryTime>0 && expiryTime<time)
+				expired.add(entry.getKey());
+		}
+		return expired;
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized long getUsedBytes() {
+		return used;
+	}
+
+	@Override
+	public long getCapacity() {
+		return (long)blocks * blockSize;
+	}
+
+	@Override
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	@Override
+	public synchronized void clear() {
+		for(Entry entry: entries.values()) {
+			release(entry);
+		}
+		entries.clear();
+	}
+
+	@Override
+	public synchronized void close() {
+		clear();
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapSessionStore [sessions=" + size() + ", usedBytes=" + getUsedBytes()
+				+ ", capacity=" + getCapacity() + ", evictions=" + getEvictions() + "]";
+	}
+}
@@ -0,0 +1,47 @@
+package com.service.restfy.java.server.session;
+
+import java.util.List;
+
+/**
+ * Storage of the serialized sessions of a {@link StoreSessionManager}. A store is owned by the
+ * server and shared by all the handler tree generations, so sessions survive a reload.
+ */
+public interface SessionStore {
+
+	/**
+	 * Stores the serialized session, replacing the previous one with the same id.
+	 * @param expiryTime time in milliseconds after which the session is expired, 0 or less for never
+	 * @return false if the session could not be stored, for instance because it exceeds the store capacity
+	 */
+	boolean store(String id, byte[] data, long expiryTime);
+
+	/**
+	 * @return the serialized session or null if it is not in the store, or has been evicted
+	 */
+	byte[] load(String id);
+
+	boolean remove(String id);
+
+	/**
+	 * @return ids of the stored sessions expired at the given time
+	 */
+	List<String> getExpiredIds(long time);
+
+	int size();
+
+	/**
+	 * @return bytes of the store used by the sessions
+	 */
+	long getUsedBytes();
+
+	long getCapacity();
+
+	/**
+	 * @return sessions evicted to make room for new ones
+	 */
+	long getEvictions();
+
+	void clear();
+
+	void close();
+}
@@ -0,0 +1,91 @@
+package com.service.restfy.java.server.session;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.server.session.MemSession;
+
+/**
+ * Session of a {@link StoreSessionManager}, kept on the heap only while requests are using it.
+ */
+public class StoreSession extends MemSession {
+	private StoreSessionManager storeManager = null;
+	private int reservations = 0;
+	private boolean evicted = false;
+
+	protected StoreSession(StoreSessionManager manager, HttpServletRequest request) {
+		super(manager, request);
+		this.storeManager = manager;
+	}
+
+	protected StoreSession(StoreSessionManager manager, long created, long accessed, String clusterId) {
+		super(manager, created, accessed, clusterId);
+		this.storeManager = manager;
+	}
+
+	/**
+	 * Reserves the session for a request that found it by id and has not accessed it yet, so it is
+	 * not passivated in between.
+	 * @return false if the session was already passivated and dropped from the heap
+	 */
+	protected synchronized boolean reserve() {
+		if (evicted)
+			return false;
+		reservations++;
+		return true;
+	}
+
+	@Override
+	protected boolean access(long time) {
+		synchronized (this) {
+			if (reservations>0)
+				reservations--;
+			return super.access(time);
+		}
+	}
+
+	@Override
+	protected void complete() {
+		synchronized (this) {
+			super.complete();
+			if (isValid())
+				storeManager.passivate(this);
+		}
+	}
+
+	/**
+	 * @return true if no request is using the session or about to use it
+	 */
+	protected synchronized boolean isIdle() {
+		return getRequests()<=0 && reservations<=0;
+	}
+
+	protected synchronized boolean isEvicted() {
+		return evicted;
+	}
+
+	protected synchronized void setEvicted(boolean evicted) {
+		this.evicted = evicted;
+	}
+
+	@Override
+	protected void timeout() throws IllegalStateException {
+		super.timeout();
+	}
+
+	/**
+	 * @return time in milliseconds after which the session is expired, 0 if it never expires
+	 */
+	protected long getExpiryTime() {
+		return getMaxInactiveInterval()>0 ? getAccessed() + getMaxInactiveInterval() * 1000L : 0L;
+	}
+
+	protected boolean isExpired(long time) {
+		long expiryTime = getExpiryTime();
+		return expiryTime>0 && expiryTime<time;
+	}
+
+	protected void setIds(String clusterId, String nodeId) {
+		setClusterId(clusterId);
+		setNodeId(nodeId);
+	}
+}
@@ -0,0 +1,244 @@
+package com.service.restfy.java.server.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.server.session.AbstractSession;
+import org.eclipse.jetty.server.session.AbstractSessionManager;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session manager keeping on the heap only the sessions used by running requests. When its last
+ * request completes a session is serialized into the {@link SessionStore} and dropped from the heap,
+ * it is deserialized again by the next request using it. Sessions that cannot be serialized or
+ * exceed the store capacity stay on the heap.
+ */
+public class StoreSessionManager extends AbstractSessionManager {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	private SessionStore store = null;
+	private ConcurrentMap<String, StoreSession> sessions = new ConcurrentHashMap<String, StoreSession>();
+	private long scavengePeriod = 60000L;
+	private Timer scavenger = null;
+
+	public StoreSessionManager(SessionStore store) {
+		super();
+		this.store = store;
+	}
+
+	public SessionStore getStore() {
+		return store;
+	}
+
+	public long getScavengePeriod() {
+		return scavengePeriod;
+	}
+
+	/**
+	 * Period in milliseconds of the removal of the expired sessions.
+	 */
+	public void setScavengePeriod(long scavengePeriod) {
+		this.scavengePeriod = scavengePeriod;
+	}
+
+	/**
+	 * @return sessions currently kept on the heap
+	 */
+	public int getActiveSessions() {
+		return sessions.size();
+	}
+
+	@Override
+	public void doStart() throws Exception {
+		super.doStart();
+		scavenger = new Timer("restfy-session-scavenger", true);
+		scavenger.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				scavenge();
+			}
+		}, scavengePeriod, scavengePeriod);
+	}
+
+	@Override
+	public void doStop() throws Exception {
+		if (scavenger!=null)
+			scavenger.cancel();
+		scavenger = null;
+		super.doStop();
+	}
+
+	@Override
+	protected AbstractSession newSession(HttpServletRequest request) {
+		return new StoreSession(this, request);
+	}
+
+	@Override
+	protected void addSession(AbstractSession session) {
+		sessions.put(session.getClusterId(), (StoreSession)session);
+	}
+
+	/**
+	 * Finds the session of a request, reserved until the request accesses it. A session passivated
+	 * by a completing request while it was found is loaded again from the store.
+	 */
+	@Override
+	public AbstractSession getSession(String clusterId) {
+		while (true) {
+			StoreSession session = findSession(clusterId);
+			if (session==null || session.reserve())
+				return session;
+		}
+	}
+
+	private StoreSession findSession(String clusterId) {
+		StoreSession session = sessions.get(clusterId);
+		if (session!=null)
+			return session;
+		byte[] data = store.load(clusterId);
+		if (data==null)
+			return null;
+		try {
+			session = activate(clusterId, data);
+		} catch (Exception e) {
+			logger.warn("Jetty 2 Server session " + clusterId + " could not be loaded from the store", e);
+			store.remove(clusterId);
+			return null;
+		}
+		StoreSession current = sessions.putIfAbsent(clusterId, session);
+		if (current!=null)
+			return current;
+		if (session.isExpired(System.currentTimeMillis())) {
+			session.timeout();
+			return null;
+		}
+		return session;
+	}
+
+	@Override
+	protected boolean removeSession(String clusterId) {
+		boolean removed = sessions.remove(clusterId)!=null;
+		return store.remove(clusterId) || removed;
+	}
+
+	@Override
+	public void renewSessionId(String oldClusterId, String oldNodeId, String newClusterId, String newNodeId) {
+		StoreSession session = findSession(oldClusterId);
+		if (session!=null) {
+			sessions.remove(oldClusterId);
+			store.remove(oldClusterId);
+			session.setIds(newClusterId, newNodeId);
+			sessions.put(newClusterId, session);
+		}
+		super.renewSessionId(oldClusterId, oldNodeId, newClusterId, newNodeId);
+	}
+
+	/**
+	 * Stores the sessions still on the heap, they stay available to the next generation of the handler tree.
+	 */
+	@Override
+	protected void shutdownSessions() throws Exception {
+		for(StoreSession session: new ArrayList<StoreSession>(sessions.values())) {
+			synchronized (session) {
+				if (session.isValid() && !session.isEvicted())
+					evict(session);
+			}
+		}
+	}
+
+	/**
+	 * Stores and drops from the heap a session once no request is using it or about to use it.
+	 */
+	protected void passivate(StoreSession session) {
+		synchronized (session) {
+			if (session.isIdle() && !session.isEvicted())
+				evict(session);
+		}
+	}
+
+	private void evict(StoreSession session) {
+		session.willPassivate();
+		try {
+			byte[] data = serialize(session);
+			if (store.store(session.getClusterId(), data, session.getExpiryTime())) {
+				sessions.remove(session.getClusterId(), session);
+				session.setEvicted(true);
+				return;
+			}
+			logger.warn("Jetty 2 Server session " + session.getClusterId() + " of " + data.length + " bytes exceeds the store capacity, kept on the heap");
+		} catch (IOException e) {
+			logger.warn("Jetty 2 Server session " + session.getClusterId() + " could not be serialized, kept on the heap", e);
+		}
+		session.didActivate();
+	}
+
+	protected byte[] serialize(StoreSession session) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeLong(session.getCreationTime());
+		out.writeLong(session.getAccessed());
+		out.writeLong(session.getLastAccessedTime());
+		out.writeInt(session.getMaxInactiveInterval());
+		out.writeObject(new HashMap<String, Object>(session.getAttributeMap()));
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	protected StoreSession activate(String clusterId, byte[] data) throws IOException, ClassNotFoundException {
+		ClassLoadingObjectInputStream in = new ClassLoadingObjectInputStream(new ByteArrayInputStream(data));
+		try {
+			long created = in.readLong();
+			long accessed = in.readLong();
+			long lastAccessed = in.readLong();
+			int maxInactive = in.readInt();
+			Map<String, Object> attributes = (Map<String, Object>)in.readObject();
+			StoreSession session = new StoreSession(this, created, accessed, clusterId);
+			session.setLastAccessedTime(lastAccessed);
+			session.setMaxInactiveInterval(maxInactive);
+			session.addAttributes(attributes);
+			session.didActivate();
+			return session;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Times out the expired sessions of the store and the idle ones kept on the heap.
+	 */
+	protected void scavenge() {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		try {
+			if (_loader!=null)
+				thread.setContextClassLoader(_loader);
+			long now = System.currentTimeMillis();
+			for(String clusterId: store.getExpiredIds(now)) {
+				if (!sessions.containsKey(clusterId))
+					findSession(clusterId);
+			}
+			for(StoreSession session: new ArrayList<StoreSession>(sessions.values())) {
+				if (session.isIdle() && session.isExpired(now))
+					session.timeout();
+			}
+		} catch (Throwable e) {
+			logger.warn("Jetty 2 Server session scavenging failed", e);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+}
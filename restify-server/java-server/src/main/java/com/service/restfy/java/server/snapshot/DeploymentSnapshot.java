@@ -0,0 +1,295 @@
+package com.service.restfy.java.server.snapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.ContextDeployment;
+import com.service.restfy.java.server.DeployType;
+
+/**
+ * Resolved deployment state of a server, written to a file so the next start skips the class
+ * validation of the jars and the discovery of their resource classes. An entry is trusted only
+ * while the SHA-256 checksum of its artifact is unchanged, a changed artifact is validated again.
+ * <p>
+ * The snapshot keeps for each artifact its context, checksum, validated class names, service
+ * properties and resource index (the {@link javax.ws.rs.Path} of each class).
+ */
+public class DeploymentSnapshot {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	public static final int FORMAT_VERSION = 1;
+
+	private File file = null;
+	private Map<String, SnapshotEntry> entries = new LinkedHashMap<String, SnapshotEntry>(0);
+	private Map<String, String> config = new LinkedHashMap<String, String>(0);
+	private Set<String> verified = new HashSet<String>(0);
+	private Set<String> recorded = new HashSet<String>(0);
+	private AtomicLong hits = new AtomicLong(0L);
+	private AtomicLong misses = new AtomicLong(0L);
+
+	/**
+	 * @param file snapshot file, read if it exists
+	 */
+	public DeploymentSnapshot(File file) {
+		super();
+		this.file = file;
+		if (file.isFile()) {
+			try {
+				read();
+			} catch (Exception e) {
+				entries.clear();
+				config.clear();
+				logger.warn("Jetty 2 Server deployment snapshot " + file + " ignored : " + e.getMessage());
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return validated class names of a jar, null if the jar or the requested classes changed since the snapshot
+	 */
+	public synchronized String getVerifiedClassNames(File artifact, String classNames) {
+		SnapshotEntry entry = entries.get(artifact.getAbsolutePath());
+		if (entry!=null && (classNames==null || classNames.equals(entry.getClassNames())) && checksumMatches(entry, artifact)) {
+			verified.add(entry.getReference());
+			hits.incrementAndGet();
+			return entry.getClassNames();
+		}
+		verified.remove(artifact.getAbsolutePath());
+		misses.incrementAndGet();
+		return null;
+	}
+
+	private static boolean checksumMatches(SnapshotEntry entry, File artifact) {
+		try {
+			return entry.getChecksum().equals(checksum(artifact));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Records a validated deployment, the classes are those of the server class path when the deployment has no class loader.
+	 * A deployment trusted by {@link #getVerifiedClassNames(File, String)} only refreshes the context and
+	 * service properties of its entry, without hashing its artifact or resolving its classes again.
+	 */
+	public synchronized void record(ContextDeployment deployment) throws IOException {
+		if (deployment.getReference()==null || deployment.getClassNames()==null)
+			return;
+		File artifact = new File(deployment.getReference());
+		recorded.add(artifact.getAbsolutePath());
+		SnapshotEntry previous = entries.get(artifact.getAbsolutePath());
+		if (previous!=null && verified.contains(previous.getReference()) && previous.getClassNames().equals(deployment.getClassNames())) {
+			previous.setContextPath(deployment.getContextPath());
+			previous.getServiceProperties().clear();
+			previous.getServiceProperties().putAll(deployment.getServiceProperties());
+			return;
+		}
+		SnapshotEntry entry = new SnapshotEntry(deployment.getContextPath(), deployment.getType(), artifact.getAbsolutePath(), checksum(artifact), deployment.getClassNames());
+		entry.getServiceProperties().putAll(deployment.getServiceProperties());
+		ClassLoader classLoader = deployment.getClassLoader()!=null ? deployment.getClassLoader() : DeploymentSnapshot.class.getClassLoader();
+		for(String className: deployment.getClassNames().split(",")) {
+			if (className.trim().length()==0)
+				continue;
+			try {
+				javax.ws.rs.Path path = Class.forName(className.trim(), false, classLoader).getAnnotation(javax.ws.rs.Path.class);
+				entry.getResources().put(className.trim(), path!=null ? path.value() : "");
+			} catch (ClassNotFoundException e) {
+				entry.getResources().put(className.trim(), "");
+			}
+		}
+		entries.put(entry.getReference(), entry);
+		verified.remove(entry.getReference());
+	}
+
+	public synchronized void remove(String reference) {
+		if (reference!=null) {
+			entries.remove(new File(reference).getAbsolutePath());
+			verified.remove(new File(reference).getAbsolutePath());
+			recorded.remove(new File(reference).getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Drops the entries read from the file that were not recorded since, their artifacts are no longer deployed.
+	 */
+	public synchronized void retainRecorded() {
+		entries.keySet().retainAll(recorded);
+		verified.retainAll(recorded);
+	}
+
+	/**
+	 * Server settings saved with the deployments, they are informative.
+	 */
+	public synchronized void setConfig(String name, String value) {
+		config.put(name, value);
+	}
+
+	public synchronized Map<String, String> getConfig() {
+		return new LinkedHashMap<String, String>(config);
+	}
+
+	public synchronized List<SnapshotEntry> getEntries() {
+		return new ArrayList<SnapshotEntry>(entries.values());
+	}
+
+	/**
+	 * @return jars trusted from the snapshot without validation
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return jars validated because they are not in the snapshot or changed
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file moved over the previous one, a failed write keeps the previous snapshot.
+	 */
+	public synchronized void save() throws IOException {
+		JsonArrayBuilder array = Json.createArrayBuilder();
+		for(SnapshotEntry entry: entries.values()) {
+			JsonObjectBuilder properties = Json.createObjectBuilder();
+			for(Map.Entry<String, String> property: entry.getServiceProperties().entrySet()) {
+				properties.add(property.getKey(), property.getValue());
+			}
+			JsonObjectBuilder resources = Json.createObjectBuilder();
+			for(Map.Entry<String, String> resource: entry.getResources().entrySet()) {
+				resources.add(resource.getKey(), resource.getValue());
+			}
+			array.add(Json.createObjectBuilder()
+					.add("context", entry.getContextPath())
+					.add("type", entry.getType().name())
+					.add("reference", entry.getReference())
+					.add("checksum", entry.getChecksum())
+					.add("classNames", entry.getClassNames())
+					.add("properties", properties)
+					.add("resources", resources));
+		}
+		JsonObjectBuilder configuration = Json.createObjectBuilder();
+		for(Map.Entry<String, String> setting: config.entrySet()) {
+			configuration.add(setting.getKey(), setting.getValue());
+		}
+		JsonObject root = Json.createObjectBuilder()
+				.add("version", FORMAT_VERSION)
+				.add("config", configuration)
+				.add("deployments", array)
+				.build();
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent!=null && !parent.exists())
+			parent.mkdirs();
+		File temporary = new File(file.getAbsolutePath() + ".tmp");
+		OutputStream output = new FileOutputStream(temporary);
+		try {
+			JsonWriter writer = Json.createWriter(output);
+			writer.writeObject(root);
+			writer.close();
+		} finally {
+			output.close();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private void read() throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			JsonReader reader = Json.createReader(input);
+			JsonObject root = reader.readObject();
+			reader.close();
+			if (root.getInt("version", 0)!=FORMAT_VERSION)
+				throw new IOException("unsupported snapshot version " + root.getInt("version", 0));
+			JsonObject configuration = root.getJsonObject("config");
+			if (configuration!=null) {
+				for(String name: configuration.keySet()) {
+					config.put(name, configuration.getString(name));
+				}
+			}
+			for(JsonValue value: root.getJsonArray("deployments")) {
+				JsonObject object = (JsonObject)value;
+				SnapshotEntry entry = new SnapshotEntry(object.getString("context"), DeployType.valueOf(object.getString("type")),
+						object.getString("reference"), object.getString("checksum"), object.getString("classNames"));
+				JsonObject properties = object.getJsonObject("properties");
+				for(String name: properties.keySet()) {
+					entry.getServiceProperties().put(name, properties.getString(name));
+				}
+				JsonObject resources = object.getJsonObject("resources");
+				for(String name: resources.keySet()) {
+					entry.getResources().put(name, resources.getString(name));
+				}
+				entries.put(entry.getReference(), entry);
+			}
+		} catch (JsonException e) {
+			throw new IOException(e.getMessage(), e);
+		} catch (RuntimeException e) {
+			throw new IOException("malformed snapshot : " + e, e);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * @return hexadecimal SHA-256 of the file content
+	 */
+	public static String checksum(File artifact) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		InputStream input = new FileInputStream(artifact);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer))>0) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			input.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for(byte b: digest.digest()) {
+			hex.append(String.format("%02x", b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "file=" + file + " entries=" + entries.size() + " hits=" + hits.get() + " misses=" + misses.get();
+	}
+}
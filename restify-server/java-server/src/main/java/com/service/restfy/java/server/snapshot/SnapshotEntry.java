@@ -0,0 +1,70 @@
+package com.service.restfy.java.server.snapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.service.restfy.java.server.DeployType;
+
+/**
+ * Validated artifact of a {@link DeploymentSnapshot}.
+ */
+public class SnapshotEntry {
+	private String contextPath;
+	private DeployType type;
+	private String reference;
+	private String checksum;
+	private String classNames;
+	private Map<String, String> serviceProperties = new LinkedHashMap<String, String>(0);
+	private Map<String, String> resources = new LinkedHashMap<String, String>(0);
+
+	public SnapshotEntry(String contextPath, DeployType type, String reference, String checksum, String classNames) {
+		super();
+		this.contextPath = contextPath;
+		this.type = type;
+		this.reference = reference;
+		this.checksum = checksum;
+		this.classNames = classNames;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	public void setContextPath(String contextPath) {
+		this.contextPath = contextPath;
+	}
+
+	public DeployType getType() {
+		return type;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public String getChecksum() {
+		return checksum;
+	}
+
+	public String getClassNames() {
+		return classNames;
+	}
+
+	public Map<String, String> getServiceProperties() {
+		return serviceProperties;
+	}
+
+	/**
+	 * @return path of each resource class, empty for the providers
+	 */
+	public Map<String, String> getResources() {
+		return resources;
+	}
+
+	@Override
+	public String toString() {
+		return "SnapshotEntry [contextPath=" + contextPath + ", type=" + type
+				+ ", reference=" + reference + ", checksum=" + checksum
+				+ ", classNames=" + classNames + "]";
+	}
+}
@@ -0,0 +1,307 @@
+package com.service.restfy.java.server.sse;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * Server-Sent Events stream of the server metrics. While at least one subscriber is connected a
+ * single thread takes a snapshot of the server and per-context statistics every interval and
+ * renders it once as an event, pushed to every subscriber. The cost of a snapshot does not depend
+ * on the number of subscribers. The subscribers are suspended requests ({@link AsyncContext})
+ * written without blocking ({@link WriteListener}), so they hold no server thread between two
+ * events, and a slow subscriber only misses the snapshots taken while it was writing, it never
+ * delays the others.
+ */
+public class MetricsStream {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	public static final long DEFAULT_INTERVAL = 1000L;
+	public static final String EVENT_NAME = "metrics";
+
+	/**
+	 * Event rendered once and shared by the subscribers.
+	 */
+	protected static class Snapshot {
+		private long id;
+		private byte[] event;
+
+		protected Snapshot(long id, byte[] event) {
+			this.id = id;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * Suspended response of a subscriber, it keeps only the latest snapshot not written yet.
+	 */
+	private class Subscriber implements WriteListener, AsyncListener {
+		private AsyncContext asyncContext;
+		private ServletOutputStream output;
+		private Snapshot pending = null;
+		private long last = -1L;
+		private boolean flushing = false;
+		private boolean closed = false;
+
+		private Subscriber(AsyncContext asyncContext, ServletOutputStream output) {
+			this.asyncContext = asyncContext;
+			this.output = output;
+		}
+
+		private synchronized void offer(Snapshot snapshot) {
+			if (closed || snapshot.id<=last)
+				return;
+			pending = snapshot;
+			try {
+				write();
+			} catch (IOException e) {
+				onError(e);
+			}
+		}
+
+		private synchronized void write() throws IOException {
+			while (!closed && output.isReady()) {
+				if (flushing) {
+					flushing = false;
+					output.flush();
+					continue;
+				}
+				Snapshot snapshot = pending;
+				if (snapshot==null)
+					return;
+				pending = null;
+				if (last>=0L && snapshot.id>last + 1)
+					skipped.addAndGet(snapshot.id - last - 1);
+				last = snapshot.id;
+				output.write(snapshot.event);
+				delivered.incrementAndGet();
+				flushing = true;
+			}
+		}
+
+		public synchronized void onWritePossible() throws IOException {
+			write();
+		}
+
+		public void onError(Throwable t) {
+			close(false);
+		}
+
+		private void close(boolean complete) {
+			synchronized (this) {
+				if (closed)
+					return;
+				closed = true;
+				pending = null;
+			}
+			unsubscribe(this);
+			if (complete) {
+				try {
+					asyncContext.complete();
+				} catch (IllegalStateException e) {
+				}
+			}
+		}
+
+		public void onComplete(AsyncEvent event) throws IOException {
+			close(false);
+		}
+
+		public void onTimeout(AsyncEvent event) throws IOException {
+			close(true);
+		}
+
+		public void onError(AsyncEvent event) throws IOException {
+			close(false);
+		}
+
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+
+	private RestfyJavaServer server;
+	private long interval = DEFAULT_INTERVAL;
+	private ScheduledExecutorService ticker = null;
+	private Snapshot current = null;
+	private List<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+	private AtomicLong snapshots = new AtomicLong(0L);
+	private AtomicLong delivered = new AtomicLong(0L);
+	private AtomicLong skipped = new AtomicLong(0L);
+
+	public MetricsStream(RestfyJavaServer server) {
+		super();
+		this.server = server;
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Milliseconds between two snapshots, applied from the next time the stream gets a subscriber.
+	 */
+	public void setInterval(long interval) {
+		if (interval<=0L)
+			throw new IllegalArgumentException("Metrics interval must be positive: " + interval);
+		this.interval = interval;
+	}
+
+	/**
+	 * Pushes the snapshots to a started asynchronous request until the subscriber goes away or it is
+	 * disconnected, it returns immediately.
+	 */
+	public void subscribe(AsyncContext asyncContext) throws IOException {
+		asyncContext.setTimeout(0L);
+		Subscriber subscriber = new Subscriber(asyncContext, asyncContext.getResponse().getOutputStream());
+		asyncContext.addListener(subscriber);
+		Snapshot snapshot;
+		synchronized (this) {
+			subscribers.add(subscriber);
+			if (ticker==null)
+				startTicker();
+			snapshot = current;
+		}
+		subscriber.output.setWriteListener(subscriber);
+		if (snapshot!=null)
+			subscriber.offer(snapshot);
+	}
+
+	private void unsubscribe(Subscriber subscriber) {
+		subscribers.remove(subscriber);
+	}
+
+	/**
+	 * Ends the running subscriptions, their clients reconnect to the next generation of the handler tree.
+	 */
+	public void disconnectAll() {
+		for(Subscriber subscriber: subscribers) {
+			subscriber.close(true);
+		}
+	}
+
+	private void startTicker() {
+		ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "restfy-metrics-stream");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ticker.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				tick();
+			}
+		}, 0L, interval, TimeUnit.MILLISECONDS);
+	}
+
+	protected void tick() {
+		synchronized (this) {
+			if (subscribers.isEmpty()) {
+				// nobody is listening, the ticker is started again by the next subscriber
+				ticker.shutdown();
+				ticker = null;
+				current = null;
+				return;
+			}
+		}
+		try {
+			long id = snapshots.incrementAndGet();
+			Snapshot snapshot = new Snapshot(id, render(id));
+			synchronized (this) {
+				current = snapshot;
+			}
+			for(Subscriber subscriber: subscribers) {
+				subscriber.offer(snapshot);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Jetty 2 Server metrics snapshot failed", e);
+		}
+	}
+
+	protected byte[] render(long id) {
+		JsonObjectBuilder statistics = Json.createObjectBuilder();
+		for(Map.Entry<String, Long> entry: server.getStatistics().entrySet()) {
+			statistics.add(entry.getKey(), entry.getValue());
+		}
+		JsonObjectBuilder contexts = Json.createObjectBuilder();
+		for(Map.Entry<String, Map<String, Long>> context: server.getContextStatistics().entrySet()) {
+			JsonObjectBuilder values = Json.createObjectBuilder();
+			for(Map.Entry<String, Long> entry: context.getValue().entrySet()) {
+				values.add(entry.getKey(), entry.getValue());
+			}
+			contexts.add(context.getKey(), values);
+		}
+		StringWriter data = new StringWriter();
+		JsonWriter writer = Json.createWriter(data);
+		writer.writeObject(Json.createObjectBuilder()
+				.add("time", System.currentTimeMillis())
+				.add("server", statistics)
+				.add("contexts", contexts)
+				.build());
+		writer.close();
+		return ("id: " + id + "\nevent: " + EVENT_NAME + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	public void stop() {
+		disconnectAll();
+		synchronized (this) {
+			if (ticker!=null)
+				ticker.shutdownNow();
+			ticker = null;
+			current = null;
+		}
+	}
+
+	/**
+	 * @return subscribers currently connected
+	 */
+	public int getSubscribers() {
+		return subscribers.size();
+	}
+
+	public long getSnapshots() {
+		return snapshots.get();
+	}
+
+	/**
+	 * @return events written to the subscribers
+	 */
+	public long getDelivered() {
+		return delivered.get();
+	}
+
+	/**
+	 * @return snapshots missed by subscribers still writing the previous one
+	 */
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	@Override
+	public String toString() {
+		return "interval=" + interval + " subscribers=" + getSubscribers() + " snapshots=" + getSnapshots()
+				+ " delivered=" + getDelivered() + " skipped=" + getSkipped();
+	}
+}
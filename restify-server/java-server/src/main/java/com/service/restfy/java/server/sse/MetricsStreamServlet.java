@@ -0,0 +1,41 @@
+package com.service.restfy.java.server.sse;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.service.restfy.java.server.priority.PriorityFilter;
+
+/**
+ * Suspends the requests of the console metrics stream and subscribes them to the {@link MetricsStream},
+ * the request thread and its priority slot are released as soon as the headers are sent.
+ */
+public class MetricsStreamServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	public static final String CONTENT_TYPE = "text/event-stream";
+
+	private transient MetricsStream stream;
+
+	public MetricsStreamServlet(MetricsStream stream) {
+		super();
+		this.stream = stream;
+	}
+
+	public MetricsStream getStream() {
+		return stream;
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType(CONTENT_TYPE);
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		response.flushBuffer();
+		request.setAttribute(PriorityFilter.DETACHED_ATTRIBUTE, Boolean.TRUE);
+		stream.subscribe(request.startAsync());
+	}
+}
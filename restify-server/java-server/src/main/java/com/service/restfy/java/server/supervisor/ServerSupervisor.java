@@ -0,0 +1,196 @@
+package com.service.restfy.java.server.supervisor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.Main;
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.connector.ChannelServerConnector;
+
+/**
+ * Runs many worker JVMs of {@link Main} bound to the same port with SO_REUSEPORT, restarts
+ * the crashed ones and aggregates their statistics through the loopback admin channels.
+ * The supervisor answers on its own loopback port the same <i>stats</i> and <i>close</i> commands as a server.
+ */
+public class ServerSupervisor implements Runnable {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+	private static final long WORKER_STOP_TIMEOUT = 10000L;
+
+	private String hostname = null;
+	private int workers = 0;
+	private int loopbackPort = 0;
+	private List<String> arguments = null;
+	private List<WorkerProcess> processes = new ArrayList<WorkerProcess>(0);
+	private ServerSocket loopback = null;
+	private Thread loopbackThread = null;
+	private volatile boolean running = false;
+
+	/**
+	 * @param hostname host of the workers loopback channels
+	 * @param workers number of worker JVMs
+	 * @param loopbackPort loopback port of the supervisor, workers use the following ones
+	 * @param arguments {@link Main} arguments forwarded to the workers
+	 */
+	public ServerSupervisor(String hostname, int workers, int loopbackPort, List<String> arguments) {
+		super();
+		this.hostname = hostname;
+		this.workers = workers;
+		this.loopbackPort = loopbackPort;
+		this.arguments = arguments;
+	}
+
+	public void start() throws IOException {
+		if (!ChannelServerConnector.isReusePortSupported())
+			throw new IllegalStateException("SO_REUSEPORT is not available in this Java runtime, supervisor mode requires it");
+		logger.info("Jetty 2 Supervisor starting " + workers + " workers ... ");
+		loopback = new ServerSocket(loopbackPort);
+		running = true;
+		for(int i=0; i<workers; i++) {
+			int workerLoopbackPort = loopbackPort + i + 1;
+			WorkerProcess process = new WorkerProcess(i, hostname, workerLoopbackPort, workerCommand(workerLoopbackPort));
+			processes.add(process);
+			process.start();
+		}
+		loopbackThread = new Thread(this, "restfy-supervisor-loopback");
+		loopbackThread.start();
+	}
+
+	protected List<String> workerCommand(int workerLoopbackPort) {
+		List<String> command = new ArrayList<String>(0);
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Main.class.getCanonicalName());
+		for(int i=0; i<arguments.size(); i++) {
+			String arg = arguments.get(i);
+			if (arg.equalsIgnoreCase("--workers") || arg.equalsIgnoreCase("--loopBackPort") || arg.equalsIgnoreCase("--reusePort")) {
+				i++;
+				continue;
+			}
+			command.add(arg);
+		}
+		command.add("--reusePort");
+		command.add("true");
+		command.add("--loopBackPort");
+		command.add("" + workerLoopbackPort);
+		return command;
+	}
+
+	@Override
+	public void run() {
+		logger.info("Jetty 2 Supervisor loopback running on port " + loopbackPort + " ... ");
+		while (running) {
+			Socket client = null;
+			try {
+				loopback.setSoTimeout(5000);
+				client = loopback.accept();
+				client.setSoTimeout(5000);
+				BufferedReader br = new BufferedReader(new InputStreamReader(client.getInputStream()));
+				PrintStream ps = new PrintStream(client.getOutputStream());
+				String message = br.readLine();
+				if (message!=null && message.trim().equalsIgnoreCase("stats")) {
+					ps.println(RestfyJavaServer.formatStatistics(getStatistics()));
+				}
+				else if (message!=null && message.trim().equalsIgnoreCase("close")) {
+					stop();
+					ps.println("closed");
+				}
+				else if (message!=null) {
+					ps.println("unknown command : " + message.trim());
+				}
+				ps.flush();
+			}
+			catch (SocketTimeoutException e) {
+			}
+			catch (SocketException e) {
+			}
+			catch (Throwable e) {
+				e.printStackTrace();
+			}
+			finally {
+				if (client!=null) {
+					try {
+						client.close();
+					} catch (IOException e) {
+					}
+				}
+			}
+		}
+		logger.info("Jetty 2 Supervisor loopback closing ... ");
+	}
+
+	/**
+	 * Sums the statistics of all alive workers, maximum values are aggregated as maximum.
+	 */
+	public Map<String, Long> getStatistics() {
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>(0);
+		long alive = 0L;
+		long restarts = 0L;
+		for(WorkerProcess process: processes) {
+			restarts += process.getRestarts();
+			if (!process.isAlive())
+				continue;
+			alive++;
+			Map<String, Long> workerStatistics = RestfyJavaServer.getRemoteStatistics(hostname, process.getLoopbackPort());
+			for(String key: workerStatistics.keySet()) {
+				long value = workerStatistics.get(key);
+				Long current = statistics.get(key);
+				if (current==null)
+					statistics.put(key, value);
+				else if (key.equals("uptime") || key.endsWith("Max"))
+					statistics.put(key, Math.max(current, value));
+				else
+					statistics.put(key, current + value);
+			}
+		}
+		statistics.put("workers", (long)workers);
+		statistics.put("workersAlive", alive);
+		statistics.put("workersRestarts", restarts);
+		return statistics;
+	}
+
+	public synchronized void stop() {
+		if (!running)
+			return;
+		logger.info("Jetty 2 Supervisor stopping workers ... ");
+		running = false;
+		for(WorkerProcess process: processes) {
+			process.stop(WORKER_STOP_TIMEOUT);
+		}
+		if (loopback!=null) {
+			try {
+				loopback.close();
+			} catch (IOException e) {
+			}
+		}
+		loopback = null;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public List<WorkerProcess> getProcesses() {
+		return processes;
+	}
+
+	public int getLoopbackPort() {
+		return loopbackPort;
+	}
+}
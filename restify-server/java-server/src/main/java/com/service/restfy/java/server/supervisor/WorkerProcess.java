@@ -0,0 +1,135 @@
+package com.service.restfy.java.server.supervisor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+
+/**
+ * A worker JVM run by the {@link ServerSupervisor}. The monitor thread restarts the process
+ * when it exits unexpectedly, with an increasing delay for workers crashing repeatedly.
+ */
+public class WorkerProcess implements Runnable {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+	private static final long MIN_RESTART_DELAY = 1000L;
+	private static final long MAX_RESTART_DELAY = 30000L;
+	private static final long STABLE_RUN_TIME = 60000L;
+
+	private int index = 0;
+	private String hostname = null;
+	private int loopbackPort = 0;
+	private List<String> command = null;
+	private volatile Process process = null;
+	private volatile boolean running = false;
+	private Thread monitorThread = null;
+	private AtomicInteger restarts = new AtomicInteger(0);
+
+	public WorkerProcess(int index, String hostname, int loopbackPort, List<String> command) {
+		super();
+		this.index = index;
+		this.hostname = hostname;
+		this.loopbackPort = loopbackPort;
+		this.command = command;
+	}
+
+	public void start() {
+		running = true;
+		monitorThread = new Thread(this, "restfy-worker-" + index);
+		monitorThread.setDaemon(true);
+		monitorThread.start();
+	}
+
+	@Override
+	public void run() {
+		long restartDelay = MIN_RESTART_DELAY;
+		while (running) {
+			long startTime = System.currentTimeMillis();
+			try {
+				logger.info("Jetty 2 Supervisor starting worker " + index + " on loopback port " + loopbackPort);
+				ProcessBuilder builder = new ProcessBuilder(command);
+				builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+				builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+				process = builder.start();
+				int exitCode = process.waitFor();
+				if (running)
+					logger.warn("Jetty 2 Supervisor worker " + index + " exited with code " + exitCode);
+			} catch (InterruptedException e) {
+				break;
+			} catch (IOException e) {
+				logger.error("Jetty 2 Supervisor unable to start worker " + index, e);
+			}
+			if (!running)
+				break;
+			if (System.currentTimeMillis() - startTime > STABLE_RUN_TIME)
+				restartDelay = MIN_RESTART_DELAY;
+			try {
+				Thread.sleep(restartDelay);
+			} catch (InterruptedException e) {
+				break;
+			}
+			restartDelay = Math.min(restartDelay * 2, MAX_RESTART_DELAY);
+			restarts.incrementAndGet();
+		}
+	}
+
+	public void stop(long timeout) {
+		running = false;
+		Process current = process;
+		if (current==null)
+			return;
+		RestfyJavaServer.stopRemoteServer(hostname, loopbackPort);
+		try {
+			current.getOutputStream().close();
+		} catch (IOException e) {
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		while (isAlive(current) && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(100L);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+		if (isAlive(current)) {
+			logger.warn("Jetty 2 Supervisor killing worker " + index);
+			current.destroy();
+		}
+		if (monitorThread!=null)
+			monitorThread.interrupt();
+	}
+
+	public boolean isAlive() {
+		Process current = process;
+		return current!=null && isAlive(current);
+	}
+
+	private static boolean isAlive(Process process) {
+		try {
+			process.exitValue();
+			return false;
+		} catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getLoopbackPort() {
+		return loopbackPort;
+	}
+
+	public int getRestarts() {
+		return restarts.get();
+	}
+
+	@Override
+	public String toString() {
+		return "WorkerProcess [index=" + index + ", loopbackPort=" + loopbackPort + ", alive=" + isAlive() + ", restarts=" + restarts.get() + "]";
+	}
+}
@@ -0,0 +1,128 @@
+package com.service.restfy.java.server.tls;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * TLS handshake counters of a connector. A handshake is resumed when it completes with the session ID
+ * of a previous one, from the session cache or from a session ticket. The IDs of the last
+ * <i>maxSessionIds</i> sessions are kept, as the default session cache of the JDK. TLS 1.3 resumes
+ * with a pre-shared key and the JDK gives the resumed session a new ID but the creation time of the
+ * original one, so a TLS 1.3 handshake is resumed when its session was created before it started.
+ */
+public class HandshakeMetrics {
+	public static final int DEFAULT_MAX_SESSION_IDS = 20480;
+
+	private AtomicLong full = new AtomicLong(0L);
+	private AtomicLong resumed = new AtomicLong(0L);
+	private AtomicLong failed = new AtomicLong(0L);
+	private AtomicLong timeTotal = new AtomicLong(0L);
+	private AtomicLong timeMax = new AtomicLong(0L);
+	private Map<String, Boolean> sessionIds = null;
+
+	public HandshakeMetrics() {
+		this(DEFAULT_MAX_SESSION_IDS);
+	}
+
+	public HandshakeMetrics(final int maxSessionIds) {
+		super();
+		this.sessionIds = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size()>maxSessionIds;
+			}
+		};
+	}
+
+	/**
+	 * @param session session of the completed handshake
+	 * @param startTime time in milliseconds of the handshake start
+	 */
+	protected void completed(SSLSession session, long startTime, long elapsedNanos) {
+		boolean resumedSession = false;
+		byte[] sessionId = session.getId();
+		if (sessionId!=null && sessionId.length>0) {
+			String id = hex(sessionId);
+			synchronized (sessionIds) {
+				resumedSession = sessionIds.put(id, Boolean.TRUE)!=null;
+			}
+		}
+		if ("TLSv1.3".equals(session.getProtocol()))
+			resumedSession = session.getCreationTime()<startTime;
+		if (resumedSession)
+			resumed.incrementAndGet();
+		else
+			full.incrementAndGet();
+		timeTotal.addAndGet(elapsedNanos);
+		long max = timeMax.get();
+		while (elapsedNanos>max && !timeMax.compareAndSet(max, elapsedNanos)) {
+			max = timeMax.get();
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte b: bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	protected void failed() {
+		failed.incrementAndGet();
+	}
+
+	/**
+	 * @return completed handshakes
+	 */
+	public long getHandshakes() {
+		return full.get() + resumed.get();
+	}
+
+	public long getFullHandshakes() {
+		return full.get();
+	}
+
+	public long getResumedHandshakes() {
+		return resumed.get();
+	}
+
+	public long getFailedHandshakes() {
+		return failed.get();
+	}
+
+	public double getResumedRatio() {
+		long handshakes = getHandshakes();
+		return handshakes>0 ? (double)resumed.get() / handshakes : 0d;
+	}
+
+	/**
+	 * @return total time in milliseconds of the completed handshakes
+	 */
+	public long getHandshakeTimeTotal() {
+		return TimeUnit.NANOSECONDS.toMillis(timeTotal.get());
+	}
+
+	public long getHandshakeTimeMax() {
+		return TimeUnit.NANOSECONDS.toMillis(timeMax.get());
+	}
+
+	public double getHandshakeTimeMean() {
+		long handshakes = getHandshakes();
+		return handshakes>0 ? timeTotal.get() / (double)TimeUnit.MILLISECONDS.toNanos(1L) / handshakes : 0d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "handshakes=%d full=%d resumed=%d failed=%d resumedRatio=%.3f meanMs=%.3f maxMs=%d",
+				getHandshakes(), getFullHandshakes(), getResumedHandshakes(), getFailedHandshakes(), getResumedRatio(),
+				getHandshakeTimeMean(), getHandshakeTimeMax());
+	}
+}
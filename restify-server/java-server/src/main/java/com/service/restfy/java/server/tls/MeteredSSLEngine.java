@@ -0,0 +1,202 @@
+package com.service.restfy.java.server.tls;
+
+import java.nio.ByteBuffer;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+
+/**
+ * SSL engine delegating to the engine of a connection and timing its handshakes, from the first
+ * handshake record to the FINISHED status. A handshake is counted once per session of the engine,
+ * since TLS 1.3 reports FINISHED again for its post-handshake messages, as the session tickets.
+ */
+class MeteredSSLEngine extends SSLEngine {
+	private SSLEngine engine;
+	private HandshakeMetrics metrics;
+	private boolean started = false;
+	private long handshakeStart = 0L;
+	private long handshakeStartTime = 0L;
+	private SSLSession counted = null;
+
+	MeteredSSLEngine(SSLEngine engine, HandshakeMetrics metrics) {
+		super(engine.getPeerHost(), engine.getPeerPort());
+		this.engine = engine;
+		this.metrics = metrics;
+	}
+
+	private void starting() {
+		if (handshakeStart==0L && (!started || engine.getHandshakeStatus()!=SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING)) {
+			started = true;
+			handshakeStart = System.nanoTime();
+			handshakeStartTime = System.currentTimeMillis();
+		}
+	}
+
+	private SSLEngineResult record(SSLEngineResult result) {
+		if (result.getHandshakeStatus()==SSLEngineResult.HandshakeStatus.FINISHED && handshakeStart!=0L) {
+			SSLSession session = engine.getSession();
+			if (session!=counted) {
+				counted = session;
+				metrics.completed(session, handshakeStartTime, System.nanoTime() - handshakeStart);
+			}
+			handshakeStart = 0L;
+		}
+		return result;
+	}
+
+	private SSLException failed(SSLException e) {
+		if (handshakeStart!=0L) {
+			metrics.failed();
+			handshakeStart = 0L;
+		}
+		return e;
+	}
+
+	@Override
+	public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst) throws SSLException {
+		starting();
+		try {
+			return record(engine.wrap(srcs, offset, length, dst));
+		} catch (SSLException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length) throws SSLException {
+		starting();
+		try {
+			return record(engine.unwrap(src, dsts, offset, length));
+		} catch (SSLException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public Runnable getDelegatedTask() {
+		return engine.getDelegatedTask();
+	}
+
+	@Override
+	public void closeInbound() throws SSLException {
+		engine.closeInbound();
+	}
+
+	@Override
+	public boolean isInboundDone() {
+		return engine.isInboundDone();
+	}
+
+	@Override
+	public void closeOutbound() {
+		engine.closeOutbound();
+	}
+
+	@Override
+	public boolean isOutboundDone() {
+		return engine.isOutboundDone();
+	}
+
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return engine.getSupportedCipherSuites();
+	}
+
+	@Override
+	public String[] getEnabledCipherSuites() {
+		return engine.getEnabledCipherSuites();
+	}
+
+	@Override
+	public void setEnabledCipherSuites(String[] suites) {
+		engine.setEnabledCipherSuites(suites);
+	}
+
+	@Override
+	public String[] getSupportedProtocols() {
+		return engine.getSupportedProtocols();
+	}
+
+	@Override
+	public String[] getEnabledProtocols() {
+		return engine.getEnabledProtocols();
+	}
+
+	@Override
+	public void setEnabledProtocols(String[] protocols) {
+		engine.setEnabledProtocols(protocols);
+	}
+
+	@Override
+	public SSLSession getSession() {
+		return engine.getSession();
+	}
+
+	@Override
+	public SSLSession getHandshakeSession() {
+		return engine.getHandshakeSession();
+	}
+
+	@Override
+	public void beginHandshake() throws SSLException {
+		engine.beginHandshake();
+	}
+
+	@Override
+	public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+		return engine.getHandshakeStatus();
+	}
+
+	@Override
+	public void setUseClientMode(boolean mode) {
+		engine.setUseClientMode(mode);
+	}
+
+	@Override
+	public boolean getUseClientMode() {
+		return engine.getUseClientMode();
+	}
+
+	@Override
+	public void setNeedClientAuth(boolean need) {
+		engine.setNeedClientAuth(need);
+	}
+
+	@Override
+	public boolean getNeedClientAuth() {
+		return engine.getNeedClientAuth();
+	}
+
+	@Override
+	public void setWantClientAuth(boolean want) {
+		engine.setWantClientAuth(want);
+	}
+
+	@Override
+	public boolean getWantClientAuth() {
+		return engine.getWantClientAuth();
+	}
+
+	@Override
+	public void setEnableSessionCreation(boolean flag) {
+		engine.setEnableSessionCreation(flag);
+	}
+
+	@Override
+	public boolean getEnableSessionCreation() {
+		return engine.getEnableSessionCreation();
+	}
+
+	@Override
+	public SSLParameters getSSLParameters() {
+		return engine.getSSLParameters();
+	}
+
+	@Override
+	public void setSSLParameters(SSLParameters params) {
+		engine.setSSLParameters(params);
+	}
+}
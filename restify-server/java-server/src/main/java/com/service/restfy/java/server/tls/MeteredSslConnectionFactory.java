@@ -0,0 +1,30 @@
+package com.service.restfy.java.server.tls;
+
+import javax.net.ssl.SSLEngine;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * SSL connection factory recording the handshakes of its connections in a {@link HandshakeMetrics}.
+ */
+public class MeteredSslConnectionFactory extends SslConnectionFactory {
+	private HandshakeMetrics metrics = null;
+
+	public MeteredSslConnectionFactory(SslContextFactory sslContextFactory, String nextProtocol, HandshakeMetrics metrics) {
+		super(sslContextFactory, nextProtocol);
+		this.metrics = metrics;
+	}
+
+	public HandshakeMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	protected SslConnection newSslConnection(Connector connector, EndPoint endPoint, SSLEngine engine) {
+		return super.newSslConnection(connector, endPoint, new MeteredSSLEngine(engine, metrics));
+	}
+}
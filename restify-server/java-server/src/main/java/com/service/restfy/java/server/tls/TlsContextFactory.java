@@ -0,0 +1,26 @@
+package com.service.restfy.java.server.tls;
+
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * Server {@link SslContextFactory} reading the certificate from a keystore, tuned for session
+ * resumption: the server session cache is enabled and sized for many clients, so returning clients
+ * skip the full handshake. Resumption through session tickets is provided by the JVM when it
+ * supports them (Java 13 and later, <i>jdk.tls.server.enableSessionTicketExtension</i>).
+ */
+public class TlsContextFactory extends SslContextFactory {
+	public static final int DEFAULT_SESSION_CACHE_SIZE = 20000;
+	public static final int DEFAULT_SESSION_TIMEOUT = 3600;
+
+	/**
+	 * @param keyStorePath path or URL of the keystore, JKS unless a type is set
+	 */
+	public TlsContextFactory(String keyStorePath, String keyStorePassword) {
+		super();
+		setKeyStorePath(keyStorePath);
+		setKeyStorePassword(keyStorePassword);
+		setSessionCachingEnabled(true);
+		setSslSessionCacheSize(DEFAULT_SESSION_CACHE_SIZE);
+		setSslSessionTimeout(DEFAULT_SESSION_TIMEOUT);
+	}
+}
@@ -0,0 +1,161 @@
+package com.service.restfy.java.server.trace;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timestamps, in nanoseconds, of a sampled request. Missing phases (for instance a request
+ * not served by Jersey) stay at 0.
+ */
+public class RequestTrace {
+	public static final String ATTRIBUTE = "com.service.restfy.java.server.trace";
+
+	private String method = null;
+	private String uri = null;
+	private String threadName = null;
+	private transient Thread thread = null;
+	private long startTime = 0L;
+	private long queueNanos = 0L;
+	private long startNanos = 0L;
+	private volatile long jerseyStartNanos = 0L;
+	private volatile long resourceStartNanos = 0L;
+	private volatile long resourceFinishedNanos = 0L;
+	private volatile long jerseyFinishedNanos = 0L;
+	private volatile long endNanos = 0L;
+	private int status = 0;
+	private String resource = null;
+	private volatile String stack = null;
+
+	public RequestTrace(String method, String uri, long queueMillis) {
+		super();
+		this.method = method;
+		this.uri = uri;
+		this.thread = Thread.currentThread();
+		this.threadName = thread.getName();
+		this.startTime = System.currentTimeMillis();
+		this.queueNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, queueMillis));
+		this.startNanos = System.nanoTime();
+	}
+
+	public void markJerseyStart() {
+		jerseyStartNanos = System.nanoTime();
+	}
+
+	public void markResourceStart(String resource) {
+		this.resource = resource;
+		resourceStartNanos = System.nanoTime();
+	}
+
+	public void markResourceFinished() {
+		resourceFinishedNanos = System.nanoTime();
+	}
+
+	public void markJerseyFinished() {
+		jerseyFinishedNanos = System.nanoTime();
+	}
+
+	public void end(int status) {
+		this.status = status;
+		this.endNanos = System.nanoTime();
+		this.thread = null;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public String getThreadName() {
+		return threadName;
+	}
+
+	Thread getThread() {
+		return thread;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public String getResource() {
+		return resource;
+	}
+
+	public String getStack() {
+		return stack;
+	}
+
+	void setStack(String stack) {
+		this.stack = stack;
+	}
+
+	public boolean isEnded() {
+		return endNanos>0;
+	}
+
+	/**
+	 * @return nanoseconds elapsed since the request reached the server, until now if it is still running
+	 */
+	public long getElapsedNanos() {
+		return (endNanos>0 ? endNanos : System.nanoTime()) - startNanos;
+	}
+
+	public long getQueueNanos() {
+		return queueNanos;
+	}
+
+	public long getTotalNanos() {
+		return queueNanos + getElapsedNanos();
+	}
+
+	/**
+	 * @return time spent in the servlet container out of Jersey, filters and other handlers included
+	 */
+	public long getContainerNanos() {
+		if (jerseyStartNanos==0L || jerseyFinishedNanos==0L)
+			return getElapsedNanos();
+		return getElapsedNanos() - (jerseyFinishedNanos - jerseyStartNanos);
+	}
+
+	/**
+	 * @return time spent by Jersey to match the resource method and run the request filters
+	 */
+	public long getRoutingNanos() {
+		return between(jerseyStartNanos, resourceStartNanos);
+	}
+
+	public long getResourceNanos() {
+		return between(resourceStartNanos, resourceFinishedNanos);
+	}
+
+	/**
+	 * @return time spent by Jersey after the resource method, response filters and entity serialization
+	 */
+	public long getSerializationNanos() {
+		return between(resourceFinishedNanos, jerseyFinishedNanos);
+	}
+
+	private static long between(long from, long to) {
+		return from>0 && to>=from ? to - from : 0L;
+	}
+
+	@Override
+	public String toString() {
+		return method + " " + uri + " status=" + status + " totalMs=" + millis(getTotalNanos())
+				+ " queueMs=" + millis(queueNanos) + " containerMs=" + millis(getContainerNanos())
+				+ " routingMs=" + millis(getRoutingNanos()) + " resourceMs=" + millis(getResourceNanos())
+				+ " serializationMs=" + millis(getSerializationNanos())
+				+ (resource!=null ? " resource=" + resource : "") + " thread=" + threadName;
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1000000d);
+	}
+}
@@ -0,0 +1,196 @@
+package com.service.restfy.java.server.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples requests of the servlet contexts of a {@link com.service.restfy.java.server.RestfyJavaServer}
+ * and keeps the slowest recent ones with their phase breakdown. The stack of a sampled request
+ * running longer than the stack sample threshold is captured once.
+ */
+public class RequestTracer {
+	private static final Comparator<RequestTrace> BY_TOTAL = new Comparator<RequestTrace>() {
+		public int compare(RequestTrace o1, RequestTrace o2) {
+			return Long.compare(o1.getTotalNanos(), o2.getTotalNanos());
+		}
+	};
+
+	private double sampleRate = 0.01d;
+	private int slowLogSize = 20;
+	private long slowLogWindow = 600000L;
+	private long stackSampleThreshold = 0L;
+	private PriorityQueue<RequestTrace> slowLog = new PriorityQueue<RequestTrace>(16, BY_TOTAL);
+	private Set<RequestTrace> running = Collections.newSetFromMap(new ConcurrentHashMap<RequestTrace, Boolean>());
+	private Timer sampler = null;
+	private AtomicLong sampled = new AtomicLong(0L);
+
+	public RequestTracer() {
+		super();
+	}
+
+	/**
+	 * @param sampleRate fraction of the requests traced, between 0 and 1
+	 * @param slowLogSize number of slowest requests kept
+	 */
+	public RequestTracer(double sampleRate, int slowLogSize) {
+		super();
+		this.sampleRate = sampleRate;
+		this.slowLogSize = slowLogSize;
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	public int getSlowLogSize() {
+		return slowLogSize;
+	}
+
+	public void setSlowLogSize(int slowLogSize) {
+		this.slowLogSize = slowLogSize;
+	}
+
+	public long getSlowLogWindow() {
+		return slowLogWindow;
+	}
+
+	/**
+	 * Age in milliseconds after which a request leaves the slow log.
+	 */
+	public void setSlowLogWindow(long slowLogWindow) {
+		this.slowLogWindow = slowLogWindow;
+	}
+
+	public long getStackSampleThreshold() {
+		return stackSampleThreshold;
+	}
+
+	/**
+	 * Duration in milliseconds after which the stack of a running sampled request is captured, 0 to disable.
+	 */
+	public void setStackSampleThreshold(long stackSampleThreshold) {
+		this.stackSampleThreshold = stackSampleThreshold;
+	}
+
+	public long getSampled() {
+		return sampled.get();
+	}
+
+	public boolean isSampled() {
+		return sampleRate>=1d || (sampleRate>0d && ThreadLocalRandom.current().nextDouble()<sampleRate);
+	}
+
+	public void begin(RequestTrace trace) {
+		if (stackSampleThreshold>0)
+			running.add(trace);
+	}
+
+	public void end(RequestTrace trace) {
+		running.remove(trace);
+		sampled.incrementAndGet();
+		synchronized (slowLog) {
+			expire();
+			if (slowLog.size()<slowLogSize) {
+				slowLog.add(trace);
+			}
+			else if (slowLogSize>0 && BY_TOTAL.compare(slowLog.peek(), trace)<0) {
+				slowLog.poll();
+				slowLog.add(trace);
+			}
+		}
+	}
+
+	private void expire() {
+		long oldest = System.currentTimeMillis() - slowLogWindow;
+		Iterator<RequestTrace> iterator = slowLog.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getStartTime()<oldest)
+				iterator.remove();
+		}
+	}
+
+	/**
+	 * @return the slowest recent requests, slowest first
+	 */
+	public List<RequestTrace> getSlowRequests() {
+		List<RequestTrace> requests = null;
+		synchronized (slowLog) {
+			expire();
+			requests = new ArrayList<RequestTrace>(slowLog);
+		}
+		Collections.sort(requests, Collections.reverseOrder(BY_TOTAL));
+		return requests;
+	}
+
+	public void clear() {
+		synchronized (slowLog) {
+			slowLog.clear();
+		}
+	}
+
+	public synchronized void start() {
+		if (sampler!=null || stackSampleThreshold<=0)
+			return;
+		sampler = new Timer("restfy-trace-sampler", true);
+		long period = Math.max(10L, stackSampleThreshold / 2);
+		sampler.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				sampleStacks();
+			}
+		}, period, period);
+	}
+
+	public synchronized void stop() {
+		if (sampler!=null)
+			sampler.cancel();
+		sampler = null;
+		running.clear();
+	}
+
+	protected void sampleStacks() {
+		long threshold = TimeUnit.MILLISECONDS.toNanos(stackSampleThreshold);
+		for(RequestTrace trace: running) {
+			Thread thread = trace.getThread();
+			if (thread==null || trace.getStack()!=null || trace.getElapsedNanos()<threshold)
+				continue;
+			StackTraceElement[] elements = thread.getStackTrace();
+			if (trace.isEnded())
+				continue;
+			StringBuilder stack = new StringBuilder();
+			for(StackTraceElement element: elements) {
+				stack.append("\tat ").append(element).append("\n");
+			}
+			trace.setStack(stack.toString());
+		}
+	}
+
+	/**
+	 * Slow log in plain text, one request per line followed by its stack sample if any.
+	 */
+	public String format() {
+		StringBuilder text = new StringBuilder();
+		text.append("sampleRate=").append(sampleRate).append(" sampled=").append(sampled.get()).append("\n");
+		for(RequestTrace trace: getSlowRequests()) {
+			text.append(trace).append("\n");
+			if (trace.getStack()!=null)
+				text.append(trace.getStack());
+		}
+		return text.toString();
+	}
+}
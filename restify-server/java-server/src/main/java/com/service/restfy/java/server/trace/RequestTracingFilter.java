@@ -0,0 +1,55 @@
+package com.service.restfy.java.server.trace;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+
+/**
+ * Starts the trace of the sampled requests, the queueing time is measured from the moment Jetty
+ * parsed the request. The Jersey phases are marked by {@link TracingEventListener}.
+ */
+public class RequestTracingFilter implements Filter {
+	private RequestTracer tracer = null;
+
+	public RequestTracingFilter(RequestTracer tracer) {
+		super();
+		this.tracer = tracer;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (!tracer.isSampled() || !(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		Request baseRequest = Request.getBaseRequest(request);
+		long queueMillis = baseRequest!=null && baseRequest.getTimeStamp()>0 ? System.currentTimeMillis() - baseRequest.getTimeStamp() : 0L;
+		RequestTrace trace = new RequestTrace(httpRequest.getMethod(), httpRequest.getRequestURI(), queueMillis);
+		request.setAttribute(RequestTrace.ATTRIBUTE, trace);
+		tracer.begin(trace);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			trace.end(response instanceof HttpServletResponse ? ((HttpServletResponse)response).getStatus() : 0);
+			tracer.end(trace);
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
@@ -0,0 +1,56 @@
+package com.service.restfy.java.server.trace;
+
+import java.lang.reflect.Method;
+
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+/**
+ * Jersey listener marking the routing, resource and serialization phases of the requests sampled
+ * by {@link RequestTracingFilter}. Requests not sampled get no request listener at all.
+ */
+public class TracingEventListener implements ApplicationEventListener {
+
+	@Override
+	public void onEvent(ApplicationEvent event) {
+	}
+
+	@Override
+	public RequestEventListener onRequest(RequestEvent requestEvent) {
+		Object trace = requestEvent.getContainerRequest().getProperty(RequestTrace.ATTRIBUTE);
+		if (!(trace instanceof RequestTrace))
+			return null;
+		((RequestTrace)trace).markJerseyStart();
+		return new TraceListener((RequestTrace)trace);
+	}
+
+	private static class TraceListener implements RequestEventListener {
+		private RequestTrace trace = null;
+
+		private TraceListener(RequestTrace trace) {
+			this.trace = trace;
+		}
+
+		@Override
+		public void onEvent(RequestEvent event) {
+			switch (event.getType()) {
+			case RESOURCE_METHOD_START:
+				ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+				Method method = resourceMethod!=null ? resourceMethod.getInvocable().getHandlingMethod() : null;
+				trace.markResourceStart(method!=null ? method.getDeclaringClass().getSimpleName() + "." + method.getName() : null);
+				break;
+			case RESOURCE_METHOD_FINISHED:
+				trace.markResourceFinished();
+				break;
+			case FINISHED:
+				trace.markJerseyFinished();
+				break;
+			default:
+				break;
+			}
+		}
+	}
+}
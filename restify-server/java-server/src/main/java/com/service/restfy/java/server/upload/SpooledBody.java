@@ -0,0 +1,174 @@
+package com.service.restfy.java.server.upload;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+
+/**
+ * Request body read by an {@link UploadSpooler}, in memory or in a temporary file. The content is
+ * read lazily by the resource, and the temporary file is deleted when the request completes unless
+ * it has been moved away. A resource receives it as entity parameter, or from the
+ * {@link #ATTRIBUTE} request attribute.
+ */
+public class SpooledBody {
+	public static final String ATTRIBUTE = "com.service.restfy.java.server.upload.SpooledBody";
+
+	private byte[] memory = null;
+	private File file = null;
+	private long length = 0L;
+	private ByteBufferPool bufferPool = null;
+	private boolean moved = false;
+
+	protected SpooledBody(byte[] memory, int length) {
+		super();
+		this.memory = memory;
+		this.length = length;
+	}
+
+	protected SpooledBody(File file, long length, ByteBufferPool bufferPool) {
+		super();
+		this.file = file;
+		this.length = length;
+		this.bufferPool = bufferPool;
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public boolean isInMemory() {
+		return file==null;
+	}
+
+	/**
+	 * @return the temporary file of the body, null if the body is in memory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Opens a new stream on the content, a body can be read many times.
+	 */
+	public InputStream openStream() throws IOException {
+		if (file==null)
+			return new ByteArrayInputStream(memory, 0, (int)length);
+		return new ChannelInputStream(new FileInputStream(file).getChannel(), bufferPool);
+	}
+
+	/**
+	 * Moves the content to the given file, without copying it when the body is already in a file of the same file system.
+	 */
+	public synchronized void moveTo(File target) throws IOException {
+		if (file!=null && file.renameTo(target)) {
+			file = target;
+			memory = null;
+			moved = true;
+			return;
+		}
+		FileOutputStream output = new FileOutputStream(target);
+		try {
+			FileChannel targetChannel = output.getChannel();
+			if (file==null) {
+				targetChannel.write(ByteBuffer.wrap(memory, 0, (int)length));
+			}
+			else {
+				FileInputStream input = new FileInputStream(file);
+				try {
+					FileChannel channel = input.getChannel();
+					long position = 0L;
+					while (position<length) {
+						position += channel.transferTo(position, length - position, targetChannel);
+					}
+				} finally {
+					input.close();
+				}
+				file.delete();
+			}
+		} finally {
+			output.close();
+		}
+		file = target;
+		memory = null;
+		moved = true;
+	}
+
+	/**
+	 * Releases the content, deleting the temporary file if it has not been moved.
+	 */
+	protected synchronized void delete() {
+		if (file!=null && !moved)
+			file.delete();
+		memory = null;
+	}
+
+	@Override
+	public String toString() {
+		return "SpooledBody [length=" + length + ", file=" + file + "]";
+	}
+
+	/**
+	 * Stream on a file channel, read through a pooled direct buffer.
+	 */
+	private static class ChannelInputStream extends InputStream {
+		private FileChannel channel;
+		private ByteBufferPool bufferPool;
+		private ByteBuffer buffer;
+
+		private ChannelInputStream(FileChannel channel, ByteBufferPool bufferPool) {
+			super();
+			this.channel = channel;
+			this.bufferPool = bufferPool;
+			this.buffer = bufferPool.acquire(UploadSpooler.BUFFER_SIZE, true);
+			this.buffer.clear().flip();
+		}
+
+		private boolean fill() throws IOException {
+			if (buffer==null)
+				throw new IOException("Stream closed");
+			if (buffer.hasRemaining())
+				return true;
+			buffer.clear();
+			int read = channel.read(buffer);
+			buffer.flip();
+			return read>0;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return fill() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len==0)
+				return 0;
+			if (!fill())
+				return -1;
+			int size = Math.min(len, buffer.remaining());
+			buffer.get(b, off, size);
+			return size;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return buffer!=null ? buffer.remaining() : 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (buffer!=null) {
+				bufferPool.release(buffer);
+				buffer = null;
+			}
+			channel.close();
+		}
+	}
+}
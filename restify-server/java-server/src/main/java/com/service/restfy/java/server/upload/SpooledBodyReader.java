@@ -0,0 +1,37 @@
+package com.service.restfy.java.server.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Gives the {@link SpooledBody} of the request to the resource methods taking it as entity parameter.
+ */
+@Provider
+public class SpooledBodyReader implements MessageBodyReader<SpooledBody> {
+	@Context HttpServletRequest request;
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+		return type==SpooledBody.class;
+	}
+
+	@Override
+	public SpooledBody readFrom(Class<SpooledBody> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+			MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+		Object body = request.getAttribute(SpooledBody.ATTRIBUTE);
+		if (!(body instanceof SpooledBody))
+			throw new InternalServerErrorException("Streaming upload not enabled for the context");
+		return (SpooledBody)body;
+	}
+}
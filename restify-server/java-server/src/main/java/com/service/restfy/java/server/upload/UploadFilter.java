@@ -0,0 +1,168 @@
+package com.service.restfy.java.server.upload;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads the request bodies of a context through an {@link UploadSpooler} before dispatching the
+ * request, the resource reads them back from memory or from the temporary file.
+ * Form posts are left to the container, which parses their parameters.
+ */
+public class UploadFilter implements Filter {
+	private UploadSpooler spooler = null;
+
+	public UploadFilter(UploadSpooler spooler) {
+		super();
+		this.spooler = spooler;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		HttpServletResponse httpResponse = (HttpServletResponse)response;
+		if (!hasBody(httpRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		long contentLength = httpRequest.getContentLengthLong();
+		if (spooler.exceedsMaxSize(contentLength)) {
+			httpResponse.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, spooler.rejected(contentLength).getMessage());
+			return;
+		}
+		final SpooledBody body;
+		try {
+			body = spooler.spool(request.getInputStream());
+		} catch (UploadTooLargeException e) {
+			httpResponse.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+			return;
+		}
+		request.setAttribute(SpooledBody.ATTRIBUTE, body);
+		boolean async = false;
+		try {
+			chain.doFilter(new SpooledRequest(httpRequest, body), response);
+			async = request.isAsyncStarted();
+			if (async) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					public void onComplete(AsyncEvent event) {
+						body.delete();
+					}
+
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					public void onError(AsyncEvent event) {
+					}
+
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			}
+		} finally {
+			if (!async)
+				body.delete();
+		}
+	}
+
+	private static boolean hasBody(HttpServletRequest request) {
+		if (request.getContentLengthLong()==0 || (request.getContentLengthLong()<0 && request.getHeader("Transfer-Encoding")==null))
+			return false;
+		String contentType = request.getContentType();
+		return contentType==null || !contentType.toLowerCase().startsWith("application/x-www-form-urlencoded");
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	/**
+	 * Request reading its body from the {@link SpooledBody}.
+	 */
+	private static class SpooledRequest extends HttpServletRequestWrapper {
+		private SpooledBody body;
+		private ServletInputStream inputStream = null;
+		private BufferedReader reader = null;
+
+		private SpooledRequest(HttpServletRequest request, SpooledBody body) {
+			super(request);
+			this.body = body;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() throws IOException {
+			if (reader!=null)
+				throw new IllegalStateException("getReader() already called");
+			if (inputStream==null) {
+				final InputStream content = body.openStream();
+				inputStream = new ServletInputStream() {
+					private boolean finished = false;
+
+					@Override
+					public int read() throws IOException {
+						int read = content.read();
+						finished = read<0;
+						return read;
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						int read = content.read(b, off, len);
+						finished = read<0;
+						return read;
+					}
+
+					@Override
+					public void close() throws IOException {
+						content.close();
+					}
+
+					@Override
+					public boolean isFinished() {
+						return finished;
+					}
+
+					@Override
+					public boolean isReady() {
+						return true;
+					}
+
+					@Override
+					public void setReadListener(ReadListener readListener) {
+						throw new IllegalStateException("Spooled request bodies are read blocking");
+					}
+				};
+			}
+			return inputStream;
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			if (reader==null) {
+				if (inputStream!=null)
+					throw new IllegalStateException("getInputStream() already called");
+				String encoding = getCharacterEncoding();
+				reader = new BufferedReader(new InputStreamReader(body.openStream(), encoding!=null ? encoding : "ISO-8859-1"));
+			}
+			return reader;
+		}
+	}
+}
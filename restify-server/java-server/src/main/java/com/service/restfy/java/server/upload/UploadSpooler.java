@@ -0,0 +1,172 @@
+package com.service.restfy.java.server.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+
+/**
+ * Streaming upload mode of a context. Request bodies up to the threshold are kept in memory, larger
+ * ones are written to a temporary file through a {@link FileChannel} and pooled direct buffers, so a
+ * large upload never lands on the heap as a whole. Bodies over the maximum size are rejected, before
+ * being read when the request declares its length.
+ * A spooler is owned by the server, so its buffer pool and statistics survive the reloads of the handler tree.
+ */
+public class UploadSpooler {
+	public static final int DEFAULT_THRESHOLD = 64 * 1024;
+	public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private int threshold = DEFAULT_THRESHOLD;
+	private long maxSize = DEFAULT_MAX_SIZE;
+	private File directory = null;
+	private ByteBufferPool bufferPool = new ArrayByteBufferPool(0, 4096, BUFFER_SIZE);
+	private AtomicLong requests = new AtomicLong(0L);
+	private AtomicLong spooled = new AtomicLong(0L);
+	private AtomicLong spooledBytes = new AtomicLong(0L);
+	private AtomicLong rejected = new AtomicLong(0L);
+
+	public UploadSpooler() {
+		super();
+	}
+
+	/**
+	 * @param threshold body size in bytes above which the body is written to a temporary file
+	 * @param maxSize maximum body size in bytes, 0 or less for no limit
+	 * @param directory directory of the temporary files, null for the system temporary directory
+	 */
+	public UploadSpooler(int threshold, long maxSize, File directory) {
+		super();
+		this.threshold = threshold;
+		this.maxSize = maxSize;
+		this.directory = directory;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	protected boolean exceedsMaxSize(long length) {
+		return maxSize>0 && length>maxSize;
+	}
+
+	/**
+	 * Reads the whole body, the caller must {@link SpooledBody#delete() delete} the returned body once
+	 * the request is completed.
+	 * @throws UploadTooLargeException if the body exceeds the maximum size
+	 */
+	public SpooledBody spool(InputStream input) throws IOException {
+		requests.incrementAndGet();
+		byte[] chunk = new byte[Math.min(threshold + 1, BUFFER_SIZE)];
+		byte[] memory = new byte[0];
+		int length = 0;
+		int read = 0;
+		while (length<=threshold && (read = input.read(chunk))>=0) {
+			if (length + read > memory.length) {
+				byte[] grown = new byte[Math.max(length + read, Math.min(memory.length * 2, threshold + chunk.length))];
+				System.arraycopy(memory, 0, grown, 0, length);
+				memory = grown;
+			}
+			System.arraycopy(chunk, 0, memory, length, read);
+			length += read;
+			checkSize(length);
+		}
+		if (length<=threshold)
+			return new SpooledBody(memory, length);
+		return spoolToFile(input, memory, length);
+	}
+
+	private SpooledBody spoolToFile(InputStream input, byte[] head, int headLength) throws IOException {
+		File file = File.createTempFile("restfy-upload-", ".tmp", directory);
+		long length = 0L;
+		boolean completed = false;
+		ByteBuffer buffer = bufferPool.acquire(BUFFER_SIZE, true);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			length = write(channel, buffer, head, headLength);
+			byte[] chunk = new byte[BUFFER_SIZE];
+			int read = 0;
+			while ((read = input.read(chunk))>=0) {
+				checkSize(length + read);
+				length += write(channel, buffer, chunk, read);
+			}
+			completed = true;
+		} finally {
+			bufferPool.release(buffer);
+			randomAccessFile.close();
+			if (!completed)
+				file.delete();
+		}
+		spooled.incrementAndGet();
+		spooledBytes.addAndGet(length);
+		return new SpooledBody(file, length, bufferPool);
+	}
+
+	private static int write(FileChannel channel, ByteBuffer buffer, byte[] data, int length) throws IOException {
+		int offset = 0;
+		while (offset<length) {
+			buffer.clear();
+			int size = Math.min(buffer.remaining(), length - offset);
+			buffer.put(data, offset, size);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			offset += size;
+		}
+		return length;
+	}
+
+	private void checkSize(long length) throws UploadTooLargeException {
+		if (exceedsMaxSize(length))
+			throw rejected(length);
+	}
+
+	protected UploadTooLargeException rejected(long length) {
+		rejected.incrementAndGet();
+		return new UploadTooLargeException("Request body of " + length + " bytes exceeds the limit of " + maxSize + " bytes");
+	}
+
+	/**
+	 * @return request bodies read by the spooler
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return request bodies written to a temporary file
+	 */
+	public long getSpooled() {
+		return spooled.get();
+	}
+
+	public long getSpooledBytes() {
+		return spooledBytes.get();
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "threshold=" + threshold + " maxSize=" + maxSize + " requests=" + getRequests() + " spooled=" + getSpooled()
+				+ " spooledBytes=" + getSpooledBytes() + " rejected=" + getRejected();
+	}
+}
@@ -0,0 +1,14 @@
+package com.service.restfy.java.server.upload;
+
+import java.io.IOException;
+
+/**
+ * Request body exceeding the maximum size of an {@link UploadSpooler}.
+ */
+public class UploadTooLargeException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	public UploadTooLargeException(String message) {
+		super(message);
+	}
+}
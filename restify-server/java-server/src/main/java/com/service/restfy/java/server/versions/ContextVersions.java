@@ -0,0 +1,256 @@
+package com.service.restfy.java.server.versions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.service.restfy.java.server.ContextDeployment;
+
+/**
+ * Versions of a context deployed side by side under the same public path. The primary version is
+ * the one mapped on the path, the others are reachable only through the {@link VersionRoutingFilter},
+ * which routes the requests to the active version and, when a canary is set, a share of them to the
+ * canary version. The in-flight requests of each version are counted, so a retired version can be
+ * drained before its servlet is removed.
+ */
+public class ContextVersions {
+	private String contextPath = null;
+	private String primary = null;
+	private volatile String active = null;
+	private volatile Canary canary = null;
+	private Map<String, ContextDeployment> deployments = new LinkedHashMap<String, ContextDeployment>(0);
+	private Map<String, VersionMetrics> metrics = new LinkedHashMap<String, VersionMetrics>(0);
+	private Map<String, AtomicInteger> inFlight = new LinkedHashMap<String, AtomicInteger>(0);
+
+	public ContextVersions(ContextDeployment primary) {
+		super();
+		this.contextPath = primary.getContextPath();
+		this.primary = primary.getVersion();
+		this.active = primary.getVersion();
+		deployments.put(primary.getVersion(), primary);
+		metrics.put(primary.getVersion(), new VersionMetrics());
+	}
+
+	/**
+	 * Name of the servlet holder of a deployment version.
+	 */
+	public static String servletName(String contextPath, String version) {
+		return "restfy:" + contextPath + "@" + version;
+	}
+
+	public String getContextPath() {
+		return contextPath;
+	}
+
+	public String getPrimary() {
+		return primary;
+	}
+
+	public String getActive() {
+		return active;
+	}
+
+	/**
+	 * @return the canary version, null if no canary is set
+	 */
+	public String getCanary() {
+		Canary current = canary;
+		return current!=null ? current.version : null;
+	}
+
+	/**
+	 * @return percentage of the requests routed to the canary version
+	 */
+	public int getCanaryWeight() {
+		Canary current = canary;
+		return current!=null ? current.weight : 0;
+	}
+
+	public synchronized VersionMetrics getMetrics(String version) {
+		return metrics.get(version);
+	}
+
+	public synchronized ContextDeployment getDeployment(String version) {
+		return deployments.get(version);
+	}
+
+	public synchronized List<String> getVersions() {
+		return new ArrayList<String>(deployments.keySet());
+	}
+
+	/**
+	 * @return deployments of the versions other than the primary one
+	 */
+	public synchronized List<ContextDeployment> getSecondaryDeployments() {
+		List<ContextDeployment> secondary = new ArrayList<ContextDeployment>(deployments.size());
+		for(ContextDeployment deployment: deployments.values()) {
+			if (!deployment.getVersion().equals(primary))
+				secondary.add(deployment);
+		}
+		return secondary;
+	}
+
+	public synchronized void add(ContextDeployment deployment) {
+		if (deployments.containsKey(deployment.getVersion()))
+			throw new IllegalStateException("Version " + deployment.getVersion() + " already deployed in context " + contextPath);
+		deployments.put(deployment.getVersion(), deployment);
+		metrics.put(deployment.getVersion(), new VersionMetrics());
+	}
+
+	/**
+	 * Counts a request entering a version.
+	 * @return false if the version is not deployed anymore, the request must not reach it
+	 */
+	public synchronized boolean enter(String version) {
+		if (!deployments.containsKey(version))
+			return false;
+		AtomicInteger requests = inFlight.get(version);
+		if (requests==null)
+			inFlight.put(version, requests = new AtomicInteger(0));
+		requests.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Counts a request of a version completed, after a successful {@link #enter(String)}.
+	 */
+	public synchronized void exit(String version) {
+		AtomicInteger requests = inFlight.get(version);
+		if (requests!=null && requests.decrementAndGet()<=0)
+			notifyAll();
+	}
+
+	public synchronized int getInFlight(String version) {
+		AtomicInteger requests = inFlight.get(version);
+		return requests!=null ? requests.get() : 0;
+	}
+
+	/**
+	 * Waits for the in-flight requests of a retired version, no new request can enter it.
+	 * @return false if requests are still running after the timeout
+	 */
+	public synchronized boolean awaitRetired(String version, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		AtomicInteger requests = inFlight.get(version);
+		while (requests!=null && requests.get()>0) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining<=0)
+				return false;
+			wait(remaining);
+		}
+		inFlight.remove(version);
+		return true;
+	}
+
+	/**
+	 * Routes the traffic of the context to the given version, atomically.
+	 */
+	public synchronized void activate(String version) {
+		if (!deployments.containsKey(version))
+			throw new IllegalStateException("Version " + version + " not deployed in context " + contextPath);
+		active = version;
+		if (canary!=null && canary.version.equals(version))
+			canary = null;
+	}
+
+	/**
+	 * Routes the given percentage of the requests to a version other than the active one, a weight
+	 * of 0 removes the canary. The metrics of both versions restart from zero to be compared.
+	 */
+	public synchronized void setCanary(String version, int weight) {
+		if (weight<0 || weight>100)
+			throw new IllegalArgumentException("Canary weight must be between 0 and 100");
+		if (weight==0) {
+			canary = null;
+			return;
+		}
+		if (!deployments.containsKey(version))
+			throw new IllegalStateException("Version " + version + " not deployed in context " + contextPath);
+		if (version.equals(active))
+			throw new IllegalStateException("Version " + version + " is already active in context " + contextPath);
+		canary = new Canary(version, weight);
+		metrics.put(version, new VersionMetrics());
+		metrics.put(active, new VersionMetrics());
+	}
+
+	/**
+	 * Chooses the version of a request not asking for a given one.
+	 * @param stickyKey key of the client, the clients with the same key get the same version, null to choose randomly
+	 * @param assignedVersion version previously assigned to the client, kept while it is still the active or the canary one
+	 */
+	public String route(String stickyKey, String assignedVersion) {
+		Canary current = canary;
+		String stable = active;
+		if (current==null)
+			return stable;
+		if (assignedVersion!=null && (assignedVersion.equals(current.version) || assignedVersion.equals(stable)))
+			return assignedVersion;
+		int bucket = stickyKey!=null ? (stickyKey.hashCode() & Integer.MAX_VALUE) % 100 : ThreadLocalRandom.current().nextInt(100);
+		return bucket<current.weight ? current.version : stable;
+	}
+
+	/**
+	 * Removes a version other than the active one. When the primary version is retired the active one
+	 * becomes primary, it is mapped on the public path from the next reload. Its requests still running
+	 * are waited with {@link #awaitRetired(String, long)}.
+	 * @return the removed deployment
+	 */
+	public synchronized ContextDeployment retire(String version) {
+		if (version.equals(active))
+			throw new IllegalStateException("Version " + version + " is active in context " + contextPath + ", switch to another version first");
+		ContextDeployment deployment = deployments.remove(version);
+		if (deployment==null)
+			throw new IllegalStateException("Version " + version + " not deployed in context " + contextPath);
+		metrics.remove(version);
+		if (canary!=null && canary.version.equals(version))
+			canary = null;
+		if (version.equals(primary))
+			primary = active;
+		return deployment;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder line = new StringBuilder(contextPath);
+		String separator = " ";
+		for(String version: deployments.keySet()) {
+			line.append(separator).append(version);
+			if (version.equals(active))
+				line.append("(active)");
+			if (version.equals(primary))
+				line.append("(primary)");
+			if (version.equals(getCanary()))
+				line.append("(canary ").append(getCanaryWeight()).append("%)");
+			separator = ",";
+		}
+		return line.toString();
+	}
+
+	/**
+	 * @return one line per version with its metrics
+	 */
+	public synchronized String format() {
+		StringBuilder lines = new StringBuilder();
+		for(String version: deployments.keySet()) {
+			String role = version.equals(active) ? "active" : version.equals(getCanary()) ? "canary" : "idle";
+			lines.append(contextPath).append(' ').append(version).append(' ').append(role);
+			if (version.equals(getCanary()))
+				lines.append(' ').append(getCanaryWeight()).append('%');
+			lines.append(' ').append(metrics.get(version)).append('\n');
+		}
+		return lines.toString();
+	}
+
+	private static class Canary {
+		private String version;
+		private int weight;
+
+		private Canary(String version, int weight) {
+			this.version = version;
+			this.weight = weight;
+		}
+	}
+}
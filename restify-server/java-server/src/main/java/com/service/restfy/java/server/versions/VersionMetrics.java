@@ -0,0 +1,94 @@
+package com.service.restfy.java.server.versions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Request count, server errors and latency histogram of a context version, used to compare a canary
+ * version with the stable one.
+ */
+public class VersionMetrics {
+	/**
+	 * Upper bounds in milliseconds of the latency buckets, the last bucket has no upper bound.
+	 */
+	public static final long[] BUCKETS = {1L, 2L, 5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L};
+
+	private AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+	private AtomicLong requests = new AtomicLong(0L);
+	private AtomicLong errors = new AtomicLong(0L);
+	private AtomicLong totalNanos = new AtomicLong(0L);
+
+	public void record(long nanos, int status) {
+		requests.incrementAndGet();
+		if (status>=500)
+			errors.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int bucket = 0;
+		while (bucket<BUCKETS.length && millis>=BUCKETS[bucket])
+			bucket++;
+		histogram.incrementAndGet(bucket);
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return responses with a 5xx status
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public double getErrorRate() {
+		long count = requests.get();
+		return count>0 ? (double)errors.get() / count : 0d;
+	}
+
+	public long getAverageMillis() {
+		long count = requests.get();
+		return count>0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / count) : 0L;
+	}
+
+	/**
+	 * @return counts of the latency buckets, bounded by {@link #BUCKETS}
+	 */
+	public long[] getHistogram() {
+		long[] counts = new long[histogram.length()];
+		for(int i=0; i<counts.length; i++) {
+			counts[i] = histogram.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * @return upper bound in milliseconds of the bucket holding the given percentile, -1 if the
+	 * percentile falls in the unbounded bucket
+	 */
+	public long getPercentileMillis(double percentile) {
+		long[] counts = getHistogram();
+		long total = 0L;
+		for(long count: counts) {
+			total += count;
+		}
+		if (total==0L)
+			return 0L;
+		long rank = (long)Math.ceil(total * percentile);
+		long seen = 0L;
+		for(int i=0; i<BUCKETS.length; i++) {
+			seen += counts[i];
+			if (seen>=rank)
+				return BUCKETS[i];
+		}
+		return -1L;
+	}
+
+	@Override
+	public String toString() {
+		return "requests=" + getRequests() + " errors=" + getErrors() + " avg=" + getAverageMillis()
+				+ "ms p50<=" + getPercentileMillis(0.5d) + "ms p95<=" + getPercentileMillis(0.95d)
+				+ "ms p99<=" + getPercentileMillis(0.99d) + "ms";
+	}
+}
@@ -0,0 +1,173 @@
+package com.service.restfy.java.server.versions;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+
+/**
+ * Routes the requests of the versioned contexts to the servlet of their active version. A request can
+ * ask for a given version with the {@link #VERSION_HEADER} header, for instance to warm a version up
+ * before switching the traffic to it. The header is honoured only for the requests of the local
+ * connector and of the trusted client addresses, the loopback ones by default, it is ignored for the
+ * other clients so they cannot reach a version not released yet. The batch, mirror and replay
+ * sub-requests, sent through the local connector on behalf of clients, never carry the header. While a canary is set the clients are assigned a version by
+ * their {@link #STICKY_HEADER} header or, without it, randomly and the assignment is kept in the
+ * {@link #VERSION_COOKIE} cookie. The latency of the requests is recorded in the {@link VersionMetrics}
+ * of their version.
+ */
+public class VersionRoutingFilter implements Filter {
+	public static final String VERSION_HEADER = "X-Restfy-Version";
+	public static final String STICKY_HEADER = "X-Restfy-Sticky";
+	public static final String VERSION_COOKIE = "RESTFY_VERSION";
+	public static final Set<String> DEFAULT_TRUSTED_ADDRESSES = Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList("127.0.0.1", "0:0:0:0:0:0:0:1")));
+
+	private Map<String, ContextVersions> contextVersions = null;
+	private Set<String> trustedAddresses = DEFAULT_TRUSTED_ADDRESSES;
+
+	/**
+	 * @param contextVersions versions by context path, shared with the server and read at every request
+	 */
+	public VersionRoutingFilter(Map<String, ContextVersions> contextVersions) {
+		this(contextVersions, DEFAULT_TRUSTED_ADDRESSES);
+	}
+
+	/**
+	 * @param trustedAddresses client addresses allowed to ask for a version with the {@link #VERSION_HEADER} header
+	 */
+	public VersionRoutingFilter(Map<String, ContextVersions> contextVersions, Collection<String> trustedAddresses) {
+		super();
+		this.contextVersions = contextVersions;
+		this.trustedAddresses = new LinkedHashSet<String>(trustedAddresses);
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if (contextVersions.isEmpty() || !(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest httpRequest = (HttpServletRequest)request;
+		ContextVersions versions = contextVersions.get(httpRequest.getServletPath() + "/*");
+		if (versions==null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletResponse httpResponse = (HttpServletResponse)response;
+		String version = isTrusted(httpRequest) ? httpRequest.getHeader(VERSION_HEADER) : null;
+		if (version==null) {
+			String assigned = getCookie(httpRequest, VERSION_COOKIE);
+			String sticky = httpRequest.getHeader(STICKY_HEADER);
+			version = versions.route(sticky, sticky==null ? assigned : null);
+			if (sticky==null && versions.getCanary()!=null && !version.equals(assigned)) {
+				Cookie cookie = new Cookie(VERSION_COOKIE, version);
+				cookie.setPath(httpRequest.getContextPath() + httpRequest.getServletPath());
+				cookie.setHttpOnly(true);
+				httpResponse.addCookie(cookie);
+			}
+		}
+		else if (versions.getDeployment(version)==null) {
+			httpResponse.sendError(HttpServletResponse.SC_NOT_FOUND, "Version " + version + " not deployed");
+			return;
+		}
+		String servletName = ContextVersions.servletName(versions.getContextPath(), version);
+		Request baseRequest = Request.getBaseRequest(request);
+		RequestDispatcher dispatcher = null;
+		if (baseRequest==null || !servletName.equals(baseRequest.getServletName())) {
+			dispatcher = request.getServletContext().getNamedDispatcher(servletName);
+			if (dispatcher==null) {
+				httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Version " + version + " not available");
+				return;
+			}
+		}
+		if (!versions.enter(version)) {
+			httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Version " + version + " not available");
+			return;
+		}
+		final ContextVersions entered = versions;
+		final String enteredVersion = version;
+		final VersionMetrics metrics = versions.getMetrics(version);
+		final long start = System.nanoTime();
+		boolean async = false;
+		boolean failed = false;
+		try {
+			if (dispatcher!=null)
+				dispatcher.forward(request, response);
+			else
+				chain.doFilter(request, response);
+			async = request.isAsyncStarted();
+			if (async) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					public void onComplete(AsyncEvent event) {
+						if (metrics!=null)
+							metrics.record(System.nanoTime() - start, ((HttpServletResponse)event.getSuppliedResponse()).getStatus());
+						entered.exit(enteredVersion);
+					}
+
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					public void onError(AsyncEvent event) {
+					}
+
+					public void onStartAsync(AsyncEvent event) {
+					}
+				});
+			}
+		} catch (Throwable e) {
+			failed = true;
+			throw e;
+		} finally {
+			if (!async) {
+				if (metrics!=null)
+					metrics.record(System.nanoTime() - start, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus());
+				versions.exit(version);
+			}
+		}
+	}
+
+	private boolean isTrusted(HttpServletRequest request) {
+		Request baseRequest = Request.getBaseRequest(request);
+		if (baseRequest!=null && baseRequest.getHttpChannel()!=null && baseRequest.getHttpChannel().getConnector() instanceof LocalConnector)
+			return true;
+		return trustedAddresses.contains(request.getRemoteAddr());
+	}
+
+	private static String getCookie(HttpServletRequest request, String name) {
+		Cookie[] cookies = request.getCookies();
+		if (cookies!=null) {
+			for(Cookie cookie: cookies) {
+				if (name.equals(cookie.getName()))
+					return cookie.getValue();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
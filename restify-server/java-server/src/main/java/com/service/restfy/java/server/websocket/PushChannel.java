@@ -0,0 +1,216 @@
+package com.service.restfy.java.server.websocket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WebSocket context pushing messages to its connected clients, deployed by the server next to the
+ * Jersey holders. Every connection has a bounded outbound queue, see {@link PushConnection}.
+ * A channel is owned by the server, so its statistics survive the reloads of the handler tree,
+ * while the connections are closed with the generation of the handler tree that accepted them.
+ */
+public class PushChannel {
+	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server");
+
+	public static final int DEFAULT_MAX_QUEUED = 256;
+	public static final long DEFAULT_IDLE_TIMEOUT = 300000L;
+
+	private int maxQueued = DEFAULT_MAX_QUEUED;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private boolean dropOnOverflow = false;
+	private PushListener listener = null;
+	private Set<PushConnection> connections = Collections.newSetFromMap(new ConcurrentHashMap<PushConnection, Boolean>());
+	private AtomicLong opened = new AtomicLong(0L);
+	private AtomicLong closed = new AtomicLong(0L);
+	private AtomicLong broadcasts = new AtomicLong(0L);
+	private AtomicLong sent = new AtomicLong(0L);
+	private AtomicLong received = new AtomicLong(0L);
+	private AtomicLong dropped = new AtomicLong(0L);
+	private AtomicLong slowConsumers = new AtomicLong(0L);
+	private AtomicLong failed = new AtomicLong(0L);
+	private AtomicInteger maxQueuedSeen = new AtomicInteger(0);
+
+	public PushChannel() {
+		super();
+	}
+
+	/**
+	 * @param maxQueued messages waiting to be written to a connection, beyond them the overflow policy applies
+	 * @param dropOnOverflow true to drop the messages of a full queue, false to close the connection
+	 */
+	public PushChannel(int maxQueued, boolean dropOnOverflow) {
+		super();
+		if (maxQueued<1)
+			throw new IllegalArgumentException("Maximum queued messages must be positive: " + maxQueued);
+		this.maxQueued = maxQueued;
+		this.dropOnOverflow = dropOnOverflow;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public boolean isDropOnOverflow() {
+		return dropOnOverflow;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Milliseconds a connection without traffic stays open.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public PushListener getListener() {
+		return listener;
+	}
+
+	public void setListener(PushListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Queues the message on every open connection.
+	 * @return connections the message was queued to
+	 */
+	public int broadcast(String message) {
+		broadcasts.incrementAndGet();
+		int queued = 0;
+		for(PushConnection connection: connections) {
+			if (connection.send(message))
+				queued++;
+		}
+		return queued;
+	}
+
+	public List<PushConnection> getConnections() {
+		return new ArrayList<PushConnection>(connections);
+	}
+
+	void opened(PushConnection connection) {
+		connections.add(connection);
+		opened.incrementAndGet();
+		if (listener!=null)
+			listener.onOpen(connection);
+	}
+
+	void closed(PushConnection connection, int statusCode, String reason) {
+		if (!connections.remove(connection))
+			return;
+		closed.incrementAndGet();
+		if (listener!=null)
+			listener.onClose(connection, statusCode, reason);
+	}
+
+	void received(PushConnection connection, String message) {
+		received.incrementAndGet();
+		if (listener!=null) {
+			try {
+				listener.onMessage(connection, message);
+			} catch (RuntimeException e) {
+				logger.warn("Jetty 2 Server push listener failed on message", e);
+			}
+		}
+	}
+
+	void queued(int depth) {
+		int max = maxQueuedSeen.get();
+		while (depth>max && !maxQueuedSeen.compareAndSet(max, depth)) {
+			max = maxQueuedSeen.get();
+		}
+	}
+
+	void sent() {
+		sent.incrementAndGet();
+	}
+
+	void dropped() {
+		dropped.incrementAndGet();
+	}
+
+	void slowConsumer() {
+		slowConsumers.incrementAndGet();
+	}
+
+	void failed(int messages) {
+		failed.addAndGet(messages);
+	}
+
+	/**
+	 * @return connections currently open
+	 */
+	public int getActiveConnections() {
+		return connections.size();
+	}
+
+	public long getOpened() {
+		return opened.get();
+	}
+
+	public long getClosed() {
+		return closed.get();
+	}
+
+	public long getBroadcasts() {
+		return broadcasts.get();
+	}
+
+	/**
+	 * @return messages written to the clients
+	 */
+	public long getSent() {
+		return sent.get();
+	}
+
+	public long getReceived() {
+		return received.get();
+	}
+
+	/**
+	 * @return messages not queued because the outbound queue of the connection was full
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return connections closed because their outbound queue was full
+	 */
+	public long getSlowConsumers() {
+		return slowConsumers.get();
+	}
+
+	/**
+	 * @return messages lost by failed writes
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return deepest outbound queue seen
+	 */
+	public int getMaxQueuedSeen() {
+		return maxQueuedSeen.get();
+	}
+
+	@Override
+	public String toString() {
+		return "connections=" + getActiveConnections() + " opened=" + getOpened() + " closed=" + getClosed()
+				+ " broadcasts=" + getBroadcasts() + " sent=" + getSent() + " received=" + getReceived()
+				+ " dropped=" + getDropped() + " slowConsumers=" + getSlowConsumers() + " failed=" + getFailed()
+				+ " maxQueued=" + getMaxQueuedSeen() + "/" + maxQueued;
+	}
+}
@@ -0,0 +1,160 @@
+package com.service.restfy.java.server.websocket;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * WebSocket connection of a {@link PushChannel}. A single message is written at a time, the next one
+ * is written when the previous write completes, so a slow client fills its bounded outbound queue
+ * instead of the network buffers of the server. When the queue is full the message is dropped or the
+ * connection is closed, depending on the overflow policy of the channel.
+ */
+public class PushConnection implements WebSocketListener, WriteCallback {
+	private PushChannel channel;
+	private Queue<String> outbound;
+	private volatile Session session = null;
+	private boolean writing = false;
+	private boolean closed = false;
+
+	PushConnection(PushChannel channel) {
+		super();
+		this.channel = channel;
+		this.outbound = new ArrayDeque<String>(Math.min(channel.getMaxQueued(), 16));
+	}
+
+	public PushChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the WebSocket session, null before the connection is open
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	public synchronized int getQueued() {
+		return outbound.size();
+	}
+
+	public boolean isOpen() {
+		Session current = session;
+		return current!=null && current.isOpen();
+	}
+
+	/**
+	 * Queues a message for this client.
+	 * @return false if the message was dropped because the connection is closed or its queue is full
+	 */
+	public boolean send(String message) {
+		synchronized (this) {
+			if (closed || session==null)
+				return false;
+			if (writing) {
+				if (outbound.size()>=channel.getMaxQueued()) {
+					overflow();
+					return false;
+				}
+				outbound.add(message);
+				channel.queued(outbound.size());
+				return true;
+			}
+			writing = true;
+		}
+		write(message);
+		return true;
+	}
+
+	/**
+	 * A close frame would wait behind the pending writes, so a slow consumer is disconnected.
+	 */
+	private void overflow() {
+		channel.dropped();
+		if (!channel.isDropOnOverflow()) {
+			closed = true;
+			outbound.clear();
+			channel.slowConsumer();
+			channel.closed(this, StatusCode.POLICY_VIOLATION, "Outbound queue full");
+			try {
+				session.disconnect();
+			} catch (IOException e) {
+				// the connection is already gone
+			}
+		}
+	}
+
+	private void write(String message) {
+		try {
+			session.getRemote().sendString(message, this);
+		} catch (RuntimeException e) {
+			writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeSuccess() {
+		channel.sent();
+		String next;
+		synchronized (this) {
+			next = closed ? null : outbound.poll();
+			if (next==null) {
+				writing = false;
+				return;
+			}
+		}
+		write(next);
+	}
+
+	@Override
+	public void writeFailed(Throwable x) {
+		synchronized (this) {
+			channel.failed(outbound.size() + 1);
+			outbound.clear();
+			writing = false;
+			closed = true;
+		}
+		Session current = session;
+		if (current!=null && current.isOpen())
+			current.close(StatusCode.SERVER_ERROR, "Write failed");
+	}
+
+	@Override
+	public void onWebSocketConnect(Session session) {
+		this.session = session;
+		channel.opened(this);
+	}
+
+	@Override
+	public void onWebSocketText(String message) {
+		channel.received(this, message);
+	}
+
+	@Override
+	public void onWebSocketBinary(byte[] payload, int offset, int len) {
+		session.close(StatusCode.BAD_DATA, "Binary messages not supported");
+	}
+
+	@Override
+	public void onWebSocketClose(int statusCode, String reason) {
+		synchronized (this) {
+			closed = true;
+			outbound.clear();
+		}
+		channel.closed(this, statusCode, reason);
+	}
+
+	@Override
+	public void onWebSocketError(Throwable cause) {
+		synchronized (this) {
+			closed = true;
+			outbound.clear();
+		}
+		channel.closed(this, StatusCode.SERVER_ERROR, cause.getMessage());
+	}
+}
@@ -0,0 +1,12 @@
+package com.service.restfy.java.server.websocket;
+
+/**
+ * Application hook of a {@link PushChannel}, notified of the connections and of the messages sent by the clients.
+ */
+public interface PushListener {
+	void onOpen(PushConnection connection);
+
+	void onMessage(PushConnection connection, String message);
+
+	void onClose(PushConnection connection, int statusCode, String reason);
+}
@@ -0,0 +1,36 @@
+package com.service.restfy.java.server.websocket;
+
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+/**
+ * Upgrades the requests of a push context to connections of its {@link PushChannel}.
+ */
+public class PushServlet extends WebSocketServlet {
+	private static final long serialVersionUID = 1L;
+
+	private transient PushChannel channel;
+
+	public PushServlet(PushChannel channel) {
+		super();
+		this.channel = channel;
+	}
+
+	public PushChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public void configure(WebSocketServletFactory factory) {
+		factory.getPolicy().setIdleTimeout(channel.getIdleTimeout());
+		factory.setCreator(new WebSocketCreator() {
+			@Override
+			public Object createWebSocket(ServletUpgradeRequest request, ServletUpgradeResponse response) {
+				return new PushConnection(channel);
+			}
+		});
+	}
+}
@@ -0,0 +1,27 @@
+package com.service.restfy.java.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("com.service.restfy.ContextRequest")
+@Label("Context Request")
+@Category({"Restfy", "Requests"})
+@Description("Request handled by a server context, recorded above the threshold")
+@Threshold("10 ms")
+class ContextRequestEvent extends Event {
+	@Label("Context Path")
+	String contextPath;
+
+	@Label("Method")
+	String method;
+
+	@Label("URI")
+	String uri;
+
+	@Label("Status")
+	int status;
+}
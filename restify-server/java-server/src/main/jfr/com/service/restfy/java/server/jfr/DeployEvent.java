@@ -0,0 +1,25 @@
+package com.service.restfy.java.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.service.restfy.Deploy")
+@Label("Deploy")
+@Category({"Restfy", "Server"})
+@Description("Installation of a class, jar or war deployment in a server context")
+class DeployEvent extends Event {
+	@Label("Context Path")
+	String contextPath;
+
+	@Label("Deploy Type")
+	String deployType;
+
+	@Label("Reference")
+	String reference;
+
+	@Label("Success")
+	boolean success;
+}
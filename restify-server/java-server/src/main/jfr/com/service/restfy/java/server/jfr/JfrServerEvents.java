@@ -0,0 +1,103 @@
+package com.service.restfy.java.server.jfr;
+
+/**
+ * {@link ServerEvents} backed by the JFR event classes, loaded only when jdk.jfr is available.
+ */
+class JfrServerEvents extends ServerEvents {
+
+	public JfrServerEvents() {
+		super();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public Object beginDeploy() {
+		DeployEvent event = new DeployEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endDeploy(Object scope, String contextPath, String deployType, String reference, boolean success) {
+		if (!(scope instanceof DeployEvent))
+			return;
+		DeployEvent event = (DeployEvent)scope;
+		event.end();
+		if (event.shouldCommit()) {
+			event.contextPath = contextPath;
+			event.deployType = deployType;
+			event.reference = reference;
+			event.success = success;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginLifecycle() {
+		LifecycleEvent event = new LifecycleEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endLifecycle(Object scope, String action, boolean success) {
+		if (!(scope instanceof LifecycleEvent))
+			return;
+		LifecycleEvent event = (LifecycleEvent)scope;
+		event.end();
+		if (event.shouldCommit()) {
+			event.action = action;
+			event.success = success;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginCommand() {
+		LoopbackCommandEvent event = new LoopbackCommandEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endCommand(Object scope, String command, String reply, boolean success) {
+		if (!(scope instanceof LoopbackCommandEvent))
+			return;
+		LoopbackCommandEvent event = (LoopbackCommandEvent)scope;
+		event.end();
+		if (event.shouldCommit()) {
+			event.command = command;
+			event.reply = reply;
+			event.success = success;
+			event.commit();
+		}
+	}
+
+	@Override
+	public Object beginRequest() {
+		ContextRequestEvent event = new ContextRequestEvent();
+		if (!event.isEnabled())
+			return null;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void endRequest(Object scope, String contextPath, String method, String uri, int status) {
+		if (!(scope instanceof ContextRequestEvent))
+			return;
+		ContextRequestEvent event = (ContextRequestEvent)scope;
+		event.end();
+		if (event.shouldCommit()) {
+			event.contextPath = contextPath;
+			event.method = method;
+			event.uri = uri;
+			event.status = status;
+			event.commit();
+		}
+	}
+}
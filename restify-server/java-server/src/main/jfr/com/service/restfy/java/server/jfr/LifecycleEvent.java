@@ -0,0 +1,19 @@
+package com.service.restfy.java.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.service.restfy.Lifecycle")
+@Label("Server Lifecycle")
+@Category({"Restfy", "Server"})
+@Description("Start, stop, reload or handover of the server")
+class LifecycleEvent extends Event {
+	@Label("Action")
+	String action;
+
+	@Label("Success")
+	boolean success;
+}
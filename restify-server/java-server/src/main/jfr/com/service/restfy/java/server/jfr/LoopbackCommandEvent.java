@@ -0,0 +1,22 @@
+package com.service.restfy.java.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.service.restfy.LoopbackCommand")
+@Label("Loopback Command")
+@Category({"Restfy", "Control Plane"})
+@Description("Command received on the loopback admin channel")
+class LoopbackCommandEvent extends Event {
+	@Label("Command")
+	String command;
+
+	@Label("Reply")
+	String reply;
+
+	@Label("Success")
+	boolean success;
+}
@@ -0,0 +1,158 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.capture.CaptureReader;
+import com.service.restfy.java.server.capture.CapturedRequest;
+import com.service.restfy.java.server.capture.ReplayResult;
+import com.service.restfy.java.server.capture.TrafficCapture;
+import com.service.restfy.java.server.capture.TrafficReplay;
+import com.service.restfy.java.server.local.LocalResponse;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.test.services.UploadPoint;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestCaptureRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static RestfyJavaServer jettyServer = null;
+	private static LocalServerClient client = null;
+	private static File captureDir = null;
+	private static final String testResult = "Test";
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestCaptureRestfyJavaServer ..." );
+		captureDir = File.createTempFile("restfy-capture", "");
+		captureDir.delete();
+		jettyServer = new RestfyJavaServer(0);
+		jettyServer.setNetworkConnectorEnabled(false);
+		jettyServer.setLocalConnectorEnabled(true);
+		jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addClassHolder("/upload", UploadPoint.class.getCanonicalName(), null);
+		TrafficCapture capture = new TrafficCapture(captureDir, 1d);
+		capture.setMaxFileSize(512L);
+		jettyServer.setTrafficCapture(capture);
+		jettyServer.start();
+		client = new LocalServerClient(jettyServer);
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		jettyServer.stop();
+		for(File file: TrafficCapture.listFiles(captureDir)) {
+			file.delete();
+		}
+		captureDir.delete();
+	}
+
+	@Test
+	public void test0TestCapture() throws Throwable {
+		logger.info("Sampled requests should be written to the rotated capture log ..." );
+		for(int i=0; i<10; i++) {
+			LocalResponse restResponse = client.get("/simple/entry-point/test?id=" + i).execute();
+			assertEquals(testResult, restResponse.getResponse());
+			Thread.sleep(20L);
+		}
+		assertEquals("11", client.post("/upload/upload-point/text").body("hello world", "text/plain").execute().getResponse());
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (jettyServer.getTrafficCapture().getCaptured()<11 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		jettyServer.getTrafficCapture().close();
+		assertEquals(11, jettyServer.getTrafficCapture().getCaptured());
+		List<File> files = TrafficCapture.listFiles(captureDir);
+		assertTrue(files.size()>1);
+		List<CapturedRequest> requests = new ArrayList<CapturedRequest>();
+		for(File file: files) {
+			CaptureReader reader = new CaptureReader(file);
+			try {
+				CapturedRequest request = null;
+				while ((request = reader.next())!=null)
+					requests.add(request);
+			} finally {
+				reader.close();
+			}
+		}
+		assertEquals(11, requests.size());
+		assertEquals("/simple/entry-point/test?id=0", requests.get(0).getPath());
+		assertTrue(requests.get(9).getArrivalNanos() - requests.get(0).getArrivalNanos()>=180000000L);
+		assertEquals("POST", requests.get(10).getMethod());
+		assertEquals("hello world", new String(requests.get(10).getBody(), "UTF-8"));
+	}
+
+	@Test
+	public void test1TestReplay() throws Throwable {
+		logger.info("A capture should be replayed at a multiple of its pace and as fast as possible ..." );
+		List<File> files = TrafficCapture.listFiles(captureDir);
+		TrafficReplay replay = new TrafficReplay(jettyServer.getLocalConnector());
+		replay.setSpeed(2d);
+		ReplayResult result = replay.replay(files);
+		assertEquals(0, result.getFailures());
+		assertEquals(11L, result.getLatency().getRequests());
+		assertEquals(Long.valueOf(11L), result.getStatuses().get(200));
+		assertTrue(result.getElapsedNanos()>=90000000L);
+		replay.setSpeed(0d);
+		result = replay.replay(files);
+		assertEquals(Long.valueOf(11L), result.getStatuses().get(200));
+		assertEquals(11, jettyServer.getTrafficCapture().getCaptured());
+	}
+
+	@Test
+	public void test2TestRedactedAndMultiValueHeaders() throws Throwable {
+		logger.info("Credential headers should be redacted, multi-value headers kept and records flushed without closing ..." );
+		TrafficCapture capture = jettyServer.getTrafficCapture();
+		capture.setMaxFileSize(TrafficCapture.DEFAULT_MAX_FILE_SIZE);
+		capture.setFlushInterval(100L);
+		capture.close();
+		long captured = capture.getCaptured();
+		String response = jettyServer.getLocalConnector().getResponses("GET /simple/entry-point/test?id=headers HTTP/1.1\r\nHost: localhost\r\n"
+				+ "Authorization: Basic c2VjcmV0\r\nCookie: JSESSIONID=secret\r\nProxy-Authorization: Basic c2VjcmV0\r\n"
+				+ "X-Multi: first\r\nX-Multi: second\r\nConnection: close\r\n\r\n");
+		assertTrue(response.startsWith("HTTP/1.1 200"));
+		long timeout = System.currentTimeMillis() + 2000L;
+		CapturedRequest request = null;
+		while (request==null && System.currentTimeMillis()<timeout) {
+			Thread.sleep(20L);
+			if (capture.getCaptured()>captured)
+				request = last(TrafficCapture.listFiles(captureDir));
+		}
+		assertTrue(request!=null);
+		assertEquals("/simple/entry-point/test?id=headers", request.getPath());
+		for(String name: request.getHeaders().keySet()) {
+			assertTrue(name, !capture.isRedacted(name));
+		}
+		assertEquals(Arrays.asList("first", "second"), request.getHeaders().get("X-Multi"));
+	}
+
+	private static CapturedRequest last(List<File> files) throws Exception {
+		File file = files.get(files.size()-1);
+		if (file.length()<4L)
+			return null;
+		CaptureReader reader = new CaptureReader(file);
+		try {
+			CapturedRequest last = null;
+			CapturedRequest request = null;
+			while ((request = reader.next())!=null)
+				last = request;
+			return last;
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,888 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.ContextDeployment;
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.accounting.ResourceAccountant;
+import com.service.restfy.java.server.accounting.ResourceUsage;
+import com.service.restfy.java.server.batch.BatchDispatcher;
+import com.service.restfy.java.server.coalesce.RequestCoalescer;
+import com.service.restfy.java.server.deploy.DeployWatcher;
+import com.service.restfy.java.server.footprint.ContextFootprint;
+import com.service.restfy.java.server.footprint.HeapEstimator;
+import com.service.restfy.java.server.health.HealthCheck;
+import com.service.restfy.java.server.health.HealthHandler;
+import com.service.restfy.java.server.local.LocalBenchmarkResult;
+import com.service.restfy.java.server.local.LocalResponse;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.manifest.DeploymentManifest;
+import com.service.restfy.java.server.manifest.ManifestContext;
+import com.service.restfy.java.server.mirror.TrafficMirror;
+import com.service.restfy.java.server.snapshot.DeploymentSnapshot;
+import com.service.restfy.java.server.snapshot.SnapshotEntry;
+import com.service.restfy.java.server.test.services.ShadowPoint;
+import com.service.restfy.java.server.test.services.SlowPoint;
+import com.service.restfy.java.server.test.services.UploadPoint;
+import com.service.restfy.java.server.test.services.VersionPoint;
+import com.service.restfy.java.server.trace.RequestTracer;
+import com.service.restfy.java.server.upload.UploadSpooler;
+import com.service.restfy.java.server.versions.ContextVersions;
+import com.service.restfy.java.server.versions.VersionRoutingFilter;
+import com.service.restfy.metrics.MetricsRegistry;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestLocalRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static RestfyJavaServer jettyServer = null;
+	private static LocalServerClient client = null;
+	private static File deployDir = null;
+	private static final String testResult = "Test";
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestLocalRestfyJavaServer ..." );
+		jettyServer = new RestfyJavaServer(0);
+		jettyServer.setNetworkConnectorEnabled(false);
+		jettyServer.setLocalConnectorEnabled(true);
+		jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addConsole("/admin");
+		jettyServer.addBatch("/batch", new BatchDispatcher(2, 10, 3));
+		jettyServer.addClassHolder("/slow", SlowPoint.class.getCanonicalName(), null);
+		jettyServer.setCoalescing("/slow", new RequestCoalescer(5000L, RequestCoalescer.DEFAULT_KEY_HEADERS));
+		jettyServer.addClassHolder("/upload", UploadPoint.class.getCanonicalName(), null);
+		jettyServer.setUploadSpooling("/upload", new UploadSpooler(1024, 100000L, null));
+		jettyServer.addClassHolder("/versioned", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addClassHolder("/canary", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addClassHolder("/mirrored", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addClassHolder("/shadow", ShadowPoint.class.getCanonicalName(), null);
+		jettyServer.setMirroring("/mirrored", new TrafficMirror("/shadow", 1d, 1, 10));
+		deployDir = File.createTempFile("restfy-deploy", "");
+		deployDir.delete();
+		jettyServer.setDeployWatcher(new DeployWatcher(deployDir, 200L));
+		jettyServer.setRequestTracer(new RequestTracer(1d, 5));
+		jettyServer.setResourceAccountant(new ResourceAccountant(1d));
+		jettyServer.setMetricsRegistry(new MetricsRegistry());
+		jettyServer.start();
+		client = new LocalServerClient(jettyServer);
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		jettyServer.stop();
+		for(File file: deployDir.listFiles()) {
+			file.delete();
+		}
+		deployDir.delete();
+	}
+
+	@Test
+	public void test0TestLocalSimpleHolder() throws Throwable {
+		logger.info("A simple Rest Service Holder should be reachable through the local connector ..." );
+		LocalResponse restResponse = client.get("/simple/entry-point/test").accept("text/plain").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals(testResult, restResponse.getResponse());
+	}
+
+	@Test
+	public void test1TestLocalMissingResource() throws Throwable {
+		logger.info("A missing Rest Service should not be found through the local connector ..." );
+		LocalResponse restResponse = client.get("/simple/entry-point/missing").execute();
+		assertEquals(404, restResponse.getCode());
+	}
+
+	@Test
+	public void test2TestLocalParallelRequests() throws Throwable {
+		logger.info("Parallel requests should be served through the local connector ..." );
+		LocalBenchmarkResult result = client.benchmark(client.get("/simple/entry-point/test"), 4, 200);
+		logger.info("Local connector benchmark : " + result);
+		assertEquals(200, result.getRequests());
+		assertEquals(0, result.getFailures());
+		assertTrue(result.getThroughput()>0d);
+	}
+
+	@Test
+	public void test3TestReloadKeepsServing() throws Throwable {
+		logger.info("Requests should be served while the handler tree is reloaded ..." );
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<LocalBenchmarkResult> load = executor.submit(new Callable<LocalBenchmarkResult>() {
+				public LocalBenchmarkResult call() throws Exception {
+					return client.benchmark(client.get("/simple/entry-point/test"), 4, 400);
+				}
+			});
+			jettyServer.reload();
+			LocalBenchmarkResult result = load.get();
+			assertEquals(0, result.getFailures());
+		} finally {
+			executor.shutdown();
+		}
+		LocalResponse restResponse = client.get("/simple/entry-point/test").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals(testResult, restResponse.getResponse());
+		assertTrue(jettyServer.containsHolderInContext("/simple", EntryPoint.class.getCanonicalName()));
+	}
+
+	@Test
+	public void test4TestSlowRequestLog() throws Throwable {
+		logger.info("The slowest sampled requests should be served by the console ..." );
+		LocalResponse restResponse = client.get("/admin/console/slow-requests").execute();
+		assertEquals(200, restResponse.getCode());
+		String[] lines = restResponse.getResponse().split("\n");
+		assertTrue(lines[0].startsWith("sampleRate=1.0"));
+		assertEquals(6, lines.length);
+		assertTrue(lines[1].startsWith("GET /simple/entry-point/test status=200"));
+		assertTrue(lines[1].contains("resource=EntryPoint.test"));
+		assertEquals(5, jettyServer.getRequestTracer().getSlowRequests().size());
+	}
+
+	@Test
+	public void test5TestBatchRequests() throws Throwable {
+		logger.info("Batch sub-requests should be dispatched to the deployed contexts ..." );
+		StringBuilder batch = new StringBuilder("[");
+		for(int i=0; i<5; i++) {
+			batch.append("{\"id\":\"test").append(i).append("\",\"path\":\"/simple/entry-point/test\",\"headers\":{\"Accept\":\"text/plain\"}},");
+		}
+		batch.append("{\"id\":\"missing\",\"path\":\"/simple/entry-point/missing\"}]");
+		LocalResponse restResponse = client.post("/batch").body(batch.toString(), "application/json").execute();
+		assertEquals(200, restResponse.getCode());
+		JsonArray results = Json.createReader(new StringReader(restResponse.getResponse())).readArray();
+		assertEquals(6, results.size());
+		Map<String, JsonObject> byId = new HashMap<String, JsonObject>();
+		for(int i=0; i<results.size(); i++) {
+			byId.put(results.getJsonObject(i).getString("id"), results.getJsonObject(i));
+		}
+		for(int i=0; i<5; i++) {
+			assertEquals(200, byId.get("test"+i).getInt("status"));
+			assertEquals(testResult, byId.get("test"+i).getString("body"));
+		}
+		assertEquals(404, byId.get("missing").getInt("status"));
+		restResponse = client.post("/batch").body("[{\"method\":\"GET\"}]", "application/json").execute();
+		assertEquals(400, restResponse.getCode());
+		try {
+			jettyServer.addBatch("/batch2");
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void test6TestCoalescedRequests() throws Throwable {
+		logger.info("Identical concurrent requests should run the resource once ..." );
+		RequestCoalescer coalescer = jettyServer.getCoalescers().get("/slow/*");
+		LocalBenchmarkResult result = client.benchmark(client.get("/slow/slow-point/wait?ms=300"), 8, 8);
+		assertEquals(0, result.getFailures());
+		assertTrue(SlowPoint.executions.get()<8);
+		assertEquals(8, coalescer.getRequests());
+		assertEquals(8, coalescer.getExecutions() + coalescer.getCollapsed());
+		assertTrue(coalescer.getCollapseRatio()>0d);
+		LocalResponse restResponse = client.get("/slow/slow-point/wait?ms=1").execute();
+		assertEquals("Waited 1", restResponse.getResponse());
+		restResponse = client.get("/admin/console/coalescing").execute();
+		assertTrue(restResponse.getResponse().startsWith("/slow/* requests=9"));
+	}
+
+	@Test
+	public void test7TestSpooledUploads() throws Throwable {
+		logger.info("Request bodies should be spooled to disk above the threshold and rejected above the limit ..." );
+		UploadSpooler spooler = jettyServer.getUploadSpoolers().get("/upload/*");
+		byte[] small = new byte[500];
+		byte[] large = new byte[50000];
+		for(int i=0; i<large.length; i++) {
+			large[i] = (byte)(i % 251);
+		}
+		LocalResponse restResponse = client.post("/upload/upload-point/spooled").body(small, "application/octet-stream").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("500 memory " + UploadPoint.checksum(new ByteArrayInputStream(small)), restResponse.getResponse());
+		restResponse = client.post("/upload/upload-point/spooled").body(large, "application/octet-stream").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("50000 file " + UploadPoint.checksum(new ByteArrayInputStream(large)), restResponse.getResponse());
+		restResponse = client.post("/upload/upload-point/text").body(new String(new char[20000]).replace('\0', 'x'), "text/plain").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("20000", restResponse.getResponse());
+		restResponse = client.post("/upload/upload-point/spooled").body(new byte[200000], "application/octet-stream").execute();
+		assertEquals(413, restResponse.getCode());
+		assertEquals(3, spooler.getRequests());
+		assertEquals(2, spooler.getSpooled());
+		assertEquals(1, spooler.getRejected());
+	}
+
+	@Test
+	public void test8TestResourceUsage() throws Throwable {
+		logger.info("CPU time and allocated bytes should be accounted per context and resource method ..." );
+		ResourceAccountant accountant = jettyServer.getResourceAccountant();
+		accountant.clear();
+		for(int i=0; i<10; i++) {
+			client.get("/simple/entry-point/test").execute();
+		}
+		client.get("/canary/entry-point/test").execute();
+		long timeout = System.currentTimeMillis() + 2000L;
+		while ((usage(accountant, "/simple:EntryPoint.test", 10)==null || usage(accountant, "/canary:EntryPoint.test", 1)==null) && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		ResourceUsage usage = usage(accountant, "/simple:EntryPoint.test", 10);
+		assertTrue(accountant.format(), usage!=null);
+		assertEquals(10, usage.getRequests());
+		assertTrue(usage(accountant, "/canary:EntryPoint.test", 1)!=null);
+		assertTrue(usage.getCpuNanos()>0);
+		assertTrue(usage.getAllocatedBytes()>0);
+		assertEquals("/simple", accountant.getContextUsage().get(0).getName());
+		LocalResponse restResponse = client.get("/admin/console/resource-usage").execute();
+		assertEquals(200, restResponse.getCode());
+		assertTrue(restResponse.getResponse().contains("resource /simple:EntryPoint.test requests=10 "));
+	}
+
+	@Test
+	public void test9TestContextVersions() throws Throwable {
+		logger.info("A new version of a context should be warmed up, switched atomically and the old one retired ..." );
+		jettyServer.deployVersion("/versioned", "v2", VersionPoint.class.getCanonicalName(), null, null);
+		assertEquals(testResult, client.get("/versioned/entry-point/test").execute().getResponse());
+		LocalResponse restResponse = client.get("/versioned/entry-point/test").header(VersionRoutingFilter.VERSION_HEADER, "v2").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("Test v2", restResponse.getResponse());
+		assertEquals(404, client.get("/versioned/entry-point/test").header(VersionRoutingFilter.VERSION_HEADER, "v3").execute().getCode());
+		jettyServer.switchVersion("/versioned", "v2");
+		assertEquals("Test v2", client.get("/versioned/entry-point/test").execute().getResponse());
+		jettyServer.switchVersion("/versioned", "default");
+		assertEquals(testResult, client.get("/versioned/entry-point/test").execute().getResponse());
+		jettyServer.switchVersion("/versioned", "v2");
+		try {
+			jettyServer.retireVersion("/versioned", "v2");
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+		}
+		jettyServer.retireVersion("/versioned", "default");
+		assertEquals("Test v2", client.get("/versioned/entry-point/test").execute().getResponse());
+		jettyServer.reload();
+		assertEquals("Test v2", client.get("/versioned/entry-point/test").execute().getResponse());
+		assertTrue(jettyServer.containsHolderInContext("/versioned", VersionPoint.class.getCanonicalName()));
+		jettyServer.deployVersion("/versioned", "v3", EntryPoint.class.getCanonicalName(), null, null);
+		assertEquals(testResult, client.get("/versioned/entry-point/test").header(VersionRoutingFilter.VERSION_HEADER, "v3").execute().getResponse());
+		jettyServer.retireVersion("/versioned", "v3");
+		assertEquals(404, client.get("/versioned/entry-point/test").header(VersionRoutingFilter.VERSION_HEADER, "v3").execute().getCode());
+		assertEquals(testResult, client.get("/simple/entry-point/test").execute().getResponse());
+	}
+
+	@Test
+	public void testATestCanaryVersion() throws Throwable {
+		logger.info("A weighted share of the clients should be routed to the canary version, sticky by header or cookie ..." );
+		jettyServer.deployVersion("/canary", "v2", VersionPoint.class.getCanonicalName(), null, null);
+		jettyServer.setCanary("/canary", "v2", 50);
+		int canary = 0;
+		for(int i=0; i<100; i++) {
+			String response = client.get("/canary/entry-point/test").header(VersionRoutingFilter.STICKY_HEADER, "client-" + i).execute().getResponse();
+			if (response.equals("Test v2"))
+				canary++;
+			assertEquals(response, client.get("/canary/entry-point/test").header(VersionRoutingFilter.STICKY_HEADER, "client-" + i).execute().getResponse());
+		}
+		assertTrue(canary>20 && canary<80);
+		LocalResponse restResponse = client.get("/canary/entry-point/test").execute();
+		String cookie = restResponse.getHeader("Set-Cookie");
+		assertTrue(cookie.startsWith(VersionRoutingFilter.VERSION_COOKIE + "="));
+		String version = cookie.substring(cookie.indexOf('=') + 1, cookie.indexOf(';'));
+		for(int i=0; i<10; i++) {
+			restResponse = client.get("/canary/entry-point/test").header("Cookie", VersionRoutingFilter.VERSION_COOKIE + "=" + version).execute();
+			assertEquals(version.equals("v2") ? "Test v2" : testResult, restResponse.getResponse());
+			assertEquals(null, restResponse.getHeader("Set-Cookie"));
+		}
+		ContextVersions versions = jettyServer.getContextVersions().get("/canary/*");
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (versions.getMetrics("v2").getRequests() + versions.getMetrics("default").getRequests()<211 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		assertEquals(211, versions.getMetrics("v2").getRequests() + versions.getMetrics("default").getRequests());
+		assertEquals(0, versions.getMetrics("v2").getErrors());
+		restResponse = client.get("/admin/console/versions").execute();
+		assertEquals(200, restResponse.getCode());
+		assertTrue(restResponse.getResponse().contains("/canary/* v2 canary 50% requests="));
+		jettyServer.switchVersion("/canary", "v2");
+		assertEquals(null, versions.getCanary());
+		assertEquals("Test v2", client.get("/canary/entry-point/test").header("Cookie", VersionRoutingFilter.VERSION_COOKIE + "=default").execute().getResponse());
+	}
+
+	@Test
+	public void testBTestShadowMirroring() throws Throwable {
+		logger.info("Sampled requests should be mirrored to the shadow context without affecting the responses ..." );
+		TrafficMirror mirror = jettyServer.getMirrors().get("/mirrored/*");
+		for(int i=0; i<5; i++) {
+			LocalResponse restResponse = client.get("/mirrored/entry-point/test?id=" + i).execute();
+			assertEquals(200, restResponse.getCode());
+			assertEquals(testResult, restResponse.getResponse());
+		}
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (mirror.getShadowMetrics().getRequests()<5 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		assertEquals(5, mirror.getMirrored());
+		assertEquals(5, mirror.getShadowMetrics().getRequests());
+		assertEquals(5, ShadowPoint.executions.get());
+		assertEquals(5, mirror.getPrimaryMetrics().getRequests());
+		assertEquals(5, mirror.getQueueMetrics().getRequests());
+		client.post("/mirrored/entry-point/test").body("{}", "application/json").execute();
+		assertEquals(5, mirror.getMirrored());
+		LocalResponse restResponse = client.get("/admin/console/mirroring").execute();
+		assertTrue(restResponse.getResponse().startsWith("/mirrored/* shadow=/shadow mirrored=5 dropped=0 failures=0"));
+	}
+
+	@Test
+	public void testCTestHotDeployDirectory() throws Throwable {
+		logger.info("Jars copied to the deploy directory should be deployed, invalid ones rejected and removed ones undeployed ..." );
+		DeployWatcher watcher = jettyServer.getDeployWatcher();
+		File jar = new File(deployDir, "hot.jar");
+		Files.copy(new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar").toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		assertEquals(200, waitForStatus("/hot/entry-jar-point/test", 200));
+		assertEquals(testResult, client.get("/hot/entry-jar-point/test").execute().getResponse());
+		long timeout = System.currentTimeMillis() + 5000L;
+		while (watcher.getDeploys()<1 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(50L);
+		}
+		assertEquals(1, watcher.getDeploys());
+		FileOutputStream broken = new FileOutputStream(new File(deployDir, "broken.jar"));
+		broken.write("not a jar".getBytes("UTF-8"));
+		broken.close();
+		while (watcher.getRejected()<1 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(50L);
+		}
+		assertEquals(1, watcher.getRejected());
+		assertTrue(jar.delete());
+		assertEquals(404, waitForStatus("/hot/entry-jar-point/test", 404));
+		timeout = System.currentTimeMillis() + 5000L;
+		while (watcher.getUndeploys()<1 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(50L);
+		}
+		assertEquals(1, watcher.getUndeploys());
+		assertEquals(testResult, client.get("/simple/entry-point/test").execute().getResponse());
+	}
+
+	@Test
+	public void testDTestDeploymentManifest() throws Throwable {
+		logger.info("Deployment manifest should group contexts by port and report all its errors at once ..." );
+		File file = File.createTempFile("restfy-manifest", ".json");
+		try {
+			FileOutputStream output = new FileOutputStream(file);
+			output.write(("{\"contexts\": ["
+					+ "{\"context\": \"/simple\", \"classNames\": \"" + EntryPoint.class.getName() + "\", \"coalesceMaxWait\": 1000},"
+					+ "{\"context\": \"/other\", \"classNames\": \"" + EntryPoint.class.getName() + "\", \"port\": 9191, \"properties\": {\"a\": 1}}"
+					+ "]}").getBytes("UTF-8"));
+			output.close();
+			DeploymentManifest manifest = DeploymentManifest.parse(file);
+			manifest.validate(9190);
+			Map<Integer, List<ManifestContext>> ports = manifest.byPort(9190);
+			assertEquals(2, ports.size());
+			assertEquals("/simple", ports.get(9190).get(0).getContextPath());
+			assertEquals("1", ports.get(9191).get(0).getServiceProperties().get("a"));
+			output = new FileOutputStream(file);
+			output.write(("{\"contexts\": ["
+					+ "{\"context\": \"/simple\", \"classNames\": \"missing.Service\"},"
+					+ "{\"context\": \"/simple\", \"type\": \"JAR_DEPLOY\", \"classNames\": \"a.B\", \"reference\": \"missing.jar\"}"
+					+ "]}").getBytes("UTF-8"));
+			output.close();
+			try {
+				DeploymentManifest.parse(file).validate(9190);
+				assertTrue(false);
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("class missing.Service not found"));
+				assertTrue(e.getMessage().contains("declared twice"));
+				assertTrue(e.getMessage().contains("missing.jar not found"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testETestDeploymentSnapshot() throws Throwable {
+		logger.info("Deployment snapshot should skip the validation of unchanged jars only ..." );
+		File snapshotFile = File.createTempFile("restfy-snapshot", ".json");
+		File jar = File.createTempFile("restfy-snapshot", ".jar");
+		File removedJar = File.createTempFile("restfy-snapshot", ".jar");
+		snapshotFile.delete();
+		try {
+			Files.copy(new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar").toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.copy(jar.toPath(), removedJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			String classNames = "com.service.restfy.java.server.jartest.services.EntryPoint";
+			RestfyJavaServer first = new RestfyJavaServer(true, "/", "localhost", 9197);
+			first.setDeploymentSnapshot(new DeploymentSnapshot(snapshotFile));
+			first.addJar("/from-jar", jar, classNames, null);
+			first.addIsolatedJar("/removed-jar", removedJar, classNames, null);
+			first.saveSnapshot();
+			assertEquals(0, first.getDeploymentSnapshot().getHits());
+			assertEquals(2, first.getDeploymentSnapshot().getMisses());
+			RestfyJavaServer second = new RestfyJavaServer(true, "/", "localhost", 9197);
+			second.setDeploymentSnapshot(new DeploymentSnapshot(snapshotFile));
+			assertEquals(2, second.getDeploymentSnapshot().getEntries().size());
+			SnapshotEntry trusted = second.getDeploymentSnapshot().getEntries().get(0);
+			assertTrue(trusted.getResources().containsKey(classNames));
+			Map<String, String> properties = new HashMap<String, String>();
+			properties.put("mode", "changed");
+			second.addJar("/from-jar", jar, classNames, properties);
+			assertEquals(1, second.getDeploymentSnapshot().getHits());
+			assertEquals(0, second.getDeploymentSnapshot().getMisses());
+			assertTrue(trusted==second.getDeploymentSnapshot().getEntries().get(0));
+			assertEquals("changed", trusted.getServiceProperties().get("mode"));
+			second.getDeploymentSnapshot().retainRecorded();
+			second.getDeploymentSnapshot().save();
+			assertEquals(1, new DeploymentSnapshot(snapshotFile).getEntries().size());
+			assertEquals("changed", new DeploymentSnapshot(snapshotFile).getEntries().get(0).getServiceProperties().get("mode"));
+			FileOutputStream output = new FileOutputStream(jar, true);
+			output.write(0);
+			output.close();
+			DeploymentSnapshot changed = new DeploymentSnapshot(snapshotFile);
+			assertEquals(null, changed.getVerifiedClassNames(jar, classNames));
+			assertEquals(1, changed.getMisses());
+		} finally {
+			jar.delete();
+			removedJar.delete();
+			snapshotFile.delete();
+		}
+	}
+
+	@Test
+	public void testFTestMemoryFootprint() throws Throwable {
+		logger.info("Memory footprint should be estimated for each context ..." );
+		assertEquals(200, client.get("/simple/entry-point/test").execute().getCode());
+		ContextFootprint simple = null;
+		for(ContextFootprint footprint: jettyServer.getMemoryFootprint()) {
+			logger.info("Footprint : " + footprint);
+			if (footprint.getContextPath().equals("/simple/*"))
+				simple = footprint;
+		}
+		assertTrue(simple!=null);
+		assertEquals(ContextFootprint.SERVER_LOADER, simple.getClassLoader());
+		assertTrue(simple.toString(), simple.isComplete());
+		assertTrue(simple.toString(), simple.getApplicationBytes()>1024L && simple.getApplicationBytes()<64L * 1024L * 1024L);
+		assertTrue(simple.getLoadedClasses()>0);
+		HeapEstimator estimator = new HeapEstimator();
+		long bytes = estimator.estimate(new byte[1024 * 1024])[0];
+		assertTrue(String.valueOf(bytes), bytes>=1024L * 1024L && bytes<1024L * 1024L + 64L);
+		Object[] graph = new Object[1000];
+		for(int i=0; i<graph.length; i++) {
+			graph[i] = new byte[1000];
+		}
+		long[] estimate = estimator.estimate(graph);
+		assertEquals(1001L, estimate[1]);
+		assertTrue(String.valueOf(estimate[0]), estimate[0]>=1000L * 1000L && estimate[0]<1100L * 1000L);
+		Map<String, Object> internals = new HashMap<String, Object>();
+		internals.put("lock", new java.util.concurrent.locks.ReentrantLock());
+		internals.put("queue", new java.util.concurrent.ConcurrentLinkedQueue<Object>(Collections.singleton(new byte[1000])));
+		assertTrue(estimator.estimate(internals)[0]>0L);
+		assertTrue(estimator.isComplete());
+		LocalResponse restResponse = client.get("/admin/console/footprint").execute();
+		assertEquals(200, restResponse.getCode());
+		assertTrue(restResponse.getResponse().contains("/slow/* loader=server"));
+	}
+
+	@Test
+	public void testGTestHealthProbes() throws Throwable {
+		logger.info("Liveness and readiness probes should be answered before the handler tree, with the context health hooks ..." );
+		long requests = jettyServer.getStatistics().get("requests");
+		LocalResponse restResponse = client.get(HealthHandler.DEFAULT_PATH + HealthHandler.LIVE).execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("live\n", restResponse.getResponse());
+		restResponse = client.get(HealthHandler.DEFAULT_PATH + HealthHandler.READY).execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals(Long.valueOf(requests), jettyServer.getStatistics().get("requests"));
+		final AtomicBoolean healthy = new AtomicBoolean(false);
+		jettyServer.addHealthCheck("/simple", new HealthCheck() {
+			public boolean isHealthy() throws Exception {
+				if (!healthy.get())
+					throw new IllegalStateException("database down");
+				return true;
+			}
+		}, 0L);
+		try {
+			restResponse = client.get(HealthHandler.DEFAULT_PATH + HealthHandler.READY).execute();
+			assertEquals(503, restResponse.getCode());
+			assertTrue(restResponse.getResponse().contains("context /simple/* unhealthy : database down"));
+			assertTrue(!jettyServer.isReady());
+			healthy.set(true);
+			assertEquals(200, client.get(HealthHandler.DEFAULT_PATH + HealthHandler.READY).execute().getCode());
+		} finally {
+			jettyServer.removeHealthCheck("/simple");
+		}
+	}
+
+	@Test
+	public void testHTestPrometheusMetrics() throws Throwable {
+		logger.info("Request latencies and server statistics should be exposed in the Prometheus text format ..." );
+		assertEquals(200, client.get("/simple/entry-point/test").execute().getCode());
+		assertEquals(404, client.get("/missing-1/path").execute().getCode());
+		assertEquals(404, client.get("/missing-2").execute().getCode());
+		LocalResponse restResponse = client.get("/admin/console/metrics").execute();
+		assertEquals(200, restResponse.getCode());
+		String text = restResponse.getResponse();
+		assertTrue(text, text.contains("# TYPE restfy_request_duration_seconds histogram\n"));
+		assertTrue(text, text.contains("restfy_request_duration_seconds_bucket{port=\"" + jettyServer.getPort() + "\",context=\"/simple\",le=\"+Inf\"}"));
+		assertTrue(text, text.contains("restfy_responses_total{port=\"" + jettyServer.getPort() + "\",context=\"/simple\",status=\"2xx\"}"));
+		assertTrue(text, text.contains("restfy_server_requests{port=\"" + jettyServer.getPort() + "\"}"));
+		assertTrue(text, text.contains("restfy_responses_total{port=\"" + jettyServer.getPort() + "\",context=\"unknown\",status=\"4xx\"}"));
+		assertTrue(text, !text.contains("context=\"/missing"));
+	}
+
+	@Test
+	public void testITestHandoverDrain() throws Throwable {
+		logger.info("A handover should close the port and complete the in-flight requests before the server stops ..." );
+		final RestfyJavaServer old = new RestfyJavaServer(true, "/", "localhost", 9195);
+		old.addClassHolder("/slow", SlowPoint.class.getCanonicalName(), null);
+		old.start();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> inFlight = executor.submit(new Callable<String>() {
+				public String call() throws Exception {
+					HttpURLConnection connection = (HttpURLConnection)new URL("http://localhost:9195/slow/slow-point/wait?ms=500").openConnection();
+					Scanner scanner = new Scanner(connection.getInputStream()).useDelimiter("\\A");
+					try {
+						return connection.getResponseCode() + " " + scanner.next();
+					} finally {
+						scanner.close();
+					}
+				}
+			});
+			long timeout = System.currentTimeMillis() + 5000L;
+			while (old.getStatistics().get("requestsActive")<1L && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10L);
+			}
+			assertTrue(RestfyJavaServer.handoverRemoteServer("localhost", old.getLoopbackPort()));
+			assertEquals("200 Waited 500", inFlight.get(5, TimeUnit.SECONDS));
+			assertTrue(!old.isRunning());
+			try {
+				new Socket("localhost", 9195).close();
+				assertTrue("The handed over port should be closed", false);
+			} catch (ConnectException e) {
+			}
+		} finally {
+			executor.shutdownNow();
+			if (old.isRunning())
+				old.stop();
+		}
+	}
+
+	@Test
+	public void testJTestBatchDispatchesLimit() throws Throwable {
+		logger.info("Sub-requests of concurrent batches should not exceed the dispatches limit ..." );
+		final String[] batches = new String[2];
+		for(int i=0; i<batches.length; i++) {
+			batches[i] = "[{\"id\":\"a\",\"path\":\"/slow/slow-point/wait?ms=300&batch=" + i + "a\"},{\"id\":\"b\",\"path\":\"/slow/slow-point/wait?ms=300&batch=" + i + "b\"}]";
+		}
+		final int[] codes = new int[batches.length];
+		Thread[] threads = new Thread[batches.length];
+		long start = System.nanoTime();
+		for(int i=0; i<threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						codes[index] = client.post("/batch").body(batches[index], "application/json").execute().getCode();
+					} catch (Exception e) {
+						codes[index] = -1;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread: threads) {
+			thread.join();
+		}
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertEquals(200, codes[0]);
+		assertEquals(200, codes[1]);
+		assertTrue("elapsed " + elapsed, elapsed>=600L);
+	}
+
+	@Test
+	public void testKTestCoalescingPrivateRequests() throws Throwable {
+		logger.info("Requests with different cookies or private responses should not be collapsed ..." );
+		RequestCoalescer coalescer = jettyServer.getCoalescers().get("/slow/*");
+		long executions = coalescer.getExecutions();
+		long collapsed = coalescer.getCollapsed();
+		final String[] cookies = new String[] {"session=first", "session=second"};
+		final String[] responses = new String[cookies.length];
+		Thread[] threads = new Thread[cookies.length];
+		for(int i=0; i<threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						responses[index] = client.get("/slow/slow-point/wait?ms=300").header("Cookie", cookies[index]).execute().getResponse();
+					} catch (Exception e) {
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for(Thread thread: threads) {
+			thread.join();
+		}
+		assertEquals("Waited 300", responses[0]);
+		assertEquals("Waited 300", responses[1]);
+		assertEquals(executions + 2, coalescer.getExecutions());
+		assertEquals(collapsed, coalescer.getCollapsed());
+		LocalBenchmarkResult result = client.benchmark(client.get("/slow/slow-point/private?ms=300"), 4, 4);
+		assertEquals(0, result.getFailures());
+		assertEquals(executions + 6, coalescer.getExecutions());
+		assertEquals(collapsed, coalescer.getCollapsed());
+	}
+
+	@Test
+	public void testLTestVersionLoaderAndDrain() throws Throwable {
+		logger.info("A jar version should have its own class loader, closed once its in-flight requests are drained ..." );
+		File jar = new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar");
+		jettyServer.deployVersion("/versioned", "jar", "com.service.restfy.java.server.jartest.services.EntryPoint", jar, null);
+		ContextVersions versions = jettyServer.getContextVersions().get("/versioned/*");
+		URLClassLoader classLoader = (URLClassLoader)versions.getDeployment("jar").getClassLoader();
+		assertTrue(classLoader!=null);
+		assertEquals(testResult, client.get("/versioned/entry-jar-point/test").header(VersionRoutingFilter.VERSION_HEADER, "jar").execute().getResponse());
+		jettyServer.retireVersion("/versioned", "jar");
+		assertEquals(null, classLoader.findResource("META-INF/MANIFEST.MF"));
+		jettyServer.deployVersion("/versioned", "slow", SlowPoint.class.getCanonicalName(), null, null);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<LocalResponse> inFlight = executor.submit(new Callable<LocalResponse>() {
+				public LocalResponse call() throws Exception {
+					return client.get("/versioned/slow-point/wait?ms=500").header(VersionRoutingFilter.VERSION_HEADER, "slow").execute();
+				}
+			});
+			long timeout = System.currentTimeMillis() + 2000L;
+			while (versions.getInFlight("slow")==0 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10L);
+			}
+			assertEquals(1, versions.getInFlight("slow"));
+			jettyServer.retireVersion("/versioned", "slow");
+			assertEquals(0, versions.getInFlight("slow"));
+			assertEquals(200, inFlight.get(1, TimeUnit.SECONDS).getCode());
+			assertEquals("Waited 500", inFlight.get().getResponse());
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(404, client.get("/versioned/slow-point/wait?ms=1").header(VersionRoutingFilter.VERSION_HEADER, "slow").execute().getCode());
+		InetAddress remote = null;
+		for(NetworkInterface networkInterface: Collections.list(NetworkInterface.getNetworkInterfaces())) {
+			for(InetAddress address: Collections.list(networkInterface.getInetAddresses())) {
+				if (!address.isLoopbackAddress() && address instanceof Inet4Address)
+					remote = address;
+			}
+		}
+		if (remote!=null) {
+			List<String> reply = RestfyJavaServer.sendRemoteCommand(remote.getHostAddress(), jettyServer.getLoopbackPort(), "deploy-version /versioned remote " + EntryPoint.class.getCanonicalName());
+			assertTrue(reply.toString(), reply.get(0).startsWith("error"));
+			assertEquals(null, versions.getDeployment("remote"));
+		}
+	}
+
+	@Test
+	public void testMTestVersionHeaderTrust() throws Throwable {
+		logger.info("The version header should be honoured only for the local connector and the trusted addresses ..." );
+		RestfyJavaServer server = new RestfyJavaServer(true, "/", "localhost", 9199);
+		assertTrue(server.getVersionTrustedAddresses().contains("127.0.0.1"));
+		server.setLocalConnectorEnabled(true);
+		server.setVersionTrustedAddresses(Collections.singletonList("192.0.2.123"));
+		server.addClassHolder("/versioned", EntryPoint.class.getCanonicalName(), null);
+		server.addBatch("/batch");
+		server.start();
+		try {
+			server.deployVersion("/versioned", "v2", VersionPoint.class.getCanonicalName(), null, null);
+			HttpURLConnection batch = (HttpURLConnection)new URL("http://localhost:9199/batch").openConnection();
+			batch.setRequestMethod("POST");
+			batch.setDoOutput(true);
+			batch.setRequestProperty("Content-Type", "application/json");
+			batch.getOutputStream().write(("[{\"id\":\"versioned\",\"path\":\"/versioned/entry-point/test\",\"headers\":{\""
+					+ VersionRoutingFilter.VERSION_HEADER + "\":\"v2\"}}]").getBytes("UTF-8"));
+			JsonArray results = Json.createReader(batch.getInputStream()).readArray();
+			assertEquals(testResult, results.getJsonObject(0).getString("body"));
+			HttpURLConnection connection = (HttpURLConnection)new URL("http://localhost:9199/versioned/entry-point/test").openConnection();
+			connection.setRequestProperty(VersionRoutingFilter.VERSION_HEADER, "v2");
+			Scanner scanner = new Scanner(connection.getInputStream()).useDelimiter("\\A");
+			try {
+				assertEquals(testResult, scanner.next());
+			} finally {
+				scanner.close();
+			}
+			LocalResponse restResponse = new LocalServerClient(server).get("/versioned/entry-point/test").header(VersionRoutingFilter.VERSION_HEADER, "v2").execute();
+			assertEquals("Test v2", restResponse.getResponse());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testNTestShadowLatencyWithoutQueue() throws Throwable {
+		logger.info("The shadow latency should not include the time the mirrored requests wait in the queue ..." );
+		TrafficMirror mirror = new TrafficMirror("/slow", 1d, 1, 10);
+		try {
+			for(int i=0; i<3; i++) {
+				assertTrue(mirror.mirror(jettyServer.getLocalConnector(), "GET", "/slow/slow-point/wait?ms=200&mirror=" + i, new HashMap<String, String>(0)));
+			}
+			long timeout = System.currentTimeMillis() + 5000L;
+			while (mirror.getShadowMetrics().getRequests()<3 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10L);
+			}
+			assertEquals(3, mirror.getShadowMetrics().getRequests());
+			assertTrue(mirror.toString(), mirror.getShadowMetrics().getAverageMillis()<350L);
+			assertTrue(mirror.toString(), mirror.getQueueMetrics().getAverageMillis()>=150L);
+		} finally {
+			mirror.shutdown();
+		}
+	}
+
+	@Test
+	public void testOTestAppliedDeploymentManifest() throws Throwable {
+		logger.info("An applied manifest should serve its jar context, loaded by its own class loader, on its port ..." );
+		File file = File.createTempFile("restfy-manifest", ".json");
+		File jar = new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar");
+		RestfyJavaServer server = new RestfyJavaServer(true, "/", "localhost", 9191);
+		try {
+			FileOutputStream output = new FileOutputStream(file);
+			output.write(("{\"contexts\": ["
+					+ "{\"context\": \"/simple\", \"classNames\": \"" + EntryPoint.class.getName() + "\"},"
+					+ "{\"context\": \"/jar\", \"type\": \"JAR_DEPLOY\", \"classNames\": \"com.service.restfy.java.server.jartest.services.EntryPoint\", "
+					+ "\"reference\": \"" + jar.getAbsolutePath().replace("\\", "/") + "\", \"port\": 9191}"
+					+ "]}").getBytes("UTF-8"));
+			output.close();
+			DeploymentManifest manifest = DeploymentManifest.parse(file);
+			manifest.validate(9190);
+			DeploymentManifest.apply(server, manifest.byPort(9190).get(9191));
+			server.start();
+			assertTrue(server.containsContext("/jar"));
+			assertTrue(!server.containsContext("/simple"));
+			for(ContextDeployment deployment: server.getDeployments()) {
+				if (deployment.getContextPath().equals("/jar/*"))
+					assertTrue(deployment.getClassLoader() instanceof URLClassLoader);
+			}
+			HttpURLConnection connection = (HttpURLConnection)new URL("http://localhost:9191/jar/entry-jar-point/test").openConnection();
+			Scanner scanner = new Scanner(connection.getInputStream()).useDelimiter("\\A");
+			try {
+				assertEquals(testResult, scanner.next());
+			} finally {
+				scanner.close();
+			}
+		} finally {
+			server.stop();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testPTestClassLoadersClosedOnStop() throws Throwable {
+		logger.info("The class loaders of the jar contexts and of their versions should be closed when the server stops ..." );
+		File jar = new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar");
+		String classNames = "com.service.restfy.java.server.jartest.services.EntryPoint";
+		RestfyJavaServer server = new RestfyJavaServer(0);
+		server.setNetworkConnectorEnabled(false);
+		server.setLocalConnectorEnabled(true);
+		server.addIsolatedJar("/jar", jar, classNames, null);
+		server.start();
+		URLClassLoader primary = null;
+		URLClassLoader version = null;
+		try {
+			server.deployVersion("/jar", "v2", classNames, jar, null);
+			primary = (URLClassLoader)server.getDeployments().get(0).getClassLoader();
+			version = (URLClassLoader)server.getContextVersions().get("/jar/*").getDeployment("v2").getClassLoader();
+			assertTrue(primary.findResource("META-INF/MANIFEST.MF")!=null);
+			assertTrue(version.findResource("META-INF/MANIFEST.MF")!=null);
+			assertEquals(testResult, new LocalServerClient(server).get("/jar/entry-jar-point/test").execute().getResponse());
+		} finally {
+			server.stop();
+		}
+		assertEquals(null, primary.findResource("META-INF/MANIFEST.MF"));
+		assertEquals(null, version.findResource("META-INF/MANIFEST.MF"));
+	}
+
+	@Test
+	public void testQTestStatisticsDuringHotDeploys() throws Throwable {
+		logger.info("Statistics and deployments should be readable while contexts are hot deployed ..." );
+		final RestfyJavaServer server = new RestfyJavaServer(0);
+		server.setNetworkConnectorEnabled(false);
+		server.setLocalConnectorEnabled(true);
+		server.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		server.start();
+		final AtomicBoolean deploying = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Integer> reader = executor.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					int reads = 0;
+					while (deploying.get()) {
+						server.getContextStatistics();
+						server.getDeployments();
+						server.containsHolderInContext("/hot0", "none");
+						reads++;
+					}
+					return reads;
+				}
+			});
+			File jar = new File("../java-server-jar-test/target/java-server-jar-test-0.0.1-SNAPSHOT.jar");
+			for(int i=0; i<10; i++) {
+				URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toURI().toURL()}, RestfyJavaServer.class.getClassLoader());
+				server.hotDeployJar("/hot" + i, jar, "com.service.restfy.java.server.jartest.services.EntryPoint", classLoader);
+				if (i%2==1)
+					server.hotUndeploy("/hot" + (i - 1) + "/*");
+			}
+			deploying.set(false);
+			assertTrue(reader.get()>0);
+			assertEquals(6, server.getDeployments().size());
+		} finally {
+			deploying.set(false);
+			executor.shutdownNow();
+			server.stop();
+		}
+	}
+
+	private static ResourceUsage usage(ResourceAccountant accountant, String name, long requests) {
+		for(ResourceUsage usage: accountant.getResourceUsage()) {
+			if (usage.getName().equals(name) && usage.getRequests()>=requests)
+				return usage;
+		}
+		return null;
+	}
+
+	private static int waitForStatus(String path, int status) throws Exception {
+		long timeout = System.currentTimeMillis() + 5000L;
+		int code = client.get(path).execute().getCode();
+		while (code!=status && System.currentTimeMillis()<timeout) {
+			Thread.sleep(50L);
+			code = client.get(path).execute().getCode();
+		}
+		return code;
+	}
+
+}
@@ -0,0 +1,184 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.accounting.ResourceAccountant;
+import com.service.restfy.java.server.accounting.ResourceUsage;
+import com.service.restfy.java.server.capture.TrafficCapture;
+import com.service.restfy.java.server.local.LocalResponse;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.priority.PriorityLane;
+import com.service.restfy.java.server.priority.PriorityScheduler;
+import com.service.restfy.java.server.test.services.SlowPoint;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPriorityRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static RestfyJavaServer jettyServer = null;
+	private static LocalServerClient client = null;
+	private static ExecutorService executor = null;
+	private static final String testResult = "Test";
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestPriorityRestfyJavaServer ..." );
+		jettyServer = new RestfyJavaServer(0);
+		jettyServer.setNetworkConnectorEnabled(false);
+		jettyServer.setLocalConnectorEnabled(true);
+		jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.addClassHolder("/slow", SlowPoint.class.getCanonicalName(), null);
+		PriorityScheduler scheduler = new PriorityScheduler(1);
+		scheduler.configure("critical:10:/simple");
+		scheduler.setMaxQueued(4);
+		jettyServer.setPriorityScheduler(scheduler);
+		jettyServer.start();
+		client = new LocalServerClient(jettyServer);
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		executor.shutdownNow();
+		jettyServer.stop();
+	}
+
+	private static Future<Integer> submit(final String path) {
+		return executor.submit(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				LocalResponse response = client.get(path).execute();
+				assertEquals(200, response.getCode());
+				return response.getCode();
+			}
+		});
+	}
+
+	@Test
+	public void test0TestCriticalLaneFirst() throws Throwable {
+		logger.info("Queued requests of a higher priority lane should be admitted first ..." );
+		PriorityScheduler scheduler = jettyServer.getPriorityScheduler();
+		Future<Integer> running = submit("/slow/slow-point/wait?ms=400");
+		Thread.sleep(100L);
+		List<Future<Integer>> bulk = new ArrayList<Future<Integer>>();
+		for(int i=0; i<3; i++) {
+			bulk.add(submit("/slow/slow-point/wait?ms=100&id=" + i));
+		}
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (scheduler.getQueued()<3 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		assertEquals(3, scheduler.getQueued());
+		Future<Integer> critical = submit("/simple/entry-point/test");
+		running.get();
+		critical.get();
+		for(Future<Integer> future: bulk) {
+			future.get();
+		}
+		PriorityLane lane = scheduler.getLane("critical");
+		PriorityLane defaultLane = scheduler.getLane(PriorityScheduler.DEFAULT_LANE);
+		assertEquals(1, lane.getAdmitted());
+		assertEquals(1, lane.getDelayed());
+		assertEquals(3, defaultLane.getDelayed());
+		// the last bulk request, queued before the critical one, waited for it and for two bulk requests
+		assertTrue(defaultLane.getWaitTimeMax() - lane.getWaitTimeMax()>=150L);
+		assertEquals(testResult, client.get("/simple/entry-point/test").execute().getResponse());
+	}
+
+	@Test
+	public void test1TestFullQueueRefused() throws Throwable {
+		logger.info("Requests arriving on a full queue should be refused ..." );
+		PriorityScheduler scheduler = jettyServer.getPriorityScheduler();
+		Future<Integer> running = submit("/slow/slow-point/wait?ms=300");
+		Thread.sleep(100L);
+		List<Future<Integer>> queued = new ArrayList<Future<Integer>>();
+		for(int i=0; i<4; i++) {
+			queued.add(submit("/slow/slow-point/wait?ms=10&id=" + i));
+		}
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (scheduler.getQueued()<4 && System.currentTimeMillis()<timeout) {
+			Thread.sleep(10L);
+		}
+		assertEquals(503, client.get("/slow/slow-point/wait?ms=10").execute().getCode());
+		running.get();
+		for(Future<Integer> future: queued) {
+			future.get();
+		}
+		assertEquals(1, scheduler.getLane(PriorityScheduler.DEFAULT_LANE).getRejected());
+		assertEquals(Long.valueOf(1L), jettyServer.getStatistics().get("priorityRejected"));
+	}
+
+	@Test
+	public void test2TestQueuedRequestFilteredOnce() throws Throwable {
+		logger.info("A queued request should be captured and accounted once, when it is admitted ..." );
+		File captureDir = File.createTempFile("restfy-capture", "");
+		captureDir.delete();
+		TrafficCapture capture = new TrafficCapture(captureDir, 1d);
+		ResourceAccountant accountant = new ResourceAccountant(1d);
+		RestfyJavaServer server = new RestfyJavaServer(0);
+		server.setNetworkConnectorEnabled(false);
+		server.setLocalConnectorEnabled(true);
+		server.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		server.addClassHolder("/slow", SlowPoint.class.getCanonicalName(), null);
+		server.setPriorityScheduler(new PriorityScheduler(1));
+		server.setTrafficCapture(capture);
+		server.setResourceAccountant(accountant);
+		server.start();
+		try {
+			final LocalServerClient serverClient = new LocalServerClient(server);
+			Future<LocalResponse> running = executor.submit(new Callable<LocalResponse>() {
+				public LocalResponse call() throws Exception {
+					return serverClient.get("/slow/slow-point/wait?ms=300").execute();
+				}
+			});
+			Thread.sleep(100L);
+			Future<LocalResponse> queued = executor.submit(new Callable<LocalResponse>() {
+				public LocalResponse call() throws Exception {
+					return serverClient.get("/simple/entry-point/test").execute();
+				}
+			});
+			long timeout = System.currentTimeMillis() + 2000L;
+			while (server.getPriorityScheduler().getQueued()<1 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10L);
+			}
+			assertEquals(1, server.getPriorityScheduler().getQueued());
+			assertEquals(200, running.get().getCode());
+			assertEquals(testResult, queued.get().getResponse());
+			timeout = System.currentTimeMillis() + 2000L;
+			while (capture.getCaptured()<2L && System.currentTimeMillis()<timeout) {
+				Thread.sleep(10L);
+			}
+			Thread.sleep(200L);
+			assertEquals(2L, capture.getCaptured());
+			long requests = 0L;
+			for(ResourceUsage usage: accountant.getResourceUsage()) {
+				if (usage.getName().equals("/simple:EntryPoint.test"))
+					requests += usage.getRequests();
+			}
+			assertEquals(1L, requests);
+		} finally {
+			server.stop();
+			for(File file: TrafficCapture.listFiles(captureDir)) {
+				file.delete();
+			}
+			captureDir.delete();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.priority.PriorityScheduler;
+import com.service.restfy.java.server.sse.MetricsStream;
+import com.service.restfy.java.server.websocket.PushChannel;
+import com.service.restfy.java.server.websocket.PushConnection;
+import com.service.restfy.java.server.websocket.PushListener;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPushRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static final int port = 9198;
+	private static RestfyJavaServer jettyServer = null;
+	private static PushChannel channel = null;
+	private static WebSocketClient client = null;
+
+	public static class ReceivingSocket extends WebSocketAdapter {
+		private BlockingQueue<String> messages = new LinkedBlockingQueue<String>();
+
+		@Override
+		public void onWebSocketText(String message) {
+			messages.add(message);
+		}
+
+		public String next() throws InterruptedException {
+			return messages.poll(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestPushRestfyJavaServer ..." );
+		jettyServer = new RestfyJavaServer(port);
+		jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		channel = new PushChannel(8, false);
+		channel.setListener(new PushListener() {
+			public void onOpen(PushConnection connection) {
+			}
+
+			public void onMessage(PushConnection connection, String message) {
+				connection.send("echo:" + message);
+			}
+
+			public void onClose(PushConnection connection, int statusCode, String reason) {
+			}
+		});
+		jettyServer.addPushChannel("/updates", channel);
+		jettyServer.addConsole("/admin");
+		jettyServer.getMetricsStream().setInterval(100L);
+		jettyServer.start();
+		client = new WebSocketClient();
+		client.start();
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		client.stop();
+		jettyServer.stop();
+	}
+
+	private static String nextEvent(BufferedReader reader) throws Throwable {
+		StringBuilder event = new StringBuilder();
+		for(String line = reader.readLine(); line!=null && line.length()>0; line = reader.readLine()) {
+			event.append(line).append('\n');
+		}
+		return event.toString();
+	}
+
+	private static void awaitConnections(int connections) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000L;
+		while (channel.getActiveConnections()!=connections && System.currentTimeMillis()<timeout) {
+			Thread.sleep(20L);
+		}
+		assertEquals(connections, channel.getActiveConnections());
+	}
+
+	@Test
+	public void test0TestBroadcastAndEcho() throws Throwable {
+		logger.info("Broadcast messages should be pushed to every connected client ..." );
+		ReceivingSocket first = new ReceivingSocket();
+		ReceivingSocket second = new ReceivingSocket();
+		Session firstSession = client.connect(first, new URI("ws://localhost:" + port + "/updates")).get(5, TimeUnit.SECONDS);
+		Session secondSession = client.connect(second, new URI("ws://localhost:" + port + "/updates")).get(5, TimeUnit.SECONDS);
+		awaitConnections(2);
+		assertEquals(2, channel.broadcast("update-1"));
+		assertEquals("update-1", first.next());
+		assertEquals("update-1", second.next());
+		firstSession.getRemote().sendString("ping");
+		assertEquals("echo:ping", first.next());
+		assertEquals(1L, channel.getReceived());
+		Map<String, Long> statistics = jettyServer.getStatistics();
+		assertEquals(Long.valueOf(2L), statistics.get("pushConnections"));
+		firstSession.close();
+		secondSession.close();
+		awaitConnections(0);
+		assertEquals(2L, channel.getClosed());
+	}
+
+	@Test
+	public void test1TestSlowConsumerClosed() throws Throwable {
+		logger.info("A client not reading its messages should be closed when its queue is full ..." );
+		ReceivingSocket slow = new ReceivingSocket();
+		ReceivingSocket fast = new ReceivingSocket();
+		Session slowSession = client.connect(slow, new URI("ws://localhost:" + port + "/updates")).get(5, TimeUnit.SECONDS);
+		Session fastSession = client.connect(fast, new URI("ws://localhost:" + port + "/updates")).get(5, TimeUnit.SECONDS);
+		awaitConnections(2);
+		slowSession.suspend();
+		char[] payload = new char[32 * 1024];
+		Arrays.fill(payload, 'x');
+		String message = new String(payload);
+		for(int i=0; i<400 && channel.getSlowConsumers()==0; i++) {
+			channel.broadcast(message);
+			assertEquals(message, fast.next());
+		}
+		assertEquals(1L, channel.getSlowConsumers());
+		assertTrue(channel.getDropped()>=1L);
+		assertEquals(8, channel.getMaxQueuedSeen());
+		awaitConnections(1);
+		assertEquals(1, channel.broadcast("after"));
+		assertEquals("after", fast.next());
+		fastSession.close();
+		awaitConnections(0);
+	}
+
+	@Test(timeout=10000)
+	public void test2TestMetricsStream() throws Throwable {
+		logger.info("Metrics snapshots should be shared by the stream subscribers ..." );
+		MetricsStream stream = jettyServer.getMetricsStream();
+		HttpURLConnection first = (HttpURLConnection)new URL("http://localhost:" + port + "/admin/console/metrics-stream").openConnection();
+		HttpURLConnection second = (HttpURLConnection)new URL("http://localhost:" + port + "/admin/console/metrics-stream").openConnection();
+		assertEquals(200, first.getResponseCode());
+		assertEquals(200, second.getResponseCode());
+		assertTrue(first.getContentType().startsWith("text/event-stream"));
+		BufferedReader firstEvents = new BufferedReader(new InputStreamReader(first.getInputStream(), StandardCharsets.UTF_8));
+		BufferedReader secondEvents = new BufferedReader(new InputStreamReader(second.getInputStream(), StandardCharsets.UTF_8));
+		for(int i=0; i<3; i++) {
+			String event = nextEvent(firstEvents);
+			assertTrue(event, event.contains("event: metrics\n"));
+			assertTrue(event, event.contains("\"/updates/*\":{\"pushConnections\":0"));
+			assertTrue(nextEvent(secondEvents).contains("\"server\":{"));
+		}
+		assertEquals(2, stream.getSubscribers());
+		assertTrue(stream.getDelivered()>=6L);
+		assertTrue(stream.getSnapshots()<stream.getDelivered());
+		first.disconnect();
+		second.disconnect();
+	}
+
+	@Test
+	public void test3TestPushChannelBeforeStartOnly() throws Throwable {
+		logger.info("Push channels should be refused after the start and in a web application server ..." );
+		try {
+			jettyServer.addPushChannel("/late", new PushChannel(8, false));
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+			assertTrue(!jettyServer.getPushChannels().containsKey("/late/*"));
+		}
+		RestfyJavaServer warServer = new RestfyJavaServer(0);
+		warServer.setWar("/war", new File("../java-server-war-test/target/java-server-war-test-0.0.1-SNAPSHOT.war").getAbsolutePath());
+		try {
+			warServer.addPushChannel("/updates", new PushChannel(8, false));
+			assertTrue(false);
+		} catch (IllegalStateException e) {
+			assertTrue(warServer.getPushChannels().isEmpty());
+		}
+	}
+
+	@Test(timeout=10000)
+	public void test4TestMetricsStreamReleasesSlot() throws Throwable {
+		logger.info("A metrics stream subscriber should hold neither a request thread nor a priority slot ..." );
+		RestfyJavaServer server = new RestfyJavaServer(9194);
+		server.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		server.addConsole("/admin");
+		server.setPriorityScheduler(new PriorityScheduler(1));
+		server.getMetricsStream().setInterval(100L);
+		server.start();
+		try {
+			HttpURLConnection stream = (HttpURLConnection)new URL("http://localhost:9194/admin/console/metrics-stream").openConnection();
+			assertEquals(200, stream.getResponseCode());
+			BufferedReader events = new BufferedReader(new InputStreamReader(stream.getInputStream(), StandardCharsets.UTF_8));
+			assertTrue(nextEvent(events).contains("event: metrics\n"));
+			assertEquals(1, server.getMetricsStream().getSubscribers());
+			assertEquals(0, server.getPriorityScheduler().getRunning());
+			HttpURLConnection simple = (HttpURLConnection)new URL("http://localhost:9194/simple/entry-point/test").openConnection();
+			assertEquals(200, simple.getResponseCode());
+			assertEquals(0L, server.getPriorityScheduler().getLane(PriorityScheduler.DEFAULT_LANE).getDelayed());
+			assertTrue(nextEvent(events).contains("\"server\":{"));
+			stream.disconnect();
+			long timeout = System.currentTimeMillis() + 5000L;
+			while (server.getMetricsStream().getSubscribers()>0 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(50L);
+			}
+			assertEquals(0, server.getMetricsStream().getSubscribers());
+		} finally {
+			server.stop();
+		}
+	}
+
+}
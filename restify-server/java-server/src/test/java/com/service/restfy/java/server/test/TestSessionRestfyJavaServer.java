@@ -0,0 +1,181 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.local.LocalResponse;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.session.OffHeapSessionStore;
+import com.service.restfy.java.server.test.services.SessionPoint;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestSessionRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static RestfyJavaServer jettyServer = null;
+	private static LocalServerClient client = null;
+	private static OffHeapSessionStore store = null;
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestSessionRestfyJavaServer ..." );
+		store = new OffHeapSessionStore(64 * 1024, 512);
+		jettyServer = new RestfyJavaServer(0);
+		jettyServer.setNetworkConnectorEnabled(false);
+		jettyServer.setLocalConnectorEnabled(true);
+		jettyServer.addClassHolder("/session", SessionPoint.class.getCanonicalName(), null);
+		jettyServer.setSessionStore(store);
+		jettyServer.start();
+		client = new LocalServerClient(jettyServer);
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		jettyServer.stop();
+		store.close();
+	}
+
+	@Test
+	public void test0TestSessionInStore() throws Throwable {
+		logger.info("A session should be kept in the store between requests ..." );
+		LocalResponse restResponse = client.get("/session/session-point/count").execute();
+		assertEquals(200, restResponse.getCode());
+		assertEquals("1", restResponse.getResponse());
+		String cookie = restResponse.getHeader("Set-Cookie");
+		assertNotNull(cookie);
+		assertTrue(waitForStoredSessions(1));
+		restResponse = client.get("/session/session-point/count").header("Cookie", cookie.split(";")[0]).execute();
+		assertEquals("2", restResponse.getResponse());
+		assertTrue(waitForStoredSessions(1));
+	}
+
+	private boolean waitForStoredSessions(int sessions) throws InterruptedException {
+		for(int i=0; i<100 && store.size()!=sessions; i++) {
+			Thread.sleep(10L);
+		}
+		return store.size()==sessions;
+	}
+
+	@Test
+	public void test1TestSessionSurvivesReload() throws Throwable {
+		logger.info("A session should survive the reload of the handler tree ..." );
+		LocalResponse restResponse = client.get("/session/session-point/count").execute();
+		String cookie = restResponse.getHeader("Set-Cookie").split(";")[0];
+		jettyServer.reload();
+		restResponse = client.get("/session/session-point/count").header("Cookie", cookie).execute();
+		assertEquals("2", restResponse.getResponse());
+	}
+
+	@Test
+	public void test2TestStoreEviction() throws Throwable {
+		logger.info("The least recently used sessions should be evicted from a full store ..." );
+		OffHeapSessionStore smallStore = new OffHeapSessionStore(4 * 100, 100);
+		assertTrue(smallStore.store("a", new byte[150], 0L));
+		assertTrue(smallStore.store("b", new byte[150], 0L));
+		assertNotNull(smallStore.load("a"));
+		assertTrue(smallStore.store("c", new byte[50], 0L));
+		assertNull(smallStore.load("b"));
+		assertEquals(1L, smallStore.getEvictions());
+		assertArrayEquals(new byte[150], smallStore.load("a"));
+		assertFalse(smallStore.store("d", new byte[500], 0L));
+		assertEquals(200L, smallStore.getUsedBytes());
+		assertTrue(smallStore.store("e", new byte[1], 1L));
+		assertEquals(Arrays.asList("e"), smallStore.getExpiredIds(System.currentTimeMillis()));
+	}
+
+	@Test
+	public void test3TestStatelessServer() throws Throwable {
+		logger.info("A stateless server should refuse to create sessions ..." );
+		RestfyJavaServer statelessServer = new RestfyJavaServer(0);
+		statelessServer.setNetworkConnectorEnabled(false);
+		statelessServer.setLocalConnectorEnabled(true);
+		statelessServer.addClassHolder("/session", SessionPoint.class.getCanonicalName(), null);
+		statelessServer.setStateless(true);
+		statelessServer.start();
+		try {
+			LocalResponse restResponse = new LocalServerClient(statelessServer).get("/session/session-point/count").execute();
+			assertEquals(500, restResponse.getCode());
+			assertNull(restResponse.getHeader("Set-Cookie"));
+		} finally {
+			statelessServer.stop();
+		}
+	}
+
+	/**
+	 * Store slow to write, it widens the window between the serialization of a session and its removal from the heap.
+	 */
+	private static class SlowSessionStore extends OffHeapSessionStore {
+		public SlowSessionStore(int capacity, int blockSize) {
+			super(capacity, blockSize);
+		}
+
+		@Override
+		public boolean store(String id, byte[] data, long expiryTime) {
+			try {
+				Thread.sleep(5L);
+			} catch (InterruptedException e) {
+			}
+			return super.store(id, data, expiryTime);
+		}
+	}
+
+	@Test
+	public void test4TestConcurrentRequestsOnSession() throws Throwable {
+		logger.info("Concurrent requests on the same session should not lose their attributes ..." );
+		SlowSessionStore slowStore = new SlowSessionStore(64 * 1024, 512);
+		RestfyJavaServer slowServer = new RestfyJavaServer(0);
+		slowServer.setNetworkConnectorEnabled(false);
+		slowServer.setLocalConnectorEnabled(true);
+		slowServer.addClassHolder("/session", SessionPoint.class.getCanonicalName(), null);
+		slowServer.setSessionStore(slowStore);
+		slowServer.start();
+		final LocalServerClient slowClient = new LocalServerClient(slowServer);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final String cookie = slowClient.get("/session/session-point/count").execute().getHeader("Set-Cookie").split(";")[0];
+			List<Future<Integer>> writers = new ArrayList<Future<Integer>>(0);
+			for(final String name: new String[] {"first", "second"}) {
+				writers.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						int failures = 0;
+						for(int i=0; i<50; i++) {
+							if (slowClient.get("/session/session-point/increment?name=" + name).header("Cookie", cookie).execute().getCode()!=200)
+								failures++;
+						}
+						return failures;
+					}
+				}));
+			}
+			for(Future<Integer> writer: writers) {
+				assertEquals(Integer.valueOf(0), writer.get());
+			}
+			assertEquals("50", slowClient.get("/session/session-point/get?name=first").header("Cookie", cookie).execute().getResponse());
+			assertEquals("50", slowClient.get("/session/session-point/get?name=second").header("Cookie", cookie).execute().getResponse());
+		} finally {
+			executor.shutdown();
+			slowServer.stop();
+			slowStore.close();
+		}
+	}
+}
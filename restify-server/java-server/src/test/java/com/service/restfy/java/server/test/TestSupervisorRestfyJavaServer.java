@@ -0,0 +1,117 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Assume;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.connector.ChannelServerConnector;
+import com.service.restfy.java.server.supervisor.ServerSupervisor;
+import com.service.restfy.java.server.supervisor.WorkerProcess;
+import com.service.restfy.java.server.test.services.EntryPoint;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestSupervisorRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static final int port = 9196;
+	private static final String testResult = "Test";
+
+	private static String get(String path) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection)new URL("http://localhost:" + port + path).openConnection();
+		connection.setRequestProperty("Connection", "close");
+		InputStream input = connection.getInputStream();
+		try {
+			Scanner scanner = new Scanner(input).useDelimiter("\\A");
+			return scanner.hasNext() ? scanner.next() : "";
+		} finally {
+			input.close();
+		}
+	}
+
+	private static List<String> exitingCommand() {
+		return Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java", "-version");
+	}
+
+	@Test
+	public void test0TestReusePortConnectors() throws Throwable {
+		logger.info("Two servers should bind the same port with SO_REUSEPORT and both serve it ..." );
+		Assume.assumeTrue(ChannelServerConnector.isReusePortSupported());
+		RestfyJavaServer first = new RestfyJavaServer(port);
+		first.setReusePort(true);
+		first.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		RestfyJavaServer second = new RestfyJavaServer(port);
+		second.setReusePort(true);
+		second.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		try {
+			first.start();
+			second.start();
+			for(int i=0; i<20; i++) {
+				assertEquals(testResult, get("/simple/entry-point/test"));
+			}
+			assertEquals(Long.valueOf(20L), Long.valueOf(first.getStatistics().get("requests") + second.getStatistics().get("requests")));
+			first.stop();
+			assertEquals(testResult, get("/simple/entry-point/test"));
+		} finally {
+			if (first.isRunning())
+				first.stop();
+			if (second.isRunning())
+				second.stop();
+		}
+	}
+
+	@Test
+	public void test1TestWorkerRestarts() throws Throwable {
+		logger.info("A worker exiting unexpectedly should be restarted and its restarts counted ..." );
+		WorkerProcess worker = new WorkerProcess(0, "localhost", 1, exitingCommand());
+		worker.start();
+		try {
+			long timeout = System.currentTimeMillis() + 10000L;
+			while (worker.getRestarts()<2 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(100L);
+			}
+			assertTrue(worker.getRestarts()>=2);
+		} finally {
+			worker.stop(1000L);
+		}
+	}
+
+	@Test
+	public void test2TestSupervisorStatistics() throws Throwable {
+		logger.info("The supervisor should aggregate the restarts of its workers ..." );
+		Assume.assumeTrue(ChannelServerConnector.isReusePortSupported());
+		ServerSupervisor supervisor = new ServerSupervisor("localhost", 2, 16100, new ArrayList<String>(0)) {
+			@Override
+			protected List<String> workerCommand(int workerLoopbackPort) {
+				return exitingCommand();
+			}
+		};
+		supervisor.start();
+		try {
+			long timeout = System.currentTimeMillis() + 10000L;
+			while (supervisor.getStatistics().get("workersRestarts")<2 && System.currentTimeMillis()<timeout) {
+				Thread.sleep(100L);
+			}
+			assertEquals(Long.valueOf(2L), supervisor.getStatistics().get("workers"));
+			assertTrue(supervisor.getStatistics().get("workersRestarts")>=2);
+		} finally {
+			supervisor.stop();
+		}
+	}
+
+}
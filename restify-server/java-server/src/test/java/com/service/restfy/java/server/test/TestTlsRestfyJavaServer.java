@@ -0,0 +1,104 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.security.cert.X509Certificate;
+import java.util.Scanner;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.tls.HandshakeMetrics;
+import com.service.restfy.java.server.tls.TlsContextFactory;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTlsRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+	private static RestfyJavaServer jettyServer = null;
+	private static SSLContext clientContext = null;
+	private static final String testResult = "Test";
+
+	@BeforeClass
+	public static final void init() throws Throwable {
+		logger.info("Initialization of tests for TestTlsRestfyJavaServer ..." );
+		jettyServer = new RestfyJavaServer(0);
+		jettyServer.setNetworkConnectorEnabled(false);
+		jettyServer.setHttpsConnector(0, new TlsContextFactory(TestTlsRestfyJavaServer.class.getResource("/restfy-test.jks").toExternalForm(), "restfy"));
+		jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+		jettyServer.start();
+		clientContext = SSLContext.getInstance("TLS");
+		clientContext.init(null, new TrustManager[] {new X509TrustManager() {
+			public void checkClientTrusted(X509Certificate[] chain, String authType) {
+			}
+
+			public void checkServerTrusted(X509Certificate[] chain, String authType) {
+			}
+
+			public X509Certificate[] getAcceptedIssuers() {
+				return new X509Certificate[0];
+			}
+		}}, null);
+	}
+
+	@AfterClass
+	public static final void dispose() throws Throwable {
+		jettyServer.stop();
+	}
+
+	private static String get(String path) throws Exception {
+		HttpsURLConnection connection = (HttpsURLConnection)new URL("https://localhost:" + jettyServer.getHttpsPort() + path).openConnection();
+		connection.setSSLSocketFactory(clientContext.getSocketFactory());
+		connection.setHostnameVerifier(new HostnameVerifier() {
+			public boolean verify(String hostname, SSLSession session) {
+				return true;
+			}
+		});
+		connection.setRequestProperty("Connection", "close");
+		InputStream input = connection.getInputStream();
+		try {
+			Scanner scanner = new Scanner(input).useDelimiter("\\A");
+			return scanner.hasNext() ? scanner.next() : "";
+		} finally {
+			input.close();
+		}
+	}
+
+	@Test
+	public void test0TestHttpsSimpleHolder() throws Throwable {
+		logger.info("A simple Rest Service Holder should be reachable over HTTPS ..." );
+		assertTrue(jettyServer.getHttpsPort()>0);
+		assertEquals(testResult, get("/simple/entry-point/test"));
+	}
+
+	@Test
+	public void test1TestHandshakeResumption() throws Throwable {
+		logger.info("New connections of the same client should resume the TLS session ..." );
+		for(int i=0; i<3; i++) {
+			assertEquals(testResult, get("/simple/entry-point/test"));
+		}
+		HandshakeMetrics metrics = jettyServer.getHandshakeMetrics();
+		logger.info("TLS handshakes : " + metrics);
+		assertEquals(4, metrics.getHandshakes());
+		assertEquals(1, metrics.getFullHandshakes());
+		assertEquals(3, metrics.getResumedHandshakes());
+		assertTrue(metrics.getResumedRatio()>0.5d);
+		assertEquals(Long.valueOf(4), jettyServer.getStatistics().get("tlsHandshakes"));
+	}
+}
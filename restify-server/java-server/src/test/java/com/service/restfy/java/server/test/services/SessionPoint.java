@@ -0,0 +1,43 @@
+package com.service.restfy.java.server.test.services;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+
+@Path("/session-point")
+public class SessionPoint {
+    @GET
+    @Path("count")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String count(@Context HttpServletRequest request) {
+        HttpSession session = request.getSession(true);
+        Integer count = (Integer)session.getAttribute("count");
+        count = count==null ? 1 : count + 1;
+        session.setAttribute("count", count);
+        return "" + count;
+    }
+
+    @GET
+    @Path("increment")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String increment(@Context HttpServletRequest request, @QueryParam("name") String name) {
+        HttpSession session = request.getSession(true);
+        Integer count = (Integer)session.getAttribute(name);
+        count = count==null ? 1 : count + 1;
+        session.setAttribute(name, count);
+        return "" + count;
+    }
+
+    @GET
+    @Path("get")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String get(@Context HttpServletRequest request, @QueryParam("name") String name) {
+        return "" + request.getSession(true).getAttribute(name);
+    }
+
+}
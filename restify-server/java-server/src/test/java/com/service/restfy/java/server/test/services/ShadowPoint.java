@@ -0,0 +1,22 @@
+package com.service.restfy.java.server.test.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@Path("/entry-point")
+public class ShadowPoint {
+    public static final AtomicInteger executions = new AtomicInteger(0);
+
+    @GET
+    @Path("test")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String test() {
+        executions.incrementAndGet();
+        return "Shadow";
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.service.restfy.java.server.test.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/slow-point")
+public class SlowPoint {
+    public static final AtomicInteger executions = new AtomicInteger(0);
+
+    @GET
+    @Path("wait")
+    @Produces(MediaType.TEXT_PLAIN)
+    public String waitFor(@QueryParam("ms") long ms) throws InterruptedException {
+        executions.incrementAndGet();
+        Thread.sleep(ms);
+        return "Waited " + ms;
+    }
+
+    @GET
+    @Path("private")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response waitForPrivate(@QueryParam("ms") long ms) throws InterruptedException {
+        executions.incrementAndGet();
+        Thread.sleep(ms);
+        return Response.ok("Waited " + ms).header("Cache-Control", "private, max-age=60").build();
+    }
+
+}
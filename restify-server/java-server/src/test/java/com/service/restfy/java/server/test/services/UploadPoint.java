@@ -0,0 +1,46 @@
+package com.service.restfy.java.server.test.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.service.restfy.java.server.upload.SpooledBody;
+
+@Path("/upload-point")
+public class UploadPoint {
+    @POST
+    @Path("spooled")
+    @Consumes(MediaType.WILDCARD)
+    @Produces(MediaType.TEXT_PLAIN)
+    public String spooled(SpooledBody body) throws IOException {
+        InputStream input = body.openStream();
+        try {
+            return body.getLength() + " " + (body.isInMemory() ? "memory" : "file") + " " + checksum(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    @POST
+    @Path("text")
+    @Consumes(MediaType.TEXT_PLAIN)
+    @Produces(MediaType.TEXT_PLAIN)
+    public String text(String body) {
+        return "" + body.length();
+    }
+
+    public static long checksum(InputStream input) throws IOException {
+        long sum = 0L;
+        int read = 0;
+        while ((read = input.read())>=0) {
+            sum = sum * 31 + read;
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.service.restfy.java.server.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.service.restfy.java.server.RestfyJavaServer;
+import com.service.restfy.java.server.jfr.ServerEvents;
+import com.service.restfy.java.server.local.LocalServerClient;
+import com.service.restfy.java.server.test.services.EntryPoint;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestEventsRestfyJavaServer {
+	private static final Logger logger = LoggerFactory.getLogger("com.service.restfy.java.server.test");
+
+	private static RecordedEvent find(List<RecordedEvent> events, String name, String field, Object value) {
+		for(RecordedEvent event: events) {
+			if (event.getEventType().getName().equals(name) && event.hasField(field) && value.equals(event.getValue(field)))
+				return event;
+		}
+		return null;
+	}
+
+	@Test
+	public void test0TestRecordedServerEvents() throws Throwable {
+		logger.info("Deploy, lifecycle, loopback and request events should be recorded with their fields ..." );
+		assertTrue(ServerEvents.getInstance().isEnabled());
+		File dump = File.createTempFile("restfy-events", ".jfr");
+		Recording recording = new Recording();
+		recording.enable("com.service.restfy.Deploy");
+		recording.enable("com.service.restfy.Lifecycle");
+		recording.enable("com.service.restfy.LoopbackCommand");
+		recording.enable("com.service.restfy.ContextRequest").withThreshold(Duration.ZERO);
+		recording.start();
+		RestfyJavaServer jettyServer = new RestfyJavaServer(0);
+		try {
+			jettyServer.setNetworkConnectorEnabled(false);
+			jettyServer.setLocalConnectorEnabled(true);
+			jettyServer.addClassHolder("/simple", EntryPoint.class.getCanonicalName(), null);
+			jettyServer.start();
+			assertEquals(200, new LocalServerClient(jettyServer).get("/simple/entry-point/test").execute().getCode());
+			assertTrue(RestfyJavaServer.sendRemoteCommand("localhost", jettyServer.getLoopbackPort(), "stats").get(0).startsWith("stats"));
+		} finally {
+			jettyServer.stop();
+			recording.stop();
+		}
+		try {
+			recording.dump(dump.toPath());
+			List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+			RecordedEvent deploy = find(events, "com.service.restfy.Deploy", "contextPath", "/simple/*");
+			assertTrue(deploy!=null);
+			assertEquals("CLASS_DEPLOY", deploy.getString("deployType"));
+			assertEquals(EntryPoint.class.getCanonicalName(), deploy.getString("reference"));
+			assertTrue(deploy.getBoolean("success"));
+			RecordedEvent start = find(events, "com.service.restfy.Lifecycle", "action", "start");
+			assertTrue(start!=null);
+			assertTrue(start.getBoolean("success"));
+			assertTrue(find(events, "com.service.restfy.Lifecycle", "action", "stop")!=null);
+			RecordedEvent command = find(events, "com.service.restfy.LoopbackCommand", "command", "stats");
+			assertTrue(command!=null);
+			assertTrue(command.getString("reply").startsWith("stats"));
+			RecordedEvent request = find(events, "com.service.restfy.ContextRequest", "uri", "/simple/entry-point/test");
+			assertTrue(request!=null);
+			assertEquals("/simple", request.getString("contextPath"));
+			assertEquals("GET", request.getString("method"));
+			assertEquals(200, request.getInt("status"));
+		} finally {
+			recording.close();
+			dump.delete();
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.service.restfy.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic count of events.
+ */
+public class Counter extends Metric<Counter.Child> {
+
+	public static class Child {
+		private final AtomicLong value = new AtomicLong(0L);
+
+		public void inc() {
+			value.incrementAndGet();
+		}
+
+		public void inc(long amount) {
+			if (amount<0L)
+				throw new IllegalArgumentException("Counters cannot decrease: " + amount);
+			value.addAndGet(amount);
+		}
+
+		public long get() {
+			return value.get();
+		}
+	}
+
+	Counter(String name, String help, String[] labelNames) {
+		super(name, help, labelNames);
+	}
+
+	public void inc() {
+		unlabelled().inc();
+	}
+
+	public void inc(long amount) {
+		unlabelled().inc(amount);
+	}
+
+	public long get() {
+		return unlabelled().get();
+	}
+
+	@Override
+	public String getType() {
+		return "counter";
+	}
+
+	@Override
+	protected Child newChild() {
+		return new Child();
+	}
+
+	@Override
+	void expose(TextExposition out, List<String> labelValues, Child child) {
+		out.sample(getName(), null, labelNames(), labelValues, null, null).value(child.get());
+	}
+}
@@ -0,0 +1,77 @@
+package com.service.restfy.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value that goes up and down, kept as the bits of a double updated by compare and set.
+ */
+public class Gauge extends Metric<Gauge.Child> {
+
+	public static class Child {
+		private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0d));
+
+		public void set(double value) {
+			bits.set(Double.doubleToRawLongBits(value));
+		}
+
+		public void inc() {
+			add(1d);
+		}
+
+		public void dec() {
+			add(-1d);
+		}
+
+		public void add(double amount) {
+			long current, next;
+			do {
+				current = bits.get();
+				next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + amount);
+			} while (!bits.compareAndSet(current, next));
+		}
+
+		public double get() {
+			return Double.longBitsToDouble(bits.get());
+		}
+	}
+
+	Gauge(String name, String help, String[] labelNames) {
+		super(name, help, labelNames);
+	}
+
+	public void set(double value) {
+		unlabelled().set(value);
+	}
+
+	public void inc() {
+		unlabelled().inc();
+	}
+
+	public void dec() {
+		unlabelled().dec();
+	}
+
+	public void add(double amount) {
+		unlabelled().add(amount);
+	}
+
+	public double get() {
+		return unlabelled().get();
+	}
+
+	@Override
+	public String getType() {
+		return "gauge";
+	}
+
+	@Override
+	protected Child newChild() {
+		return new Child();
+	}
+
+	@Override
+	void expose(TextExposition out, List<String> labelValues, Child child) {
+		out.sample(getName(), null, labelNames(), labelValues, null, null).value(child.get());
+	}
+}
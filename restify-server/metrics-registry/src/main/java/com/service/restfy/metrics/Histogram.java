@@ -0,0 +1,112 @@
+package com.service.restfy.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of observed values in buckets of fixed upper bounds. An observation updates one
+ * bucket, the cumulative counts of the Prometheus format are computed when the metric is exposed.
+ */
+public class Histogram extends Metric<Histogram.Child> {
+	/**
+	 * Bounds in seconds, suited to request latencies.
+	 */
+	public static final double[] DEFAULT_BUCKETS = {0.005d, 0.01d, 0.025d, 0.05d, 0.1d, 0.25d, 0.5d, 1d, 2.5d, 5d, 10d};
+
+	private final double[] bounds;
+
+	public static class Child {
+		private final double[] bounds;
+		private final AtomicLongArray buckets;
+		private final AtomicLong sumBits = new AtomicLong(Double.doubleToRawLongBits(0d));
+
+		Child(double[] bounds) {
+			this.bounds = bounds;
+			this.buckets = new AtomicLongArray(bounds.length + 1);
+		}
+
+		public void observe(double value) {
+			int bucket = 0;
+			while (bucket<bounds.length && value>bounds[bucket]) {
+				bucket++;
+			}
+			buckets.incrementAndGet(bucket);
+			long current, next;
+			do {
+				current = sumBits.get();
+				next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+			} while (!sumBits.compareAndSet(current, next));
+		}
+
+		/**
+		 * Observes a duration measured with {@link System#nanoTime()}, in seconds.
+		 */
+		public void observeNanos(long nanos) {
+			observe(nanos / 1e9d);
+		}
+
+		public long getCount() {
+			long count = 0L;
+			for(int i=0; i<buckets.length(); i++) {
+				count += buckets.get(i);
+			}
+			return count;
+		}
+
+		public double getSum() {
+			return Double.longBitsToDouble(sumBits.get());
+		}
+
+		/**
+		 * @return observations of the given bucket, the last one is above the highest bound
+		 */
+		public long getBucket(int bucket) {
+			return buckets.get(bucket);
+		}
+	}
+
+	Histogram(String name, String help, double[] bounds, String[] labelNames) {
+		super(name, help, labelNames);
+		for(int i=1; i<bounds.length; i++) {
+			if (bounds[i]<=bounds[i-1])
+				throw new IllegalArgumentException("Histogram " + name + " bounds must increase: " + bounds[i-1] + ", " + bounds[i]);
+		}
+		this.bounds = bounds.clone();
+	}
+
+	public double[] getBounds() {
+		return bounds.clone();
+	}
+
+	public void observe(double value) {
+		unlabelled().observe(value);
+	}
+
+	public void observeNanos(long nanos) {
+		unlabelled().observeNanos(nanos);
+	}
+
+	@Override
+	public String getType() {
+		return "histogram";
+	}
+
+	@Override
+	protected Child newChild() {
+		return new Child(bounds);
+	}
+
+	@Override
+	void expose(TextExposition out, List<String> labelValues, Child child) {
+		long cumulative = 0L;
+		for(int i=0; i<bounds.length; i++) {
+			cumulative += child.getBucket(i);
+			out.sample(getName(), "_bucket", labelNames(), labelValues, "le", null).bound(bounds[i]).value(cumulative);
+		}
+		cumulative += child.getBucket(bounds.length);
+		out.sample(getName(), "_bucket", labelNames(), labelValues, "le", "+Inf").value(cumulative);
+		out.sample(getName(), "_sum", labelNames(), labelValues, null, null).value(child.getSum());
+		out.sample(getName(), "_count", labelNames(), labelValues, null, null).value(cumulative);
+	}
+}
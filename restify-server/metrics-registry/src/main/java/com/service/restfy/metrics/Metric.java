@@ -0,0 +1,105 @@
+package com.service.restfy.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Family of samples sharing a name and a set of label names, every combination of label values
+ * has its own child. Looking up a child allocates its key, so the code on a hot path keeps the
+ * children it updates instead of calling {@link #labels(String...)} every time.
+ * @param <C> type of the children
+ */
+public abstract class Metric<C> {
+	private final String name;
+	private final String help;
+	private final String[] labelNames;
+	private final ConcurrentMap<List<String>, C> children = new ConcurrentHashMap<List<String>, C>();
+	private volatile C unlabelled = null;
+
+	protected Metric(String name, String help, String[] labelNames) {
+		super();
+		this.name = name;
+		this.help = help;
+		this.labelNames = labelNames.clone();
+	}
+
+	/**
+	 * Creates the child of a metric without labels, so it is exposed before its first update.
+	 */
+	void initialize() {
+		if (labelNames.length==0)
+			unlabelled();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHelp() {
+		return help;
+	}
+
+	public List<String> getLabelNames() {
+		return Collections.unmodifiableList(Arrays.asList(labelNames));
+	}
+
+	/**
+	 * @return the child of the given label values, created on first use
+	 */
+	public C labels(String... labelValues) {
+		if (labelValues.length!=labelNames.length)
+			throw new IllegalArgumentException("Metric " + name + " expects " + labelNames.length + " label values, got " + labelValues.length);
+		List<String> key = Arrays.asList(labelValues.clone());
+		C child = children.get(key);
+		if (child==null) {
+			C current = children.putIfAbsent(key, child = newChild());
+			if (current!=null)
+				child = current;
+		}
+		return child;
+	}
+
+	/**
+	 * Forgets the child of the given label values, for example when its context is undeployed.
+	 */
+	public void remove(String... labelValues) {
+		children.remove(Arrays.asList(labelValues));
+	}
+
+	/**
+	 * @return the child of a metric without labels
+	 */
+	protected C unlabelled() {
+		C child = unlabelled;
+		if (child==null) {
+			if (labelNames.length>0)
+				throw new IllegalStateException("Metric " + name + " has labels " + Arrays.toString(labelNames));
+			unlabelled = child = labels();
+		}
+		return child;
+	}
+
+	protected Map<List<String>, C> getChildren() {
+		return children;
+	}
+
+	String[] labelNames() {
+		return labelNames;
+	}
+
+	/**
+	 * @return Prometheus type of the metric
+	 */
+	public abstract String getType();
+
+	protected abstract C newChild();
+
+	/**
+	 * Writes the samples of a child.
+	 */
+	abstract void expose(TextExposition out, List<String> labelValues, C child);
+}
@@ -0,0 +1,140 @@
+package com.service.restfy.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the metrics of a process, exposed in the Prometheus text format. The metrics are
+ * updated without locks; a scrape runs the collectors, which refresh the metrics computed on
+ * demand, then writes every metric through a buffer reused by the next scrape.
+ * <p>
+ * The default registry is shared by the components of the process, the server and the test
+ * engine register in it unless they are given their own registry.
+ */
+public class MetricsRegistry {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+	private static final Pattern LABEL = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+	private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+	/**
+	 * Refreshes metrics whose value is read from another component at scrape time.
+	 */
+	public interface Collector {
+		void collect(MetricsRegistry registry);
+	}
+
+	private ConcurrentMap<String, Metric<?>> metrics = new ConcurrentHashMap<String, Metric<?>>();
+	private List<Collector> collectors = new CopyOnWriteArrayList<Collector>();
+	private TextExposition exposition = new TextExposition();
+
+	public MetricsRegistry() {
+		super();
+	}
+
+	public static MetricsRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	public Counter counter(String name, String help, String... labelNames) {
+		return register(new Counter(name, help, labelNames), Counter.class);
+	}
+
+	public Gauge gauge(String name, String help, String... labelNames) {
+		return register(new Gauge(name, help, labelNames), Gauge.class);
+	}
+
+	public Histogram histogram(String name, String help, double[] bounds, String... labelNames) {
+		Histogram histogram = register(new Histogram(name, help, bounds, labelNames), Histogram.class);
+		if (!Arrays.equals(histogram.getBounds(), bounds))
+			throw new IllegalArgumentException("Histogram " + name + " already registered with bounds " + Arrays.toString(histogram.getBounds()));
+		return histogram;
+	}
+
+	/**
+	 * @return the registered metric of the same name, or the given one if the name is new
+	 */
+	private <M extends Metric<?>> M register(M metric, Class<M> type) {
+		if (!NAME.matcher(metric.getName()).matches())
+			throw new IllegalArgumentException("Invalid metric name: " + metric.getName());
+		for(String labelName: metric.labelNames()) {
+			if (!LABEL.matcher(labelName).matches() || labelName.equals("le"))
+				throw new IllegalArgumentException("Invalid label name of metric " + metric.getName() + ": " + labelName);
+		}
+		Metric<?> current = metrics.putIfAbsent(metric.getName(), metric);
+		if (current==null) {
+			metric.initialize();
+			return metric;
+		}
+		if (!type.isInstance(current) || !current.getLabelNames().equals(metric.getLabelNames()))
+			throw new IllegalArgumentException("Metric " + metric.getName() + " already registered as " + current.getType() + " with labels " + current.getLabelNames());
+		return type.cast(current);
+	}
+
+	public void unregister(String name) {
+		metrics.remove(name);
+	}
+
+	public Metric<?> getMetric(String name) {
+		return metrics.get(name);
+	}
+
+	public List<Metric<?>> getMetrics() {
+		return new ArrayList<Metric<?>>(metrics.values());
+	}
+
+	public void addCollector(Collector collector) {
+		collectors.add(collector);
+	}
+
+	public void removeCollector(Collector collector) {
+		collectors.remove(collector);
+	}
+
+	/**
+	 * Writes the metrics in the Prometheus text format.
+	 */
+	public synchronized void writeTo(OutputStream output) throws IOException {
+		expose();
+		exposition.writeTo(output);
+	}
+
+	/**
+	 * @return the metrics in the Prometheus text format
+	 */
+	public synchronized String format() {
+		expose();
+		return exposition.toString();
+	}
+
+	private void expose() {
+		for(Collector collector: collectors) {
+			collector.collect(this);
+		}
+		exposition.reset();
+		List<String> names = new ArrayList<String>(metrics.keySet());
+		Collections.sort(names);
+		for(String name: names) {
+			Metric<?> metric = metrics.get(name);
+			if (metric!=null)
+				expose(metric);
+		}
+	}
+
+	private <C> void expose(Metric<C> metric) {
+		exposition.header(metric);
+		for(Map.Entry<List<String>, C> child: metric.getChildren().entrySet()) {
+			metric.expose(exposition, child.getKey(), child.getValue());
+		}
+	}
+}
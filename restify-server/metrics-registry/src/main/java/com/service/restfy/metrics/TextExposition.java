@@ -0,0 +1,145 @@
+package com.service.restfy.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writer of the Prometheus text format. The text and its UTF-8 encoding are built in buffers
+ * kept between the scrapes, so a scrape allocates only when the exposition grows; the writer
+ * is not thread safe, the registry serializes the scrapes.
+ */
+class TextExposition {
+	private final StringBuilder text = new StringBuilder(4096);
+	private byte[] bytes = new byte[4096];
+	private int labels = 0;
+	private String pendingLabel = null;
+
+	void reset() {
+		text.setLength(0);
+	}
+
+	void header(Metric<?> metric) {
+		text.append("# HELP ").append(metric.getName()).append(' ');
+		escape(metric.getHelp(), false);
+		text.append('\n');
+		text.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+	}
+
+	/**
+	 * Starts a sample line, when the extra label has no value it is set by {@link #bound(double)}.
+	 */
+	TextExposition sample(String name, String suffix, String[] labelNames, List<String> labelValues, String extraLabel, String extraValue) {
+		text.append(name);
+		if (suffix!=null)
+			text.append(suffix);
+		labels = 0;
+		for(int i=0; i<labelNames.length; i++) {
+			label(labelNames[i]);
+			escape(labelValues.get(i), true);
+			text.append('"');
+		}
+		pendingLabel = null;
+		if (extraLabel!=null) {
+			if (extraValue!=null) {
+				label(extraLabel);
+				escape(extraValue, true);
+				text.append('"');
+			}
+			else {
+				pendingLabel = extraLabel;
+			}
+		}
+		return this;
+	}
+
+	TextExposition bound(double bound) {
+		label(pendingLabel);
+		number(bound);
+		text.append('"');
+		pendingLabel = null;
+		return this;
+	}
+
+	void value(long value) {
+		if (labels>0)
+			text.append('}');
+		text.append(' ').append(value).append('\n');
+	}
+
+	void value(double value) {
+		if (labels>0)
+			text.append('}');
+		text.append(' ');
+		number(value);
+		text.append('\n');
+	}
+
+	private void label(String name) {
+		text.append(labels==0 ? '{' : ',').append(name).append("=\"");
+		labels++;
+	}
+
+	private void number(double value) {
+		if (Double.isNaN(value))
+			text.append("NaN");
+		else if (Double.isInfinite(value))
+			text.append(value>0 ? "+Inf" : "-Inf");
+		else if (value==Math.rint(value) && Math.abs(value)<1e15d)
+			text.append((long)value);
+		else
+			text.append(value);
+	}
+
+	private void escape(String value, boolean quote) {
+		for(int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			if (c=='\\')
+				text.append("\\\\");
+			else if (c=='\n')
+				text.append("\\n");
+			else if (c=='"' && quote)
+				text.append("\\\"");
+			else
+				text.append(c);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+
+	/**
+	 * Encodes the text as UTF-8 in the reused byte buffer and writes it.
+	 */
+	void writeTo(OutputStream output) throws IOException {
+		int length = text.length();
+		if (bytes.length<length * 3)
+			bytes = new byte[Math.max(length * 3, bytes.length * 2)];
+		int size = 0;
+		for(int i=0; i<length; i++) {
+			char c = text.charAt(i);
+			if (c<0x80) {
+				bytes[size++] = (byte)c;
+			}
+			else if (c<0x800) {
+				bytes[size++] = (byte)(0xC0 | (c >> 6));
+				bytes[size++] = (byte)(0x80 | (c & 0x3F));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1<length && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				bytes[size++] = (byte)(0xF0 | (codePoint >> 18));
+				bytes[size++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[size++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[size++] = (byte)(0x80 | (codePoint & 0x3F));
+			}
+			else {
+				bytes[size++] = (byte)(0xE0 | (c >> 12));
+				bytes[size++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+				bytes[size++] = (byte)(0x80 | (c & 0x3F));
+			}
+		}
+		output.write(bytes, 0, size);
+	}
+}
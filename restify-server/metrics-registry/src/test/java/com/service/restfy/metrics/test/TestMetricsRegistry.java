@@ -0,0 +1,96 @@
+package com.service.restfy.metrics.test;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.service.restfy.metrics.Counter;
+import com.service.restfy.metrics.Gauge;
+import com.service.restfy.metrics.Histogram;
+import com.service.restfy.metrics.MetricsRegistry;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestMetricsRegistry {
+
+	@Test
+	public void test0TestTextFormat() throws Throwable {
+		MetricsRegistry registry = new MetricsRegistry();
+		Counter requests = registry.counter("app_requests_total", "Requests served.", "context");
+		requests.labels("/simple").inc();
+		requests.labels("/simple").inc(2L);
+		registry.gauge("app_sessions", "Open sessions.").set(4d);
+		Histogram latency = registry.histogram("app_latency_seconds", "Request latency.", new double[] {0.1d, 1d});
+		latency.observe(0.05d);
+		latency.observe(0.5d);
+		latency.observe(3d);
+		String text = registry.format();
+		assertTrue(text, text.contains("# TYPE app_requests_total counter\napp_requests_total{context=\"/simple\"} 3\n"));
+		assertTrue(text, text.contains("# HELP app_sessions Open sessions.\n# TYPE app_sessions gauge\napp_sessions 4\n"));
+		assertTrue(text, text.contains("app_latency_seconds_bucket{le=\"0.1\"} 1\n"));
+		assertTrue(text, text.contains("app_latency_seconds_bucket{le=\"1\"} 2\n"));
+		assertTrue(text, text.contains("app_latency_seconds_bucket{le=\"+Inf\"} 3\n"));
+		assertTrue(text, text.contains("app_latency_seconds_sum 3.55\n"));
+		assertTrue(text, text.contains("app_latency_seconds_count 3\n"));
+	}
+
+	@Test
+	public void test1TestRegistration() throws Throwable {
+		MetricsRegistry registry = new MetricsRegistry();
+		Gauge gauge = registry.gauge("app_queue", "Queue depth.", "lane");
+		assertSame(gauge, registry.gauge("app_queue", "Queue depth.", "lane"));
+		try {
+			registry.counter("app_queue", "Queue depth.", "lane");
+			assertTrue("A metric name should keep its type", false);
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			registry.counter("app-queue", "Invalid name.");
+			assertTrue("An invalid metric name should be rejected", false);
+		} catch (IllegalArgumentException e) {
+		}
+		gauge.labels("say \"hi\"\n").set(1.5d);
+		assertTrue(registry.format().contains("app_queue{lane=\"say \\\"hi\\\"\\n\"} 1.5\n"));
+	}
+
+	@Test
+	public void test2TestConcurrentUpdatesAndReusedBuffer() throws Throwable {
+		MetricsRegistry registry = new MetricsRegistry();
+		final Counter counter = registry.counter("app_events_total", "Events.");
+		final Gauge gauge = registry.gauge("app_level", "Level.");
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int i=0; i<4; i++) {
+			Thread thread = new Thread() {
+				public void run() {
+					for(int j=0; j<10000; j++) {
+						counter.inc();
+						gauge.add(0.5d);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for(Thread thread: threads) {
+			thread.join();
+		}
+		assertEquals(40000L, counter.get());
+		assertEquals(20000d, gauge.get(), 0d);
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		registry.writeTo(first);
+		registry.writeTo(second);
+		assertEquals(new String(first.toByteArray(), StandardCharsets.UTF_8), new String(second.toByteArray(), StandardCharsets.UTF_8));
+		assertTrue(new String(first.toByteArray(), StandardCharsets.UTF_8).contains("app_events_total 40000\n"));
+	}
+
+}
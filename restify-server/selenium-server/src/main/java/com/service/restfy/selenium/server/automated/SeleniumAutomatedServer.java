@@ -4,6 +4,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +15,7 @@ import org.openqa.selenium.remote.DesiredCapabilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.service.restfy.metrics.MetricsRegistry;
 import com.service.restfy.selenium.server.automated.WebDriveFactory.SELECTOR_TYPE;
 import com.service.restfy.selenium.server.automated.multithread.WebDriverParallelFactory;
 import com.service.restfy.selenium.server.cases.TestEngine;
@@ -263,6 +265,30 @@ public class SeleniumAutomatedServer implements WebDriverParallelFactory {
 			} catch (Throwable e) {
 			}
 		}
+		if (engineProperties.containsKey(SeleniumServerConstants.outputMetrics)) {
+			exportMetrics(engineProperties.getProperty(SeleniumServerConstants.outputMetrics), testEngine.getMetricsRegistry());
+		}
+	}
+
+	/**
+	 * Writes the engine metrics in the Prometheus text format, for a node exporter textfile collector or a push gateway.
+	 */
+	protected final void exportMetrics(String fileName, MetricsRegistry registry) {
+		OutputStream metricsOut = null;
+		try {
+			metricsOut = new FileOutputStream(fileName, false);
+			registry.writeTo(metricsOut);
+			logger.info("Metrics Output : " + fileName);
+		} catch (Throwable e) {
+			logger.warn("Metrics output not available on file '" + fileName + "' ...", e);
+		} finally {
+			if (metricsOut!=null) {
+				try {
+					metricsOut.close();
+				} catch (Throwable e) {
+				}
+			}
+		}
 	}
 	
 	@Override
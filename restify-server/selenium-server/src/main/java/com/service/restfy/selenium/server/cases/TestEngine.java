@@ -19,6 +19,10 @@ import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.service.restfy.metrics.Counter;
+import com.service.restfy.metrics.Gauge;
+import com.service.restfy.metrics.Histogram;
+import com.service.restfy.metrics.MetricsRegistry;
 import com.service.restfy.selenium.server.automated.WebDriverSelector;
 import com.service.restfy.selenium.server.automated.multithread.TestCaseResult;
 import com.service.restfy.selenium.server.automated.multithread.UserCaseResult;
@@ -32,6 +36,7 @@ public class TestEngine implements Callable<UserCaseResult>{
 			System.setProperty("log4j.configurationFile", "log4j2.xml");
 	}
 	private static Logger logger = LoggerFactory.getLogger("com.service.restfy.selenium.server");
+	private static final double[] CASE_BUCKETS = {0.05d, 0.1d, 0.25d, 0.5d, 1d, 2.5d, 5d, 10d, 30d, 60d};
 	private static final String REPORT_LINE_SEPARATOR = "------------------------------------------------------------------------------------------------------------------------------------";
 	
 	private WebDriver driver = null;
@@ -50,20 +55,41 @@ public class TestEngine implements Callable<UserCaseResult>{
 	private long parallelStart = 0L;
 	private long parallelEnd = 0L;
 	private WebDriverParallelFactory factory = null;
+	private MetricsRegistry metricsRegistry = null;
+	private Counter casesMetric = null;
+	private Histogram durationMetric = null;
+	private Gauge usersMetric = null;
 
 	public TestEngine() {
 		super();
+		this.setMetricsRegistry(MetricsRegistry.getDefault());
 	}
 
 	public TestEngine(WebDriver driver) {
 		super();
 		this.driver=driver;
+		this.setMetricsRegistry(MetricsRegistry.getDefault());
 	}
 	
 	public TestEngine(WebDriver driver, boolean traceRunOnLogger) {
 		super();
 		this.driver = driver;
 		this.traceRunOnLogger = traceRunOnLogger;
+		this.setMetricsRegistry(MetricsRegistry.getDefault());
+	}
+
+	public MetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Records the executed cases, their timings and the running users in the given registry.
+	 */
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+		this.casesMetric = metricsRegistry.counter("restfy_engine_cases_total", "Test cases executed by result.", "result");
+		this.durationMetric = metricsRegistry.histogram("restfy_engine_case_duration_seconds", "Time spent in the phases of the test cases.", CASE_BUCKETS, "phase");
+		this.usersMetric = metricsRegistry.gauge("restfy_engine_users_active", "Parallel users running the test cases.");
 	}
 
 	public void addCase(BaseTestCase testCase) {
@@ -180,6 +206,14 @@ public class TestEngine implements Callable<UserCaseResult>{
 		return result;
 	}
 	
+	private void recordCase(BaseTestCase testCase, boolean success) {
+		casesMetric.labels(success ? "success" : "failure").inc();
+		durationMetric.labels("test_case").observe(testCase.getTestCaseElapsedTime() / 1000d);
+		durationMetric.labels("rendering").observe(testCase.getRenderingElapsedTime() / 1000d);
+		durationMetric.labels("security").observe(testCase.getSecurityAccessElapsedTime() / 1000d);
+		durationMetric.labels("action").observe(testCase.getTestActionElapsedTime() / 1000d);
+	}
+	
 	private synchronized int nextParallelCounter() {
 		return ++parallelCounter;
 	}
@@ -192,6 +226,7 @@ public class TestEngine implements Callable<UserCaseResult>{
 		int caseExecuted = 0;
 		int caseFailed = 0;
 		WebDriverSelector driverSelector = null;
+		usersMetric.inc();
 		try {
 			driverSelector = factory.nextWebDriver();
 			WebDriver driver = driverSelector.getWebDriver();
@@ -202,8 +237,10 @@ public class TestEngine implements Callable<UserCaseResult>{
 					info("Executing test case [UID:"+testCase.getCaseUID()+"] name : " + testCase.getCaseName());
 				try {
 					userResult.addTestCase(this.executeParallelTestCase(driver, testCase));
+					recordCase(testCase, true);
 				} catch (Throwable e) {
 					caseFailed++;
+					recordCase(testCase, false);
 					String message = e.getMessage();
 					TestCaseResult result = new TestCaseResult(testCase.getCaseUID(), testCase.getCaseName());
 					result.setRenderingElapsedTime(testCase.getRenderingElapsedTime());
@@ -221,6 +258,7 @@ public class TestEngine implements Callable<UserCaseResult>{
 			userResult.setErrorMessage("Unable to Complete the Tread due to : " +  (message!=null ? message.replace('\n', ' '):message));
 		}
 		finally {
+			usersMetric.dec();
 			if (driverSelector!=null)
 				driverSelector.stopWebDriver();
 		}
@@ -294,8 +332,10 @@ public class TestEngine implements Callable<UserCaseResult>{
 				info("Executing test case [UID:"+testCase.getCaseUID()+"] name : " + testCase.getCaseName());
 			try {
 				this.executeTestCase(testCase);
+				recordCase(testCase, true);
 			} catch (Throwable e) {
 				caseFailed++;
+				recordCase(testCase, false);
 				String message = e.getMessage();
 				caseMessages.put(testCase.getCaseUID(), "[FAIL]: Test Case '"+testCase.getCaseName()+"' failed due to: "+ (message!=null ? message.replace('\n', ' '):message));
 				caseResponseStatus.put(testCase.getCaseUID(), false);